@@ -11,6 +11,8 @@ import java.security.DigestInputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import com.sun.codemodel.CodeWriter;
 import com.sun.codemodel.JPackage;
@@ -20,6 +22,10 @@ public class ChangeFileCodeWriter extends CodeWriter {
 	/** The target directory to put source code. */
 	private final File target;
 	private final StringBuilder log;
+	/** Every file opened by this writer, whether or not it changed. */
+	private final Set<File> files = new LinkedHashSet<File>();
+	private int writtenCount = 0;
+	private int skippedCount = 0;
 
 	public class WriteOnChangedOutputStream extends OutputStream {
 
@@ -62,6 +68,7 @@ public class ChangeFileCodeWriter extends CodeWriter {
 					byte[] md5old = digestOldFile.getMessageDigest().digest();
 					if (MessageDigest.isEqual(md5new, md5old)) {
 						log.append("Not overwriting " + file.toString() + " because it did not change\n");
+						skippedCount++;
 						return;
 					}
 				}
@@ -74,6 +81,7 @@ public class ChangeFileCodeWriter extends CodeWriter {
 			} finally {
 				out.close();
 			}
+			writtenCount++;
 		}
 	}
 
@@ -84,7 +92,37 @@ public class ChangeFileCodeWriter extends CodeWriter {
 
 	@Override
 	public OutputStream openBinary(JPackage pkg, String fileName) throws IOException {
-		return new WriteOnChangedOutputStream(getFile(pkg, fileName));
+		File file = getFile(pkg, fileName);
+		files.add(file);
+		return new WriteOnChangedOutputStream(file);
+	}
+
+	/**
+	 * The files produced by this writer, including the files that were not
+	 * overwritten because they did not change.
+	 * 
+	 * @return
+	 */
+	public Set<File> getFiles() {
+		return files;
+	}
+
+	/**
+	 * The number of files that were written because they changed.
+	 * 
+	 * @return
+	 */
+	public int getWrittenCount() {
+		return writtenCount;
+	}
+
+	/**
+	 * The number of files that were not overwritten because they did not change.
+	 * 
+	 * @return
+	 */
+	public int getSkippedCount() {
+		return skippedCount;
 	}
 
 	protected File getFile(JPackage pkg, String fileName) throws IOException {
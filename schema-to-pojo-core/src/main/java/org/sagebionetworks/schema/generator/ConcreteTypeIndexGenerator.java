@@ -0,0 +1,240 @@
+package org.sagebionetworks.schema.generator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.adapter.JSONEntity;
+
+import com.sun.codemodel.JArray;
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JForLoop;
+import com.sun.codemodel.JInvocation;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JOp;
+import com.sun.codemodel.JSwitch;
+import com.sun.codemodel.JVar;
+
+/**
+ * Generates a single index of all of the concrete classes that implement an
+ * interface, and interface factories that are views over this index.
+ * <p>
+ * Each concrete class has one position in the index. An interface factory only
+ * holds a bit set of the positions of the classes that implement its interface,
+ * so a class that implements many interfaces is only listed once.
+ *
+ */
+public class ConcreteTypeIndexGenerator {
+
+	/**
+	 * The number of bits in each element of a bit set.
+	 */
+	static final int BITS_PER_WORD = 32;
+
+	/**
+	 * Create the index class.
+	 *
+	 * @param codeModel
+	 * @param list       The concrete classes in the order of the index.
+	 * @param indexClass
+	 * @return
+	 */
+	public static JDefinedClass createIndex(JCodeModel codeModel, List<ObjectSchema> list, JDefinedClass indexClass) {
+		JFieldVar classNames = RegisterGenerator.createClassNamesField(codeModel, list, indexClass);
+		// No instances of the index
+		indexClass.constructor(JMod.PRIVATE);
+		createIndexOfMethod(codeModel, list, indexClass);
+		createNewInstanceMethod(codeModel, list, indexClass);
+		createIsImplementationMethod(codeModel, indexClass);
+		createIteratorMethod(codeModel, indexClass, classNames);
+
+		indexClass.javadoc().add(RegisterGenerator.AUTO_GENERATED_MESSAGE);
+		indexClass.javadoc().add("\n");
+		indexClass.javadoc().add("\nThe index of all of the concrete classes that implement an interface, shared by the interface factories.");
+		return indexClass;
+	}
+
+	/**
+	 * Create the method that finds the position of a class name in the index.
+	 *
+	 * @param codeModel
+	 * @param list
+	 * @param indexClass
+	 * @return
+	 */
+	protected static JMethod createIndexOfMethod(JCodeModel codeModel, List<ObjectSchema> list, JDefinedClass indexClass) {
+		JMethod method = indexClass.method(JMod.PUBLIC | JMod.STATIC, codeModel.INT, "indexOf");
+		JVar param = method.param(codeModel.ref(String.class), "className");
+		JBlock body = method.body();
+		body._if(param.eq(JExpr._null()))._then()._return(JExpr.lit(-1));
+		JSwitch jSwitch = body._switch(param);
+		for (int i = 0; i < list.size(); i++) {
+			JDefinedClass concrete = RegisterGenerator.getJDefinedClassForSchema(codeModel, list.get(i));
+			jSwitch._case(JExpr.lit(concrete.fullName())).body()._return(JExpr.lit(i));
+		}
+		jSwitch._default().body()._return(JExpr.lit(-1));
+		method.javadoc().add("The position of the given class in this index.");
+		method.javadoc().addParam(param).add("The full class name.");
+		method.javadoc().addReturn().add("The position of the class, or -1 if the class is not in this index.");
+		return method;
+	}
+
+	/**
+	 * Create the method that creates a new instance of the class at a position
+	 * of the index.
+	 *
+	 * @param codeModel
+	 * @param list
+	 * @param indexClass
+	 * @return
+	 */
+	protected static JMethod createNewInstanceMethod(JCodeModel codeModel, List<ObjectSchema> list, JDefinedClass indexClass) {
+		JMethod method = indexClass.method(JMod.PUBLIC | JMod.STATIC, codeModel.ref(JSONEntity.class), "newInstance");
+		JVar param = method.param(codeModel.INT, "index");
+		JSwitch jSwitch = method.body()._switch(param);
+		for (int i = 0; i < list.size(); i++) {
+			JDefinedClass concrete = RegisterGenerator.getJDefinedClassForSchema(codeModel, list.get(i));
+			jSwitch._case(JExpr.lit(i)).body()._return(JExpr._new(concrete));
+		}
+		JInvocation newIllegal = JExpr._new(codeModel.ref(IllegalArgumentException.class));
+		newIllegal.arg(JExpr.lit("Unknown index: ").plus(param));
+		jSwitch._default().body()._throw(newIllegal);
+		method.javadoc().add("Create a new instance of the class at the given position of this index.");
+		method.javadoc().addParam(param);
+		method.javadoc().addThrows(IllegalArgumentException.class).add("For unknown positions");
+		return method;
+	}
+
+	/**
+	 * Create the method that checks if a position is in a bit set.
+	 *
+	 * @param codeModel
+	 * @param indexClass
+	 * @return
+	 */
+	protected static JMethod createIsImplementationMethod(JCodeModel codeModel, JDefinedClass indexClass) {
+		JMethod method = indexClass.method(JMod.PUBLIC | JMod.STATIC, codeModel.BOOLEAN, "isImplementation");
+		JVar implementations = method.param(codeModel.INT.array(), "implementations");
+		JVar index = method.param(codeModel.INT, "index");
+		method.body()._return(index.gte(JExpr.lit(0)).cand(isBitSet(implementations, index)));
+		method.javadoc().add("Is the class at the given position of this index in the given bit set?");
+		method.javadoc().addParam(implementations).add("The bit set of the positions of the classes implementing an interface.");
+		method.javadoc().addParam(index).add("A position of this index or -1.");
+		return method;
+	}
+
+	/**
+	 * Create the method that iterates over the names of the classes of a bit
+	 * set.
+	 *
+	 * @param codeModel
+	 * @param indexClass
+	 * @param classNames
+	 * @return
+	 */
+	protected static JMethod createIteratorMethod(JCodeModel codeModel, JDefinedClass indexClass, JFieldVar classNames) {
+		JClass itType = codeModel.ref(Iterator.class).narrow(String.class);
+		JMethod method = indexClass.method(JMod.PUBLIC | JMod.STATIC, itType, "iterator");
+		JVar implementations = method.param(codeModel.INT.array(), "implementations");
+		JBlock body = method.body();
+		JClass listType = codeModel.ref(List.class).narrow(String.class);
+		JVar names = body.decl(listType, "names", JExpr._new(codeModel.ref(ArrayList.class).narrow(String.class)));
+		JForLoop loop = body._for();
+		JVar i = loop.init(codeModel.INT, "i", JExpr.lit(0));
+		loop.test(i.lt(classNames.ref("length")));
+		loop.update(i.incr());
+		loop.body()._if(isBitSet(implementations, i))._then().add(names.invoke("add").arg(classNames.component(i)));
+		body._return(codeModel.ref(Collections.class).staticInvoke("unmodifiableList").arg(names).invoke("iterator"));
+		method.javadoc().add("Iterate over the names of the classes in the given bit set.");
+		method.javadoc().addParam(implementations).add("The bit set of the positions of the classes implementing an interface.");
+		return method;
+	}
+
+	private static JExpression isBitSet(JVar bits, JVar index) {
+		return JOp.band(bits.component(index.shrz(JExpr.lit(5))), JExpr.lit(1).shl(index)).ne(JExpr.lit(0));
+	}
+
+	/**
+	 * Create an interface factory that is a view over the index.
+	 *
+	 * @param codeModel
+	 * @param implementations   The classes that implement the interface.
+	 * @param positions         The position of each class in the index by id.
+	 * @param factoryClass
+	 * @param indexClass
+	 * @param interfaceFullName
+	 * @return
+	 */
+	public static JDefinedClass createFactory(JCodeModel codeModel, Collection<ObjectSchema> implementations, Map<String, Integer> positions,
+			JDefinedClass factoryClass, JDefinedClass indexClass, String interfaceFullName) {
+		JFieldVar bits = createImplementationsField(codeModel, implementations, positions, factoryClass);
+		createFactoryNewInstanceMethod(codeModel, factoryClass, indexClass, bits, interfaceFullName);
+		JMethod iterator = factoryClass.method(JMod.PUBLIC, codeModel.ref(Iterator.class).narrow(String.class), "getKeySetIterator");
+		iterator.body()._return(indexClass.staticInvoke("iterator").arg(bits));
+		iterator.javadoc().add("Get the key set iterator.");
+		iterator.javadoc().addReturn();
+		RegisterGenerator.createSingleton(codeModel, factoryClass);
+		RegisterGenerator.createGetDefaultConcreteTypeMethod(codeModel, factoryClass, interfaceFullName);
+
+		factoryClass.javadoc().add(RegisterGenerator.AUTO_GENERATED_MESSAGE);
+		factoryClass.javadoc().add("\n");
+		factoryClass.javadoc().add("\nCreates new instances of the concrete classes of " + interfaceFullName + " using " + indexClass.name() + ".");
+		return factoryClass;
+	}
+
+	/**
+	 * Create the bit set of the positions of the implementations in the index.
+	 *
+	 * @param codeModel
+	 * @param implementations
+	 * @param positions
+	 * @param factoryClass
+	 * @return
+	 */
+	protected static JFieldVar createImplementationsField(JCodeModel codeModel, Collection<ObjectSchema> implementations,
+			Map<String, Integer> positions, JDefinedClass factoryClass) {
+		int[] words = new int[(positions.size() + BITS_PER_WORD - 1) / BITS_PER_WORD];
+		for (ObjectSchema schema : implementations) {
+			Integer position = positions.get(schema.getId());
+			if (position == null) {
+				throw new IllegalArgumentException("The class " + schema.getId() + " is not in the concrete type index");
+			}
+			words[position / BITS_PER_WORD] |= 1 << (position % BITS_PER_WORD);
+		}
+		JArray array = JExpr.newArray(codeModel.INT);
+		for (int word : words) {
+			array.add(JExpr.lit(word));
+		}
+		return factoryClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, codeModel.INT.array(), "IMPLEMENTATIONS", array);
+	}
+
+	private static JMethod createFactoryNewInstanceMethod(JCodeModel codeModel, JDefinedClass factoryClass, JDefinedClass indexClass,
+			JFieldVar bits, String interfaceFullName) {
+		JClass returnType = RegisterGenerator.createClassFromFullName(codeModel, interfaceFullName);
+		JMethod method = factoryClass.method(JMod.PUBLIC, returnType, "newInstance");
+		JVar param = method.param(codeModel.ref(String.class), "className");
+		JBlock body = method.body();
+		JVar index = body.decl(codeModel.INT, "index", indexClass.staticInvoke("indexOf").arg(param));
+		JInvocation newIllegal = JExpr._new(codeModel.ref(IllegalArgumentException.class));
+		newIllegal.arg(JExpr.lit("Cannot create new instance. Unknown class: ").plus(param));
+		body._if(indexClass.staticInvoke("isImplementation").arg(bits).arg(index).not())._then()._throw(newIllegal);
+		body._return(JExpr.cast(returnType, indexClass.staticInvoke("newInstance").arg(index)));
+
+		method.javadoc().add("Create a new instance of an auto-generated concrete class using the full class name.");
+		method.javadoc().addParam(param).add("The full class name of the class to get a new instance of.");
+		method.javadoc().addReturn().add("New instance of the given class.");
+		method.javadoc().addThrows(IllegalArgumentException.class).add("For unknown class names");
+		return method;
+	}
+}
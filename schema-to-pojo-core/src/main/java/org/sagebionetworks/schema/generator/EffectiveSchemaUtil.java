@@ -6,6 +6,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,30 +58,57 @@ public class EffectiveSchemaUtil {
 	 * @throws JSONObjectAdapterException
 	 */
 	public static ObjectSchema generateEffectiveSchema(ObjectSchema schema) throws JSONObjectAdapterException {
+		return generateEffectiveSchema(schema, new HashMap<String, ObjectSchema>());
+	}
+
+	/**
+	 * Generate the "effective" schema object, reusing the effective schemas that
+	 * were already generated for sub-schemas with an id. The returned schema
+	 * shares these effective sub-schemas with the other schemas generated with
+	 * the same memo, so it must not be modified.
+	 * 
+	 * @param schema
+	 * @param memo   The effective schemas generated so far, by schema id.
+	 * @return
+	 * @throws JSONObjectAdapterException
+	 */
+	public static ObjectSchema generateEffectiveSchema(ObjectSchema schema, Map<String, ObjectSchema> memo) throws JSONObjectAdapterException {
 		if (schema == null) {
 			throw new IllegalArgumentException("Schema cannot be null");
 		}
+		if (memo == null) {
+			throw new IllegalArgumentException("Memo cannot be null");
+		}
 		if(schema.is$RecursiveRefInstance()) {
 			ObjectSchemaImpl ref = new ObjectSchemaImpl();
 			ref.set$recursiveRef(ObjectSchemaImpl.SELF_REFERENCE);
 			return ref;
 		}
+		if (schema.getId() != null) {
+			ObjectSchema effective = memo.get(schema.getId());
+			if (effective != null) {
+				return effective;
+			}
+		}
 		// First make a copy of the schema
-		JSONObjectAdapter adapter = schema.writeToJSONObject(new JSONObjectAdapterImpl());
-		adapter = new JSONObjectAdapterImpl(adapter.toJSONString());
-		ObjectSchema copy = new ObjectSchemaImpl(adapter);
+		ObjectSchema copy = copySchema(schema);
+		// Register the copy before recursing so a reference back to this schema reuses it.
+		if (schema.getId() != null) {
+			memo.put(schema.getId(), copy);
+		}
 		// Clear the extends, implements and default concrete type
 		copy.setExtends(null);
 		copy.setImplements(null);
 		copy.setDefaultConcreteType(null);
 
 		//flatten out the properties for the current schema
-		LinkedHashMap<String, ObjectSchema> flattenedProperties = (LinkedHashMap<String, ObjectSchema>) schema.getObjectFieldMap();
-		ObjectSchemaImpl.recursivelyAddAllExtendsProperties(flattenedProperties, schema);
-		if(flattenedProperties != null) {
+		Map<String, ObjectSchema> fieldMap = schema.getObjectFieldMap();
+		if(fieldMap != null) {
+			LinkedHashMap<String, ObjectSchema> flattenedProperties = new LinkedHashMap<String, ObjectSchema>(fieldMap);
+			ObjectSchemaImpl.recursivelyAddAllExtendsProperties(flattenedProperties, schema);
 			//for flattened properties in this copy, recursively flatten all of their properties
 			for (Map.Entry<String, ObjectSchema> entry : flattenedProperties.entrySet()) {
-				flattenedProperties.put(entry.getKey(), generateEffectiveSchema(entry.getValue()));
+				entry.setValue(generateEffectiveSchema(entry.getValue(), memo));
 			}
 
 			copy.setProperties(flattenedProperties);
@@ -88,29 +116,74 @@ public class EffectiveSchemaUtil {
 
 		//flatten objectSchema for ARRAY types
 		if(copy.getItems() != null){
-			copy.setItems(generateEffectiveSchema(copy.getItems()));
+			copy.setItems(generateEffectiveSchema(copy.getItems(), memo));
 		}
 
 		//flatten objectSchema for MAP types
 		if(copy.getValue() != null){
-			copy.setValue(generateEffectiveSchema(copy.getValue()));
+			copy.setValue(generateEffectiveSchema(copy.getValue(), memo));
 		}
 		// Add any properties from the extends.
 		return copy;
 	}
 
+	/**
+	 * Copy a single schema node without serializing it.
+	 * 
+	 * @param schema
+	 * @return
+	 * @throws JSONObjectAdapterException
+	 */
+	private static ObjectSchema copySchema(ObjectSchema schema) throws JSONObjectAdapterException {
+		if (schema instanceof ObjectSchemaImpl) {
+			return new ObjectSchemaImpl((ObjectSchemaImpl) schema);
+		}
+		JSONObjectAdapter adapter = schema.writeToJSONObject(new JSONObjectAdapterImpl());
+		adapter = new JSONObjectAdapterImpl(adapter.toJSONString());
+		return new ObjectSchemaImpl(adapter);
+	}
+
 	/**
 	 * Write the effective schema file for the given schemas to the given output
-	 * directory.
+	 * directory. The effective schemas are generated once, sharing the effective
+	 * sub-schemas between the schemas, and are then written in parallel.
 	 * 
 	 * @param outputDir
 	 * @param schemas
 	 * @throws JSONObjectAdapterException 
 	 * @throws IOException 
 	 */
-	public static void generateEffectiveSchemaFiles(File outputDir, List<ObjectSchema> schemas) throws JSONObjectAdapterException, IOException {
+	public static void generateEffectiveSchemaFiles(final File outputDir, List<ObjectSchema> schemas) throws JSONObjectAdapterException, IOException {
+		Map<String, ObjectSchema> memo = new HashMap<String, ObjectSchema>();
+		final Map<ObjectSchema, ObjectSchema> effectiveSchemas = new LinkedHashMap<ObjectSchema, ObjectSchema>();
 		for(ObjectSchema schema: schemas) {
-			generateEffectiveSchemaFile(outputDir, schema);
+			effectiveSchemas.put(schema, generateEffectiveSchema(schema, memo));
+		}
+		try {
+			effectiveSchemas.entrySet().parallelStream().forEach(entry -> {
+				try {
+					writeEffectiveSchemaFile(outputDir, entry.getKey(), entry.getValue());
+				} catch (JSONObjectAdapterException | IOException e) {
+					throw new WriteException(e);
+				}
+			});
+		} catch (WriteException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw (JSONObjectAdapterException) e.getCause();
+		}
+	}
+
+	/**
+	 * Carries the checked exceptions out of the parallel writes.
+	 */
+	private static class WriteException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		WriteException(Exception cause) {
+			super(cause);
 		}
 	}
 
@@ -126,7 +199,22 @@ public class EffectiveSchemaUtil {
 	 */
 	public static File generateEffectiveSchemaFile(File outputDir, ObjectSchema schema)
 			throws JSONObjectAdapterException, IOException, UnsupportedEncodingException {
-		String schemaJson = generateJSONofEffectiveSchema(schema);
+		return writeEffectiveSchemaFile(outputDir, schema, generateEffectiveSchema(schema));
+	}
+
+	/**
+	 * Write the given effective schema to the file of the given schema.
+	 * 
+	 * @param outputDir
+	 * @param schema
+	 * @param effective
+	 * @return
+	 * @throws JSONObjectAdapterException
+	 * @throws IOException
+	 */
+	private static File writeEffectiveSchemaFile(File outputDir, ObjectSchema schema, ObjectSchema effective)
+			throws JSONObjectAdapterException, IOException {
+		String schemaJson = effective.writeToJSONObject(new JSONObjectAdapterImpl()).toJSONString();
 		// Convert the single line JSON to multi-line with indentation.
 		JSONObject object = new JSONObject(schemaJson);
 		schemaJson = object.toString(3);
@@ -137,7 +225,7 @@ public class EffectiveSchemaUtil {
 		}
 		return resultFile;
 	}
-	
+
 	/**
 	 * Create the .json file name for the given schema.
 	 * @param schema
@@ -0,0 +1,306 @@
+package org.sagebionetworks.schema.generator;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The time and memory used by each phase of a generation, plus counts of what
+ * was generated.
+ * <p>
+ * A phase can be started and stopped many times, for example once per schema,
+ * and its totals accumulate. Nested starts of the same phase are only counted
+ * once. The allocated bytes are those of the calling thread and are -1 when the
+ * JVM cannot measure them. When Java Flight Recorder is available each
+ * measured interval is also recorded as a {@link GenerationPhaseEvent}.
+ *
+ */
+public class GenerationMetrics {
+
+	/**
+	 * The phases of a generation, in the order they run.
+	 */
+	public enum Phase {
+		/**
+		 * Finding the schema files.
+		 */
+		DISCOVER,
+		/**
+		 * Reading the schema files.
+		 */
+		READ,
+		/**
+		 * Parsing the JSON and creating the schema objects.
+		 */
+		PARSE,
+		/**
+		 * Interning, registering ids and replacing references.
+		 */
+		RESOLVE_REFERENCES,
+		/**
+		 * Creating the types and their properties.
+		 */
+		CREATE_TYPES,
+		/**
+		 * Adding the methods that read and write JSON.
+		 */
+		MARSHALING,
+		/**
+		 * Adding hashCode() and equals().
+		 */
+		HASH_AND_EQUALS,
+		/**
+		 * Adding toString().
+		 */
+		TO_STRING,
+		/**
+		 * Adding writeExternal() and readExternal().
+		 */
+		EXTERNALIZABLE,
+		/**
+		 * Adding copy().
+		 */
+		COPY,
+		/**
+		 * Adding the field descriptors and the indexed field accessors.
+		 */
+		FIELD_ACCESS,
+		/**
+		 * Adding fingerprint64().
+		 */
+		FINGERPRINT,
+		/**
+		 * Adding validate().
+		 */
+		VALIDATION,
+		/**
+		 * Creating the register and the interface instance factories.
+		 */
+		REGISTER_AND_FACTORIES,
+		/**
+		 * Writing an effective schema file for each schema.
+		 */
+		EFFECTIVE_SCHEMAS,
+		/**
+		 * Writing the generated source files.
+		 */
+		WRITE_SOURCES
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private final long[] nanos = new long[PHASES.length];
+	private final long[] allocatedBytes = new long[PHASES.length];
+	private final long[] startNanos = new long[PHASES.length];
+	private final long[] startBytes = new long[PHASES.length];
+	private final int[] depth = new int[PHASES.length];
+	private final Object[] events = new Object[PHASES.length];
+
+	private int schemaCount;
+	private int classCount;
+	private int fieldCount;
+	private int filesWritten;
+	private int filesSkipped;
+
+	/**
+	 * Start measuring the given phase.
+	 *
+	 * @param phase
+	 */
+	public void start(Phase phase) {
+		int i = phase.ordinal();
+		if (depth[i]++ > 0) {
+			return;
+		}
+		events[i] = GenerationPhaseEvent.begin(phase);
+		startBytes[i] = AllocationSupport.getAllocatedBytes();
+		startNanos[i] = System.nanoTime();
+	}
+
+	/**
+	 * Stop measuring the given phase, adding the time and memory used since it
+	 * was started to its totals.
+	 *
+	 * @param phase
+	 */
+	public void stop(Phase phase) {
+		int i = phase.ordinal();
+		if (depth[i] == 0) {
+			throw new IllegalStateException("Phase was not started: " + phase);
+		}
+		if (--depth[i] > 0) {
+			return;
+		}
+		nanos[i] += System.nanoTime() - startNanos[i];
+		long bytes = -1;
+		if (startBytes[i] >= 0) {
+			bytes = AllocationSupport.getAllocatedBytes() - startBytes[i];
+			allocatedBytes[i] += bytes;
+		} else {
+			allocatedBytes[i] = -1;
+		}
+		GenerationPhaseEvent.end(events[i], bytes);
+		events[i] = null;
+	}
+
+	/**
+	 * The total time spent in the given phase.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	/**
+	 * The total bytes allocated by the generating thread in the given phase, or
+	 * -1 if this cannot be measured.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public long getAllocatedBytes(Phase phase) {
+		return allocatedBytes[phase.ordinal()];
+	}
+
+	/**
+	 * The total time of all phases.
+	 *
+	 * @return
+	 */
+	public long getTotalNanos() {
+		long total = 0;
+		for (long phaseNanos : nanos) {
+			total += phaseNanos;
+		}
+		return total;
+	}
+
+	/**
+	 * The number of root schemas.
+	 *
+	 * @return
+	 */
+	public int getSchemaCount() {
+		return schemaCount;
+	}
+
+	void setSchemaCount(int schemaCount) {
+		this.schemaCount = schemaCount;
+	}
+
+	/**
+	 * The number of generated classes, interfaces and enumerations.
+	 *
+	 * @return
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	void setClassCount(int classCount) {
+		this.classCount = classCount;
+	}
+
+	/**
+	 * The number of fields added to the generated classes.
+	 *
+	 * @return
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	void addFieldCount(int fieldCount) {
+		this.fieldCount += fieldCount;
+	}
+
+	/**
+	 * The number of source files that were written.
+	 *
+	 * @return
+	 */
+	public int getFilesWritten() {
+		return filesWritten;
+	}
+
+	/**
+	 * The number of source files that were not written because they did not
+	 * change.
+	 *
+	 * @return
+	 */
+	public int getFilesSkipped() {
+		return filesSkipped;
+	}
+
+	void setFileCounts(int filesWritten, int filesSkipped) {
+		this.filesWritten = filesWritten;
+		this.filesSkipped = filesSkipped;
+	}
+
+	/**
+	 * A summary of the counts and of the time and memory used by each phase,
+	 * one line per phase.
+	 *
+	 * @return
+	 */
+	public String getSummary() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Generated ").append(classCount).append(" classes with ").append(fieldCount).append(" fields from ")
+				.append(schemaCount).append(" schemas in ").append(toMillis(getTotalNanos())).append(" ms (")
+				.append(filesWritten).append(" files written, ").append(filesSkipped).append(" unchanged)\n");
+		for (Phase phase : PHASES) {
+			builder.append(String.format("  %-24s %8d ms", phase, toMillis(nanos[phase.ordinal()])));
+			long bytes = allocatedBytes[phase.ordinal()];
+			if (bytes >= 0) {
+				builder.append(String.format(" %10d KB", bytes / 1024));
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	private static long toMillis(long nanos) {
+		return nanos / 1000000;
+	}
+
+	@Override
+	public String toString() {
+		return getSummary();
+	}
+
+	/**
+	 * Reads the bytes allocated by the current thread when the JVM supports it.
+	 */
+	private static class AllocationSupport {
+
+		private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+		private static com.sun.management.ThreadMXBean getThreadBean() {
+			try {
+				java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+				if (bean instanceof com.sun.management.ThreadMXBean) {
+					com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+					if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+						return sunBean;
+					}
+				}
+			} catch (LinkageError e) {
+				// Not a HotSpot JVM.
+			} catch (RuntimeException e) {
+				// Not supported.
+			}
+			return null;
+		}
+
+		/**
+		 * @return The bytes allocated by the current thread, or -1 if unknown.
+		 */
+		static long getAllocatedBytes() {
+			if (THREAD_BEAN == null) {
+				return -1;
+			}
+			return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+}
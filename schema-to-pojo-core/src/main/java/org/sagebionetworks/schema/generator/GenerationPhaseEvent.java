@@ -0,0 +1,146 @@
+package org.sagebionetworks.schema.generator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.sagebionetworks.schema.generator.GenerationMetrics.Phase;
+
+/**
+ * A Flight Recorder event for one measured interval of a generation phase.
+ * <p>
+ * The event type is defined at runtime with jdk.jfr.EventFactory, reached by
+ * reflection, so this module has no compile time dependency on jdk.jfr and
+ * runs on JVMs without it. There, {@link #begin(Phase)} returns null and no
+ * events are recorded.
+ *
+ */
+final class GenerationPhaseEvent {
+
+	static final String NAME = "org.sagebionetworks.schema.GenerationPhase";
+
+	/**
+	 * The index of each field in the event type.
+	 */
+	private static final int PHASE_FIELD = 0;
+	private static final int ALLOCATED_BYTES_FIELD = 1;
+
+	/**
+	 * Null when Flight Recorder is not available.
+	 */
+	private static final GenerationPhaseEvent TYPE = create();
+
+	private final Object factory;
+	private final Method newEvent;
+	private final Method isEnabled;
+	private final Method set;
+	private final Method begin;
+	private final Method end;
+	private final Method shouldCommit;
+	private final Method commit;
+
+	private GenerationPhaseEvent(Object factory) throws ReflectiveOperationException {
+		this.factory = factory;
+		this.newEvent = factory.getClass().getMethod("newEvent");
+		Class<?> eventClass = Class.forName("jdk.jfr.Event");
+		this.isEnabled = eventClass.getMethod("isEnabled");
+		this.set = eventClass.getMethod("set", int.class, Object.class);
+		this.begin = eventClass.getMethod("begin");
+		this.end = eventClass.getMethod("end");
+		this.shouldCommit = eventClass.getMethod("shouldCommit");
+		this.commit = eventClass.getMethod("commit");
+	}
+
+	/**
+	 * Define the event type.
+	 *
+	 * @return Null if Flight Recorder is not available.
+	 */
+	private static GenerationPhaseEvent create() {
+		try {
+			Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+			Constructor<?> annotationWithValue = annotationClass.getConstructor(Class.class, Object.class);
+			Class<?> label = Class.forName("jdk.jfr.Label");
+
+			List<Object> eventAnnotations = new ArrayList<Object>();
+			eventAnnotations.add(annotationWithValue.newInstance(Class.forName("jdk.jfr.Name"), NAME));
+			eventAnnotations.add(annotationWithValue.newInstance(label, "Generation Phase"));
+			eventAnnotations.add(annotationWithValue.newInstance(Class.forName("jdk.jfr.Category"), new String[] { "Schema to POJO" }));
+			eventAnnotations.add(annotationWithValue.newInstance(Class.forName("jdk.jfr.Description"), "A phase of the generation of classes from schemas"));
+
+			Constructor<?> field = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+			List<Object> fields = new ArrayList<Object>();
+			fields.add(PHASE_FIELD, field.newInstance(String.class, "phase",
+					Arrays.asList(annotationWithValue.newInstance(label, "Phase"))));
+			fields.add(ALLOCATED_BYTES_FIELD, field.newInstance(long.class, "allocatedBytes",
+					Arrays.asList(annotationWithValue.newInstance(label, "Allocated"), annotationWithValue.newInstance(Class.forName("jdk.jfr.DataAmount"), "BYTES"))));
+
+			Method createFactory = Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class);
+			return new GenerationPhaseEvent(createFactory.invoke(null, eventAnnotations, fields));
+		} catch (ReflectiveOperationException e) {
+			// No jdk.jfr, or a version without EventFactory.
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		} catch (RuntimeException e) {
+			// For example a SecurityException.
+			return null;
+		}
+	}
+
+	/**
+	 * True if Flight Recorder is available in this JVM.
+	 *
+	 * @return
+	 */
+	static boolean isAvailable() {
+		return TYPE != null;
+	}
+
+	/**
+	 * Start an event for the given phase.
+	 *
+	 * @param phase
+	 * @return The started event, or null if no event is recorded.
+	 */
+	static Object begin(Phase phase) {
+		if (TYPE == null) {
+			return null;
+		}
+		try {
+			Object event = TYPE.newEvent.invoke(TYPE.factory);
+			if (!(Boolean) TYPE.isEnabled.invoke(event)) {
+				return null;
+			}
+			TYPE.set.invoke(event, PHASE_FIELD, phase.name());
+			TYPE.begin.invoke(event);
+			return event;
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * End and commit an event returned by {@link #begin(Phase)}.
+	 *
+	 * @param started
+	 *            May be null.
+	 * @param allocatedBytes
+	 */
+	static void end(Object started, long allocatedBytes) {
+		if (started == null) {
+			return;
+		}
+		try {
+			TYPE.end.invoke(started);
+			if ((Boolean) TYPE.shouldCommit.invoke(started)) {
+				TYPE.set.invoke(started, ALLOCATED_BYTES_FIELD, allocatedBytes);
+				TYPE.commit.invoke(started);
+			}
+		} catch (ReflectiveOperationException e) {
+			// The measurement is still counted by GenerationMetrics.
+		}
+	}
+}
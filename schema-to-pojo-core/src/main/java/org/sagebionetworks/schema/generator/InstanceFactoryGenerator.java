@@ -1,7 +1,11 @@
 package org.sagebionetworks.schema.generator;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +33,7 @@ public class InstanceFactoryGenerator {
 	Map<String, JDefinedClass> interfaceMap = new HashMap<String, JDefinedClass>();
 	Map<JDefinedClass, List<ObjectSchema>> implMap = new HashMap<JDefinedClass, List<ObjectSchema>>();
 	Map<JDefinedClass, String> factoryForMap = new HashMap<JDefinedClass, String>();
+	PojoGeneratorOptions options;
 	
 	/**
 	 * 
@@ -38,9 +43,23 @@ public class InstanceFactoryGenerator {
 	 */
 	public InstanceFactoryGenerator(JCodeModel codeModel,
 			List<ObjectSchema> allObjects) {
+		this(codeModel, allObjects, new PojoGeneratorOptions());
+	}
+	
+	/**
+	 * 
+	 * @param codeModel The code model.
+	 * @param allObjects This list should contain all schemas in the namespaces.
+	 * @param options The concrete type index and the inline threshold of the
+	 *        factories are used.
+	 */
+	public InstanceFactoryGenerator(JCodeModel codeModel,
+			List<ObjectSchema> allObjects, PojoGeneratorOptions options) {
 		super();
+		if(options == null) throw new IllegalArgumentException("The options cannot be null");
 		this.codeModel = codeModel;
 		this.allObjects = allObjects;
+		this.options = options;
 		initialize();
 	}
 	
@@ -57,7 +76,7 @@ public class InstanceFactoryGenerator {
 				continue;
 			}
 			// Look at each concrete type.
-			List<String> implementsIds = getImplementsIds(schema);
+			Collection<String> implementsIds = getImplementsIds(schema);
 			for(String implementsId: implementsIds){
 				List<ObjectSchema> instanceList = map.get(implementsId);
 				if(instanceList == null){
@@ -107,8 +126,9 @@ public class InstanceFactoryGenerator {
 	 * @param schema
 	 * @return
 	 */
-	private List<String> getImplementsIds(ObjectSchema schema){
-		List<String> list = new LinkedList<String>();
+	private Collection<String> getImplementsIds(ObjectSchema schema){
+		// An interface can be implemented more than once through other interfaces.
+		Set<String> list = new LinkedHashSet<String>();
 		getImplementsIdsRecursive(list, schema.getImplements());
 		return list;
 	}
@@ -118,7 +138,7 @@ public class InstanceFactoryGenerator {
 	 * @param list
 	 * @param schemas
 	 */
-	private static void getImplementsIdsRecursive(List<String> list, ObjectSchema[] schemas){
+	private static void getImplementsIdsRecursive(Collection<String> list, ObjectSchema[] schemas){
 		if(schemas != null){
 			for(ObjectSchema implementsSchema: schemas){
 				getImplementsIdsRecursive(list, implementsSchema);
@@ -131,7 +151,7 @@ public class InstanceFactoryGenerator {
 	 * @param list
 	 * @param schema
 	 */
-	private static void getImplementsIdsRecursive(List<String> list, ObjectSchema schema){	
+	private static void getImplementsIdsRecursive(Collection<String> list, ObjectSchema schema){	
 		if(schema != null){
 			// If this schema has schemas add them as well
 			getImplementsIdsRecursive(list, schema.getImplements());
@@ -147,6 +167,10 @@ public class InstanceFactoryGenerator {
 	 * After all POJOs have been created, call this method to create the factories.
 	 */
 	public void buildFactories(){
+		if(options.getConcreteTypeIndex() != null){
+			buildIndexedFactories();
+			return;
+		}
 		// Now create a factory for each interface
 		for(JDefinedClass factoryClass: implMap.keySet()){
 			List<ObjectSchema> instanceLis =  implMap.get(factoryClass);
@@ -155,6 +179,30 @@ public class InstanceFactoryGenerator {
 		}
 	}
 	
+	/**
+	 * Create the concrete type index and a factory for each interface that is
+	 * a view over the index.
+	 */
+	private void buildIndexedFactories(){
+		if(implMap.isEmpty()){
+			return;
+		}
+		// The index holds each implementation once, in the order of the schemas.
+		List<ObjectSchema> indexed = new ArrayList<ObjectSchema>();
+		Map<String, Integer> positions = new HashMap<String, Integer>();
+		for(ObjectSchema schema: allObjects){
+			if(!TYPE.INTERFACE.equals(schema.getType()) && !getImplementsIds(schema).isEmpty()){
+				positions.put(schema.getId(), indexed.size());
+				indexed.add(schema);
+			}
+		}
+		JDefinedClass indexClass = RegisterGenerator.createClassFromFullName(codeModel, options.getConcreteTypeIndex());
+		ConcreteTypeIndexGenerator.createIndex(codeModel, indexed, indexClass);
+		for(JDefinedClass factoryClass: implMap.keySet()){
+			ConcreteTypeIndexGenerator.createFactory(codeModel, implMap.get(factoryClass), positions, factoryClass, indexClass, factoryForMap.get(factoryClass));
+		}
+	}
+	
 	/**
 	 * Get the IDs of the classes that the given factory can create.
 	 * @param factory
@@ -171,4 +219,31 @@ public class InstanceFactoryGenerator {
 		return list;
 	}
 	
+	/**
+	 * Get the IDs of the classes that the given factory can create when they
+	 * are few enough to create them without the factory.
+	 * 
+	 * @see PojoGeneratorOptions#getInlineFactoryThreshold()
+	 * @param factoryClass
+	 * @return The sorted IDs, or null if the factory should be used.
+	 */
+	public List<String> getInlineImplementationIds(JDefinedClass factoryClass){
+		List<String> ids = getSortedImplementationIds(factoryClass);
+		if(ids.isEmpty() || ids.size() > options.getInlineFactoryThreshold()){
+			return null;
+		}
+		return ids;
+	}
+	
+	/**
+	 * Get the sorted IDs of the classes that the given factory can create.
+	 * @param factoryClass
+	 * @return
+	 */
+	public List<String> getSortedImplementationIds(JDefinedClass factoryClass){
+		List<String> sorted = new ArrayList<String>(getImplementationIdsForFactory(factoryClass));
+		Collections.sort(sorted);
+		return sorted;
+	}
+	
 }
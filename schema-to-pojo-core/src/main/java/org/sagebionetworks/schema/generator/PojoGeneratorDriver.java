@@ -2,8 +2,6 @@ package org.sagebionetworks.schema.generator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -11,9 +9,9 @@ import java.util.Stack;
 import org.sagebionetworks.schema.JavaKeyword;
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.ObjectSchemaVisitor;
 import org.sagebionetworks.schema.TYPE;
-import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
-import org.sagebionetworks.schema.adapter.org.json.JSONObjectAdapterImpl;
+import org.sagebionetworks.schema.generator.GenerationMetrics.Phase;
 import org.sagebionetworks.schema.generator.handler.HandlerFactory;
 
 import com.sun.codemodel.JCodeModel;
@@ -35,10 +33,33 @@ public class PojoGeneratorDriver {
 	 * The factory serves up handlers used to do all of the non-recursive work.
 	 */
 	HandlerFactory factory = null;
+	PojoGeneratorOptions options = null;
+	GenerationMetrics metrics = null;
+	/*
+	 * The number of schema instances saved by interning the last list.
+	 */
+	int internedCount = 0;
 	
 	public PojoGeneratorDriver(HandlerFactory factory){
+		this(factory, new PojoGeneratorOptions());
+	}
+	
+	public PojoGeneratorDriver(HandlerFactory factory, PojoGeneratorOptions options){
+		this(factory, options, new GenerationMetrics());
+	}
+	
+	/**
+	 * @param factory
+	 * @param options
+	 * @param metrics The phases run by this driver are measured with these metrics.
+	 */
+	public PojoGeneratorDriver(HandlerFactory factory, PojoGeneratorOptions options, GenerationMetrics metrics){
 		if(factory == null) throw new IllegalArgumentException("The handler factory cannot be null");
+		if(options == null) throw new IllegalArgumentException("The options cannot be null");
+		if(metrics == null) throw new IllegalArgumentException("The metrics cannot be null");
 		this.factory = factory;
+		this.options = options;
+		this.metrics = metrics;
 	}
 	
 	
@@ -52,9 +73,20 @@ public class PojoGeneratorDriver {
 	public void createAllClasses(JCodeModel codeModel,	List<ObjectSchema> list) throws ClassNotFoundException {
 		// The first step is to register all named types and replace all references with
 		// concrete schemas.
-		list = preprocessSchemas(list);
+		metrics.start(Phase.RESOLVE_REFERENCES);
+		try {
+			list = preprocessSchemas(list);
+		} finally {
+			metrics.stop(Phase.RESOLVE_REFERENCES);
+		}
 		// Provides all of the interface factories.
-		InstanceFactoryGenerator interfaceFactoryGenerator = new InstanceFactoryGenerator(codeModel, list);
+		metrics.start(Phase.REGISTER_AND_FACTORIES);
+		InstanceFactoryGenerator interfaceFactoryGenerator;
+		try {
+			interfaceFactoryGenerator = new InstanceFactoryGenerator(codeModel, list, options);
+		} finally {
+			metrics.stop(Phase.REGISTER_AND_FACTORIES);
+		}
 		// We are now ready to start creating the classes
 		// First create the package
 		JPackage _package = codeModel._package("");
@@ -63,11 +95,28 @@ public class PojoGeneratorDriver {
 			// Create each POJO
 			createPOJO(codeModel, schema, interfaceFactoryGenerator);
 		}
-		// Validate the defaultConcreteTypes
-		validateDefaultConcreteTypes(codeModel, list);
-		
-		// Last step is to build the factories.
-		interfaceFactoryGenerator.buildFactories();
+		List<ObjectSchema> schemas = list;
+		measure(Phase.REGISTER_AND_FACTORIES, () -> {
+			// Validate the defaultConcreteTypes
+			validateDefaultConcreteTypes(codeModel, schemas);
+			
+			// Last step is to build the factories.
+			interfaceFactoryGenerator.buildFactories();
+		});
+	}
+	
+	/**
+	 * Run a step of the generation and add its time and allocation to the given phase.
+	 * @param phase
+	 * @param step
+	 */
+	private void measure(Phase phase, Runnable step) {
+		metrics.start(phase);
+		try {
+			step.run();
+		} finally {
+			metrics.stop(phase);
+		}
 	}
 	
 	static void validateDefaultConcreteTypes(JCodeModel codeModel, List<ObjectSchema> schemas) {
@@ -109,32 +158,49 @@ public class PojoGeneratorDriver {
 	 * @throws ClassNotFoundException
 	 */
 	public JDefinedClass createPOJO(JCodeModel codeModel, ObjectSchema schema, InstanceFactoryGenerator ifg) throws ClassNotFoundException{
-		// First create the type for this schema
-		JType type = createOrGetType(codeModel, schema);
-		if(!(type instanceof JDefinedClass)) return null;
-		JDefinedClass classType = (JDefinedClass) type;
-		
-		// If this is an enumeration then there is nothing left to add.
-		if(schema.getEnum() != null){
-			return classType;
+		metrics.start(Phase.CREATE_TYPES);
+		JDefinedClass classType;
+		try {
+			// First create the type for this schema
+			JType type = createOrGetType(codeModel, schema);
+			if(!(type instanceof JDefinedClass)) return null;
+			classType = (JDefinedClass) type;
+			
+			// If this is an enumeration then there is nothing left to add.
+			if(schema.getEnum() != null){
+				return classType;
+			}
+			// Process the properties
+			addProperties(codeModel, schema, classType);
+		} finally {
+			metrics.stop(Phase.CREATE_TYPES);
 		}
-		// Process the properties
-		addProperties(codeModel, schema, classType);
 
 		if(TYPE.INTERFACE != schema.getType()){
 			// Add the JSON marshaling
-			factory.getJSONMArshalingHandler().addJSONMarshaling(schema, classType, ifg);
+			measure(Phase.MARSHALING, () -> factory.getJSONMArshalingHandler().addJSONMarshaling(schema, classType, ifg));
 			// Add hash and equals
-			factory.getHashAndEqualsHandler().addHashAndEquals(schema, classType);
+			measure(Phase.HASH_AND_EQUALS, () -> factory.getHashAndEqualsHandler().addHashAndEquals(schema, classType));
 			//add the toString
-			factory.getToStringHandler().addToStringMethod(schema, classType);
+			measure(Phase.TO_STRING, () -> factory.getToStringHandler().addToStringMethod(schema, classType));
+			// Add writeExternal() and readExternal()
+			measure(Phase.EXTERNALIZABLE, () -> factory.getExternalizableHandler().addExternalizable(schema, classType));
 		}
+		// Add copy(), interfaces declare it too.
+		measure(Phase.COPY, () -> factory.getCopyHandler().addCopy(schema, classType));
+		// Add the indexed field accessors, interfaces extend IndexedEntity too.
+		measure(Phase.FIELD_ACCESS, () -> factory.getFieldAccessHandler().addFieldAccess(schema, classType));
+		// Add fingerprint64(), interfaces extend FingerprintEntity too.
+		measure(Phase.FINGERPRINT, () -> factory.getFingerprintHandler().addFingerprint(schema, classType));
+		// Add validate(), interfaces extend ValidatingEntity too.
+		measure(Phase.VALIDATION, () -> factory.getValidationHandler().addValidation(schema, classType));
 
 		return classType;
 	}
 
 	private void addProperties(JCodeModel codeModel, ObjectSchema schema, JDefinedClass classType) throws ClassNotFoundException {
-		Map<String, ObjectSchema> fieldMap = schema.getObjectFieldMap();
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(schema);
+		metrics.addFieldCount(fieldMap.size());
 		for (Map.Entry<String,ObjectSchema> entry : fieldMap.entrySet()) {
 			String propertyName = entry.getKey();
 			ObjectSchema propertySchema = entry.getValue();
@@ -161,12 +227,34 @@ public class PojoGeneratorDriver {
 	 * @return
 	 */
 	List<ObjectSchema> preprocessSchemas(List<ObjectSchema> list) {
+		if(options.isInternSubSchemas()){
+			// Share the identical anonymous sub-schemas before they are walked.
+			internedCount = new SchemaInterner().intern(list);
+		}
 		Map<String, ObjectSchema> register = registerAllIdentifiedObjectSchemas(list);
 		// Use the register to replace all references with their concrete objects
 		list = findAndReplaceAllReferencesSchemas(register, list);
 		return list;
 	}
 	
+	/**
+	 * The number of schema instances that were replaced by a shared instance
+	 * when the last list was pre-processed.
+	 * @see PojoGeneratorOptions#isInternSubSchemas()
+	 * @return
+	 */
+	public int getInternedCount() {
+		return internedCount;
+	}
+	
+	/**
+	 * The metrics of the phases run by this driver.
+	 * @return
+	 */
+	public GenerationMetrics getMetrics() {
+		return metrics;
+	}
+	
 	/**
 	 * Create or Get a type for given schema object.
 	 * @param _package
@@ -224,148 +312,47 @@ public class PojoGeneratorDriver {
 	 * @param map
 	 * @param schemas
 	 */
-	protected static void registerAllIdentifiedObjectSchemas(Map<String, ObjectSchema> map, ObjectSchema schema){
-		// first add this object to the map if it has an id
-		if(schema.getId() != null){
-			ObjectSchema duplicate = map.put(schema.getId(), schema);
-			if(duplicate != null) throw new IllegalArgumentException("More than one schema was found with id="+duplicate.getId());
-		}
-		// Now add all sub-schemas
-		Iterator<ObjectSchema> it = schema.getSubSchemaIterator();
-		while(it.hasNext()){
-			ObjectSchema sub = it.next();
-			registerAllIdentifiedObjectSchemas(map, sub);
-		}
+	protected static void registerAllIdentifiedObjectSchemas(final Map<String, ObjectSchema> map, ObjectSchema schema){
+		schema.accept(new ObjectSchemaVisitor() {
+
+			@Override
+			public Result preVisit(ObjectSchema sub, Edge edge, String propertyName, int index) {
+				// add this object to the map if it has an id
+				if(sub.getId() != null){
+					ObjectSchema duplicate = map.put(sub.getId(), sub);
+					if(duplicate != null) throw new IllegalArgumentException("More than one schema was found with id="+duplicate.getId());
+				}
+				return Result.CONTINUE;
+			}
+
+			@Override
+			public Result postVisit(ObjectSchema sub, Edge edge, String propertyName, int index) {
+				return Result.CONTINUE;
+			}
+		});
 	}
 	
 	/**
 	 * A schema can be a reference to another schema.  This function will find all references and replace them with the
-	 * actual schema.  Will throw
+	 * actual schema.
 	 * @param map
 	 * @param list
-	 * @throws IllegalArgumentException if a reference cannot be resolved.
+	 * @throws IllegalArgumentException if a reference cannot be resolved or a cycle is found.
+	 * @see SchemaReferenceResolver
 	 */
 	protected static List<ObjectSchema> findAndReplaceAllReferencesSchemas(Map<String, ObjectSchema> map, List<ObjectSchema> list){
-		Stack<ObjectSchema> recursiveAnchors = new Stack<ObjectSchema>();
-		List<ObjectSchema> results = new ArrayList<ObjectSchema>();
-		for(ObjectSchema schema: list){
-			// If this schema is a reference then replace it.
-			schema = replaceReference(map, schema, recursiveAnchors);
-			results.add(schema);
-			// Replace all references in this schema
-			recursiveFindAndReplaceAllReferencesSchemas(map, schema, recursiveAnchors);
-		}
-		return results;
-	}
-	/**
-	 * @param map
-	 * @param schema
-	 */
-	protected static void recursiveFindAndReplaceAllReferencesSchemas(Map<String, ObjectSchema> map, ObjectSchema schema, Stack<ObjectSchema> recursiveAnchors){
-		if(Boolean.TRUE.equals(schema.get$recursiveAnchor())) {
-			recursiveAnchors.push(schema);
-		}
-		// First replace for each child
-		Iterator<ObjectSchema> it = schema.getSubSchemaIterator();
-		while(it.hasNext()){
-			ObjectSchema sub = it.next();
-			recursiveFindAndReplaceAllReferencesSchemas(map, sub, recursiveAnchors);
-		}
-		// Now do the replace for this object
-		findAndReplaceAllReferencesSchemas(map,schema, recursiveAnchors);
-		if(Boolean.TRUE.equals(schema.get$recursiveAnchor())) {
-			recursiveAnchors.pop();
-		}
-	}
-	
-	/**
-	 * Find and replace all references found in this schema.
-	 * @param map
-	 * @param schema
-	 */
-	protected static void findAndReplaceAllReferencesSchemas(Map<String, ObjectSchema> map, ObjectSchema schema, Stack<ObjectSchema> recursiveAnchors){
-		// Properties
-		if(schema.getProperties() != null){
-			schema.setProperties(findAndReplaceAllReferencesSchemas(map, schema.getProperties(), recursiveAnchors));
-		}
-		// Additional
-		if(schema.getAdditionalProperties() != null){
-			schema.setAdditionalProperties(findAndReplaceAllReferencesSchemas(map, schema.getAdditionalProperties(), recursiveAnchors));
-		}
-		// Items
-		if(schema.getItems() != null){
-			schema.setItems(replaceReference(map, schema.getItems(), recursiveAnchors));
-		}
-		// Key
-		if (schema.getKey() != null) {
-			schema.setKey(replaceReference(map, schema.getKey(), recursiveAnchors));
-		}
-		// Value
-		if (schema.getValue() != null) {
-			schema.setValue(replaceReference(map, schema.getValue(), recursiveAnchors));
-		}
-		// AdditionItems
-		if(schema.getAdditionalItems() != null){
-			schema.setAdditionalItems(replaceReference(map, schema.getAdditionalItems(), recursiveAnchors));
-		}
-		// Extends
-		if(schema.getExtends() != null){
-			schema.setExtends(replaceReference(map, schema.getExtends(), recursiveAnchors));
-		}
-		// Implements
-		if(schema.getImplements() != null){
-			for(int i=0; i<schema.getImplements().length; i++){
-				schema.getImplements()[i] = replaceReference(map, schema.getImplements()[i], recursiveAnchors);
-			}
-		}
-	}
-	
-	/**
-	 * Rebuild the passed map replacing all references.
-	 * @param registry
-	 * @param toCheck
-	 * @param self
-	 * @return
-	 */
-	protected static LinkedHashMap<String, ObjectSchema> findAndReplaceAllReferencesSchemas(Map<String, ObjectSchema> registry, Map<String, ObjectSchema> toCheck, Stack<ObjectSchema> recursiveAnchors){
-		LinkedHashMap<String, ObjectSchema> newMap = new LinkedHashMap<String, ObjectSchema>();
-		Iterator<String> it = toCheck.keySet().iterator();
-		while(it.hasNext()){
-			String key = it.next();
-			ObjectSchema schema = toCheck.get(key);
-			schema = replaceReference(registry, schema, recursiveAnchors);
-			newMap.put(key, schema);
-		}
-		return newMap;
+		return new SchemaReferenceResolver(map).resolve(list);
 	}
 	
 	/**
 	 * If the passed object has a reference then it will be replaced either with self, or from the registry.
 	 * @param registry
 	 * @param toCheck
-	 * @param self
+	 * @param recursiveAnchors
 	 * @return
 	 */
 	protected static ObjectSchema replaceReference(Map<String, ObjectSchema> registry, ObjectSchema toCheck, Stack<ObjectSchema> recursiveAnchors) {
-		// Nothing to do if it is not a reference.
-		if (toCheck.getRef() == null && toCheck.get$recursiveRef() == null) {
-			return toCheck;
-		}
-		if(ObjectSchemaImpl.SELF_REFERENCE.equals(toCheck.get$recursiveRef())){
-			if(recursiveAnchors.isEmpty()) {
-				throw new IllegalArgumentException("Found a $recursiveRef but did not find a matching $recursiveAnchor");
-			}
-			return createRecurisveInstanceCopy(recursiveAnchors.peek());
-			//return recursiveAnchors.peek();
-		}
-		// Is it a self reference?
-		if (ObjectSchemaImpl.SELF_REFERENCE.equals(toCheck.getRef())) {
-			return toCheck;
-		}
-		// Find it in the registry
-		ObjectSchema fromRegistry = registry.get(toCheck.getRef());
-		if (fromRegistry == null) throw new IllegalArgumentException("Cannot find the referenced schema: "+ toCheck.getRef());
-		return fromRegistry;
+		return new SchemaReferenceResolver(registry, recursiveAnchors).resolveReference(toCheck);
 	}
 	
 	/**
@@ -374,17 +361,10 @@ public class PojoGeneratorDriver {
 	 * @return
 	 */
 	protected static ObjectSchema createRecurisveInstanceCopy(ObjectSchema originalSchema) {
-		try {
-			// copy the original schema and mark the copy as a recursive reference.
-			JSONObjectAdapterImpl adapter = new JSONObjectAdapterImpl();
-			originalSchema.writeToJSONObject(adapter);
-			ObjectSchema copy = new ObjectSchemaImpl();
-			copy.initializeFromJSONObject(adapter);
-			copy.setIs$RecursiveRefInstance(true);
-			return copy;
-		} catch (JSONObjectAdapterException e) {
-			throw new RuntimeException(e);
-		}
+		// copy the original schema and mark the copy as a recursive reference.
+		ObjectSchema copy = originalSchema.deepCopy();
+		copy.setIs$RecursiveRefInstance(true);
+		return copy;
 	}
 
 }
@@ -0,0 +1,315 @@
+package org.sagebionetworks.schema.generator;
+
+/**
+ * The optional features of the generator. By default all of them are off and
+ * the generated classes are the same as without options.
+ *
+ */
+public class PojoGeneratorOptions {
+
+	private boolean internSubSchemas = false;
+	private String concreteTypeIndex = null;
+	private int inlineFactoryThreshold = 0;
+	private boolean immutable = false;
+	private int toStringBudget = 0;
+	private boolean generateCopy = false;
+	private boolean fieldMask = false;
+	private boolean lazyNested = false;
+	private boolean mergePatch = false;
+	private boolean fieldAccess = false;
+	private boolean externalizable = false;
+	private boolean fingerprint = false;
+	private boolean validation = false;
+	private boolean validateOnRead = false;
+
+	/**
+	 * When true, structurally identical anonymous sub-schemas are replaced with
+	 * a single shared instance before the classes are generated.
+	 *
+	 * @see SchemaInterner
+	 * @return
+	 */
+	public boolean isInternSubSchemas() {
+		return internSubSchemas;
+	}
+
+	/**
+	 * @see #isInternSubSchemas()
+	 * @param internSubSchemas
+	 */
+	public void setInternSubSchemas(boolean internSubSchemas) {
+		this.internSubSchemas = internSubSchemas;
+	}
+
+	/**
+	 * When not null, the full name of a generated class that indexes every
+	 * concrete class implementing an interface. The interface factories are
+	 * then views over this single index instead of each listing all of their
+	 * implementations.
+	 *
+	 * @see ConcreteTypeIndexGenerator
+	 * @return
+	 */
+	public String getConcreteTypeIndex() {
+		return concreteTypeIndex;
+	}
+
+	/**
+	 * @see #getConcreteTypeIndex()
+	 * @param concreteTypeIndex
+	 */
+	public void setConcreteTypeIndex(String concreteTypeIndex) {
+		this.concreteTypeIndex = concreteTypeIndex;
+	}
+
+	/**
+	 * The largest number of implementations of an interface for which the
+	 * generated marshaling code creates the concrete class with a switch on the
+	 * concrete type, instead of calling the factory of the interface. Zero to
+	 * always call the factory.
+	 *
+	 * @return
+	 */
+	public int getInlineFactoryThreshold() {
+		return inlineFactoryThreshold;
+	}
+
+	/**
+	 * @see #getInlineFactoryThreshold()
+	 * @param inlineFactoryThreshold
+	 */
+	public void setInlineFactoryThreshold(int inlineFactoryThreshold) {
+		if (inlineFactoryThreshold < 0) {
+			throw new IllegalArgumentException("The inline factory threshold cannot be negative");
+		}
+		this.inlineFactoryThreshold = inlineFactoryThreshold;
+	}
+
+	/**
+	 * When true, the generated classes are immutable: their fields are final,
+	 * they have getters but no setters and each class has a nested Builder
+	 * that is used to create new instances and to read them from JSON. The
+	 * collections are unmodifiable copies and the hash code is computed once.
+	 * These options must also be given to the
+	 * {@link org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03}.
+	 *
+	 * @return
+	 */
+	public boolean isImmutable() {
+		return immutable;
+	}
+
+	/**
+	 * @see #isImmutable()
+	 * @param immutable
+	 */
+	public void setImmutable(boolean immutable) {
+		this.immutable = immutable;
+	}
+
+	/**
+	 * When greater than zero, the generated classes have an
+	 * appendTo(Appendable, int) that writes their string value without
+	 * intermediate strings and toString() writes at most this many characters
+	 * through it. Zero for the plain toString().
+	 *
+	 * @return
+	 */
+	public int getToStringBudget() {
+		return toStringBudget;
+	}
+
+	/**
+	 * @see #getToStringBudget()
+	 * @param toStringBudget
+	 */
+	public void setToStringBudget(int toStringBudget) {
+		if (toStringBudget < 0) {
+			throw new IllegalArgumentException("The toString budget cannot be negative");
+		}
+		this.toStringBudget = toStringBudget;
+	}
+
+	/**
+	 * When true, the generated classes have a copy constructor and a copy()
+	 * that deep copies the fields directly, without a JSON round trip. The
+	 * generated interfaces declare copy() too.
+	 *
+	 * @return
+	 */
+	public boolean isGenerateCopy() {
+		return generateCopy;
+	}
+
+	/**
+	 * @see #isGenerateCopy()
+	 * @param generateCopy
+	 */
+	public void setGenerateCopy(boolean generateCopy) {
+		this.generateCopy = generateCopy;
+	}
+
+	/**
+	 * When true, the generated classes are
+	 * {@link org.sagebionetworks.schema.adapter.MaskableJSONEntity}s that can
+	 * read only the properties selected by a
+	 * {@link org.sagebionetworks.schema.adapter.FieldMask}, and their key
+	 * constants are public so that the masks can be built with them. Not
+	 * supported with {@link #isImmutable()}.
+	 *
+	 * @return
+	 */
+	public boolean isFieldMask() {
+		return fieldMask;
+	}
+
+	/**
+	 * @see #isFieldMask()
+	 * @param fieldMask
+	 */
+	public void setFieldMask(boolean fieldMask) {
+		this.fieldMask = fieldMask;
+	}
+
+	/**
+	 * When true, the object, array and map properties of the generated classes
+	 * are read from JSON the first time they are used instead of when the
+	 * object is read, and the properties that were never used are written back
+	 * unchanged. The classes are not thread-safe until every property has been
+	 * read. Not supported with {@link #isImmutable()} or
+	 * {@link #isFieldMask()}.
+	 *
+	 * @return
+	 */
+	public boolean isLazyNested() {
+		return lazyNested;
+	}
+
+	/**
+	 * @see #isLazyNested()
+	 * @param lazyNested
+	 */
+	public void setLazyNested(boolean lazyNested) {
+		this.lazyNested = lazyNested;
+	}
+
+	/**
+	 * When true, the generated classes are
+	 * {@link org.sagebionetworks.schema.adapter.JSONMergePatchEntity}s that can
+	 * write the JSON merge patch (RFC 7386) between two objects with diff() and
+	 * apply one with applyPatch(). Not supported with {@link #isImmutable()}.
+	 *
+	 * @return
+	 */
+	public boolean isMergePatch() {
+		return mergePatch;
+	}
+
+	/**
+	 * @see #isMergePatch()
+	 * @param mergePatch
+	 */
+	public void setMergePatch(boolean mergePatch) {
+		this.mergePatch = mergePatch;
+	}
+
+	/**
+	 * When true, the generated classes are
+	 * {@link org.sagebionetworks.schema.IndexedEntity}s with a static list of
+	 * {@link org.sagebionetworks.schema.FieldDescriptor}s and
+	 * getFieldValue(int)/setFieldValue(int, Object), so that their properties
+	 * can be processed generically without reflection.
+	 *
+	 * @return
+	 */
+	public boolean isFieldAccess() {
+		return fieldAccess;
+	}
+
+	/**
+	 * @see #isFieldAccess()
+	 * @param fieldAccess
+	 */
+	public void setFieldAccess(boolean fieldAccess) {
+		this.fieldAccess = fieldAccess;
+	}
+
+	/**
+	 * When true, the generated classes are {@link java.io.Externalizable} and
+	 * write their fields in a compact binary form instead of relying on default
+	 * Java serialization. Not supported with immutable.
+	 *
+	 * @return
+	 */
+	public boolean isExternalizable() {
+		return externalizable;
+	}
+
+	/**
+	 * @see #isExternalizable()
+	 * @param externalizable
+	 */
+	public void setExternalizable(boolean externalizable) {
+		this.externalizable = externalizable;
+	}
+
+	/**
+	 * When true, the generated classes are
+	 * {@link org.sagebionetworks.schema.FingerprintEntity}s with a
+	 * fingerprint64() that hashes their content without writing them to JSON,
+	 * for cache keys and de-duplication.
+	 *
+	 * @return
+	 */
+	public boolean isFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @see #isFingerprint()
+	 * @param fingerprint
+	 */
+	public void setFingerprint(boolean fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * When true, the generated classes are
+	 * {@link org.sagebionetworks.schema.ValidatingEntity}s with a validate()
+	 * that checks the pattern, range, length and size constraints of their
+	 * schemas.
+	 *
+	 * @return
+	 */
+	public boolean isValidation() {
+		return validation;
+	}
+
+	/**
+	 * @see #isValidation()
+	 * @param validation
+	 */
+	public void setValidation(boolean validation) {
+		this.validation = validation;
+	}
+
+	/**
+	 * When true, the constructors that read the generated classes from JSON
+	 * throw an IllegalArgumentException when the object is not valid. Implies
+	 * {@link #isValidation()}, not supported with lazyNested.
+	 *
+	 * @return
+	 */
+	public boolean isValidateOnRead() {
+		return validateOnRead;
+	}
+
+	/**
+	 * @see #isValidateOnRead()
+	 * @param validateOnRead
+	 */
+	public void setValidateOnRead(boolean validateOnRead) {
+		this.validateOnRead = validateOnRead;
+	}
+
+}
@@ -1,13 +1,31 @@
 package org.sagebionetworks.schema.generator;
 
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClassAlreadyExistsException;
 import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
 import org.sagebionetworks.schema.JavaKeyword;
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.TYPE;
 
 public class PropertyUtils {
 
+	/**
+	 * The name of the nested class that builds an immutable class.
+	 */
+	public static final String BUILDER_CLASS_NAME = "Builder";
+
+	/**
+	 * The private method that decodes all of the lazily decoded properties of a
+	 * class.
+	 */
+	public static final String DECODE_LAZY_METHOD_NAME = "__decodeLazy";
+
 	public static JFieldVar getPropertyReference(JDefinedClass classType, String propName) {
 		String fieldName = JavaKeyword.determineJavaName(propName);
 		JFieldVar field = classType.fields().get(fieldName);
@@ -24,4 +42,62 @@ public class PropertyUtils {
 					+ "' has a null TYPE on class: " + classType.name());
 		return propSchema.getType();
 	}
+
+	/**
+	 * Get the nested Builder of an immutable class. The first call creates the
+	 * Builder with a no-args constructor and its build() method.
+	 * 
+	 * @param classType
+	 * @return
+	 */
+	public static JDefinedClass getOrCreateBuilder(JDefinedClass classType) {
+		try {
+			JDefinedClass builder = classType._class(JMod.PUBLIC | JMod.STATIC, BUILDER_CLASS_NAME);
+			builder.javadoc().add("Builds new instances of the immutable " + classType.name() + ".");
+			builder.constructor(JMod.PUBLIC);
+			JMethod build = builder.method(JMod.PUBLIC, classType, "build");
+			build.body()._return(JExpr._new(classType).arg(JExpr._this()));
+			build.javadoc().addReturn().add("A new " + classType.name() + " with the values of this builder.");
+			return builder;
+		} catch (JClassAlreadyExistsException e) {
+			return (JDefinedClass) e.getExistingClass();
+		}
+	}
+
+	/**
+	 * Get the private constructor of an immutable class that assigns its
+	 * fields from a Builder.
+	 * 
+	 * @param classType
+	 * @return
+	 */
+	public static JMethod getOrCreateBuilderConstructor(JDefinedClass classType) {
+		JDefinedClass builder = getOrCreateBuilder(classType);
+		JMethod constructor = classType.getConstructor(new JType[] { builder });
+		if (constructor == null) {
+			constructor = classType.constructor(JMod.PRIVATE);
+			constructor.param(builder, "builder");
+		}
+		return constructor;
+	}
+
+	/**
+	 * When the class has lazily decoded properties, add a call that decodes all
+	 * of them to the block, so that the code after it can read the fields
+	 * directly.
+	 * 
+	 * @param classType
+	 * @param block
+	 * @param target The object to decode, null for this.
+	 */
+	public static void addDecodeLazy(JDefinedClass classType, JBlock block, JExpression target) {
+		if (classType.getMethod(DECODE_LAZY_METHOD_NAME, new JType[0]) == null) {
+			return;
+		}
+		if (target == null) {
+			block.invoke(DECODE_LAZY_METHOD_NAME);
+		} else {
+			block.invoke(target, DECODE_LAZY_METHOD_NAME);
+		}
+	}
 }
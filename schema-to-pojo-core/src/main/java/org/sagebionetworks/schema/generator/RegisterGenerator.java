@@ -1,15 +1,15 @@
 package org.sagebionetworks.schema.generator;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.TYPE;
 import org.sagebionetworks.schema.adapter.JSONEntity;
 
+import com.sun.codemodel.JArray;
 import com.sun.codemodel.JBlock;
 import com.sun.codemodel.JCase;
 import com.sun.codemodel.JClass;
@@ -36,6 +36,7 @@ import com.sun.codemodel.JVar;
 public class RegisterGenerator {
 	
 	public static final String AUTO_GENERATED_MESSAGE = "Note: This class was auto-generated, and should not be directly modified.";
+	public static final String SINGLETON_HOLDER_NAME = "SingletonHolder";
 	
 	/**
 	 * Create a register for each including each class in the schema list.
@@ -53,15 +54,13 @@ public class RegisterGenerator {
 				classList.add(schema);
 			}
 		}
-		// This field is the map
-		JFieldRef mapRef = createMapFieldRef(codeModel, regClass);
-		// Create the constructor.  This will build up the map.
-		createConstructor(codeModel, classList, regClass, mapRef);
+		// This field holds the names of the registered classes
+		JFieldVar classNames = createClassNamesField(codeModel, classList, regClass);
 		
 		// the new instance method
-		createNewInstanceMethod(codeModel, classList, regClass, mapRef, interfaceFullName);
+		createNewInstanceMethod(codeModel, classList, regClass, interfaceFullName);
 
-		createKeySetIterator(codeModel, regClass, mapRef);
+		createKeySetIterator(codeModel, regClass, classNames);
 		
 		// Create the singleton
 		createSingleton(codeModel, regClass);
@@ -97,16 +96,17 @@ public class RegisterGenerator {
 	}
 
 	/**
-	 * Create the keyset iterator.
+	 * Create the keyset iterator. The iterator is backed by the static array
+	 * of class names and does not support remove.
 	 * @param codeModel
 	 * @param regClass
-	 * @param mapRef
+	 * @param classNames
 	 * @return
 	 */
-	protected static JMethod createKeySetIterator(JCodeModel codeModel, JDefinedClass regClass, JFieldRef mapRef) {
+	protected static JMethod createKeySetIterator(JCodeModel codeModel, JDefinedClass regClass, JFieldVar classNames) {
 		JClass itType = codeModel.ref(Iterator.class).narrow(String.class);
 		JMethod method = regClass.method(JMod.PUBLIC, itType, "getKeySetIterator");
-		method.body()._return(mapRef.invoke("keySet").invoke("iterator"));
+		method.body()._return(codeModel.ref(Arrays.class).staticInvoke("asList").arg(classNames).invoke("iterator"));
 		JDocComment docs = method.javadoc();
 		docs.add("Get the key set iterator.");
 		docs.addReturn();
@@ -114,14 +114,14 @@ public class RegisterGenerator {
 	}
 	
 	/**
-	 * Create the new instance method.
+	 * Create the new instance method. The class name is matched with a switch
+	 * on the string literals of the class names.
 	 * @param codeModel
 	 * @param regClass
-	 * @param mapRef
 	 * @param list
 	 * @return
 	 */
-	protected static JMethod createNewInstanceMethod(JCodeModel codeModel, List<ObjectSchema> list, JDefinedClass regClass, JFieldRef mapRef, String interfaceFullName){
+	protected static JMethod createNewInstanceMethod(JCodeModel codeModel, List<ObjectSchema> list, JDefinedClass regClass, String interfaceFullName){
 		// Create the new instance method
 		JType returnType = null;
 		if(interfaceFullName != null){
@@ -133,28 +133,16 @@ public class RegisterGenerator {
 		JMethod method = regClass.method(JMod.PUBLIC, returnType, "newInstance");
 		JVar parm = method.param(codeModel.ref(String.class), "className");
 		JBlock body = method.body();
-		// First lookup the index for the class
-		JInvocation callMapGet = mapRef.invoke("get");
-		callMapGet.arg(parm);
-		JVar intObject = body.decl(codeModel.ref(Integer.class), "intObject", callMapGet);
-		JInvocation newIllegal = JExpr._new(codeModel.ref(IllegalArgumentException.class));
-		newIllegal.arg(JExpr.lit("Cannot create new instance. Unknown class: ").plus(parm));
-		// If the index is null then throw an IllegalArgumentException 
-		body._if(intObject.eq(JExpr._null()))._then()._throw(newIllegal);
-		// Create the index
-		Integer g = new Integer(12);
-		JVar index =body.decl(codeModel.INT, "index", intObject.invoke("intValue"));
-		JSwitch jSwitch = body._switch(index);
-		for(int i=0; i<list.size(); i++){
-			ObjectSchema schema = list.get(i);
-			JCase jCase = jSwitch._case(JExpr.lit(i));
+		// A switch on a null string would throw a NullPointerException
+		body._if(parm.eq(JExpr._null()))._then()._throw(createUnknownClassException(codeModel, parm));
+		JSwitch jSwitch = body._switch(parm);
+		for(ObjectSchema schema: list){
 			JDefinedClass classToRegister = getJDefinedClassForSchema(codeModel, schema);
+			JCase jCase = jSwitch._case(JExpr.lit(classToRegister.fullName()));
 			jCase.body()._return(JExpr._new(classToRegister));
 		}
-		JInvocation newIllegalState = JExpr._new(codeModel.ref(IllegalStateException.class));
-		newIllegalState.arg(JExpr.lit("No match found for index: ").plus(index).plus(JExpr.lit(" for class name: ")).plus(parm));
-		// This should not occur
-		jSwitch._default().body()._throw(newIllegalState);
+		// If the class is unknown then throw an IllegalArgumentException
+		jSwitch._default().body()._throw(createUnknownClassException(codeModel, parm));
 		
 		JDocComment comment = method.javadoc();
 		comment.add("Create a new instance of an auto-generated concrete class using the full class name.");
@@ -198,6 +186,12 @@ public class RegisterGenerator {
 		return method;
 	}
 	
+	private static JInvocation createUnknownClassException(JCodeModel codeModel, JVar className) {
+		JInvocation newIllegal = JExpr._new(codeModel.ref(IllegalArgumentException.class));
+		newIllegal.arg(JExpr.lit("Cannot create new instance. Unknown class: ").plus(className));
+		return newIllegal;
+	}
+	
 	private static JDefinedClass getInterfaceClass(JCodeModel codeModel, String fullName){
 		try {
 			return codeModel._class(fullName);
@@ -207,17 +201,18 @@ public class RegisterGenerator {
 	}
 
 	/**
-	 * Create the map field and return the references this.map
+	 * Create the static array holding the full name of each registered class.
 	 * @param codeModel
+	 * @param list
 	 * @param regClass
 	 * @return
 	 */
-	protected static JFieldRef createMapFieldRef(JCodeModel codeModel,JDefinedClass regClass) {
-		JClass fieldType = codeModel.ref(Map.class).narrow(codeModel.ref(String.class), codeModel.ref(Integer.class));
-		JFieldVar mapField = regClass.field(JMod.PRIVATE, fieldType, "map");
-		// get the reference to this.map
-		JFieldRef mapRef = JExpr._this().ref(mapField);
-		return mapRef;
+	protected static JFieldVar createClassNamesField(JCodeModel codeModel, List<ObjectSchema> list, JDefinedClass regClass) {
+		JArray names = JExpr.newArray(codeModel.ref(String.class));
+		for(ObjectSchema schema: list){
+			names.add(JExpr.lit(getJDefinedClassForSchema(codeModel, schema).fullName()));
+		}
+		return regClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, codeModel.ref(String.class).array(), "CLASS_NAMES", names);
 	}
 	
 	/**
@@ -234,51 +229,23 @@ public class RegisterGenerator {
 	}
 
 	/**
-	 * Creates the constructor.  Will initialize the map and populate it with each schema class.
+	 * Creates the singleton. The singleton is held by a nested holder class so
+	 * it is only created the first time singleton() is called.
 	 * @param codeModel
-	 * @param list
 	 * @param regClass
-	 * @return
-	 */
-	protected static JMethod createConstructor(JCodeModel codeModel, List<ObjectSchema> list, JDefinedClass regClass, JFieldRef mapRef) {
-		// Create the Constructor
-		JMethod constructor = regClass.constructor(JMod.PUBLIC);
-		JBlock conBody = constructor.body();
-		// This is the hash map
-		JClass hashMap = codeModel.ref(HashMap.class).narrow(codeModel.ref(String.class), codeModel.ref(Integer.class));
-
-		conBody.assign(mapRef, JExpr._new(hashMap));
-		// Populate it with the values
-		for(int i=0; i<list.size(); i++){
-			ObjectSchema schema = list.get(i);
-			// Add each entry
-			JDefinedClass classToRegister = getJDefinedClassForSchema(codeModel, schema);
-			JFieldRef classDotClass = classToRegister.staticRef("class");
-			
-			JInvocation putInvoke = mapRef.invoke("put");
-			// First arg
-			putInvoke.arg(classDotClass.invoke("getName"));
-			// second arg
-			putInvoke.arg(JExpr.lit(i));
-			conBody.add(putInvoke);
-		}
-		return constructor;
-	}
-	
-	/**
-	 * Creates the singleton.
-	 * @param codeModel
-	 * @param list
-	 * @param regClass
-	 * @return
 	 */
 	protected static void createSingleton(JCodeModel codeModel, JDefinedClass regClass) {
-		// Create the Constructor
-		JFieldVar singletonField = regClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, regClass, "SINGLETON", JExpr._new(regClass));
+		JDefinedClass holder;
+		try {
+			holder = regClass._class(JMod.PRIVATE | JMod.STATIC, SINGLETON_HOLDER_NAME);
+		} catch (JClassAlreadyExistsException e) {
+			throw new IllegalArgumentException("The singleton of "+regClass.fullName()+" already exists", e);
+		}
+		JFieldVar singletonField = holder.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, regClass, "SINGLETON", JExpr._new(regClass));
 
 		JMethod method = regClass.method(JMod.PUBLIC | JMod.STATIC, regClass, "singleton");
 		method.javadoc().add("The singleton of this register.");
-		method.body()._return(singletonField);
+		method.body()._return(holder.staticRef(singletonField));
 
 	}
 
@@ -298,7 +265,10 @@ public class RegisterGenerator {
 	 * 
 	 * @param codeModel
 	 * @param regClass
+	 * @deprecated The generated register no longer has a map of the class
+	 *             names, so this is not used by the generator.
 	 */
+	@Deprecated
 	public static JMethod createClassForName(JCodeModel codeModel, JDefinedClass regClass, JFieldRef mapRef) {
 		JMethod getRegMethod = regClass.method(JMod.PUBLIC, codeModel.ref(Class.class), "forName");
 		JVar param = getRegMethod.param(String.class, "className");
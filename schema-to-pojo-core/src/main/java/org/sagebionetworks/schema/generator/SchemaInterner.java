@@ -0,0 +1,207 @@
+package org.sagebionetworks.schema.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.ObjectSchemaVisitor;
+
+/**
+ * Replaces structurally identical anonymous sub-schemas with a single shared
+ * instance.
+ * <p>
+ * Only sub-schemas without an id and without a name are shared, since the
+ * generator gives each named schema its own id. Sub-schemas that contain a
+ * $recursiveRef or a $recursiveAnchor are not shared either, because what they
+ * resolve to depends on where they are found.
+ * <p>
+ * The equal sub-schemas are found first, using the fingerprint of each schema,
+ * and only then replaced, so the fingerprints are not invalidated while they
+ * are compared.
+ *
+ */
+public class SchemaInterner {
+
+	/**
+	 * The canonical instance of each sub-schema that has an equal.
+	 */
+	private final Map<ObjectSchema, ObjectSchema> canonical = new IdentityHashMap<ObjectSchema, ObjectSchema>();
+
+	/**
+	 * Share the equal anonymous sub-schemas of the given schemas.
+	 *
+	 * @param list
+	 * @return The number of schema instances that are no longer used.
+	 */
+	public int intern(List<ObjectSchema> list) {
+		if (list == null) throw new IllegalArgumentException("List cannot be null");
+		FindVisitor find = new FindVisitor();
+		for (ObjectSchema schema : list) {
+			schema.accept(find);
+		}
+		if (canonical.isEmpty()) {
+			return 0;
+		}
+		ReplaceVisitor replace = new ReplaceVisitor();
+		for (ObjectSchema schema : list) {
+			schema.accept(replace);
+		}
+		return find.visited.size() - replace.visited.size();
+	}
+
+	private static boolean isRecursive(ObjectSchema schema) {
+		return schema.get$recursiveRef() != null || schema.get$recursiveAnchor() != null || schema.is$RecursiveRefInstance();
+	}
+
+	/**
+	 * Finds the canonical instance of each anonymous sub-schema.
+	 */
+	private class FindVisitor implements ObjectSchemaVisitor {
+
+		private final Set<ObjectSchema> visited = Collections.newSetFromMap(new IdentityHashMap<ObjectSchema, Boolean>());
+		/**
+		 * The sub-schemas that contain a recursive schema.
+		 */
+		private final Set<ObjectSchema> recursive = Collections.newSetFromMap(new IdentityHashMap<ObjectSchema, Boolean>());
+		/**
+		 * The fingerprint of each visited schema that does not reach a cycle,
+		 * so the fingerprint of a parent is combined from those of its
+		 * children instead of walking them again.
+		 */
+		private final Map<ObjectSchema, Long> fingerprints = new IdentityHashMap<ObjectSchema, Long>();
+		/**
+		 * The candidates for each fingerprint.
+		 */
+		private final Map<Long, List<ObjectSchema>> byFingerprint = new HashMap<Long, List<ObjectSchema>>();
+		/**
+		 * For each schema of the current path, true if a recursive schema was
+		 * found below it.
+		 */
+		private boolean[] containsRecursive = new boolean[16];
+		private int depth = 0;
+
+		@Override
+		public Result preVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			if (!visited.add(schema)) {
+				if (depth > 0 && recursive.contains(schema)) {
+					containsRecursive[depth - 1] = true;
+				}
+				return Result.SKIP_CHILDREN;
+			}
+			if (depth == containsRecursive.length) {
+				containsRecursive = Arrays.copyOf(containsRecursive, depth * 2);
+			}
+			containsRecursive[depth++] = isRecursive(schema);
+			return Result.CONTINUE;
+		}
+
+		@Override
+		public Result postVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			boolean isRecursive = containsRecursive[--depth];
+			if (isRecursive) {
+				recursive.add(schema);
+				if (depth > 0) {
+					containsRecursive[depth - 1] = true;
+				}
+			} else if (edge != Edge.ROOT && schema.getId() == null && schema.getName() == null) {
+				findCanonical(schema);
+			}
+			return Result.CONTINUE;
+		}
+
+		private void findCanonical(ObjectSchema schema) {
+			Long fingerprint = ObjectSchemaImpl.getFingerprint(schema, fingerprints);
+			List<ObjectSchema> candidates = byFingerprint.get(fingerprint);
+			if (candidates == null) {
+				candidates = new ArrayList<ObjectSchema>(1);
+				byFingerprint.put(fingerprint, candidates);
+			}
+			for (ObjectSchema candidate : candidates) {
+				if (candidate.equals(schema)) {
+					canonical.put(schema, candidate);
+					return;
+				}
+			}
+			candidates.add(schema);
+		}
+	}
+
+	/**
+	 * Replaces each sub-schema with its canonical instance.
+	 */
+	private class ReplaceVisitor implements ObjectSchemaVisitor {
+
+		private final Set<ObjectSchema> visited = Collections.newSetFromMap(new IdentityHashMap<ObjectSchema, Boolean>());
+
+		@Override
+		public Result preVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			if (!visited.add(schema)) {
+				return Result.SKIP_CHILDREN;
+			}
+			// Replace the children before they are visited.
+			if (schema.getProperties() != null) {
+				for (Map.Entry<String, ObjectSchema> entry : schema.getProperties().entrySet()) {
+					ObjectSchema replacement = canonical.get(entry.getValue());
+					if (replacement != null) {
+						schema.putProperty(entry.getKey(), replacement);
+					}
+				}
+			}
+			if (schema.getAdditionalProperties() != null) {
+				for (Map.Entry<String, ObjectSchema> entry : schema.getAdditionalProperties().entrySet()) {
+					ObjectSchema replacement = canonical.get(entry.getValue());
+					if (replacement != null) {
+						schema.putAdditionalProperty(entry.getKey(), replacement);
+					}
+				}
+			}
+			ObjectSchema replacement = canonical.get(schema.getItems());
+			if (replacement != null) {
+				schema.setItems(replacement);
+			}
+			replacement = canonical.get(schema.getAdditionalItems());
+			if (replacement != null) {
+				schema.setAdditionalItems(replacement);
+			}
+			replacement = canonical.get(schema.getKey());
+			if (replacement != null) {
+				schema.setKey(replacement);
+			}
+			replacement = canonical.get(schema.getValue());
+			if (replacement != null) {
+				schema.setValue(replacement);
+			}
+			replacement = canonical.get(schema.getExtends());
+			if (replacement != null) {
+				schema.setExtends(replacement);
+			}
+			ObjectSchema[] implementsArray = schema.getImplements();
+			if (implementsArray != null) {
+				boolean changed = false;
+				for (int i = 0; i < implementsArray.length; i++) {
+					replacement = canonical.get(implementsArray[i]);
+					if (replacement != null) {
+						implementsArray[i] = replacement;
+						changed = true;
+					}
+				}
+				if (changed) {
+					schema.setImplements(implementsArray);
+				}
+			}
+			return Result.CONTINUE;
+		}
+
+		@Override
+		public Result postVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			return Result.CONTINUE;
+		}
+	}
+}
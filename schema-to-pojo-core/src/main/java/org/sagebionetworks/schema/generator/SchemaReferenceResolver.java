@@ -0,0 +1,391 @@
+package org.sagebionetworks.schema.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.ObjectSchemaVisitor;
+import org.sagebionetworks.schema.ObjectSchemaVisitor.Edge;
+
+/**
+ * Replaces the references ($ref and $recursiveRef) found in a list of schemas
+ * with the schemas they reference.
+ * <p>
+ * Each schema instance is visited once, even when it is reachable from more
+ * than one parent, and the maps and arrays of a schema are only changed when
+ * one of their references is replaced. Unresolved references, cyclic $ref
+ * chains and cyclic type definitions are reported with the path of the schema
+ * where they were found.
+ *
+ */
+public class SchemaReferenceResolver {
+
+	private final Map<String, ObjectSchema> registry;
+	private final Set<ObjectSchema> visited = Collections.newSetFromMap(new IdentityHashMap<ObjectSchema, Boolean>());
+	/**
+	 * The visited schemas in the order they were visited.
+	 */
+	private final List<ObjectSchema> visitOrder = new ArrayList<ObjectSchema>();
+	/**
+	 * The $recursiveAnchor schemas, and the schemas they extend and implement,
+	 * whose type references were replaced before their sub-schemas.
+	 */
+	private final Set<ObjectSchema> typesResolvedFirst = Collections.newSetFromMap(new IdentityHashMap<ObjectSchema, Boolean>());
+	private final Stack<ObjectSchema> recursiveAnchors;
+	/**
+	 * The path from the current root schema to the schema being resolved, kept
+	 * as parallel lists so a path is only formatted for an error.
+	 */
+	private final List<Edge> pathEdges = new ArrayList<Edge>();
+	private final List<String> pathNames = new ArrayList<String>();
+	private final List<Integer> pathIndexes = new ArrayList<Integer>();
+
+	/**
+	 *
+	 * @param registry All of the identified schemas by id.
+	 */
+	public SchemaReferenceResolver(Map<String, ObjectSchema> registry) {
+		this(registry, new Stack<ObjectSchema>());
+	}
+
+	/**
+	 *
+	 * @param registry         All of the identified schemas by id.
+	 * @param recursiveAnchors The $recursiveAnchor schemas enclosing the schemas
+	 *                         that will be resolved.
+	 */
+	SchemaReferenceResolver(Map<String, ObjectSchema> registry, Stack<ObjectSchema> recursiveAnchors) {
+		if (registry == null) throw new IllegalArgumentException("Registry cannot be null");
+		this.registry = registry;
+		this.recursiveAnchors = recursiveAnchors == null ? new Stack<ObjectSchema>() : recursiveAnchors;
+	}
+
+	/**
+	 * Replace all of the references found in the given schemas.
+	 *
+	 * @param list
+	 * @return The resolved list. A schema in the list that is itself a reference
+	 *         is replaced by the schema it references.
+	 * @throws IllegalArgumentException if a reference cannot be resolved or if a
+	 *                                  cycle is found.
+	 */
+	public List<ObjectSchema> resolve(List<ObjectSchema> list) {
+		List<ObjectSchema> results = new ArrayList<ObjectSchema>(list.size());
+		ResolvingVisitor visitor = new ResolvingVisitor();
+		for (ObjectSchema schema : list) {
+			pushPath(Edge.ROOT, schema.getId() == null ? "" : schema.getId(), -1);
+			// If this schema is a reference then replace it.
+			schema = resolveReference(schema);
+			results.add(schema);
+			// Replace all references in this schema
+			schema.accept(visitor);
+			popPath();
+		}
+		checkForCyclicTypes();
+		return results;
+	}
+
+	/**
+	 * Resolves the references of each schema after all of its sub-schemas
+	 * were resolved. Each schema instance is only visited once.
+	 */
+	private class ResolvingVisitor implements ObjectSchemaVisitor {
+
+		@Override
+		public Result preVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			if (!visited.add(schema)) {
+				return Result.SKIP_CHILDREN;
+			}
+			visitOrder.add(schema);
+			if (edge != Edge.ROOT) {
+				pushPath(edge, propertyName, index);
+			}
+			if (Boolean.TRUE.equals(schema.get$recursiveAnchor())) {
+				resolveTypesFirst(schema, this);
+				recursiveAnchors.push(schema);
+			}
+			return Result.CONTINUE;
+		}
+
+		@Override
+		public Result postVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			// Now replace the references of this schema
+			replaceReferences(schema);
+			if (Boolean.TRUE.equals(schema.get$recursiveAnchor())) {
+				recursiveAnchors.pop();
+			}
+			if (edge != Edge.ROOT) {
+				popPath();
+			}
+			return Result.CONTINUE;
+		}
+	}
+
+	/**
+	 * Resolve the extends and implements of the given schema, and of all of the
+	 * schemas it extends and implements, before its sub-schemas. A $recursiveRef
+	 * is replaced with a deep copy of its $recursiveAnchor, so the copy would
+	 * otherwise keep the unresolved references of the anchor.
+	 *
+	 * @param schema
+	 * @param visitor Resolves the sub-schemas of each extended and implemented
+	 *                schema.
+	 */
+	private void resolveTypesFirst(ObjectSchema schema, ObjectSchemaVisitor visitor) {
+		if (!typesResolvedFirst.add(schema)) {
+			return;
+		}
+		replaceExtendsAndImplements(schema);
+		if (schema.getExtends() != null) {
+			schema.getExtends().accept(visitor);
+			resolveTypesFirst(schema.getExtends(), visitor);
+		}
+		if (schema.getImplements() != null) {
+			for (ObjectSchema implemented : schema.getImplements()) {
+				implemented.accept(visitor);
+				resolveTypesFirst(implemented, visitor);
+			}
+		}
+	}
+
+	/**
+	 * Replace the extends and implements references of the given schema.
+	 *
+	 * @param schema
+	 */
+	private void replaceExtendsAndImplements(ObjectSchema schema) {
+		if (schema.getExtends() != null) {
+			ObjectSchema replacement = resolveReference(Edge.EXTENDS, null, -1, schema.getExtends());
+			if (replacement != schema.getExtends()) {
+				schema.setExtends(replacement);
+			}
+		}
+		ObjectSchema[] implementsArray = schema.getImplements();
+		if (implementsArray != null) {
+			boolean changed = false;
+			for (int i = 0; i < implementsArray.length; i++) {
+				ObjectSchema replacement = resolveReference(Edge.IMPLEMENTS, null, i, implementsArray[i]);
+				if (replacement != implementsArray[i]) {
+					implementsArray[i] = replacement;
+					changed = true;
+				}
+			}
+			if (changed) {
+				schema.setImplements(implementsArray);
+			}
+		}
+	}
+
+	/**
+	 * Replace the references that are direct children of the given schema.
+	 *
+	 * @param schema
+	 */
+	private void replaceReferences(ObjectSchema schema) {
+		if (schema.getProperties() != null) {
+			for (Map.Entry<String, ObjectSchema> entry : schema.getProperties().entrySet()) {
+				ObjectSchema replacement = resolveReference(Edge.PROPERTY, entry.getKey(), -1, entry.getValue());
+				if (replacement != entry.getValue()) {
+					schema.putProperty(entry.getKey(), replacement);
+				}
+			}
+		}
+		if (schema.getAdditionalProperties() != null) {
+			for (Map.Entry<String, ObjectSchema> entry : schema.getAdditionalProperties().entrySet()) {
+				ObjectSchema replacement = resolveReference(Edge.ADDITIONAL_PROPERTY, entry.getKey(), -1, entry.getValue());
+				if (replacement != entry.getValue()) {
+					schema.putAdditionalProperty(entry.getKey(), replacement);
+				}
+			}
+		}
+		if (schema.getItems() != null) {
+			ObjectSchema replacement = resolveReference(Edge.ITEMS, null, -1, schema.getItems());
+			if (replacement != schema.getItems()) {
+				schema.setItems(replacement);
+			}
+		}
+		if (schema.getKey() != null) {
+			ObjectSchema replacement = resolveReference(Edge.KEY, null, -1, schema.getKey());
+			if (replacement != schema.getKey()) {
+				schema.setKey(replacement);
+			}
+		}
+		if (schema.getValue() != null) {
+			ObjectSchema replacement = resolveReference(Edge.VALUE, null, -1, schema.getValue());
+			if (replacement != schema.getValue()) {
+				schema.setValue(replacement);
+			}
+		}
+		if (schema.getAdditionalItems() != null) {
+			ObjectSchema replacement = resolveReference(Edge.ADDITIONAL_ITEMS, null, -1, schema.getAdditionalItems());
+			if (replacement != schema.getAdditionalItems()) {
+				schema.setAdditionalItems(replacement);
+			}
+		}
+		replaceExtendsAndImplements(schema);
+	}
+
+	private ObjectSchema resolveReference(Edge edge, String propertyName, int index, ObjectSchema toCheck) {
+		pushPath(edge, propertyName, index);
+		ObjectSchema replacement = resolveReference(toCheck);
+		popPath();
+		return replacement;
+	}
+
+	/**
+	 * If the passed schema is a reference then find the schema it references.
+	 * A reference to a schema that is itself a reference is followed to the
+	 * final schema.
+	 *
+	 * @param toCheck
+	 * @return
+	 */
+	ObjectSchema resolveReference(ObjectSchema toCheck) {
+		// Nothing to do if it is not a reference.
+		if (toCheck.getRef() == null && toCheck.get$recursiveRef() == null) {
+			return toCheck;
+		}
+		if (ObjectSchemaImpl.SELF_REFERENCE.equals(toCheck.get$recursiveRef())) {
+			if (recursiveAnchors.isEmpty()) {
+				throw new IllegalArgumentException("Found a $recursiveRef but did not find a matching $recursiveAnchor at: " + getPath());
+			}
+			return PojoGeneratorDriver.createRecurisveInstanceCopy(recursiveAnchors.peek());
+		}
+		ObjectSchema current = toCheck;
+		Set<String> chain = null;
+		// Is it a self reference?
+		while (current.getRef() != null && !ObjectSchemaImpl.SELF_REFERENCE.equals(current.getRef())) {
+			String ref = current.getRef();
+			if (current != toCheck) {
+				if (chain == null) {
+					chain = new LinkedHashSet<String>();
+					chain.add(toCheck.getRef());
+				}
+				if (!chain.add(ref)) {
+					throw new IllegalArgumentException("Found a cyclic $ref: " + String.join(" -> ", chain) + " -> " + ref + " at: " + getPath());
+				}
+			}
+			// Find it in the registry
+			ObjectSchema fromRegistry = registry.get(ref);
+			if (fromRegistry == null) {
+				throw new IllegalArgumentException("Cannot find the referenced schema: " + ref + " at: " + getPath());
+			}
+			if (fromRegistry == current) {
+				throw new IllegalArgumentException("Found a cyclic $ref: " + ref + " -> " + ref + " at: " + getPath());
+			}
+			current = fromRegistry;
+		}
+		return current;
+	}
+
+	private void pushPath(Edge edge, String name, int index) {
+		pathEdges.add(edge);
+		pathNames.add(name);
+		pathIndexes.add(index);
+	}
+
+	private void popPath() {
+		int last = pathEdges.size() - 1;
+		pathEdges.remove(last);
+		pathNames.remove(last);
+		pathIndexes.remove(last);
+	}
+
+	private String getPath() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < pathEdges.size(); i++) {
+			if (pathEdges.get(i) == Edge.ROOT) {
+				builder.append(pathNames.get(i));
+				continue;
+			}
+			if (i == 1) {
+				builder.append("#");
+			}
+			builder.append("/").append(pathEdges.get(i).getJsonName());
+			if (pathNames.get(i) != null) {
+				builder.append("/").append(pathNames.get(i));
+			} else if (pathIndexes.get(i) >= 0) {
+				builder.append("/").append(pathIndexes.get(i));
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * The generator creates the type of the extends, implements, items, key and
+	 * value of a schema before the type of the schema itself, so these must not
+	 * form a cycle.
+	 */
+	private void checkForCyclicTypes() {
+		CycleVisitor visitor = new CycleVisitor();
+		for (ObjectSchema schema : visitOrder) {
+			schema.accept(visitor);
+		}
+	}
+
+	/**
+	 * Depth first search for cycles over the type edges.
+	 */
+	private static class CycleVisitor implements ObjectSchemaVisitor {
+
+		/**
+		 * The schemas that are known to not be part of a cycle.
+		 */
+		private final Set<ObjectSchema> done = Collections.newSetFromMap(new IdentityHashMap<ObjectSchema, Boolean>());
+		/**
+		 * The schemas of the current path of the search.
+		 */
+		private final List<ObjectSchema> stack = new ArrayList<ObjectSchema>();
+
+		@Override
+		public Result preVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			switch (edge) {
+			case PROPERTY:
+			case ADDITIONAL_PROPERTY:
+			case ADDITIONAL_ITEMS:
+				return Result.SKIP_CHILDREN;
+			default:
+				break;
+			}
+			if (done.contains(schema)) {
+				return Result.SKIP_CHILDREN;
+			}
+			for (int i = 0; i < stack.size(); i++) {
+				if (stack.get(i) == schema) {
+					StringBuilder builder = new StringBuilder("Found a cycle in the type definitions: ");
+					for (int j = i; j < stack.size(); j++) {
+						builder.append(getDisplayName(stack.get(j))).append(" -> ");
+					}
+					builder.append(getDisplayName(schema));
+					throw new IllegalArgumentException(builder.toString());
+				}
+			}
+			stack.add(schema);
+			return Result.CONTINUE;
+		}
+
+		@Override
+		public Result postVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			stack.remove(stack.size() - 1);
+			done.add(schema);
+			return Result.CONTINUE;
+		}
+	}
+
+	private static String getDisplayName(ObjectSchema schema) {
+		if (schema.getId() != null) {
+			return schema.getId();
+		}
+		if (schema.getName() != null) {
+			return schema.getName();
+		}
+		return "<anonymous " + schema.getType() + ">";
+	}
+}
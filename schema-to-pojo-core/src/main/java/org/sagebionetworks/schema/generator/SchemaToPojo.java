@@ -11,13 +11,16 @@ import org.json.JSONException;
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.ObjectSchemaImpl;
 import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
 import org.sagebionetworks.schema.adapter.org.json.JSONObjectAdapterImpl;
+import org.sagebionetworks.schema.generator.GenerationMetrics.Phase;
 import org.sagebionetworks.schema.generator.handler.HandlerFactory;
 
 import com.sun.codemodel.CodeWriter;
 import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JPackage;
 import com.sun.codemodel.writer.FileCodeWriter;
 import com.sun.codemodel.writer.ProgressCodeWriter;
 
@@ -37,55 +40,80 @@ public class SchemaToPojo {
 	 * @param outputDir
 	 * @param tmplog
 	 * @param packageName
+	 * @return The time, memory and counts of the generation.
 	 * @throws IOException
 	 * @throws JSONException
 	 * @throws JSONObjectAdapterException
 	 * @throws ClassNotFoundException
 	 */
-	public static void generatePojos(File schemaSource, File outputDir, String createRegister, HandlerFactory factory, StringBuilder log)
+	public static GenerationMetrics generatePojos(File schemaSource, File outputDir, String createRegister, HandlerFactory factory, StringBuilder log)
+			throws IOException, JSONObjectAdapterException, ClassNotFoundException {
+		return generatePojos(schemaSource, outputDir, createRegister, factory, new PojoGeneratorOptions(), log);
+	}
+	
+	/**
+	 * Will read all schemas in the passed directory (or file) and create java files for each in the output directory,
+	 * using the given options.
+	 * 
+	 * @param schemaSource - can be single schema file or directory of schema files.
+	 * @param outputDir
+	 * @param createRegister
+	 * @param factory
+	 * @param options
+	 * @param log
+	 * @return The time, memory and counts of the generation.
+	 * @throws IOException
+	 * @throws JSONObjectAdapterException
+	 * @throws ClassNotFoundException
+	 */
+	public static GenerationMetrics generatePojos(File schemaSource, File outputDir, String createRegister, HandlerFactory factory, PojoGeneratorOptions options, StringBuilder log)
 			throws IOException, JSONObjectAdapterException, ClassNotFoundException {
 		if(schemaSource == null) throw new IllegalArgumentException("schemaSource cannot be null");
 		if(outputDir == null) throw new IllegalArgumentException("outputDir cannot be null");
 		if(factory == null) throw new IllegalArgumentException("The HandlerFactory cannot be null");
-		// process each file
-		Iterator<File> iterator = FileUtils.getRecursiveIterator(schemaSource, new FileFilter() {
-			@Override
-			public boolean accept(File pathname) {
-				// Only include .json files
-				return pathname.getName().toLowerCase().endsWith(".json");
-			}
-		});
-		
+		if(options == null) throw new IllegalArgumentException("The options cannot be null");
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.start(Phase.DISCOVER);
+		List<File> files;
+		try {
+			files = findSchemaFiles(schemaSource);
+		} finally {
+			metrics.stop(Phase.DISCOVER);
+		}
 		// Build up the list of schemas from the files
 		List<ObjectSchema> schemaList = new ArrayList<ObjectSchema>();
-		while(iterator.hasNext()){
-			File file = iterator.next();
-			String string = FileUtils.readToString(file);
-			// Create a new schema
-			ObjectSchema schema;
+		for(File file: files){
+			JSONObjectAdapter adapter = readSchemaFile(file, metrics);
+			metrics.start(Phase.PARSE);
 			try {
-				schema = new ObjectSchemaImpl(new JSONObjectAdapterImpl(string));
-			} catch (JSONObjectAdapterException e) {
-				if (e.getCause() instanceof JSONException) {
-					JSONException e2 = (JSONException) e.getCause();
-					throw new JSONObjectAdapterException(file.getAbsolutePath() + ": " + e2.getMessage(), e2);
-				}
-				throw e;
-			}
-			// Now if the schema does not have a name use the file name
-			if(schema.getName() == null){
-				schema.setName(extractSchemaNameFromFileName(file));
-			}
-			// Set the id
-			String packageName = getPackageNameFromFiles(schemaSource, file);
-			schema.setId(packageName+schema.getName());
-			// Each base schema must be an object even if it is not set
-			if(schema.getType() == null){
-				schema.setType(TYPE.OBJECT);
+				schemaList.add(createSchema(schemaSource, file, adapter));
+			} finally {
+				metrics.stop(Phase.PARSE);
 			}
-			// Add it to the list
-			schemaList.add(schema);
 		}
+		CodeWriter sources = new ChangeFileCodeWriter(outputDir, log);
+		generatePojos(schemaList, outputDir, createRegister, factory, options, sources, log, metrics);
+		return metrics;
+	}
+	
+	/**
+	 * Generate the classes for an already loaded list of schemas.
+	 * 
+	 * @param schemaList - The root schemas, as created by {@link #createSchema(File, File, JSONObjectAdapter)}.
+	 * @param outputDir
+	 * @param createRegister
+	 * @param factory
+	 * @param options
+	 * @param sources - The writer used for the generated java source files.
+	 * @param log
+	 * @param metrics - The phases of the generation are added to these metrics.
+	 * @throws IOException
+	 * @throws JSONObjectAdapterException
+	 * @throws ClassNotFoundException
+	 */
+	static void generatePojos(List<ObjectSchema> schemaList, File outputDir, String createRegister, HandlerFactory factory, PojoGeneratorOptions options,
+			CodeWriter sources, StringBuilder log, GenerationMetrics metrics) throws IOException, JSONObjectAdapterException, ClassNotFoundException {
+		metrics.setSchemaCount(schemaList.size());
 		// JCodeModel is used as the document model for the classes.
 		JCodeModel codeModel = new JCodeModel();
 		
@@ -96,13 +124,22 @@ public class SchemaToPojo {
 		}
 		
 		// The drive does the recursive work and drives the handlers
-		PojoGeneratorDriver driver = new PojoGeneratorDriver(factory);
+		PojoGeneratorDriver driver = new PojoGeneratorDriver(factory, options, metrics);
 		driver.createAllClasses(codeModel, schemaList);
+		if(options.isInternSubSchemas()){
+			log.append("Interned sub-schemas: saved " + driver.getInternedCount() + " schema instances\n");
+		}
 		
 		// When provided, create a register for all of the classes in the list.
 		if(createRegister != null){
-			RegisterGenerator.createRegister(codeModel, schemaList, registerClass, null);
+			metrics.start(Phase.REGISTER_AND_FACTORIES);
+			try {
+				RegisterGenerator.createRegister(codeModel, schemaList, registerClass, null);
+			} finally {
+				metrics.stop(Phase.REGISTER_AND_FACTORIES);
+			}
 		}
+		metrics.setClassCount(countClasses(codeModel));
 		
 		// The final step is to generate the classes
 		if(!outputDir.exists()){
@@ -111,14 +148,173 @@ public class SchemaToPojo {
 		
 		if(createRegister != null) {
 			// create an effective schema file for each schema.
-			EffectiveSchemaUtil.generateEffectiveSchemaFiles(outputDir, schemaList);
+			metrics.start(Phase.EFFECTIVE_SCHEMAS);
+			try {
+				EffectiveSchemaUtil.generateEffectiveSchemaFiles(outputDir, schemaList);
+			} finally {
+				metrics.stop(Phase.EFFECTIVE_SCHEMAS);
+			}
 		}
 
-		CodeWriter sources = new ChangeFileCodeWriter(outputDir, log);
-		CodeWriter resources = new FileCodeWriter(outputDir);
-		sources = new ProgressCodeWriter(sources, System.out);
-		resources = new ProgressCodeWriter(resources, System.out);
-		codeModel.build(sources, resources);
+		metrics.start(Phase.WRITE_SOURCES);
+		try {
+			CodeWriter resources = new FileCodeWriter(outputDir);
+			CodeWriter progressSources = new ProgressCodeWriter(sources, System.out);
+			resources = new ProgressCodeWriter(resources, System.out);
+			codeModel.build(progressSources, resources);
+		} finally {
+			metrics.stop(Phase.WRITE_SOURCES);
+		}
+		if (sources instanceof ChangeFileCodeWriter) {
+			ChangeFileCodeWriter changeWriter = (ChangeFileCodeWriter) sources;
+			metrics.setFileCounts(changeWriter.getWrittenCount(), changeWriter.getSkippedCount());
+		}
+	}
+	
+	/**
+	 * Count the classes, interfaces and enumerations of the code model.
+	 * 
+	 * @param codeModel
+	 * @return
+	 */
+	private static int countClasses(JCodeModel codeModel) {
+		int count = 0;
+		Iterator<JPackage> packages = codeModel.packages();
+		while (packages.hasNext()) {
+			Iterator<JDefinedClass> classes = packages.next().classes();
+			while (classes.hasNext()) {
+				classes.next();
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Find all of the schema (.json) files in the passed directory (or file).
+	 * 
+	 * @param schemaSource
+	 * @return
+	 */
+	static List<File> findSchemaFiles(File schemaSource) {
+		Iterator<File> iterator = FileUtils.getRecursiveIterator(schemaSource, new FileFilter() {
+			@Override
+			public boolean accept(File pathname) {
+				// Only include .json files
+				return pathname.getName().toLowerCase().endsWith(".json");
+			}
+		});
+		List<File> files = new ArrayList<File>();
+		while(iterator.hasNext()){
+			files.add(iterator.next());
+		}
+		return files;
+	}
+	
+	/**
+	 * Read and parse a single schema file.
+	 * 
+	 * @param file
+	 * @param metrics - The time spent reading and parsing is added to these metrics.
+	 * @return
+	 * @throws IOException
+	 * @throws JSONObjectAdapterException
+	 */
+	static JSONObjectAdapter readSchemaFile(File file, GenerationMetrics metrics) throws IOException, JSONObjectAdapterException {
+		String string;
+		metrics.start(Phase.READ);
+		try {
+			string = FileUtils.readToString(file);
+		} finally {
+			metrics.stop(Phase.READ);
+		}
+		metrics.start(Phase.PARSE);
+		try {
+			return new JSONObjectAdapterImpl(string);
+		} catch (JSONObjectAdapterException e) {
+			throw addFileToMessage(file, e);
+		} finally {
+			metrics.stop(Phase.PARSE);
+		}
+	}
+	
+	/**
+	 * Create a root schema from the parsed contents of a schema file. The name,
+	 * id and type of the schema are derived from the file when not provided.
+	 * 
+	 * @param schemaSource
+	 * @param file
+	 * @param adapter
+	 * @return
+	 * @throws JSONObjectAdapterException
+	 */
+	static ObjectSchema createSchema(File schemaSource, File file, JSONObjectAdapter adapter) throws JSONObjectAdapterException {
+		// Create a new schema
+		ObjectSchema schema;
+		try {
+			schema = new ObjectSchemaImpl(adapter);
+		} catch (JSONObjectAdapterException e) {
+			throw addFileToMessage(file, e);
+		}
+		// Now if the schema does not have a name use the file name
+		if(schema.getName() == null){
+			schema.setName(extractSchemaNameFromFileName(file));
+		}
+		// Set the id
+		String packageName = getPackageNameFromFiles(schemaSource, file);
+		schema.setId(packageName+schema.getName());
+		// Each base schema must be an object even if it is not set
+		if(schema.getType() == null){
+			schema.setType(TYPE.OBJECT);
+		}
+		return schema;
+	}
+	
+	private static JSONObjectAdapterException addFileToMessage(File file, JSONObjectAdapterException e) {
+		if (e.getCause() instanceof JSONException) {
+			JSONException e2 = (JSONException) e.getCause();
+			return new JSONObjectAdapterException(file.getAbsolutePath() + ": " + e2.getMessage(), e2);
+		}
+		return e;
+	}
+	
+	/**
+	 * Watch the passed schema directory and regenerate the classes each time a
+	 * schema file is created, changed or deleted. This method blocks until the
+	 * calling thread is interrupted.
+	 * 
+	 * @param schemaSource - The root directory of the schema files.
+	 * @param outputDir
+	 * @param createRegister
+	 * @param factory
+	 * @param listener - Notified after each generation.
+	 * @throws IOException
+	 */
+	public static void watch(File schemaSource, File outputDir, String createRegister, HandlerFactory factory, SchemaWatcher.Listener listener)
+			throws IOException {
+		watch(schemaSource, outputDir, createRegister, factory, new PojoGeneratorOptions(), listener);
+	}
+	
+	/**
+	 * Watch the passed schema directory and regenerate the classes, using the
+	 * given options, each time a schema file is created, changed or deleted.
+	 * 
+	 * @param schemaSource - The root directory of the schema files.
+	 * @param outputDir
+	 * @param createRegister
+	 * @param factory
+	 * @param options
+	 * @param listener - Notified after each generation.
+	 * @throws IOException
+	 */
+	public static void watch(File schemaSource, File outputDir, String createRegister, HandlerFactory factory, PojoGeneratorOptions options,
+			SchemaWatcher.Listener listener) throws IOException {
+		SchemaWatcher watcher = new SchemaWatcher(schemaSource, outputDir, createRegister, factory, options);
+		try {
+			watcher.watch(listener);
+		} finally {
+			watcher.close();
+		}
 	}
 	
 	/**
@@ -0,0 +1,288 @@
+package org.sagebionetworks.schema.generator;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.generator.GenerationMetrics.Phase;
+import org.sagebionetworks.schema.generator.handler.HandlerFactory;
+
+/**
+ * Keeps the parsed schema files of a source directory in memory and
+ * regenerates the classes each time a schema file changes.
+ * <p>
+ * Only the schema files that changed since the last generation are read and
+ * parsed again. The classes are then generated from the cached files and only
+ * the generated files with new content are written to the output directory, so
+ * the modification time of the unaffected classes does not change. Generated
+ * files that are no longer produced (for example after a schema file was
+ * deleted) are removed.
+ *
+ */
+public class SchemaWatcher implements Closeable {
+
+	/**
+	 * Editors often save a file in several steps, so wait for the file system to
+	 * be quiet for this long before generating.
+	 */
+	static final long QUIET_PERIOD_MS = 50;
+
+	/**
+	 * Notified after each generation of the watcher.
+	 *
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after the classes were generated.
+		 *
+		 * @param log       The log of the generation.
+		 * @param elapsedMS The time it took to generate the classes.
+		 */
+		void onGenerated(StringBuilder log, long elapsedMS);
+
+		/**
+		 * Called when the generation failed. The watcher will continue to watch
+		 * the source directory and try again on the next change.
+		 *
+		 * @param e
+		 */
+		void onError(Exception e);
+	}
+
+	/**
+	 * The parsed content of a single schema file.
+	 */
+	private static class SchemaFile {
+		long lastModified;
+		long length;
+		JSONObjectAdapter adapter;
+	}
+
+	private final File schemaSource;
+	private final File outputDir;
+	private final String createRegister;
+	private final HandlerFactory factory;
+	private final PojoGeneratorOptions options;
+	private final Map<File, SchemaFile> schemaFiles = new HashMap<File, SchemaFile>();
+	private Set<File> generatedFiles = new HashSet<File>();
+	private WatchService watchService;
+	private final Map<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+
+	/**
+	 *
+	 * @param schemaSource   The root directory of the schema files.
+	 * @param outputDir
+	 * @param createRegister
+	 * @param factory
+	 */
+	public SchemaWatcher(File schemaSource, File outputDir, String createRegister, HandlerFactory factory) {
+		this(schemaSource, outputDir, createRegister, factory, new PojoGeneratorOptions());
+	}
+
+	/**
+	 *
+	 * @param schemaSource   The root directory of the schema files.
+	 * @param outputDir
+	 * @param createRegister
+	 * @param factory
+	 * @param options
+	 */
+	public SchemaWatcher(File schemaSource, File outputDir, String createRegister, HandlerFactory factory, PojoGeneratorOptions options) {
+		if (schemaSource == null) throw new IllegalArgumentException("schemaSource cannot be null");
+		if (!schemaSource.isDirectory()) throw new IllegalArgumentException("schemaSource must be a directory: " + schemaSource);
+		if (outputDir == null) throw new IllegalArgumentException("outputDir cannot be null");
+		if (factory == null) throw new IllegalArgumentException("The HandlerFactory cannot be null");
+		if (options == null) throw new IllegalArgumentException("The options cannot be null");
+		this.schemaSource = schemaSource;
+		this.outputDir = outputDir;
+		this.createRegister = createRegister;
+		this.factory = factory;
+		this.options = options;
+	}
+
+	/**
+	 * Generate the classes for the current content of the source directory,
+	 * reading only the schema files that changed since the last call.
+	 *
+	 * @param log
+	 * @return The time, memory and counts of the generation.
+	 * @throws IOException
+	 * @throws JSONObjectAdapterException
+	 * @throws ClassNotFoundException
+	 */
+	public GenerationMetrics generate(StringBuilder log) throws IOException, JSONObjectAdapterException, ClassNotFoundException {
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.start(Phase.DISCOVER);
+		List<File> files;
+		try {
+			files = SchemaToPojo.findSchemaFiles(schemaSource);
+		} finally {
+			metrics.stop(Phase.DISCOVER);
+		}
+		// Forget the files that no longer exist.
+		schemaFiles.keySet().retainAll(files);
+		List<ObjectSchema> schemaList = new ArrayList<ObjectSchema>(files.size());
+		for (File file : files) {
+			SchemaFile schemaFile = schemaFiles.get(file);
+			long lastModified = file.lastModified();
+			long length = file.length();
+			if (schemaFile == null || schemaFile.lastModified != lastModified || schemaFile.length != length) {
+				schemaFile = new SchemaFile();
+				schemaFile.lastModified = lastModified;
+				schemaFile.length = length;
+				schemaFile.adapter = SchemaToPojo.readSchemaFile(file, metrics);
+				schemaFiles.put(file, schemaFile);
+				log.append("Read " + file + "\n");
+			}
+			// The generator modifies the schemas so each generation starts from a new instance.
+			metrics.start(Phase.PARSE);
+			try {
+				schemaList.add(SchemaToPojo.createSchema(schemaSource, file, schemaFile.adapter));
+			} finally {
+				metrics.stop(Phase.PARSE);
+			}
+		}
+		ChangeFileCodeWriter sources = new ChangeFileCodeWriter(outputDir, log);
+		SchemaToPojo.generatePojos(schemaList, outputDir, createRegister, factory, options, sources, log, metrics);
+
+		Set<File> produced = new HashSet<File>(sources.getFiles());
+		if (createRegister != null) {
+			for (ObjectSchema schema : schemaList) {
+				produced.add(EffectiveSchemaUtil.createFileForSchema(outputDir, schema));
+			}
+		}
+		for (File file : generatedFiles) {
+			if (!produced.contains(file) && file.delete()) {
+				log.append("Deleted " + file + "\n");
+			}
+		}
+		generatedFiles = produced;
+		return metrics;
+	}
+
+	/**
+	 * Generate the classes and then regenerate them each time a schema file
+	 * changes. This method blocks until the calling thread is interrupted.
+	 *
+	 * @param listener
+	 * @throws IOException
+	 */
+	public void watch(Listener listener) throws IOException {
+		if (listener == null) throw new IllegalArgumentException("Listener cannot be null");
+		if (watchService == null) {
+			watchService = FileSystems.getDefault().newWatchService();
+			registerAll(schemaSource.toPath());
+		}
+		generate(listener);
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				boolean changed = processEvents(watchService.take());
+				WatchKey key;
+				while ((key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)) != null) {
+					changed |= processEvents(key);
+				}
+				if (changed) {
+					generate(listener);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void generate(Listener listener) {
+		StringBuilder log = new StringBuilder();
+		long start = System.currentTimeMillis();
+		try {
+			generate(log);
+			listener.onGenerated(log, System.currentTimeMillis() - start);
+		} catch (Exception e) {
+			listener.onError(e);
+		}
+	}
+
+	/**
+	 * Process the events of the given key.
+	 *
+	 * @param key
+	 * @return True if a schema file or directory was changed.
+	 * @throws IOException
+	 */
+	private boolean processEvents(WatchKey key) throws IOException {
+		Path directory = watchedDirectories.get(key);
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				changed = true;
+				continue;
+			}
+			Path child = directory.resolve((Path) event.context());
+			if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+				// New directories must be watched too.
+				registerAll(child);
+				changed = true;
+			} else if (child.getFileName().toString().toLowerCase().endsWith(".json")) {
+				changed = true;
+			} else if (event.kind() == ENTRY_DELETE) {
+				// This could be a directory of schemas.
+				changed = true;
+			}
+		}
+		if (!key.reset()) {
+			watchedDirectories.remove(key);
+		}
+		return changed;
+	}
+
+	/**
+	 * Watch the given directory and all of its sub-directories.
+	 *
+	 * @param root
+	 * @throws IOException
+	 */
+	private void registerAll(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+				watchedDirectories.put(key, dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+			watchedDirectories.clear();
+		}
+	}
+
+}
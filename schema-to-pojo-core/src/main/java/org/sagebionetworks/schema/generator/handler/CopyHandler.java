@@ -0,0 +1,18 @@
+package org.sagebionetworks.schema.generator.handler;
+
+import org.sagebionetworks.schema.ObjectSchema;
+
+import com.sun.codemodel.JDefinedClass;
+
+/**
+ * This handler is responsible for adding copy() to a POJO.
+ *
+ */
+public interface CopyHandler {
+	/**
+	 * Add copy() to the POJO or interface
+	 * @param classSchema
+	 * @param classType
+	 */
+	public void addCopy(ObjectSchema classSchema, JDefinedClass classType);
+}
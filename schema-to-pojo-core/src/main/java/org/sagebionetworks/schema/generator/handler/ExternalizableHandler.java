@@ -0,0 +1,19 @@
+package org.sagebionetworks.schema.generator.handler;
+
+import org.sagebionetworks.schema.ObjectSchema;
+
+import com.sun.codemodel.JDefinedClass;
+
+/**
+ * This handler is responsible for adding writeExternal() and readExternal() to
+ * a POJO.
+ *
+ */
+public interface ExternalizableHandler {
+	/**
+	 * Make the POJO Externalizable
+	 * @param classSchema
+	 * @param classType
+	 */
+	public void addExternalizable(ObjectSchema classSchema, JDefinedClass classType);
+}
@@ -0,0 +1,19 @@
+package org.sagebionetworks.schema.generator.handler;
+
+import org.sagebionetworks.schema.ObjectSchema;
+
+import com.sun.codemodel.JDefinedClass;
+
+/**
+ * This handler is responsible for adding the field descriptors and the indexed
+ * field accessors to a POJO.
+ *
+ */
+public interface FieldAccessHandler {
+	/**
+	 * Add the field descriptors and accessors to the POJO or interface
+	 * @param classSchema
+	 * @param classType
+	 */
+	public void addFieldAccess(ObjectSchema classSchema, JDefinedClass classType);
+}
@@ -0,0 +1,18 @@
+package org.sagebionetworks.schema.generator.handler;
+
+import org.sagebionetworks.schema.ObjectSchema;
+
+import com.sun.codemodel.JDefinedClass;
+
+/**
+ * This handler is responsible for adding fingerprint64() to a POJO.
+ *
+ */
+public interface FingerprintHandler {
+	/**
+	 * Add fingerprint64() to the POJO
+	 * @param classSchema
+	 * @param classType
+	 */
+	public void addFingerprint(ObjectSchema classSchema, JDefinedClass classType);
+}
@@ -1,5 +1,11 @@
 package org.sagebionetworks.schema.generator.handler;
 
+import org.sagebionetworks.schema.generator.handler.schema03.CopyHandlerImpl03;
+import org.sagebionetworks.schema.generator.handler.schema03.ExternalizableHandlerImpl03;
+import org.sagebionetworks.schema.generator.handler.schema03.FieldAccessHandlerImpl03;
+import org.sagebionetworks.schema.generator.handler.schema03.FingerprintHandlerImpl03;
+import org.sagebionetworks.schema.generator.handler.schema03.ValidationHandlerImpl03;
+
 /**
  * Provides the various handlers to the PojoGeneratrorDriver.  Each implementation can be schema specific.
  * @author jmhill
@@ -37,4 +43,49 @@ public interface HandlerFactory {
 	 */
 	public ToStringHandler getToStringHandler();
 
+	/**
+	 * This handler must add copy(). By default nothing is added, so that
+	 * existing factories do not have to provide it.
+	 * @return
+	 */
+	public default CopyHandler getCopyHandler() {
+		return new CopyHandlerImpl03();
+	}
+
+	/**
+	 * This handler must add the field descriptors and indexed accessors. By default nothing is added, so that
+	 * existing factories do not have to provide it.
+	 * @return
+	 */
+	public default FieldAccessHandler getFieldAccessHandler() {
+		return new FieldAccessHandlerImpl03();
+	}
+
+	/**
+	 * This handler must add writeExternal() and readExternal(). By default nothing is added, so that
+	 * existing factories do not have to provide it.
+	 * @return
+	 */
+	public default ExternalizableHandler getExternalizableHandler() {
+		return new ExternalizableHandlerImpl03();
+	}
+
+	/**
+	 * This handler must add fingerprint64(). By default nothing is added, so that
+	 * existing factories do not have to provide it.
+	 * @return
+	 */
+	public default FingerprintHandler getFingerprintHandler() {
+		return new FingerprintHandlerImpl03();
+	}
+
+	/**
+	 * This handler must add validate(). By default nothing is added, so that
+	 * existing factories do not have to provide it.
+	 * @return
+	 */
+	public default ValidationHandler getValidationHandler() {
+		return new ValidationHandlerImpl03();
+	}
+
 }
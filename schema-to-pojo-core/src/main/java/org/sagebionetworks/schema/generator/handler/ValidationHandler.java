@@ -0,0 +1,18 @@
+package org.sagebionetworks.schema.generator.handler;
+
+import org.sagebionetworks.schema.ObjectSchema;
+
+import com.sun.codemodel.JDefinedClass;
+
+/**
+ * This handler is responsible for adding validate() to a POJO.
+ *
+ */
+public interface ValidationHandler {
+	/**
+	 * Add the constraint checks of the schema to the POJO
+	 * @param classSchema
+	 * @param classType
+	 */
+	public void addValidation(ObjectSchema classSchema, JDefinedClass classType);
+}
@@ -0,0 +1,218 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.generator.PropertyUtils;
+import org.sagebionetworks.schema.generator.handler.CopyHandler;
+
+import com.sun.codemodel.ClassType;
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JConditional;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JDocComment;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JFieldRef;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JForEach;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JOp;
+import com.sun.codemodel.JType;
+import com.sun.codemodel.JVar;
+
+/**
+ * Adds a copy constructor and copy() to a POJO. The fields are copied directly
+ * instead of writing the object to JSON and reading it back: lists, sets, maps,
+ * dates and nested entities are copied, strings, numbers, booleans and enums are
+ * immutable and shared.
+ *
+ */
+public class CopyHandlerImpl03 implements CopyHandler {
+
+	/**
+	 * The name of the generated method.
+	 */
+	public static final String COPY = "copy";
+
+	private static final String VAR_PREFIX = "__";
+
+	boolean enabled;
+	boolean immutable;
+
+	public CopyHandlerImpl03() {
+		this(false, false);
+	}
+
+	/**
+	 * @param enabled When false nothing is added.
+	 * @param immutable When true the classes are immutable and copy() returns the object itself.
+	 */
+	public CopyHandlerImpl03(boolean enabled, boolean immutable) {
+		this.enabled = enabled;
+		this.immutable = immutable;
+	}
+
+	@Override
+	public void addCopy(ObjectSchema classSchema, JDefinedClass classType) {
+		if(!enabled){
+			return;
+		}
+		if(TYPE.INTERFACE == classSchema.getType()){
+			createCopyMethod(classSchema, classType);
+			return;
+		}
+		JMethod method = createCopyMethod(classSchema, classType);
+		if(immutable){
+			method.javadoc().add(" An immutable object is its own copy.");
+			method.body()._return(JExpr._this());
+			return;
+		}
+		createCopyConstructor(classSchema, classType);
+		method.body()._return(JExpr._new(classType).arg(JExpr._this()));
+	}
+
+	/**
+	 * Declare copy(). Interfaces declare it so that interface-typed fields can
+	 * be copied.
+	 * @param classSchema
+	 * @param classType
+	 * @return
+	 */
+	protected JMethod createCopyMethod(ObjectSchema classSchema, JDefinedClass classType) {
+		JMethod method = classType.method(JMod.PUBLIC, classType, COPY);
+		// The super class and the interfaces declare copy() too.
+		if(!classType.isInterface() && (classSchema.getExtends() != null
+				|| (classSchema.getImplements() != null && classSchema.getImplements().length > 0))){
+			method.annotate(Override.class);
+		}
+		JDocComment docs = method.javadoc();
+		docs.add("Create a deep copy of this object without writing it to JSON.");
+		docs.addReturn();
+		return method;
+	}
+
+	/**
+	 * Create the constructor that copies each field of the given object.
+	 * @param classSchema
+	 * @param classType
+	 * @return
+	 */
+	protected JMethod createCopyConstructor(ObjectSchema classSchema, JDefinedClass classType) {
+		JCodeModel codeModel = classType.owner();
+		JMethod constructor = classType.constructor(JMod.PUBLIC);
+		JVar other = constructor.param(classType, "other");
+		JDocComment docs = constructor.javadoc();
+		docs.add("Create a deep copy of the given " + classType.name() + ".");
+		docs.addParam(other);
+		JBlock body = constructor.body();
+		if(classSchema.getExtends() != null){
+			body.invoke("super").arg(other);
+		}else{
+			body.invoke("super");
+		}
+		body._if(other.eq(JExpr._null()))._then()
+				._throw(JExpr._new(codeModel.ref(IllegalArgumentException.class)).arg("The object to copy cannot be null"));
+		// Lazy properties are read before the fields are copied.
+		PropertyUtils.addDecodeLazy(classType, body, other);
+		for (String propName : ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).keySet()) {
+			JFieldVar field = PropertyUtils.getPropertyReference(classType, propName);
+			copyField(codeModel, body, field, other.ref(field));
+		}
+		return constructor;
+	}
+
+	/**
+	 * Assign a copy of the source to the field.
+	 * @param codeModel
+	 * @param body
+	 * @param field
+	 * @param source
+	 */
+	private static void copyField(JCodeModel codeModel, JBlock body, JFieldVar field, JExpression source) {
+		JFieldRef target = JExpr._this().ref(field);
+		JType type = field.type();
+		JClass erasure = type instanceof JClass ? ((JClass) type).erasure() : null;
+		if(codeModel.ref(List.class).equals(erasure) || codeModel.ref(Set.class).equals(erasure)){
+			JClass elementType = ((JClass) type).getTypeParameters().get(0);
+			JClass copyClass = codeModel.ref(List.class).equals(erasure) ? codeModel.ref(ArrayList.class) : codeModel.ref(LinkedHashSet.class);
+			copyClass = copyClass.narrow(elementType);
+			if(!needsCopy(elementType)){
+				body.assign(target, JOp.cond(source.eq(JExpr._null()), JExpr._null(), JExpr._new(copyClass).arg(source)));
+				return;
+			}
+			JConditional notNull = body._if(source.ne(JExpr._null()));
+			JBlock block = notNull._then();
+			JVar copy = block.decl(type, VAR_PREFIX + field.name(), JExpr._new(copyClass).arg(source.invoke("size")));
+			JForEach loop = block.forEach(elementType, VAR_PREFIX + "value", source);
+			loop.body().add(copy.invoke("add").arg(copyValue(codeModel, elementType, loop.var())));
+			block.assign(target, copy);
+		}else if(codeModel.ref(Map.class).equals(erasure)){
+			JClass keyType = ((JClass) type).getTypeParameters().get(0);
+			JClass valueType = ((JClass) type).getTypeParameters().get(1);
+			JClass copyClass = codeModel.ref(LinkedHashMap.class).narrow(keyType, valueType);
+			if(!needsCopy(keyType) && !needsCopy(valueType)){
+				body.assign(target, JOp.cond(source.eq(JExpr._null()), JExpr._null(), JExpr._new(copyClass).arg(source)));
+				return;
+			}
+			JConditional notNull = body._if(source.ne(JExpr._null()));
+			JBlock block = notNull._then();
+			JVar copy = block.decl(type, VAR_PREFIX + field.name(), JExpr._new(copyClass).arg(source.invoke("size")));
+			JType entryType = codeModel.ref(Map.Entry.class).narrow(keyType, valueType);
+			JForEach loop = block.forEach(entryType, VAR_PREFIX + "entry", source.invoke("entrySet"));
+			loop.body().add(copy.invoke("put")
+					.arg(copyValue(codeModel, keyType, loop.var().invoke("getKey")))
+					.arg(copyValue(codeModel, valueType, loop.var().invoke("getValue"))));
+			block.assign(target, copy);
+		}else{
+			body.assign(target, copyValue(codeModel, type, source));
+		}
+	}
+
+	/**
+	 * An expression for the copy of a single value.
+	 * @param codeModel
+	 * @param type
+	 * @param value
+	 * @return
+	 */
+	private static JExpression copyValue(JCodeModel codeModel, JType type, JExpression value) {
+		if(!needsCopy(type)){
+			return value;
+		}
+		JExpression copy;
+		if(codeModel.ref(Date.class).equals(type)){
+			copy = JExpr._new(codeModel.ref(Date.class)).arg(value.invoke("getTime"));
+		}else{
+			copy = value.invoke(COPY);
+		}
+		return JOp.cond(value.eq(JExpr._null()), JExpr._null(), copy);
+	}
+
+	/**
+	 * Dates and the generated classes and interfaces are mutable, all other
+	 * values are immutable or of an unknown type and are shared.
+	 * @param type
+	 * @return
+	 */
+	static boolean needsCopy(JType type) {
+		if(type.isPrimitive()){
+			return false;
+		}
+		if(type instanceof JDefinedClass){
+			return ClassType.ENUM != ((JDefinedClass) type).getClassType();
+		}
+		return Date.class.getName().equals(type.fullName());
+	}
+}
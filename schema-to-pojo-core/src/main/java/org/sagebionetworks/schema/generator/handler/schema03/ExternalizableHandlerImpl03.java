@@ -0,0 +1,352 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sagebionetworks.schema.FORMAT;
+import org.sagebionetworks.schema.Fingerprint;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.generator.PropertyUtils;
+import org.sagebionetworks.schema.generator.handler.ExternalizableHandler;
+
+import com.sun.codemodel.ClassType;
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JConditional;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JDocComment;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JFieldRef;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JForEach;
+import com.sun.codemodel.JForLoop;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+import com.sun.codemodel.JVar;
+
+/**
+ * Makes a POJO {@link Externalizable}. The fields are written in order after a
+ * hash of the class layout and a bitmap of the null fields: numbers, booleans
+ * and dates as primitives, enums by name, collections and maps by size and
+ * elements, and nested entities of the declared class by their own
+ * writeExternal(). Strings, subclasses, interfaces and unknown types go
+ * through writeObject().
+ *
+ */
+public class ExternalizableHandlerImpl03 implements ExternalizableHandler {
+
+	/**
+	 * The name of the constant with the hash of the class layout.
+	 */
+	public static final String SCHEMA_HASH = "_SCHEMA_HASH";
+
+	private static final String VAR_PREFIX = "__";
+
+	boolean enabled;
+
+	public ExternalizableHandlerImpl03() {
+		this(false, false);
+	}
+
+	/**
+	 * @param enabled When false nothing is added.
+	 * @param immutable Immutable classes cannot be Externalizable, their fields are final.
+	 */
+	public ExternalizableHandlerImpl03(boolean enabled, boolean immutable) {
+		if(enabled && immutable) throw new IllegalArgumentException("Externalizable is not supported for immutable classes");
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void addExternalizable(ObjectSchema classSchema, JDefinedClass classType) {
+		if(!enabled){
+			return;
+		}
+		if(TYPE.INTERFACE == classSchema.getType()){
+			throw new IllegalArgumentException("Cannot add Externalizable to an interface");
+		}
+		classType._implements(Externalizable.class);
+		JFieldVar hash = classType.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, classType.owner().LONG, SCHEMA_HASH,
+				JExpr.lit(layoutHash(classSchema, classType)));
+		createWriteExternal(classSchema, classType, hash);
+		createReadExternal(classSchema, classType, hash);
+	}
+
+	/**
+	 * A {@link Fingerprint} of the names, types and formats of the properties
+	 * in order, so that an object written with another layout is not read.
+	 * @param classSchema
+	 * @param classType
+	 * @return
+	 */
+	static long layoutHash(ObjectSchema classSchema, JDefinedClass classType) {
+		StringBuilder layout = new StringBuilder(classType.fullName());
+		for (Map.Entry<String, ObjectSchema> entry : ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).entrySet()) {
+			JFieldVar field = PropertyUtils.getPropertyReference(classType, entry.getKey());
+			FORMAT format = entry.getValue().getFormat();
+			layout.append(';').append(entry.getKey()).append(':').append(field.type().fullName());
+			layout.append(':').append(format == null ? "" : format.name());
+		}
+		return Fingerprint.of(layout.toString());
+	}
+
+	/**
+	 * Create writeExternal(), which writes the super class first.
+	 * @param classSchema
+	 * @param classType
+	 * @param hash
+	 * @return
+	 */
+	protected JMethod createWriteExternal(ObjectSchema classSchema, JDefinedClass classType, JFieldVar hash) {
+		JCodeModel codeModel = classType.owner();
+		JMethod method = classType.method(JMod.PUBLIC, codeModel.VOID, "writeExternal");
+		method.annotate(Override.class);
+		method._throws(IOException.class);
+		JVar out = method.param(ObjectOutput.class, "out");
+		JDocComment docs = method.javadoc();
+		docs.add("Write the fields of this object in order.");
+		docs.addParam(out);
+		docs.addThrows(IOException.class);
+		JBlock body = method.body();
+		if(classSchema.getExtends() != null){
+			body.add(JExpr._super().invoke(method).arg(out));
+		}
+		PropertyUtils.addDecodeLazy(classType, body, null);
+		body.add(out.invoke("writeLong").arg(hash));
+		List<JFieldVar> fields = getFields(classSchema, classType);
+		// One bit for each null field.
+		for (int word = 0; word * 64 < fields.size(); word++) {
+			JVar nulls = body.decl(codeModel.LONG, VAR_PREFIX + "nulls" + word, JExpr.lit(0L));
+			for (int i = word * 64; i < fields.size() && i < (word + 1) * 64; i++) {
+				body._if(JExpr._this().ref(fields.get(i)).eq(JExpr._null()))._then().assignPlus(nulls, JExpr.lit(1L << (i % 64)));
+			}
+			body.add(out.invoke("writeLong").arg(nulls));
+		}
+		Counter counter = new Counter();
+		for (JFieldVar field : fields) {
+			JFieldRef ref = JExpr._this().ref(field);
+			JBlock notNull = body._if(ref.ne(JExpr._null()))._then();
+			writeValue(codeModel, notNull, out, field.type(), ref, counter);
+		}
+		return method;
+	}
+
+	/**
+	 * Create readExternal(), which reads the fields in the order they were
+	 * written.
+	 * @param classSchema
+	 * @param classType
+	 * @param hash
+	 * @return
+	 */
+	protected JMethod createReadExternal(ObjectSchema classSchema, JDefinedClass classType, JFieldVar hash) {
+		JCodeModel codeModel = classType.owner();
+		JMethod method = classType.method(JMod.PUBLIC, codeModel.VOID, "readExternal");
+		method.annotate(Override.class);
+		method._throws(IOException.class);
+		method._throws(ClassNotFoundException.class);
+		JVar in = method.param(ObjectInput.class, "in");
+		JDocComment docs = method.javadoc();
+		docs.add("Read the fields written by writeExternal().");
+		docs.addParam(in);
+		docs.addThrows(IOException.class);
+		docs.addThrows(InvalidClassException.class).add("When the object was written with another version of the class.");
+		docs.addThrows(ClassNotFoundException.class);
+		JBlock body = method.body();
+		if(classSchema.getExtends() != null){
+			body.add(JExpr._super().invoke(method).arg(in));
+		}
+		// Properties that were not read from JSON yet must not overwrite the ones read here.
+		PropertyUtils.addDecodeLazy(classType, body, null);
+		body._if(in.invoke("readLong").ne(hash))._then()._throw(JExpr._new(codeModel.ref(InvalidClassException.class))
+				.arg(classType.fullName()).arg("The object was written with another version of the class"));
+		List<JFieldVar> fields = getFields(classSchema, classType);
+		List<JVar> nulls = new ArrayList<JVar>();
+		for (int word = 0; word * 64 < fields.size(); word++) {
+			nulls.add(body.decl(codeModel.LONG, VAR_PREFIX + "nulls" + word, in.invoke("readLong")));
+		}
+		Counter counter = new Counter();
+		for (int i = 0; i < fields.size(); i++) {
+			JFieldVar field = fields.get(i);
+			JFieldRef ref = JExpr._this().ref(field);
+			JConditional isNull = body._if(nulls.get(i / 64).band(JExpr.lit(1L << (i % 64))).ne(JExpr.lit(0L)));
+			isNull._then().assign(ref, JExpr._null());
+			JBlock notNull = isNull._else();
+			notNull.assign(ref, readValue(codeModel, notNull, in, field.type(), counter));
+		}
+		return method;
+	}
+
+	private static List<JFieldVar> getFields(ObjectSchema classSchema, JDefinedClass classType) {
+		List<JFieldVar> fields = new ArrayList<JFieldVar>();
+		for (String propName : ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).keySet()) {
+			fields.add(PropertyUtils.getPropertyReference(classType, propName));
+		}
+		return fields;
+	}
+
+	/**
+	 * Write a value that is not null.
+	 */
+	private static void writeValue(JCodeModel codeModel, JBlock block, JVar out, JType type, JExpression value, Counter counter) {
+		JType unboxed = type.unboxify();
+		if (unboxed.isPrimitive() && unboxed != type || type.isPrimitive()) {
+			block.add(out.invoke("write" + capitalize(unboxed.name())).arg(value));
+		} else if (codeModel.ref(Date.class).equals(type)) {
+			block.add(out.invoke("writeLong").arg(value.invoke("getTime")));
+		} else if (isEnum(type)) {
+			block.add(out.invoke("writeUTF").arg(value.invoke("name")));
+		} else if (isCollection(codeModel, type) || isMap(codeModel, type)) {
+			JClass typeClass = (JClass) type;
+			block.add(out.invoke("writeInt").arg(value.invoke("size")));
+			if (isMap(codeModel, type)) {
+				JClass keyType = typeClass.getTypeParameters().get(0);
+				JClass valueType = typeClass.getTypeParameters().get(1);
+				JForEach loop = block.forEach(codeModel.ref(Map.Entry.class).narrow(keyType, valueType), VAR_PREFIX + "entry" + counter.next(), value.invoke("entrySet"));
+				writeNullable(codeModel, loop.body(), out, keyType, loop.var().invoke("getKey"), counter);
+				writeNullable(codeModel, loop.body(), out, valueType, loop.var().invoke("getValue"), counter);
+			} else {
+				JClass elementType = typeClass.getTypeParameters().get(0);
+				JForEach loop = block.forEach(elementType, VAR_PREFIX + "element" + counter.next(), value);
+				writeNullable(codeModel, loop.body(), out, elementType, loop.var(), counter);
+			}
+		} else if (isEntity(type)) {
+			// Only an object of the declared class can be read back without its class name.
+			JConditional exact = block._if(value.invoke("getClass").eq(((JClass) type).dotclass()));
+			exact._then().add(out.invoke("writeBoolean").arg(JExpr.TRUE));
+			exact._then().add(value.invoke("writeExternal").arg(out));
+			exact._else().add(out.invoke("writeBoolean").arg(JExpr.FALSE));
+			exact._else().add(out.invoke("writeObject").arg(value));
+		} else {
+			block.add(out.invoke("writeObject").arg(value));
+		}
+	}
+
+	/**
+	 * Write a value that can be null, such as the element of a collection.
+	 */
+	private static void writeNullable(JCodeModel codeModel, JBlock block, JVar out, JType type, JExpression value, Counter counter) {
+		JVar local = block.decl(type, VAR_PREFIX + "value" + counter.next(), value);
+		JConditional isNull = block._if(local.eq(JExpr._null()));
+		isNull._then().add(out.invoke("writeBoolean").arg(JExpr.FALSE));
+		isNull._else().add(out.invoke("writeBoolean").arg(JExpr.TRUE));
+		writeValue(codeModel, isNull._else(), out, type, local, counter);
+	}
+
+	/**
+	 * Read a value that is not null, adding any statements needed to the
+	 * block.
+	 * @return The expression for the value.
+	 */
+	private static JExpression readValue(JCodeModel codeModel, JBlock block, JVar in, JType type, Counter counter) {
+		JType unboxed = type.unboxify();
+		if (unboxed.isPrimitive() && unboxed != type || type.isPrimitive()) {
+			return in.invoke("read" + capitalize(unboxed.name()));
+		} else if (codeModel.ref(Date.class).equals(type)) {
+			return JExpr._new(codeModel.ref(Date.class)).arg(in.invoke("readLong"));
+		} else if (isEnum(type)) {
+			return ((JClass) type).staticInvoke("valueOf").arg(in.invoke("readUTF"));
+		} else if (isCollection(codeModel, type) || isMap(codeModel, type)) {
+			JClass typeClass = (JClass) type;
+			int id = counter.next();
+			JVar size = block.decl(codeModel.INT, VAR_PREFIX + "size" + id, in.invoke("readInt"));
+			JClass implClass;
+			if (isMap(codeModel, type)) {
+				implClass = codeModel.ref(LinkedHashMap.class);
+			} else if (codeModel.ref(Set.class).equals(typeClass.erasure())) {
+				implClass = codeModel.ref(LinkedHashSet.class);
+			} else {
+				implClass = codeModel.ref(ArrayList.class);
+			}
+			JVar result = block.decl(type, VAR_PREFIX + "value" + id, JExpr._new(implClass.narrow(typeClass.getTypeParameters())).arg(size));
+			JForLoop loop = block._for();
+			JVar i = loop.init(codeModel.INT, VAR_PREFIX + "i" + id, JExpr.lit(0));
+			loop.test(i.lt(size));
+			loop.update(i.incr());
+			JBlock loopBody = loop.body();
+			if (isMap(codeModel, type)) {
+				JExpression key = readNullable(codeModel, loopBody, in, typeClass.getTypeParameters().get(0), counter);
+				JExpression value = readNullable(codeModel, loopBody, in, typeClass.getTypeParameters().get(1), counter);
+				loopBody.add(result.invoke("put").arg(key).arg(value));
+			} else {
+				loopBody.add(result.invoke("add").arg(readNullable(codeModel, loopBody, in, typeClass.getTypeParameters().get(0), counter)));
+			}
+			return result;
+		} else if (isEntity(type)) {
+			JVar result = block.decl(type, VAR_PREFIX + "value" + counter.next());
+			JConditional exact = block._if(in.invoke("readBoolean"));
+			exact._then().assign(result, JExpr._new(type));
+			exact._then().add(result.invoke("readExternal").arg(in));
+			exact._else().assign(result, JExpr.cast(type, in.invoke("readObject")));
+			return result;
+		} else {
+			return JExpr.cast(type, in.invoke("readObject"));
+		}
+	}
+
+	/**
+	 * Read a value that can be null.
+	 * @return The local variable with the value.
+	 */
+	private static JExpression readNullable(JCodeModel codeModel, JBlock block, JVar in, JType type, Counter counter) {
+		JVar local = block.decl(type, VAR_PREFIX + "value" + counter.next(), JExpr._null());
+		JBlock notNull = block._if(in.invoke("readBoolean"))._then();
+		notNull.assign(local, readValue(codeModel, notNull, in, type, counter));
+		return local;
+	}
+
+	private static boolean isEnum(JType type) {
+		return type instanceof JDefinedClass && ClassType.ENUM == ((JDefinedClass) type).getClassType();
+	}
+
+	/**
+	 * Is the given type a generated class that is written by its own
+	 * writeExternal()?
+	 */
+	static boolean isEntity(JType type) {
+		return type instanceof JDefinedClass && ClassType.CLASS == ((JDefinedClass) type).getClassType()
+				&& !((JDefinedClass) type).isAbstract();
+	}
+
+	private static boolean isCollection(JCodeModel codeModel, JType type) {
+		if (!(type instanceof JClass)) {
+			return false;
+		}
+		JClass erasure = ((JClass) type).erasure();
+		return codeModel.ref(List.class).equals(erasure) || codeModel.ref(Set.class).equals(erasure);
+	}
+
+	private static boolean isMap(JCodeModel codeModel, JType type) {
+		return type instanceof JClass && codeModel.ref(Map.class).equals(((JClass) type).erasure());
+	}
+
+	private static String capitalize(String name) {
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	/**
+	 * Numbers the local variables of a method.
+	 */
+	private static class Counter {
+		private int count = 0;
+
+		int next() {
+			return count++;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import java.util.List;
+import java.util.Map;
+
+import org.sagebionetworks.schema.FORMAT;
+import org.sagebionetworks.schema.FieldDescriptor;
+import org.sagebionetworks.schema.IndexedEntity;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.generator.PropertyUtils;
+import org.sagebionetworks.schema.generator.handler.FieldAccessHandler;
+
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JInvocation;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JSwitch;
+import com.sun.codemodel.JType;
+import com.sun.codemodel.JVar;
+
+/**
+ * Makes a POJO an {@link IndexedEntity}: a static list of
+ * {@link FieldDescriptor}s built from the key constants, and
+ * getFieldValue(int)/setFieldValue(int, Object) that switch on the index and
+ * call the getters and setters. The properties of a super class come first and
+ * keep their indices.
+ *
+ */
+public class FieldAccessHandlerImpl03 implements FieldAccessHandler {
+
+	/**
+	 * The name of the static list of descriptors.
+	 */
+	public static final String FIELD_DESCRIPTORS = "FIELD_DESCRIPTORS";
+
+	boolean enabled;
+	boolean immutable;
+
+	public FieldAccessHandlerImpl03() {
+		this(false, false);
+	}
+
+	/**
+	 * @param enabled When false nothing is added.
+	 * @param immutable When true the classes have no setters and setFieldValue() throws.
+	 */
+	public FieldAccessHandlerImpl03(boolean enabled, boolean immutable) {
+		this.enabled = enabled;
+		this.immutable = immutable;
+	}
+
+	@Override
+	public void addFieldAccess(ObjectSchema classSchema, JDefinedClass classType) {
+		if(!enabled){
+			return;
+		}
+		classType._implements(IndexedEntity.class);
+		if(TYPE.INTERFACE == classSchema.getType()){
+			return;
+		}
+		int offset = countInheritedProperties(classSchema);
+		JFieldVar descriptors = createFieldDescriptors(classSchema, classType, offset);
+		JMethod method = classType.method(JMod.PUBLIC, descriptors.type(), "getFieldDescriptors");
+		method.annotate(Override.class);
+		method.body()._return(descriptors);
+		createGetFieldValue(classSchema, classType, offset);
+		createSetFieldValue(classSchema, classType, offset);
+	}
+
+	/**
+	 * The number of properties of the super classes, which is the index of
+	 * the first property of this class.
+	 * @param classSchema
+	 * @return
+	 */
+	static int countInheritedProperties(ObjectSchema classSchema) {
+		int count = 0;
+		for(ObjectSchema parent = classSchema.getExtends(); parent != null; parent = parent.getExtends()){
+			count += ObjectSchemaImpl.getCachedObjectFieldMap(parent).size();
+		}
+		return count;
+	}
+
+	/**
+	 * Create the static list of descriptors, starting with the descriptors of
+	 * the super class.
+	 * @param classSchema
+	 * @param classType
+	 * @param offset
+	 * @return
+	 */
+	protected JFieldVar createFieldDescriptors(ObjectSchema classSchema, JDefinedClass classType, int offset) {
+		JCodeModel codeModel = classType.owner();
+		JClass listType = codeModel.ref(List.class).narrow(FieldDescriptor.class);
+		JExpression inherited = JExpr._null();
+		if(classSchema.getExtends() != null){
+			inherited = classType._extends().staticRef(FIELD_DESCRIPTORS);
+		}
+		JInvocation init = codeModel.ref(FieldDescriptor.class).staticInvoke("list").arg(inherited);
+		JFieldVar allKeys = classType.fields().get(ObjectSchema.ALL_KEYS_NAME);
+		int index = 0;
+		for (Map.Entry<String, ObjectSchema> entry : ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).entrySet()) {
+			TYPE type = PropertyUtils.validateNonNullType(classType, entry.getValue());
+			FORMAT format = entry.getValue().getFormat();
+			init.arg(JExpr._new(codeModel.ref(FieldDescriptor.class))
+					.arg(JExpr.lit(offset + index))
+					.arg(allKeys.component(JExpr.lit(index)))
+					.arg(codeModel.ref(TYPE.class).staticRef(type.name()))
+					.arg(format == null ? JExpr._null() : codeModel.ref(FORMAT.class).staticRef(format.name())));
+			index++;
+		}
+		JFieldVar field = classType.field(JMod.PUBLIC | JMod.STATIC | JMod.FINAL, listType, FIELD_DESCRIPTORS, init);
+		field.javadoc().add("The descriptors of the properties of " + classType.name() + ", including the inherited ones.");
+		return field;
+	}
+
+	/**
+	 * Create getFieldValue(int), which calls the getter of the property with
+	 * the given index.
+	 * @param classSchema
+	 * @param classType
+	 * @param offset
+	 * @return
+	 */
+	protected JMethod createGetFieldValue(ObjectSchema classSchema, JDefinedClass classType, int offset) {
+		JCodeModel codeModel = classType.owner();
+		JMethod method = classType.method(JMod.PUBLIC, codeModel.ref(Object.class), "getFieldValue");
+		method.annotate(Override.class);
+		JVar index = method.param(codeModel.INT, "index");
+		JBlock body = method.body();
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(classSchema);
+		if(!fieldMap.isEmpty()){
+			JSwitch _switch = body._switch(index);
+			int i = 0;
+			for(String propName: fieldMap.keySet()){
+				// The getters are named after the java field.
+				JFieldVar field = PropertyUtils.getPropertyReference(classType, propName);
+				_switch._case(JExpr.lit(offset + i)).body()._return(JExpr.invoke(PropertyHandlerImpl03.getterName(field.name())));
+				i++;
+			}
+		}
+		if(classSchema.getExtends() != null){
+			body._return(JExpr._super().invoke(method).arg(index));
+		}else{
+			body._throw(createIndexOutOfBoundsException(codeModel, index));
+		}
+		return method;
+	}
+
+	/**
+	 * Create setFieldValue(int, Object), which calls the setter of the
+	 * property with the given index.
+	 * @param classSchema
+	 * @param classType
+	 * @param offset
+	 * @return
+	 */
+	protected JMethod createSetFieldValue(ObjectSchema classSchema, JDefinedClass classType, int offset) {
+		JCodeModel codeModel = classType.owner();
+		JMethod method = classType.method(JMod.PUBLIC, codeModel.VOID, "setFieldValue");
+		method.annotate(Override.class);
+		JVar index = method.param(codeModel.INT, "index");
+		JVar value = method.param(codeModel.ref(Object.class), "value");
+		JBlock body = method.body();
+		if(immutable){
+			body._throw(JExpr._new(codeModel.ref(UnsupportedOperationException.class)).arg(classType.name()+" is immutable"));
+			return method;
+		}
+		boolean unchecked = false;
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(classSchema);
+		if(!fieldMap.isEmpty()){
+			JSwitch _switch = body._switch(index);
+			int i = 0;
+			for(String propName: fieldMap.keySet()){
+				JFieldVar field = PropertyUtils.getPropertyReference(classType, propName);
+				JType type = field.type();
+				if(type instanceof JClass && !((JClass) type).getTypeParameters().isEmpty()){
+					unchecked = true;
+				}
+				JBlock caseBody = _switch._case(JExpr.lit(offset + i)).body();
+				caseBody.invoke(PropertyHandlerImpl03.setterName(field.name())).arg(JExpr.cast(type, value));
+				caseBody._return();
+				i++;
+			}
+		}
+		if(unchecked){
+			method.annotate(SuppressWarnings.class).param("value", "unchecked");
+		}
+		if(classSchema.getExtends() != null){
+			body.add(JExpr._super().invoke(method).arg(index).arg(value));
+		}else{
+			body._throw(createIndexOutOfBoundsException(codeModel, index));
+		}
+		return method;
+	}
+
+	private static JInvocation createIndexOutOfBoundsException(JCodeModel codeModel, JVar index) {
+		return JExpr._new(codeModel.ref(IndexOutOfBoundsException.class)).arg(JExpr.lit("No property with index: ").plus(index));
+	}
+}
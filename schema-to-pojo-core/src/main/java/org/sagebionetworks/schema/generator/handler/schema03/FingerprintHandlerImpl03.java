@@ -0,0 +1,98 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.sagebionetworks.schema.Fingerprint;
+import org.sagebionetworks.schema.FingerprintEntity;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.generator.PropertyUtils;
+import org.sagebionetworks.schema.generator.handler.FingerprintHandler;
+
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JDocComment;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JFieldRef;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JVar;
+
+/**
+ * Adds fingerprint64() to a POJO. The hash of the class name is mixed with
+ * the hash of the name and value of each property that is not null, in the
+ * order of the property names. The hashes of the names are computed when the
+ * class is generated.
+ *
+ */
+public class FingerprintHandlerImpl03 implements FingerprintHandler {
+
+	/**
+	 * The name of the generated method.
+	 */
+	public static final String FINGERPRINT = "fingerprint64";
+
+	boolean enabled;
+
+	public FingerprintHandlerImpl03() {
+		this(false);
+	}
+
+	/**
+	 * @param enabled When false nothing is added.
+	 */
+	public FingerprintHandlerImpl03(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void addFingerprint(ObjectSchema classSchema, JDefinedClass classType) {
+		if(!enabled){
+			return;
+		}
+		if(classSchema.getExtends() == null){
+			classType._implements(FingerprintEntity.class);
+		}
+		if(TYPE.INTERFACE == classSchema.getType()){
+			return;
+		}
+		createFingerprintMethod(classSchema, classType);
+	}
+
+	/**
+	 * Create fingerprint64(), which starts from the fingerprint of the super
+	 * class.
+	 * @param classSchema
+	 * @param classType
+	 * @return
+	 */
+	protected JMethod createFingerprintMethod(ObjectSchema classSchema, JDefinedClass classType) {
+		JCodeModel codeModel = classType.owner();
+		JClass fingerprint = codeModel.ref(Fingerprint.class);
+		JMethod method = classType.method(JMod.PUBLIC, codeModel.LONG, FINGERPRINT);
+		method.annotate(Override.class);
+		JDocComment docs = method.javadoc();
+		docs.add("A stable 64-bit hash of the content of this object that does not write it to JSON.");
+		docs.addReturn();
+		JBlock body = method.body();
+		// Lazy properties are read before they are hashed.
+		PropertyUtils.addDecodeLazy(classType, body, null);
+		JExpression start = classSchema.getExtends() != null ? JExpr._super().invoke(FINGERPRINT) : fingerprint.staticRef("OFFSET_BASIS");
+		JVar hash = body.decl(codeModel.LONG, "__hash", fingerprint.staticInvoke("mix").arg(start).arg(JExpr.lit(Fingerprint.of(classType.fullName()))));
+		List<String> names = new ArrayList<String>(ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).keySet());
+		Collections.sort(names);
+		for (String propName : names) {
+			JFieldRef field = JExpr._this().ref(PropertyUtils.getPropertyReference(classType, propName));
+			JExpression key = fingerprint.staticInvoke("mix").arg(hash).arg(JExpr.lit(Fingerprint.of(propName)));
+			body._if(field.ne(JExpr._null()))._then().assign(hash, fingerprint.staticInvoke("hash").arg(key).arg(field));
+		}
+		body._return(hash);
+		return method;
+	}
+}
@@ -1,11 +1,17 @@
 package org.sagebionetworks.schema.generator.handler.schema03;
 
+import org.sagebionetworks.schema.generator.PojoGeneratorOptions;
+import org.sagebionetworks.schema.generator.handler.CopyHandler;
+import org.sagebionetworks.schema.generator.handler.ExternalizableHandler;
+import org.sagebionetworks.schema.generator.handler.FieldAccessHandler;
+import org.sagebionetworks.schema.generator.handler.FingerprintHandler;
 import org.sagebionetworks.schema.generator.handler.HandlerFactory;
 import org.sagebionetworks.schema.generator.handler.HashAndEqualsHandler;
 import org.sagebionetworks.schema.generator.handler.JSONMarshalingHandler;
 import org.sagebionetworks.schema.generator.handler.PropertyHandler;
 import org.sagebionetworks.schema.generator.handler.ToStringHandler;
 import org.sagebionetworks.schema.generator.handler.TypeCreatorHandler;
+import org.sagebionetworks.schema.generator.handler.ValidationHandler;
 
 /**
  * An implementation of the handler factor for the 03 version of the JSON schema
@@ -15,6 +21,20 @@ import org.sagebionetworks.schema.generator.handler.TypeCreatorHandler;
  *
  */
 public class HandlerFactoryImpl03 implements HandlerFactory {
+	
+	PojoGeneratorOptions options;
+	
+	public HandlerFactoryImpl03() {
+		this(new PojoGeneratorOptions());
+	}
+	
+	/**
+	 * @param options The optional features of the generated classes.
+	 */
+	public HandlerFactoryImpl03(PojoGeneratorOptions options) {
+		if(options == null) throw new IllegalArgumentException("The options cannot be null");
+		this.options = options;
+	}
 
 	@Override
 	public TypeCreatorHandler getTypeCreatorHandler() {
@@ -23,21 +43,46 @@ public class HandlerFactoryImpl03 implements HandlerFactory {
 
 	@Override
 	public PropertyHandler getPropertyHandler() {
-		return new PropertyHandlerImpl03();
+		return new PropertyHandlerImpl03(options.isImmutable());
 	}
 
 	@Override
 	public JSONMarshalingHandler getJSONMArshalingHandler() {
-		return new JSONMarshalingHandlerImpl03();
+		return new JSONMarshalingHandlerImpl03(options.isImmutable(), options.isFieldMask(), options.isLazyNested(), options.isMergePatch());
 	}
 
 	@Override
 	public HashAndEqualsHandler getHashAndEqualsHandler() {
-		return new HashAndEqualsHandlerImpl03();
+		return new HashAndEqualsHandlerImpl03(options.isImmutable());
 	}
 	
 	@Override
 	public ToStringHandler getToStringHandler() {
-		return new ToStringHandlerImpl03();
+		return new ToStringHandlerImpl03(options.getToStringBudget());
+	}
+	
+	@Override
+	public CopyHandler getCopyHandler() {
+		return new CopyHandlerImpl03(options.isGenerateCopy(), options.isImmutable());
+	}
+	
+	@Override
+	public FieldAccessHandler getFieldAccessHandler() {
+		return new FieldAccessHandlerImpl03(options.isFieldAccess(), options.isImmutable());
+	}
+	
+	@Override
+	public ExternalizableHandler getExternalizableHandler() {
+		return new ExternalizableHandlerImpl03(options.isExternalizable(), options.isImmutable());
+	}
+	
+	@Override
+	public FingerprintHandler getFingerprintHandler() {
+		return new FingerprintHandlerImpl03(options.isFingerprint());
+	}
+	
+	@Override
+	public ValidationHandler getValidationHandler() {
+		return new ValidationHandlerImpl03(options.isValidation(), options.isValidateOnRead(), options.isLazyNested());
 	}
 }
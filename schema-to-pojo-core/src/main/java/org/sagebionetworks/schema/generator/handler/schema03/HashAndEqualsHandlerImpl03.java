@@ -1,14 +1,20 @@
 package org.sagebionetworks.schema.generator.handler.schema03;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
 import org.sagebionetworks.schema.TYPE;
 import org.sagebionetworks.schema.generator.PropertyUtils;
 import org.sagebionetworks.schema.generator.handler.HashAndEqualsHandler;
 
 import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
 import com.sun.codemodel.JConditional;
 import com.sun.codemodel.JDefinedClass;
 import com.sun.codemodel.JExpr;
@@ -17,9 +23,33 @@ import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
 import com.sun.codemodel.JOp;
+import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
 
 public class HashAndEqualsHandlerImpl03 implements HashAndEqualsHandler {
+	
+	/**
+	 * The field of an immutable class that caches its hash code.
+	 */
+	public static final String HASH_CODE_FIELD_NAME = "__hashCode";
+	
+	/**
+	 * The properties up to this cost are compared before the super class.
+	 */
+	static final int MAX_CHEAP_EQUALS_COST = 3;
+	
+	boolean immutable;
+	
+	public HashAndEqualsHandlerImpl03() {
+		this(false);
+	}
+	
+	/**
+	 * @param immutable When true the hash code is computed once and cached.
+	 */
+	public HashAndEqualsHandlerImpl03(boolean immutable) {
+		this.immutable = immutable;
+	}
 
 	@Override
 	public void addHashAndEquals(ObjectSchema classSchema,	JDefinedClass classType) {
@@ -45,6 +75,15 @@ public class HashAndEqualsHandlerImpl03 implements HashAndEqualsHandler {
 		method.annotate(Override.class);
 		// Start on the body
 		JBlock body = method.body();
+		JFieldVar cache = null;
+		if(immutable){
+			// The fields cannot change so the hash only needs to be computed once.
+			// Like String.hashCode() a race only computes the same value twice.
+			cache = classType.field(JMod.PRIVATE | JMod.TRANSIENT, classType.owner().INT, HASH_CODE_FIELD_NAME);
+			body._if(cache.ne(JExpr.lit(0)))._then()._return(cache);
+		}
+		// Lazy properties are read before the fields are used.
+		PropertyUtils.addDecodeLazy(classType, body, null);
 		JVar prime = body.decl(JMod.FINAL, classType.owner().INT, "prime", JExpr.lit(31));
 		// If we have a super then we use that to initialize the result
 		JExpression resultInit = null;
@@ -60,7 +99,7 @@ public class HashAndEqualsHandlerImpl03 implements HashAndEqualsHandler {
 		JVar temp = null;
 		// Now add all fields 
 		// Now process each property
-		Map<String, ObjectSchema> fieldMap = classSchema.getObjectFieldMap();
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(classSchema);
 		for (Map.Entry<String,ObjectSchema> entry : fieldMap.entrySet()) {
 			String propName = entry.getKey();
 			ObjectSchema propSchema = entry.getValue();
@@ -78,6 +117,9 @@ public class HashAndEqualsHandlerImpl03 implements HashAndEqualsHandler {
 			// Put it all together
 			body.assign(result, prime.mul(result).plus(addExpression));
 		}
+		if(cache != null){
+			body.assign(cache, result);
+		}
 
         body._return(result);
 		return method;
@@ -94,7 +136,9 @@ public class HashAndEqualsHandlerImpl03 implements HashAndEqualsHandler {
 	}
 	
 	/**
-	 * Build the equals() method
+	 * Build the equals() method. The properties are compared from the cheapest
+	 * to the most expensive so that most pairs that differ are rejected before
+	 * a list or a map is compared.
 	 * @param classSchema
 	 * @param classType
 	 * @return
@@ -107,70 +151,126 @@ public class HashAndEqualsHandlerImpl03 implements HashAndEqualsHandler {
 		// Build up the body
 		JBlock body = method.body();
 		body._if(JOp.eq(JExpr._this(), obj))._then()._return(JExpr.lit(true));
-		if(classSchema.getExtends() == null){
-			// There is no super class so we just test for null
-			body._if(JOp.eq(obj, JExpr._null()))._then()._return(JExpr.lit(false));
-		}else{
-			// ask the super class.
-			body._if(JOp.not(JExpr._super().invoke("equals").arg(obj)))._then()._return(JExpr.lit(false));
-		}
-
+		body._if(JOp.eq(obj, JExpr._null()))._then()._return(JExpr.lit(false));
 		body._if(JOp.ne(JExpr._this().invoke("getClass"), obj.invoke("getClass")))._then()._return(JExpr.lit(false));
 		// declare the other
 		JVar other = body.decl(JMod.NONE, classType, "other", JExpr.cast(classType, obj));
+		PropertyUtils.addDecodeLazy(classType, body, null);
+		PropertyUtils.addDecodeLazy(classType, body, other);
+		JFieldVar cache = classType.fields().get(HASH_CODE_FIELD_NAME);
+		if(cache != null){
+			// Two immutable objects with different hash codes cannot be equal.
+			body._if(cache.ne(JExpr.lit(0)).cand(JExpr.ref(other, cache).ne(JExpr.lit(0))).cand(cache.ne(JExpr.ref(other, cache))))
+					._then()._return(JExpr.lit(false));
+		}
 		
-		// Now process each property
-		Map<String, ObjectSchema> fieldMap = classSchema.getObjectFieldMap();
-		for (Map.Entry<String, ObjectSchema> entry : fieldMap.entrySet()) {
+		// Now process each property from the cheapest to compare
+		List<Map.Entry<String, ObjectSchema>> entries = new ArrayList<Map.Entry<String, ObjectSchema>>(ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).entrySet());
+		final Map<String, Integer> costs = new HashMap<String, Integer>();
+		for (Map.Entry<String, ObjectSchema> entry : entries) {
+			JFieldVar field = PropertyUtils.getPropertyReference(classType, entry.getKey());
+			PropertyUtils.validateNonNullType(classType, entry.getValue());
+			costs.put(entry.getKey(), getEqualsCost(entry.getValue(), field.type()));
+		}
+		// The sort is stable so the order of the schema is kept for the same cost.
+		Collections.sort(entries, (one, two) -> costs.get(one.getKey()).compareTo(costs.get(two.getKey())));
+		boolean superCompared = classSchema.getExtends() == null;
+		for (Map.Entry<String, ObjectSchema> entry : entries) {
 			String propName = entry.getKey();
-			ObjectSchema propSchema = entry.getValue();
+			// Our own cheap properties are compared before the super class.
+			if (!superCompared && costs.get(propName) > MAX_CHEAP_EQUALS_COST) {
+				addSuperEquals(body, obj);
+				superCompared = true;
+			}
 			// Look up the field for this property
 			JFieldVar field = PropertyUtils.getPropertyReference(classType, propName);
-			// Now process this field
-			TYPE type = PropertyUtils.validateNonNullType(classType, propSchema);
-
-			// For all non-primitives we can use "hashCode"
-			// just use equals() for all objects
-			JConditional outerCon = body._if(JOp.eq(field, JExpr._null()));
-			outerCon._then()
-					._if(JOp.ne(JExpr.ref(other, field), JExpr._null()))
-					._then()._return(JExpr.lit(false));
-			outerCon._elseif(
-					JOp.not(field.invoke("equals").arg(
-							JExpr.ref(other, field))))._then()
-					._return(JExpr.lit(false));
-//			if (TYPE.STRING == type || TYPE.ARRAY == type || TYPE.ANY == type
-//					|| TYPE.NULL == type || TYPE.OBJECT == type) {
-//				// just use equals() for all objects
-//				JConditional outerCon = body._if(JOp.eq(field, JExpr._null()));
-//				outerCon._then()
-//						._if(JOp.ne(JExpr.ref(other, field), JExpr._null()))
-//						._then()._return(JExpr.lit(false));
-//				outerCon._elseif(
-//						JOp.not(field.invoke("equals").arg(
-//								JExpr.ref(other, field))))._then()
-//						._return(JExpr.lit(false));
-//			} else if (TYPE.NUMBER == type) {
-//				// doubles are special
-//				JClass doubleClass = classType.owner().ref(Double.class);
-//				body._if(
-//						JOp.ne(doubleClass.staticInvoke("doubleToLongBits")
-//								.arg(field),
-//								doubleClass.staticInvoke("doubleToLongBits")
-//										.arg(JExpr.ref(other, field))))._then()
-//						._return(JExpr.lit(false));
-//			} else if (TYPE.INTEGER == type || TYPE.BOOLEAN == type) {
-//				// primitives are easy
-//				body._if(JOp.ne(field, JExpr.ref(other, field)))._then()
-//						._return(JExpr.lit(false));
-//			} else {
-//				throw new IllegalArgumentException("Unknown type: " + type);
-//			}
+			addFieldEquals(classType, body, field, JExpr.ref(other, field), entry.getValue());
+		}
+		if (!superCompared) {
+			addSuperEquals(body, obj);
 		}
 
         // Add the last return true
         body._return(JExpr.lit(true));
 		return method;
 	}
+	
+	/**
+	 * Return false when the super class is not equal.
+	 * @param body
+	 * @param obj
+	 */
+	private static void addSuperEquals(JBlock body, JVar obj){
+		body._if(JOp.not(JExpr._super().invoke("equals").arg(obj)))._then()._return(JExpr.lit(false));
+	}
+	
+	/**
+	 * Return false when a field is not equal to the field of the other object.
+	 * @param classType
+	 * @param body
+	 * @param field
+	 * @param otherField
+	 * @param propSchema
+	 */
+	private static void addFieldEquals(JDefinedClass classType, JBlock body, JFieldVar field, JExpression otherField, ObjectSchema propSchema){
+		JType fieldType = field.type();
+		if (fieldType.isPrimitive()) {
+			JExpression notEqual;
+			if (fieldType == classType.owner().DOUBLE) {
+				// doubles are special
+				JClass doubleClass = classType.owner().ref(Double.class);
+				notEqual = JOp.ne(doubleClass.staticInvoke("doubleToLongBits").arg(field), doubleClass.staticInvoke("doubleToLongBits").arg(otherField));
+			} else if (fieldType == classType.owner().FLOAT) {
+				JClass floatClass = classType.owner().ref(Float.class);
+				notEqual = JOp.ne(floatClass.staticInvoke("floatToIntBits").arg(field), floatClass.staticInvoke("floatToIntBits").arg(otherField));
+			} else {
+				notEqual = JOp.ne(field, otherField);
+			}
+			body._if(notEqual)._then()._return(JExpr.lit(false));
+			return;
+		}
+		if (propSchema.getEnum() != null) {
+			// Each enumeration value is a single instance.
+			body._if(JOp.ne(field, otherField))._then()._return(JExpr.lit(false));
+			return;
+		}
+		// just use equals() for all objects
+		JConditional outerCon = body._if(JOp.eq(field, JExpr._null()));
+		outerCon._then()
+				._if(JOp.ne(otherField, JExpr._null()))
+				._then()._return(JExpr.lit(false));
+		outerCon._elseif(
+				JOp.not(field.invoke("equals").arg(otherField)))._then()
+				._return(JExpr.lit(false));
+	}
+	
+	/**
+	 * The estimated cost of comparing a property: primitives, enumerations,
+	 * boxed numbers and dates, strings, objects and then collections.
+	 * @param propSchema
+	 * @param fieldType
+	 * @return
+	 */
+	protected static int getEqualsCost(ObjectSchema propSchema, JType fieldType){
+		if (fieldType.isPrimitive()) {
+			return 0;
+		}
+		if (propSchema.getEnum() != null) {
+			return 1;
+		}
+		TYPE type = propSchema.getType();
+		if (TYPE.BOOLEAN == type || TYPE.INTEGER == type || TYPE.NUMBER == type
+				|| (propSchema.getFormat() != null && propSchema.getFormat().isDateFormat())) {
+			return 2;
+		}
+		if (TYPE.STRING == type) {
+			return MAX_CHEAP_EQUALS_COST;
+		}
+		if (TYPE.ARRAY == type || TYPE.MAP == type || TYPE.TUPLE_ARRAY_MAP == type) {
+			return 5;
+		}
+		// Objects, interfaces and any
+		return 4;
+	}
 
 }
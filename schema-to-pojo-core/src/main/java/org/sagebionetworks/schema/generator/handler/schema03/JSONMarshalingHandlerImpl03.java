@@ -1,10 +1,13 @@
 package org.sagebionetworks.schema.generator.handler.schema03;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 import org.sagebionetworks.schema.FORMAT;
@@ -12,17 +15,22 @@ import org.sagebionetworks.schema.JavaKeyword;
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.ObjectSchemaImpl;
 import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.adapter.FieldMask;
+import org.sagebionetworks.schema.adapter.ImmutableJSONEntity;
 import org.sagebionetworks.schema.adapter.JSONArrayAdapter;
 import org.sagebionetworks.schema.adapter.JSONEntity;
 import org.sagebionetworks.schema.adapter.JSONMapAdapter;
+import org.sagebionetworks.schema.adapter.JSONMergePatchEntity;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.adapter.MaskableJSONEntity;
 import org.sagebionetworks.schema.generator.InstanceFactoryGenerator;
 import org.sagebionetworks.schema.generator.PropertyUtils;
 import org.sagebionetworks.schema.generator.handler.JSONMarshalingHandler;
 
 import com.sun.codemodel.ClassType;
 import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JCatchBlock;
 import com.sun.codemodel.JClass;
 import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JCommentPart;
@@ -39,6 +47,8 @@ import com.sun.codemodel.JInvocation;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
 import com.sun.codemodel.JOp;
+import com.sun.codemodel.JSwitch;
+import com.sun.codemodel.JTryBlock;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
 import com.sun.codemodel.JWhileLoop;
@@ -46,6 +56,56 @@ import com.sun.codemodel.JWhileLoop;
 public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 
 	private static final String VAR_PREFIX = "__";
+	
+	boolean immutable;
+	boolean fieldMask;
+	boolean lazyNested;
+	boolean mergePatch;
+	
+	public JSONMarshalingHandlerImpl03() {
+		this(false);
+	}
+	
+	/**
+	 * @param immutable When true the JSON is read by the Builder of each class.
+	 */
+	public JSONMarshalingHandlerImpl03(boolean immutable) {
+		this(immutable, false);
+	}
+	
+	/**
+	 * @param immutable When true the JSON is read by the Builder of each class.
+	 * @param fieldMask When true each class can read only the properties selected by a {@link FieldMask}.
+	 */
+	public JSONMarshalingHandlerImpl03(boolean immutable, boolean fieldMask) {
+		this(immutable, fieldMask, false);
+	}
+	
+	/**
+	 * @param immutable When true the JSON is read by the Builder of each class.
+	 * @param fieldMask When true each class can read only the properties selected by a {@link FieldMask}.
+	 * @param lazyNested When true the object, array and map properties are read from JSON the first time they are used.
+	 */
+	public JSONMarshalingHandlerImpl03(boolean immutable, boolean fieldMask, boolean lazyNested) {
+		this(immutable, fieldMask, lazyNested, false);
+	}
+	
+	/**
+	 * @param immutable When true the JSON is read by the Builder of each class.
+	 * @param fieldMask When true each class can read only the properties selected by a {@link FieldMask}.
+	 * @param lazyNested When true the object, array and map properties are read from JSON the first time they are used.
+	 * @param mergePatch When true each class can compute and apply JSON merge patches.
+	 */
+	public JSONMarshalingHandlerImpl03(boolean immutable, boolean fieldMask, boolean lazyNested, boolean mergePatch) {
+		if(immutable && fieldMask) throw new IllegalArgumentException("Field masks are not supported for immutable classes");
+		if(immutable && lazyNested) throw new IllegalArgumentException("Lazy nested properties are not supported for immutable classes");
+		if(fieldMask && lazyNested) throw new IllegalArgumentException("Lazy nested properties cannot be combined with field masks");
+		this.immutable = immutable;
+		this.fieldMask = fieldMask;
+		if(immutable && mergePatch) throw new IllegalArgumentException("Merge patches are not supported for immutable classes");
+		this.lazyNested = lazyNested;
+		this.mergePatch = mergePatch;
+	}
 
 	@Override
 	public void addJSONMarshaling(ObjectSchema classSchema,	JDefinedClass classType, InstanceFactoryGenerator interfaceFactoryGenerator) {
@@ -53,16 +113,82 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 		if(TYPE.INTERFACE == classSchema.getType()){
 			throw new IllegalArgumentException("Cannot add marshaling to an interface");
 		}
+		if(immutable){
+			classType._implements(ImmutableJSONEntity.class);
+			addImmutableJSONMarshaling(classSchema, classType, interfaceFactoryGenerator);
+			return;
+		}
 		// Make sure this class implements JSONEntity
 		classType._implements(JSONEntity.class);
 
 		// Create the init method
 		JMethod initMethod = createMethodInitializeFromJSONObject(classSchema, classType, interfaceFactoryGenerator);
+		if(fieldMask){
+			classType._implements(MaskableJSONEntity.class);
+			initMethod = createMethodInitializeWithoutMask(classType, initMethod);
+		}
 		// setup a constructor.
 		createConstructor(classSchema, classType, initMethod);
 		
 		// Add the second method.
 		createWriteToJSONObject(classSchema, classType);
+		
+		if(mergePatch){
+			classType._implements(JSONMergePatchEntity.class);
+			createMethodApplyPatch(classSchema, classType, interfaceFactoryGenerator);
+			createMethodDiff(classSchema, classType);
+		}
+	}
+	
+	/**
+	 * An immutable class is read from JSON by its Builder and cannot be
+	 * initialized after it is created.
+	 * 
+	 * @param classSchema
+	 * @param classType
+	 * @param interfaceFactoryGenerator
+	 */
+	protected void addImmutableJSONMarshaling(ObjectSchema classSchema, JDefinedClass classType, InstanceFactoryGenerator interfaceFactoryGenerator) {
+		if(classSchema.getExtends() != null){
+			throw new IllegalArgumentException("An immutable class cannot extend another class: "+classType.name());
+		}
+		JCodeModel codeModel = classType.owner();
+		JDefinedClass builder = PropertyUtils.getOrCreateBuilder(classType);
+		PropertyUtils.getOrCreateBuilderConstructor(classType);
+		JMethod builderInit = createMethodInitializeFromJSONObject(classSchema, classType, builder, interfaceFactoryGenerator, false);
+		// The builder constructor that reads the JSON.
+		JMethod builderConstructor = builder.constructor(JMod.PUBLIC);
+		builderConstructor._throws(JSONObjectAdapterException.class);
+		JVar builderParam = builderConstructor.param(codeModel._ref(JSONObjectAdapter.class), "adapter");
+		JDocComment builderDocs = builderConstructor.javadoc();
+		builderDocs.add("Read a new Builder from JSON using the provided implementation of "+JSONObjectAdapter.class.getName());
+		builderDocs.addParam(builderParam).add("Data will be read from this adapter to populate this builder.");
+		builderDocs.addThrows(JSONObjectAdapterException.class);
+		builderConstructor.body().invoke(builderInit).arg(builderParam);
+		
+		// The class constructors go through the builder.
+		JMethod noArgs = classType.constructor(JMod.PUBLIC);
+		noArgs.body().add(JExpr.invoke("this").arg(JExpr._new(builder)));
+		JMethod constructor = classType.constructor(JMod.PUBLIC);
+		constructor._throws(JSONObjectAdapterException.class);
+		JVar param = constructor.param(codeModel._ref(JSONObjectAdapter.class), "adapter");
+		JDocComment docs = constructor.javadoc();
+		docs.add("Marshal a new "+classType.name()+" from JSON using the provided implementation of "+JSONObjectAdapter.class.getName());
+		docs.addParam(param).add("Data will be read from this adapter to populate this object.");
+		docs.addThrows(JSONObjectAdapterException.class);
+		constructor.body().add(JExpr.invoke("this").arg(JExpr._new(builder).arg(param)));
+		
+		// The fields are final so the object cannot be initialized again.
+		JMethod init = classType.method(JMod.PUBLIC, JSONObjectAdapter.class, "initializeFromJSONObject");
+		init._throws(JSONObjectAdapterException.class);
+		init.annotate(Override.class);
+		init.param(codeModel._ref(JSONObjectAdapter.class), "adapter");
+		init.javadoc().add("An immutable object cannot be initialized, use the constructor or the Builder instead.");
+		init.javadoc().addThrows(UnsupportedOperationException.class).add("Always");
+		init.body()._throw(JExpr._new(codeModel.ref(UnsupportedOperationException.class))
+				.arg(classType.name()+" is immutable, use "+classType.name()+"."+PropertyUtils.BUILDER_CLASS_NAME+" to read it from JSON"));
+		
+		createWriteToJSONObject(classSchema, classType);
 	}
 	
 	/**
@@ -113,32 +239,231 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 	 * @return
 	 */
 	protected JMethod createMethodInitializeFromJSONObject(ObjectSchema classSchema, JDefinedClass classType, InstanceFactoryGenerator interfaceFactoryGenerator) {
+		return createMethodInitializeFromJSONObject(classSchema, classType, classType, interfaceFactoryGenerator, false);
+	}
+	
+	/**
+	 * Create the applyPatch method for the JSONMergePatchEntity interface. It
+	 * only reads the properties that are in the patch, and merges the patch
+	 * into nested objects and maps.
+	 * 
+	 * @param classSchema
+	 * @param classType
+	 * @param interfaceFactoryGenerator
+	 * @return
+	 */
+	protected JMethod createMethodApplyPatch(ObjectSchema classSchema, JDefinedClass classType, InstanceFactoryGenerator interfaceFactoryGenerator) {
+		JMethod method = createMethodInitializeFromJSONObject(classSchema, classType, classType, interfaceFactoryGenerator, true);
+		method.javadoc().add(0, "Apply a JSON merge patch (RFC 7386) to this object.\n");
+		return method;
+	}
+	
+	/**
+	 * Create the diff method for the JSONMergePatchEntity interface. Each
+	 * property is compared like equals() does, and the value of the other object
+	 * is written for each property that differs.
+	 * 
+	 * @param classSchema
+	 * @param classType
+	 * @return
+	 */
+	protected JMethod createMethodDiff(ObjectSchema classSchema, JDefinedClass classType) {
+		JCodeModel codeModel = classType.owner();
+		JMethod method = classType.method(JMod.PUBLIC, JSONObjectAdapter.class, "diff");
+		method._throws(JSONObjectAdapterException.class);
+		method.annotate(Override.class);
+		JVar obj = method.param(codeModel.ref(Object.class), "obj");
+		JVar param = method.param(codeModel._ref(JSONObjectAdapter.class), "patch");
+		JDocComment docs = method.javadoc();
+		docs.add("@see JSONMergePatchEntity#diff(Object, JSONObjectAdapter)");
+		docs.addParam(obj).add("An object of the same class.");
+		docs.addParam(param).add("The patch is written to this adapter.");
+		docs.addThrows(JSONObjectAdapterException.class);
+		JBlock body = method.body();
+		JFieldRef staticMessageRef = codeModel.ref(ObjectSchema.class).staticRef("OBJECT_ADAPTER_CANNOT_BE_NULL");
+		body._if(param.eq(JExpr._null()))._then()._throw(createIllegalArgumentException(codeModel, staticMessageRef));
+		body._if(obj.eq(JExpr._null()).cor(JExpr.invoke("getClass").ne(obj.invoke("getClass"))))._then()
+				._throw(createIllegalArgumentException(codeModel, JExpr.lit("Can only diff with another ").plus(JExpr.invoke("getClass").invoke("getName"))));
+		// Identical objects have no differences.
+		body._if(JExpr._this().eq(obj))._then()._return(param);
+		if (classSchema.getExtends() != null) {
+			body.add(JExpr._super().invoke("diff").arg(obj).arg(param));
+		}
+		JVar other = body.decl(classType, VAR_PREFIX + "other", JExpr.cast(classType, obj));
+		PropertyUtils.addDecodeLazy(classType, body, null);
+		PropertyUtils.addDecodeLazy(classType, body, other);
+		// The other object is written the first time a property differs.
+		JVar written = body.decl(codeModel._ref(JSONObjectAdapter.class), VAR_PREFIX + "written", JExpr._null());
+		for (Map.Entry<String, ObjectSchema> entry : ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).entrySet()) {
+			String propName = entry.getKey();
+			JFieldVar field = PropertyUtils.getPropertyReference(classType, propName);
+			JFieldVar propNameConstant = getPropertyKeyConstantReference(classType, propName);
+			TYPE type = PropertyUtils.validateNonNullType(classType, entry.getValue());
+			JFieldRef thisField = JExpr._this().ref(field);
+			JFieldRef otherField = other.ref(field);
+			// Identical references are equal.
+			JConditional isNull = body._if(thisField.ne(otherField))._then()._if(otherField.eq(JExpr._null()));
+			isNull._then().add(param.invoke("putNull").arg(propNameConstant));
+			JBlock block = isNull._else();
+			if (TYPE.OBJECT == type && isNestedEntity(field.type())) {
+				// Nested objects of the same class write their own patch.
+				JConditional sameClass = block._if(thisField.ne(JExpr._null()).cand(thisField.invoke("getClass").eq(otherField.invoke("getClass"))));
+				JBlock sameBlock = sameClass._then();
+				JVar nested = sameBlock.decl(codeModel._ref(JSONObjectAdapter.class), VAR_PREFIX + field.name() + "Patch",
+						thisField.invoke("diff").arg(otherField).arg(param.invoke("createNew")));
+				sameBlock._if(nested.invoke("keys").invoke("hasNext"))._then().add(param.invoke("put").arg(propNameConstant).arg(nested));
+				block = sameClass._else();
+			}
+			JBlock differs = block._if(otherField.invoke("equals").arg(thisField).not())._then();
+			differs._if(written.eq(JExpr._null()))._then().assign(written, other.invoke("writeToJSONObject").arg(param.invoke("createNew")));
+			JExpression value = written.invoke(getJSONMethodName(type)).arg(propNameConstant);
+			if (TYPE.MAP == type) {
+				// The entries that were removed are cleared with null values.
+				JVar map = differs.decl(codeModel._ref(JSONObjectAdapter.class), VAR_PREFIX + field.name() + "Patch", value);
+				JForEach loop = differs._if(thisField.ne(JExpr._null()))._then().forEach(codeModel.ref(String.class), VAR_PREFIX + "key", thisField.invoke("keySet"));
+				loop.body()._if(otherField.invoke("containsKey").arg(loop.var()).not())._then().add(map.invoke("putNull").arg(loop.var()));
+				value = map;
+			}
+			differs.add(param.invoke("put").arg(propNameConstant).arg(value));
+		}
+		body._return(param);
+		return method;
+	}
+	
+	/**
+	 * The name of the adapter method that reads the JSON value of a property of
+	 * the given type.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	static String getJSONMethodName(TYPE type) {
+		switch (type) {
+		case STRING:
+		case BOOLEAN:
+		case NUMBER:
+		case INTEGER:
+			return type.getMethodName();
+		case ARRAY:
+			return "getJSONArray";
+		case TUPLE_ARRAY_MAP:
+			return "getJSONMap";
+		default:
+			return "getJSONObject";
+		}
+	}
+	
+	/**
+	 * Is the given type a generated class with its own diff and applyPatch
+	 * methods?
+	 * 
+	 * @param type
+	 * @return
+	 */
+	static boolean isNestedEntity(JType type) {
+		if (!(type instanceof JDefinedClass)) {
+			return false;
+		}
+		JDefinedClass definedClass = (JDefinedClass) type;
+		return ClassType.CLASS == definedClass.getClassType() && !definedClass.isAbstract();
+	}
+	
+	/**
+	 * With field masks the JSONEntity method reads all of the properties
+	 * through the method that takes the mask.
+	 * 
+	 * @param classType
+	 * @param maskedMethod
+	 * @return
+	 */
+	protected JMethod createMethodInitializeWithoutMask(JDefinedClass classType, JMethod maskedMethod) {
+		JMethod method = classType.method(JMod.PUBLIC, JSONObjectAdapter.class, "initializeFromJSONObject");
+		method._throws(JSONObjectAdapterException.class);
+		method.annotate(Override.class);
+		JVar param = method.param(classType.owner()._ref(JSONObjectAdapter.class), "adapter");
+		JDocComment docs = method.javadoc();
+		docs.add("@see JSONEntity#initializeFromJSONObject(JSONObjectAdapter)");
+		docs.addParam(param);
+		docs.addThrows(JSONObjectAdapterException.class);
+		method.body()._return(JExpr.invoke(maskedMethod).arg(param).arg(JExpr._null()));
+		return method;
+	}
+	
+	/**
+	 * Create the InitializeFromJSONObject method that assigns the fields of
+	 * the given target, either the class or its Builder.
+	 * 
+	 * @param classSchema
+	 * @param classType The class with the key constants.
+	 * @param targetType The class with the fields and the new method.
+	 * @param interfaceFactoryGenerator
+	 * @param patch When true the method is applyPatch, which only reads the properties in the adapter.
+	 * @return
+	 */
+	private JMethod createMethodInitializeFromJSONObject(ObjectSchema classSchema, JDefinedClass classType, JDefinedClass targetType, InstanceFactoryGenerator interfaceFactoryGenerator, boolean patch) {
 		// Now the method that takes a JSONObjectAdapter.
-		JMethod method = createBaseMethod(classSchema, classType, "initializeFromJSONObject");
+		boolean masked = fieldMask && !patch;
+		JMethod method = createBaseMethod(classSchema, targetType, patch ? "applyPatch" : "initializeFromJSONObject", targetType == classType, masked);
 		JVar param = method.params().get(0);
+		JVar mask = masked ? method.params().get(1) : null;
 		JBlock body = method.body();
+		if (patch) {
+			// Lazy properties are read before they are patched.
+			PropertyUtils.addDecodeLazy(classType, body, null);
+		}
+		List<JMethod> decodeMethods = new ArrayList<JMethod>();
 		
 		// Now process each property
-		Map<String, ObjectSchema> fieldMap = classSchema.getObjectFieldMap();
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(classSchema);
 		for (Map.Entry<String, ObjectSchema> entry : fieldMap.entrySet()) {
 			String propName = entry.getKey();
 			ObjectSchema propSchema = entry.getValue();
 			// Look up the field for this property
-			JFieldVar field = PropertyUtils.getPropertyReference(classType, propName);
+			JFieldVar field = PropertyUtils.getPropertyReference(targetType, propName);
 			JFieldVar propNameConstant = getPropertyKeyConstantReference(classType, propName);
 
+			// A property that is not selected by the mask is not read at all.
+			JBlock propertyBlock = body;
+			if (mask != null) {
+				// The mask is built with the key constants.
+				propNameConstant.mods().setPublic();
+				propertyBlock = body._if(mask.eq(JExpr._null()).cor(mask.invoke("contains").arg(propNameConstant)))._then();
+			}
+			if (patch) {
+				// Only the properties in the patch are changed.
+				propertyBlock = propertyBlock._if(param.invoke("has").arg(propNameConstant))._then();
+			}
+
 			// Now process this field
 			TYPE type = PropertyUtils.validateNonNullType(classType, propSchema);
 			if (type.isPrimitive()) {
-				body.assign(field,
+				propertyBlock.assign(field,
 						param.invoke(type.getMethodName()).arg(propNameConstant));
 				continue;
 			}
 			// Add an if
 
-			JConditional hasCondition = body._if(param.invoke("isNull").arg(
+			JConditional hasCondition = propertyBlock._if(param.invoke("isNull").arg(
 					propNameConstant).not());
 			JBlock thenBlock = hasCondition._then();
+			// A lazy property keeps the adapter and is read the first time it is used.
+			JVar source = param;
+			JFieldVar lazyAdapter = null;
+			if (lazyNested && !patch && targetType == classType && isLazyType(type)) {
+				lazyAdapter = classType.field(JMod.PRIVATE | JMod.TRANSIENT, JSONObjectAdapter.class, VAR_PREFIX + field.name() + "Adapter");
+				thenBlock.assign(JExpr._this().ref(field), JExpr._null());
+				thenBlock.assign(JExpr._this().ref(lazyAdapter), param);
+				hasCondition._else().assign(JExpr._this().ref(lazyAdapter), JExpr._null());
+				JMethod decode = createDecodeMethod(classType, propName, field, lazyAdapter);
+				decodeMethods.add(decode);
+				source = decode.body().decl(classType.owner().ref(JSONObjectAdapter.class), "adapter", lazyAdapter);
+				decode.body().assign(JExpr._this().ref(lazyAdapter), JExpr._null());
+				JTryBlock tryBlock = decode.body()._try();
+				JCatchBlock catchBlock = tryBlock._catch(classType.owner().ref(JSONObjectAdapterException.class));
+				JVar exception = catchBlock.param("e");
+				catchBlock.body()._throw(JExpr._new(classType.owner().ref(IllegalStateException.class)).arg(exception));
+				thenBlock = tryBlock.body();
+			}
 			// For strings and primitives we can just assign the value right
 			// from the adapter.
 			if (TYPE.STRING == type) {
@@ -146,19 +471,19 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 				JExpression rhs = null;
 				if (propSchema.getEnum() != null) {
 					// Assign an enum
-					rhs = assignJSONStringToEnumProperty(param, propNameConstant, field);
+					rhs = assignJSONStringToEnumProperty(source, propNameConstant, field);
 					thenBlock.assign(field, rhs);
 				} else {
 					// This is just a string.
 					rhs = assignJSONStringToProperty(classType.owner(),
-							param, propNameConstant, propSchema);
+							source, propNameConstant, propSchema);
 					thenBlock.assign(field, rhs);
 				}
 
 			} else if (TYPE.BOOLEAN == type || TYPE.NUMBER == type || TYPE.INTEGER == type) {
 				JClass typeClass = (JClass) field.type();
 				// Basic assign
-				thenBlock.assign(field, JExpr._new(typeClass).arg(param.invoke(type.getMethodName()).arg(propNameConstant)));
+				thenBlock.assign(field, JExpr._new(typeClass).arg(source.invoke(type.getMethodName()).arg(propNameConstant)));
 			} else if (TYPE.ARRAY == type) {
 				// Determine the type of the field
 				JClass typeClass = (JClass) field.type();
@@ -191,7 +516,7 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 				}
 				// Create a local array
 				JVar jsonArray = thenBlock.decl(classType.owner().ref(JSONArrayAdapter.class), VAR_PREFIX + "jsonArray",
-						param.invoke("getJSONArray").arg(propNameConstant));
+						source.invoke("getJSONArray").arg(propNameConstant));
 				JForLoop loop = thenBlock._for();
 				JVar i = loop.init(classType.owner().INT, VAR_PREFIX + "i", JExpr.lit(0));
 				loop.test(i.lt(jsonArray.invoke("length")));
@@ -220,7 +545,7 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 					// concrete classes
 					loopBody.add(field.invoke("add").arg(
 							createIsNullCheck(jsonArray, i,
-									createExpresssionToGetFromArray(param, jsonArray, arrayTypeSchema, arrayTypeClass, i))));
+									createExpresssionToGetFromArray(source, jsonArray, arrayTypeSchema, arrayTypeClass, i))));
 				}
 
 			} else if (TYPE.TUPLE_ARRAY_MAP == type) {
@@ -241,7 +566,7 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 				thenBlock.assign(
 						field,
 						JExpr._new(classType.owner().ref(LinkedHashMap.class).narrow(keyTypeClass, valueTypeClass)));
-				JVar jsonMap = thenBlock.decl(classType.owner().ref(JSONMapAdapter.class), VAR_PREFIX + "jsonMap", param.invoke("getJSONMap")
+				JVar jsonMap = thenBlock.decl(classType.owner().ref(JSONMapAdapter.class), VAR_PREFIX + "jsonMap", source.invoke("getJSONMap")
 						.arg(propNameConstant));
 
 				JType keyObject = classType.owner().ref(Object.class);
@@ -264,10 +589,10 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 					initializeFieldFromFactoryGenerator(classType.owner(), ifNullElseBlock, value, interfaceFactoryGenerator, valueTypeClass, adapter);
 					
 				} else {
-					ifNullElseBlock.assign(value, createExpressionToGetFromMap(param, jsonMap, loop.var(), valueTypeSchema, valueTypeClass));
+					ifNullElseBlock.assign(value, createExpressionToGetFromMap(source, jsonMap, loop.var(), valueTypeSchema, valueTypeClass));
 				}
 				JVar key = loopBody.decl(keyTypeClass, VAR_PREFIX + "key",
-						createExpressionToGetKey(param, loop.var(), keyTypeSchema, keyTypeClass));
+						createExpressionToGetKey(source, loop.var(), keyTypeSchema, keyTypeClass));
 				loopBody.add(field.invoke("put").arg(key).arg(value));
 			} else if (TYPE.MAP == type) {
 				// Determine the type of the key
@@ -281,10 +606,15 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 					throw new IllegalArgumentException("A property type is MAP but the getValue() returned null");
 				JClass keyTypeClass = typeClass.getTypeParameters().get(0);
 				JClass valueTypeClass = typeClass.getTypeParameters().get(1);
-				thenBlock.assign(
+				JBlock newMapBlock = thenBlock;
+				if (patch) {
+					// The patch is merged into the map, the other entries are kept.
+					newMapBlock = thenBlock._if(field.eq(JExpr._null()))._then();
+				}
+				newMapBlock.assign(
 						field,
 						JExpr._new(classType.owner().ref(LinkedHashMap.class).narrow(keyTypeClass, valueTypeClass)));
-				JVar jsonMap = thenBlock.decl(classType.owner().ref(JSONObjectAdapter.class), VAR_PREFIX + "jsonStringMap", param.invoke("getJSONObject")
+				JVar jsonMap = thenBlock.decl(classType.owner().ref(JSONObjectAdapter.class), VAR_PREFIX + "jsonStringMap", source.invoke("getJSONObject")
 						.arg(propNameConstant));
 
 				JType stringKeyType = classType.owner().ref(String.class);
@@ -295,8 +625,14 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 				JConditional ifNull = loopBody._if(jsonMap.invoke("isNull").arg(loop.var()));
 				// if null
 				JBlock ifNulThenBlock = ifNull._then();
-				// then value = null
-				ifNulThenBlock.assign(value, JExpr._null());
+				if (patch) {
+					// A null value removes the entry.
+					ifNulThenBlock.add(field.invoke("remove").arg(loop.var()));
+					ifNulThenBlock._continue();
+				} else {
+					// then value = null
+					ifNulThenBlock.assign(value, JExpr._null());
+				}
 				// else
 				JBlock ifNullElseBlock = ifNull._else();
 				if (valueTypeClass.isInterface() || valueTypeClass.isAbstract()) {
@@ -307,7 +643,7 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 					initializeFieldFromFactoryGenerator(valueTypeClass.owner(), ifNullElseBlock, value, interfaceFactoryGenerator, valueTypeClass, adapter);
 					
 				} else {
-					ifNullElseBlock.assign(value, createExpressionToGetFromMap(param, jsonMap, loop.var(), valueTypeSchema, valueTypeClass));
+					ifNullElseBlock.assign(value, createExpressionToGetFromMap(source, jsonMap, loop.var(), valueTypeSchema, valueTypeClass));
 				}
 				loopBody.add(field.invoke("put").arg(loop.var()).arg(value));
 			} else {
@@ -316,13 +652,23 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 				JClass typeClass = (JClass) field.type();
 				if (typeClass.isInterface() || typeClass.isAbstract()) {
 					
-					JVar adapter = thenBlock.decl(classType.owner().ref(JSONObjectAdapter.class), VAR_PREFIX + "localAdapter", param
+					JVar adapter = thenBlock.decl(classType.owner().ref(JSONObjectAdapter.class), VAR_PREFIX + "localAdapter", source
 							.invoke("getJSONObject").arg(propNameConstant));
 					
 					initializeFieldFromFactoryGenerator(classType.owner(), thenBlock, field, interfaceFactoryGenerator, typeClass, adapter);
+				} else if (patch && isNestedEntity(typeClass)) {
+					// The patch is merged into a nested object.
+					JConditional exists = thenBlock._if(field.ne(JExpr._null()));
+					exists._then().add(field.invoke("applyPatch").arg(source.invoke("getJSONObject").arg(propNameConstant)));
+					exists._else().assign(field, JExpr._new(typeClass).arg(source.invoke("getJSONObject").arg(propNameConstant)));
+				} else if (mask != null && typeClass instanceof JDefinedClass) {
+					// Only read the properties of the object selected by the nested mask.
+					thenBlock.assign(field, JExpr._new(typeClass));
+					thenBlock.add(field.invoke("initializeFromJSONObject").arg(source.invoke("getJSONObject").arg(propNameConstant))
+							.arg(JOp.cond(mask.eq(JExpr._null()), JExpr._null(), mask.invoke("getNested").arg(propNameConstant))));
 				} else {
 					// We can just create a new type for this object.
-					thenBlock.assign(field, JExpr._new(typeClass).arg(param.invoke("getJSONObject").arg(propNameConstant)));
+					thenBlock.assign(field, JExpr._new(typeClass).arg(source.invoke("getJSONObject").arg(propNameConstant)));
 				}
 
 			}
@@ -344,11 +690,97 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 
 			}
 		}
+		if (!decodeMethods.isEmpty()) {
+			JMethod decodeLazy = createDecodeLazyMethod(classType, decodeMethods);
+			createWriteObjectMethod(classType, decodeLazy);
+		}
         // Always return the param
         body._return(param);
 		return method;
 	}
 	
+	/**
+	 * Objects, arrays and maps can be read lazily.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	static boolean isLazyType(TYPE type) {
+		return TYPE.OBJECT == type || TYPE.INTERFACE == type || TYPE.ARRAY == type || TYPE.MAP == type
+				|| TYPE.TUPLE_ARRAY_MAP == type;
+	}
+	
+	/**
+	 * Create the method that reads a lazy property from the adapter kept by
+	 * initializeFromJSONObject(). The getter reads the property before
+	 * returning it and the setter drops the adapter.
+	 * 
+	 * @param classType
+	 * @param jsonName
+	 * @param field
+	 * @param lazyAdapter
+	 * @return
+	 */
+	private JMethod createDecodeMethod(JDefinedClass classType, String jsonName, JFieldVar field, JFieldVar lazyAdapter) {
+		JMethod decode = classType.method(JMod.PRIVATE, classType.owner().VOID, PropertyHandlerImpl03.methodName(VAR_PREFIX + "decode", jsonName));
+		decode.javadoc().add("Read " + jsonName + " from JSON if it has not been read yet.");
+		decode.body()._if(lazyAdapter.eq(JExpr._null()))._then()._return();
+		// The getter and setter are named after the field, which differs from
+		// the JSON name of a keyword property.
+		String propName = field.name();
+		JMethod getter = classType.getMethod(PropertyHandlerImpl03.getterName(propName), new JType[0]);
+		if (getter != null) {
+			JBlock getterBody = getter.body();
+			getterBody.pos(0);
+			getterBody.invoke(decode);
+			getterBody.pos(getterBody.getContents().size());
+		}
+		JMethod setter = classType.getMethod(PropertyHandlerImpl03.setterName(propName), new JType[] { field.type() });
+		if (setter != null) {
+			JBlock setterBody = setter.body();
+			setterBody.pos(0);
+			setterBody.assign(JExpr._this().ref(lazyAdapter), JExpr._null());
+			setterBody.pos(setterBody.getContents().size());
+		}
+		return decode;
+	}
+	
+	/**
+	 * Create the method that reads all of the lazy properties. It is called
+	 * before the fields are used directly, by equals() for example.
+	 * 
+	 * @param classType
+	 * @param decodeMethods
+	 * @return
+	 */
+	private JMethod createDecodeLazyMethod(JDefinedClass classType, List<JMethod> decodeMethods) {
+		JMethod method = classType.method(JMod.PRIVATE, classType.owner().VOID, PropertyUtils.DECODE_LAZY_METHOD_NAME);
+		method.javadoc().add("Read all of the lazy properties from JSON.");
+		for (JMethod decode : decodeMethods) {
+			method.body().invoke(decode);
+		}
+		return method;
+	}
+	
+	/**
+	 * Create the writeObject() used by Java serialization. The adapters of the
+	 * lazy properties are transient, so the lazy properties are read before
+	 * the fields are written.
+	 * 
+	 * @param classType
+	 * @param decodeLazy
+	 * @return
+	 */
+	private JMethod createWriteObjectMethod(JDefinedClass classType, JMethod decodeLazy) {
+		JMethod method = classType.method(JMod.PRIVATE, classType.owner().VOID, "writeObject");
+		method._throws(IOException.class);
+		JVar out = method.param(ObjectOutputStream.class, "out");
+		method.javadoc().add("Read all of the lazy properties before this object is serialized.");
+		method.body().invoke(decodeLazy);
+		method.body().invoke(out, "defaultWriteObject");
+		return method;
+	}
+	
 	/**
 	 * Creates a block that initializes the given field in the given block using the provided {@link InstanceFactoryGenerator}, 
 	 * fetching the concrete type from the adapter. If the concrete type value is not present falls back to the default concrete
@@ -399,9 +831,48 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 		// If the concrete type value is present assigns it from the adapter
 		concreteTypeConditional._else().assign(concreteTypeVar, adapter.invoke("getString").arg(concreteTypeRef));
 		
-		block.assign(field, JExpr.cast(field.type(), createRegister.staticInvoke("singleton").invoke("newInstance").arg(concreteTypeVar)));
+		if (immutable) {
+			// Immutable implementations can only be read by their constructors
+			JSwitch concreteTypeSwitch = block._switch(concreteTypeVar);
+			for (String id : interfaceFactoryGenerator.getSortedImplementationIds(createRegister)) {
+				JBlock caseBlock = concreteTypeSwitch._case(JExpr.lit(id)).body();
+				caseBlock.assign(field, JExpr._new(getImplementationClass(codeModel, id)).arg(adapter));
+				caseBlock._break();
+			}
+			concreteTypeSwitch._default().body()._throw(createIllegalArgumentException(codeModel,
+					JExpr.lit("Cannot create new instance. Unknown class: ").plus(concreteTypeVar)));
+			return;
+		}
+		JExpression fromFactory = JExpr.cast(field.type(), createRegister.staticInvoke("singleton").invoke("newInstance").arg(concreteTypeVar));
+		List<String> inlineIds = interfaceFactoryGenerator.getInlineImplementationIds(createRegister);
+		if (inlineIds == null) {
+			block.assign(field, fromFactory);
+		} else {
+			// Few implementations so create them directly, the factory handles the unknown types
+			JSwitch concreteTypeSwitch = block._switch(concreteTypeVar);
+			for (String id : inlineIds) {
+				JBlock caseBlock = concreteTypeSwitch._case(JExpr.lit(id)).body();
+				caseBlock.assign(field, JExpr._new(getImplementationClass(codeModel, id)));
+				caseBlock._break();
+			}
+			concreteTypeSwitch._default().body().assign(field, fromFactory);
+		}
 		block.add(field.invoke("initializeFromJSONObject").arg(adapter));
 	}
+	
+	/**
+	 * The class of an implementation of an interface, that might not be created yet.
+	 * @param codeModel
+	 * @param id
+	 * @return
+	 */
+	private static JClass getImplementationClass(JCodeModel codeModel, String id) {
+		JClass implementation = codeModel._getClass(id);
+		if (implementation == null) {
+			implementation = codeModel.directClass(id);
+		}
+		return implementation;
+	}
 
 	private JFieldVar getPropertyKeyConstantReference(JDefinedClass classType, String propName) {
 		JFieldVar propNameConstant = classType.fields().get(ObjectSchemaImpl.getKeyConstantName(propName));
@@ -647,9 +1118,23 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 	 * @return
 	 */
 	protected JMethod createBaseMethod(ObjectSchema classSchema, JDefinedClass classType, String methodName){
+		return createBaseMethod(classSchema, classType, methodName, true, false);
+	}
+	
+	/**
+	 * @param classSchema
+	 * @param classType
+	 * @param methodName
+	 * @param override False for a Builder, which is not a JSONEntity.
+	 * @param masked When true the method also takes a {@link FieldMask}.
+	 * @return
+	 */
+	private JMethod createBaseMethod(ObjectSchema classSchema, JDefinedClass classType, String methodName, boolean override, boolean masked){
 		JMethod method  = classType.method(JMod.PUBLIC, JSONObjectAdapter.class, methodName);
 		method._throws(JSONObjectAdapterException.class);
-		method.annotate(Override.class);
+		if(override){
+			method.annotate(Override.class);
+		}
 		// add the parameter
 		JVar param = method.param(classType.owner()._ref(JSONObjectAdapter.class), "adapter");
 		JDocComment docs = method.javadoc();
@@ -657,12 +1142,20 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 		docs.add("\n");
 		docs.add("@see JSONEntity#writeToJSONObject(JSONObjectAdapter)");
 		JCommentPart part = docs.addParam(param);
+		JVar mask = null;
+		if(masked){
+			mask = method.param(classType.owner().ref(FieldMask.class), "mask");
+			docs.addParam(mask).add("Only the selected properties are read, null to read all of them.");
+		}
 		docs.addThrows(JSONObjectAdapterException.class);
 		// Create the constructor body
         JBlock body = method.body();
 		// First add a super call
         if(classSchema.getExtends() != null){
         	JInvocation invocation = JExpr._super().invoke(methodName).arg(param);
+        	if(mask != null){
+        		invocation.arg(mask);
+        	}
         	body.add(invocation);
         }
         JFieldRef staticMessageRef = classType.owner().ref(ObjectSchema.class).staticRef("OBJECT_ADAPTER_CANNOT_BE_NULL");
@@ -687,7 +1180,7 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 		this.getClass().getName();
 
 		// Now process each property
-		for (Map.Entry<String, ObjectSchema> entry : classSchema.getObjectFieldMap().entrySet()) {
+		for (Map.Entry<String, ObjectSchema> entry : ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).entrySet()) {
 			String propName = entry.getKey();
 			ObjectSchema propSchema = entry.getValue();
 			// Look up the field for this property
@@ -703,8 +1196,16 @@ public class JSONMarshalingHandlerImpl03 implements JSONMarshalingHandler{
 				body.add(param.invoke("put").arg(propNameConstant).arg(field));
 				continue;
 			}
+			// A lazy property that has not been read is written from the adapter it was read from.
+			JBlock propertyBlock = body;
+			JFieldVar lazyAdapter = classType.fields().get(VAR_PREFIX + field.name() + "Adapter");
+			if (lazyAdapter != null) {
+				JConditional isLazy = body._if(lazyAdapter.ne(JExpr._null()));
+				isLazy._then().add(param.invoke("put").arg(propNameConstant).arg(lazyAdapter.invoke(getJSONMethodName(type)).arg(propNameConstant)));
+				propertyBlock = isLazy._else();
+			}
 			// Add an if
-			JConditional hasCondition = body._if(field.ne(JExpr._null()));
+			JConditional hasCondition = propertyBlock._if(field.ne(JExpr._null()));
 			JBlock thenBlock = hasCondition._then();
 			// For strings and primitives we can just assign the value right
 			// from the adapter.
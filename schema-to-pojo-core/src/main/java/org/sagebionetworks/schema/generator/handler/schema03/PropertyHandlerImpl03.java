@@ -1,18 +1,33 @@
 package org.sagebionetworks.schema.generator.handler.schema03;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.generator.PropertyUtils;
 import org.sagebionetworks.schema.generator.handler.PropertyHandler;
 
 import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JCommentPart;
 import com.sun.codemodel.JConditional;
 import com.sun.codemodel.JDefinedClass;
 import com.sun.codemodel.JDocComment;
 import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JForEach;
 import com.sun.codemodel.JInvocation;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
+import com.sun.codemodel.JOp;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
 
@@ -24,6 +39,20 @@ import com.sun.codemodel.JVar;
  *
  */
 public class PropertyHandlerImpl03 implements PropertyHandler {
+	
+	boolean immutable;
+	
+	public PropertyHandlerImpl03() {
+		this(false);
+	}
+	
+	/**
+	 * @param immutable When true the fields are final and the setters are on
+	 *        the Builder of the class.
+	 */
+	public PropertyHandlerImpl03(boolean immutable) {
+		this.immutable = immutable;
+	}
 
 	@Override
 	public JFieldVar createProperty(ObjectSchema propertySchema, JDefinedClass classType, String propertyName, JType propertyType) {
@@ -31,11 +60,10 @@ public class PropertyHandlerImpl03 implements PropertyHandler {
 		JFieldVar field = null;
 		if(!classType.isInterface()){
 			// Create a field if this is not an interface
-			if(ObjectSchema.CONCRETE_TYPE.equals(propertyName)){
-				// Initialize the concrete type property with the full class name.
-				field = classType.field(JMod.PRIVATE, propertyType, propertyName, classType.staticRef("class").invoke("getName"));
+			if(immutable){
+				field = classType.field(JMod.PRIVATE | JMod.FINAL, propertyType, propertyName);
 			}else{
-				field = classType.field(JMod.PRIVATE, propertyType, propertyName);
+				field = createMutableField(classType, classType, propertyName, propertyType);
 			}
 			// If there is a title then add it to the feild
 			if(propertySchema.getTitle() != null){
@@ -46,10 +74,147 @@ public class PropertyHandlerImpl03 implements PropertyHandler {
 
 		// Create the getter and setter
 		createGetter(propertySchema, classType, propertyName, propertyType, field);
-		createSetter(propertySchema, classType, propertyName, propertyType, field);
+		if(!immutable){
+			createSetter(propertySchema, classType, propertyName, propertyType, field);
+		}else if(!classType.isInterface()){
+			// The builder holds the values until the final fields are assigned.
+			JDefinedClass builder = PropertyUtils.getOrCreateBuilder(classType);
+			JFieldVar builderField = createMutableField(builder, classType, propertyName, propertyType);
+			createSetter(propertySchema, builder, propertyName, propertyType, builderField);
+			JMethod constructor = PropertyUtils.getOrCreateBuilderConstructor(classType);
+			JVar builderParam = constructor.params().get(0);
+			JBlock body = constructor.body();
+			body.assign(JExpr._this().ref(field), createImmutableCopy(classType.owner(), body, propertyType, builderParam.ref(builderField), propertyName));
+		}
 		return field;
 	}
 	
+	/**
+	 * Create the non-final field of a property.
+	 * @param fieldOwner The class or its Builder.
+	 * @param classType
+	 * @param propertyName
+	 * @param propertyType
+	 * @return
+	 */
+	private JFieldVar createMutableField(JDefinedClass fieldOwner, JDefinedClass classType, String propertyName, JType propertyType){
+		if(ObjectSchema.CONCRETE_TYPE.equals(propertyName)){
+			// Initialize the concrete type property with the full class name.
+			return fieldOwner.field(JMod.PRIVATE, propertyType, propertyName, classType.staticRef("class").invoke("getName"));
+		}
+		return fieldOwner.field(JMod.PRIVATE, propertyType, propertyName);
+	}
+	
+	/**
+	 * An immutable class keeps an unmodifiable copy of each list, set or map
+	 * so that changing the Builder or the passed collection cannot change it.
+	 * @param codeModel
+	 * @param propertyType
+	 * @param value
+	 * @return
+	 */
+	protected static JExpression createUnmodifiableCopy(JCodeModel codeModel, JType propertyType, JExpression value){
+		if(!(propertyType instanceof JClass)){
+			return value;
+		}
+		JClass type = (JClass) propertyType;
+		JClass copyClass;
+		String unmodifiable;
+		if(codeModel.ref(List.class).equals(type.erasure())){
+			copyClass = codeModel.ref(ArrayList.class);
+			unmodifiable = "unmodifiableList";
+		}else if(codeModel.ref(Set.class).equals(type.erasure())){
+			copyClass = codeModel.ref(LinkedHashSet.class);
+			unmodifiable = "unmodifiableSet";
+		}else if(codeModel.ref(Map.class).equals(type.erasure())){
+			copyClass = codeModel.ref(LinkedHashMap.class);
+			unmodifiable = "unmodifiableMap";
+		}else{
+			return value;
+		}
+		JExpression copy = JExpr._new(copyClass.narrow(type.getTypeParameters())).arg(value);
+		return JOp.cond(value.eq(JExpr._null()), JExpr._null(), codeModel.ref(Collections.class).staticInvoke(unmodifiable).arg(copy));
+	}
+	
+	/**
+	 * Dates are mutable, so an immutable class also keeps and returns its own
+	 * copy of each Date, including the Dates of a list, set or map.
+	 * @param codeModel
+	 * @param body The statements that copy the elements of a list, set or map are added to this block.
+	 * @param propertyType
+	 * @param value
+	 * @param propertyName
+	 * @return The expression for the copy of the value.
+	 */
+	protected static JExpression createImmutableCopy(JCodeModel codeModel, JBlock body, JType propertyType, JExpression value, String propertyName){
+		if(isDate(propertyType)){
+			return copyDate(codeModel, value);
+		}
+		if(!containsDates(propertyType)){
+			return createUnmodifiableCopy(codeModel, propertyType, value);
+		}
+		JClass type = (JClass) propertyType;
+		List<JClass> typeParameters = type.getTypeParameters();
+		JClass copyClass;
+		String unmodifiable;
+		if(codeModel.ref(List.class).equals(type.erasure())){
+			copyClass = codeModel.ref(ArrayList.class).narrow(typeParameters);
+			unmodifiable = "unmodifiableList";
+		}else if(codeModel.ref(Set.class).equals(type.erasure())){
+			copyClass = codeModel.ref(LinkedHashSet.class).narrow(typeParameters);
+			unmodifiable = "unmodifiableSet";
+		}else{
+			copyClass = codeModel.ref(LinkedHashMap.class).narrow(typeParameters);
+			unmodifiable = "unmodifiableMap";
+		}
+		JVar copy = body.decl(copyClass, "__" + propertyName, JExpr._null());
+		JBlock notNull = body._if(value.ne(JExpr._null()))._then();
+		notNull.assign(copy, JExpr._new(copyClass).arg(value.invoke("size")));
+		if(typeParameters.size() == 1){
+			JForEach loop = notNull.forEach(typeParameters.get(0), "__value", value);
+			loop.body().add(copy.invoke("add").arg(copyElement(codeModel, typeParameters.get(0), loop.var())));
+		}else{
+			JClass entryType = codeModel.ref(Map.Entry.class).narrow(typeParameters);
+			JForEach loop = notNull.forEach(entryType, "__entry", value.invoke("entrySet"));
+			loop.body().add(copy.invoke("put")
+					.arg(copyElement(codeModel, typeParameters.get(0), loop.var().invoke("getKey")))
+					.arg(copyElement(codeModel, typeParameters.get(1), loop.var().invoke("getValue"))));
+		}
+		return JOp.cond(copy.eq(JExpr._null()), JExpr._null(), codeModel.ref(Collections.class).staticInvoke(unmodifiable).arg(copy));
+	}
+	
+	/**
+	 * Is the type a Date, or a list, set or map of Dates?
+	 * @param type
+	 * @return
+	 */
+	static boolean containsDates(JType type){
+		if(isDate(type)){
+			return true;
+		}
+		if(!(type instanceof JClass)){
+			return false;
+		}
+		for(JClass parameter: ((JClass) type).getTypeParameters()){
+			if(isDate(parameter)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static boolean isDate(JType type){
+		return Date.class.getName().equals(type.fullName());
+	}
+	
+	private static JExpression copyElement(JCodeModel codeModel, JType type, JExpression value){
+		return isDate(type) ? copyDate(codeModel, value) : value;
+	}
+	
+	private static JExpression copyDate(JCodeModel codeModel, JExpression value){
+		return JOp.cond(value.eq(JExpr._null()), JExpr._null(), JExpr._new(codeModel.ref(Date.class)).arg(value.invoke("getTime")));
+	}
+	
 	/**
 	 * Create getter that matches the property name
 	 * @param propertySchema
@@ -64,7 +229,12 @@ public class PropertyHandlerImpl03 implements PropertyHandler {
 		// Create a method body if this is not an interface
 		if(!classType.isInterface()){
 	        JBlock body = method.body();
-	        body._return(field);
+	        if(immutable && containsDates(propertyType)){
+	        	// Return a copy so the caller cannot change the Dates of this object.
+	        	body._return(createImmutableCopy(classType.owner(), body, propertyType, field, propertyName));
+	        }else{
+	        	body._return(field);
+	        }
 		}
         // Add the java doc
         JDocComment doc = method.javadoc();
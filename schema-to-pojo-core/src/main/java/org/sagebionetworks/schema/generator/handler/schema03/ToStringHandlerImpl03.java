@@ -1,14 +1,20 @@
 package org.sagebionetworks.schema.generator.handler.schema03;
 
+import java.io.IOException;
 import java.util.Map;
 
+import org.sagebionetworks.schema.BoundedAppender;
+import org.sagebionetworks.schema.BoundedToString;
 import org.sagebionetworks.schema.JavaKeyword;
 import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
 import org.sagebionetworks.schema.TYPE;
 import org.sagebionetworks.schema.generator.PropertyUtils;
 import org.sagebionetworks.schema.generator.handler.ToStringHandler;
 
 import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JCatchBlock;
+import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JDefinedClass;
 import com.sun.codemodel.JDocComment;
 import com.sun.codemodel.JExpr;
@@ -16,6 +22,7 @@ import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
+import com.sun.codemodel.JTryBlock;
 import com.sun.codemodel.JVar;
 
 /**
@@ -25,6 +32,26 @@ import com.sun.codemodel.JVar;
  */
 public class ToStringHandlerImpl03 implements ToStringHandler {
 	
+	/**
+	 * The name of the methods that write the string value to an Appendable.
+	 */
+	public static final String APPEND_TO = "appendTo";
+	
+	int toStringBudget;
+	
+	public ToStringHandlerImpl03() {
+		this(0);
+	}
+	
+	/**
+	 * @param toStringBudget When greater than zero toString() writes at most
+	 *            this many characters through a generated appendTo().
+	 */
+	public ToStringHandlerImpl03(int toStringBudget) {
+		if(toStringBudget < 0) throw new IllegalArgumentException("The toString budget cannot be negative");
+		this.toStringBudget = toStringBudget;
+	}
+	
 	/**
 	 * Add toString() to the POJO
 	 * @param classSchema
@@ -37,7 +64,12 @@ public class ToStringHandlerImpl03 implements ToStringHandler {
 			throw new IllegalArgumentException("Cannot add hash and equals to an interface");
 		}
 		// Add the toString method
-		addToString(classSchema, classType);
+		if(toStringBudget > 0){
+			addAppendTo(classSchema, classType);
+			addBoundedToString(classType);
+		}else{
+			addToString(classSchema, classType);
+		}
 	}
 	
 	/**
@@ -64,6 +96,8 @@ public class ToStringHandlerImpl03 implements ToStringHandler {
 		
 		//body will be the method's body
 		JBlock body = method.body();
+		// Lazy properties are read before the fields are used.
+		PropertyUtils.addDecodeLazy(classType, body, null);
 		
 		// If we have a super then we use that to initialize the result
 		//result is the string/param we will return
@@ -89,7 +123,7 @@ public class ToStringHandlerImpl03 implements ToStringHandler {
 		body.add(result.invoke("append").arg(" ["));	
 		
 		// Now process each property
-		Map<String, ObjectSchema> fieldMap = classSchema.getObjectFieldMap();
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(classSchema);
 		for (Map.Entry<String, ObjectSchema> entry: fieldMap.entrySet()){
 			String keyName = entry.getKey();
 			ObjectSchema nextProp = entry.getValue();
@@ -98,25 +132,12 @@ public class ToStringHandlerImpl03 implements ToStringHandler {
 			JFieldVar field = PropertyUtils.getPropertyReference(classType, keyName);
 			
 			//check type for each property/field
-			TYPE type = PropertyUtils.validateNonNullType(classType, nextProp);
+			validateType(classType, keyName, nextProp);
 			
-			if(TYPE.NUMBER == type || 
-					TYPE.INTEGER == type || 
-					TYPE.BOOLEAN == type || 
-					TYPE.ARRAY == type || 
-					TYPE.TUPLE_ARRAY_MAP == type ||
-					TYPE.MAP == type ||
-					TYPE.OBJECT == type ||
-					TYPE.STRING == type ||
-					TYPE.INTERFACE == type){
-				//add an assignment statements to the body
-				body.add(result.invoke("append").arg(JavaKeyword.determineJavaName(keyName) + "="));
-				body.add(result.invoke("append").arg(field));
-				body.add(result.invoke("append").arg(" "));
-			}else {
-				throw new IllegalArgumentException(keyName + 
-						"has an invalid property type in it's schema " + nextProp);
-			}
+			//add an assignment statements to the body
+			body.add(result.invoke("append").arg(JavaKeyword.determineJavaName(keyName) + "="));
+			body.add(result.invoke("append").arg(field));
+			body.add(result.invoke("append").arg(" "));
 		}		
 		//add closing ]
 		body.add(result.invoke("append").arg("]"));
@@ -124,6 +145,102 @@ public class ToStringHandlerImpl03 implements ToStringHandler {
 		body._return(result.invoke("toString"));
 		return method;
 	}
+	
+	/**
+	 * Make the class a {@link BoundedToString} and add both appendTo() methods.
+	 * The output is the same as the one of {@link #addToString(ObjectSchema, JDefinedClass)}
+	 * but is written directly to the {@link BoundedAppender}, nested entities and
+	 * collections included.
+	 * @param classSchema
+	 * @param classType
+	 * @return the appendTo(BoundedAppender) method
+	 */
+	protected JMethod addAppendTo(ObjectSchema classSchema, JDefinedClass classType){
+		JCodeModel codeModel = classType.owner();
+		classType._implements(BoundedToString.class);
+		JMethod method = classType.method(JMod.PUBLIC, codeModel.VOID, APPEND_TO);
+		method.annotate(Override.class);
+		method._throws(IOException.class);
+		JVar out = method.param(BoundedAppender.class, "out");
+		JBlock body = method.body();
+		PropertyUtils.addDecodeLazy(classType, body, null);
+		// The super class writes its own fields first.
+		if(classSchema.getExtends() != null){
+			body.add(JExpr._super().invoke(APPEND_TO).arg(out));
+		}
+		body.add(out.invoke("append").arg(classType.fullName()).invoke("append").arg(" ["));
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(classSchema);
+		for (Map.Entry<String, ObjectSchema> entry: fieldMap.entrySet()){
+			String keyName = entry.getKey();
+			JFieldVar field = PropertyUtils.getPropertyReference(classType, keyName);
+			validateType(classType, keyName, entry.getValue());
+			// this. so that a property named out is not hidden by the parameter.
+			body.add(out.invoke("append").arg(JavaKeyword.determineJavaName(keyName) + "=")
+					.invoke("appendValue").arg(JExpr._this().ref(field))
+					.invoke("append").arg(" "));
+		}
+		body.add(out.invoke("append").arg("]"));
+		
+		// The public entry point
+		JMethod bounded = classType.method(JMod.PUBLIC, codeModel.VOID, APPEND_TO);
+		bounded._throws(IOException.class);
+		JDocComment docs = bounded.javadoc();
+		docs.add("Write the string value of this object to the given Appendable, stopping after charBudget characters.");
+		docs.add("\n");
+		docs.add("Long collections are cut and end with '... N more'.");
+		docs.addParam("out");
+		docs.addParam("charBudget");
+		JVar appendable = bounded.param(Appendable.class, "out");
+		JVar charBudget = bounded.param(codeModel.INT, "charBudget");
+		bounded.body().invoke(APPEND_TO).arg(JExpr._new(codeModel.ref(BoundedAppender.class)).arg(appendable).arg(charBudget));
+		return method;
+	}
+	
+	/**
+	 * Add a toString() that delegates to appendTo() with the budget of this handler.
+	 * @param classType
+	 * @return
+	 */
+	protected JMethod addBoundedToString(JDefinedClass classType){
+		JCodeModel codeModel = classType.owner();
+		JMethod method = classType.method(JMod.PUBLIC, codeModel.ref(String.class), "toString");
+		method.annotate(Override.class);
+		JDocComment docs = method.javadoc();
+		docs.add("Write this object with " + APPEND_TO + "() into a string.");
+		docs.addReturn().add("At most " + toStringBudget + " characters of the string value of this object, followed by '...' when it was cut.");
+		JBlock body = method.body();
+		JVar result = body.decl(codeModel.ref(StringBuilder.class), "result", JExpr._new(codeModel.ref(StringBuilder.class)));
+		JTryBlock tryBlock = body._try();
+		tryBlock.body().invoke(APPEND_TO).arg(result).arg(JExpr.lit(toStringBudget));
+		JCatchBlock catchBlock = tryBlock._catch(codeModel.ref(IOException.class));
+		JVar e = catchBlock.param("e");
+		// A StringBuilder does not throw IOException.
+		catchBlock.body()._throw(JExpr._new(codeModel.ref(IllegalStateException.class)).arg(e));
+		body._return(result.invoke("toString"));
+		return method;
+	}
+	
+	/**
+	 * Make sure the type of a property can be added to the string.
+	 * @param classType
+	 * @param keyName
+	 * @param propertySchema
+	 */
+	private static void validateType(JDefinedClass classType, String keyName, ObjectSchema propertySchema){
+		TYPE type = PropertyUtils.validateNonNullType(classType, propertySchema);
+		if(!(TYPE.NUMBER == type || 
+				TYPE.INTEGER == type || 
+				TYPE.BOOLEAN == type || 
+				TYPE.ARRAY == type || 
+				TYPE.TUPLE_ARRAY_MAP == type ||
+				TYPE.MAP == type ||
+				TYPE.OBJECT == type ||
+				TYPE.STRING == type ||
+				TYPE.INTERFACE == type)){
+			throw new IllegalArgumentException(keyName + 
+					"has an invalid property type in it's schema " + propertySchema);
+		}
+	}
 }
 
 
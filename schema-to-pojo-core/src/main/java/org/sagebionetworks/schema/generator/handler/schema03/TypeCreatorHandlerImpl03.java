@@ -190,7 +190,7 @@ public class TypeCreatorHandlerImpl03 implements TypeCreatorHandler {
 		if(!newClass.isInterface()) {
 			JType stringType = newClass.owner()._ref(String.class);
 			JType stringArrayType = newClass.owner()._ref(String[].class);
-			Map<String, ObjectSchema> fieldMap = schema.getObjectFieldMap();
+			Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(schema);
 			List<JExpression> keyConstants = new LinkedList<JExpression>();
 			for (String key : fieldMap.keySet()) {
 				int mods = JMod.PRIVATE | JMod.STATIC | JMod.FINAL;
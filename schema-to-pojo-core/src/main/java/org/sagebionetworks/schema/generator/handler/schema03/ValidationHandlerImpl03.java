@@ -0,0 +1,370 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.ValidatingEntity;
+import org.sagebionetworks.schema.ValidationResult;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
+import org.sagebionetworks.schema.generator.PropertyUtils;
+import org.sagebionetworks.schema.generator.handler.ValidationHandler;
+import org.sagebionetworks.schema.util.CompareUtils;
+
+import com.sun.codemodel.ClassType;
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JConditional;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JDocComment;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JFieldRef;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JForEach;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+import com.sun.codemodel.JVar;
+
+/**
+ * Adds validate() to a POJO, which checks the pattern, range, length, size,
+ * divisibleBy and uniqueItems constraints of the properties and the required
+ * properties. The patterns are compiled once in static fields and the other
+ * checks are inlined. The violations are added to a {@link ValidationResult}.
+ * When validating on read, the constructor that reads an object from JSON
+ * throws an IllegalArgumentException with the violations of the properties of
+ * the object, the nested objects are checked by their own constructors.
+ *
+ */
+public class ValidationHandlerImpl03 implements ValidationHandler {
+
+	/**
+	 * The name of the generated method.
+	 */
+	public static final String VALIDATE = "validate";
+	/**
+	 * The name of the method that checks the properties of each class.
+	 */
+	public static final String VALIDATE_PROPERTIES = "__validateProperties";
+
+	private static final String VAR_PREFIX = "__";
+	private static final String PATTERN_PREFIX = "_PATTERN";
+
+	boolean enabled;
+	boolean onRead;
+
+	public ValidationHandlerImpl03() {
+		this(false, false, false);
+	}
+
+	/**
+	 * @param enabled When false nothing is added.
+	 * @param onRead When true objects read from JSON are validated.
+	 * @param lazyNested Lazy properties would be read to validate them on read.
+	 */
+	public ValidationHandlerImpl03(boolean enabled, boolean onRead, boolean lazyNested) {
+		if(onRead && lazyNested) throw new IllegalArgumentException("Validating on read is not supported with lazy nested properties");
+		this.enabled = enabled || onRead;
+		this.onRead = onRead;
+	}
+
+	@Override
+	public void addValidation(ObjectSchema classSchema, JDefinedClass classType) {
+		if(!enabled){
+			return;
+		}
+		if(classSchema.getExtends() == null){
+			classType._implements(ValidatingEntity.class);
+		}
+		if(TYPE.INTERFACE == classSchema.getType()){
+			return;
+		}
+		JMethod validateProperties = createValidateProperties(classSchema, classType);
+		if(classSchema.getExtends() == null){
+			createValidate(classType, validateProperties);
+		}
+		if(onRead){
+			addValidateOnRead(classType, validateProperties);
+		}
+	}
+
+	/**
+	 * Create validate() and validate(ValidationResult), the sub-classes
+	 * inherit them.
+	 * @param classType
+	 * @param validateProperties
+	 */
+	protected void createValidate(JDefinedClass classType, JMethod validateProperties) {
+		JCodeModel codeModel = classType.owner();
+		JClass resultClass = codeModel.ref(ValidationResult.class);
+		JMethod withResult = classType.method(JMod.PUBLIC, resultClass, VALIDATE);
+		withResult.annotate(Override.class);
+		JVar result = withResult.param(resultClass, "result");
+		JDocComment docs = withResult.javadoc();
+		docs.add("@see ValidatingEntity#validate(ValidationResult)");
+		docs.addParam(result);
+		docs.addReturn();
+		withResult.body()._if(result.eq(JExpr._null()))._then()
+				._throw(JExpr._new(codeModel.ref(IllegalArgumentException.class)).arg("The result cannot be null"));
+		withResult.body().invoke(validateProperties).arg(result).arg(JExpr.TRUE);
+		withResult.body()._return(result);
+
+		JMethod method = classType.method(JMod.PUBLIC, resultClass, VALIDATE);
+		method.annotate(Override.class);
+		method.javadoc().add("@see ValidatingEntity#validate()");
+		method.javadoc().addReturn();
+		method.body()._return(JExpr.invoke(withResult).arg(JExpr._new(resultClass)));
+	}
+
+	/**
+	 * Create the method that checks the properties of this class after the
+	 * ones of the super class.
+	 * @param classSchema
+	 * @param classType
+	 * @return
+	 */
+	protected JMethod createValidateProperties(ObjectSchema classSchema, JDefinedClass classType) {
+		JCodeModel codeModel = classType.owner();
+		JMethod method = classType.method(JMod.PROTECTED, codeModel.VOID, VALIDATE_PROPERTIES);
+		JVar result = method.param(ValidationResult.class, "result");
+		JVar nested = method.param(codeModel.BOOLEAN, "nested");
+		JDocComment docs = method.javadoc();
+		docs.add("Check the constraints of the properties of this object.");
+		docs.addParam(result);
+		docs.addParam(nested).add("When true the objects in the properties are checked too.");
+		JBlock body = method.body();
+		if(classSchema.getExtends() != null){
+			method.annotate(Override.class);
+			body.add(JExpr._super().invoke(method).arg(result).arg(nested));
+		}
+		// Lazy properties are read before they are checked.
+		PropertyUtils.addDecodeLazy(classType, body, null);
+		for (Map.Entry<String, ObjectSchema> entry : ObjectSchemaImpl.getCachedObjectFieldMap(classSchema).entrySet()) {
+			String propName = entry.getKey();
+			ObjectSchema propSchema = entry.getValue();
+			JFieldVar fieldVar = PropertyUtils.getPropertyReference(classType, propName);
+			JFieldRef field = JExpr._this().ref(fieldVar);
+			JFieldVar key = classType.fields().get(ObjectSchemaImpl.getKeyConstantName(propName));
+			if(key == null){
+				throw new IllegalArgumentException("Failed to find the JFieldVar for constant property name: '"
+						+ propName + "' on class: " + classType.name());
+			}
+			ValidationBlock checks = new ValidationBlock(body, field, result, key, propSchema.isRequired());
+			addChecks(codeModel, classType, propSchema, fieldVar.type(), key, checks, nested);
+		}
+		return method;
+	}
+
+	/**
+	 * Add the checks of a single property.
+	 */
+	private void addChecks(JCodeModel codeModel, JDefinedClass classType, ObjectSchema propSchema, JType type, JFieldVar key,
+			ValidationBlock checks, JVar nested) {
+		JFieldRef field = checks.field;
+		if(codeModel.ref(String.class).equals(type)){
+			if(propSchema.getMinLength() != null){
+				checks.check(field.invoke("length").lt(JExpr.lit(propSchema.getMinLength())),
+						"must have at least " + propSchema.getMinLength() + " characters");
+			}
+			if(propSchema.getMaxLength() != null){
+				checks.check(field.invoke("length").gt(JExpr.lit(propSchema.getMaxLength())),
+						"must have at most " + propSchema.getMaxLength() + " characters");
+			}
+			if(propSchema.getPattern() != null){
+				JFieldVar pattern = createPattern(classType, key, propSchema.getPattern());
+				checks.check(pattern.invoke("matcher").arg(field).invoke("find").not(),
+						"must match the pattern " + propSchema.getPattern());
+			}
+		}else if(isNumber(codeModel, type)){
+			if(propSchema.getMinimum() != null){
+				checks.check(field.lt(literal(propSchema.getMinimum())), "must be at least " + propSchema.getMinimum());
+			}
+			if(propSchema.getExclusiveMinimum() != null){
+				checks.check(field.lte(literal(propSchema.getExclusiveMinimum())), "must be greater than " + propSchema.getExclusiveMinimum());
+			}
+			if(propSchema.getMaximum() != null){
+				checks.check(field.gt(literal(propSchema.getMaximum())), "must be at most " + propSchema.getMaximum());
+			}
+			if(propSchema.getExclusiveMaximum() != null){
+				checks.check(field.gte(literal(propSchema.getExclusiveMaximum())), "must be less than " + propSchema.getExclusiveMaximum());
+			}
+			if(propSchema.getDivisibleBy() != null){
+				Number divisor = propSchema.getDivisibleBy();
+				if(divisor.doubleValue() == 0){
+					throw new IllegalArgumentException("divisibleBy cannot be zero for the property: " + key.name() + " on class: " + classType.name());
+				}
+				JExpression notDivisible;
+				if(isIntegral(divisor) && !codeModel.ref(Double.class).equals(type)){
+					notDivisible = field.mod(literal(divisor)).ne(JExpr.lit(0));
+				}else{
+					JClass math = codeModel.ref(Math.class);
+					JExpression quotient = field.div(literal(divisor));
+					notDivisible = math.staticInvoke("abs").arg(quotient.minus(math.staticInvoke("rint").arg(quotient)))
+							.gt(codeModel.ref(CompareUtils.class).staticRef("ABSOLUTE_ERROR"));
+				}
+				checks.check(notDivisible, "must be divisible by " + divisor);
+			}
+		}else if(isCollection(codeModel, type)){
+			if(propSchema.getMinItems() != null){
+				checks.check(field.invoke("size").lt(JExpr.lit(propSchema.getMinItems())), "must have at least " + propSchema.getMinItems() + " items");
+			}
+			if(propSchema.getMaxItems() != null){
+				checks.check(field.invoke("size").gt(JExpr.lit(propSchema.getMaxItems())), "must have at most " + propSchema.getMaxItems() + " items");
+			}
+			JClass elementType = ((JClass) type).getTypeParameters().get(0);
+			if(propSchema.getUniqueItems() && codeModel.ref(List.class).equals(((JClass) type).erasure())){
+				JExpression unique = JExpr._new(codeModel.ref(HashSet.class).narrow(elementType)).arg(field).invoke("size");
+				checks.check(unique.ne(field.invoke("size")), "must have unique items");
+			}
+			if(isValidating(elementType)){
+				validateNested(checks, nested, elementType, field);
+			}
+		}else if(isMap(codeModel, type)){
+			JClass valueType = ((JClass) type).getTypeParameters().get(1);
+			if(isValidating(valueType)){
+				validateNested(checks, nested, valueType, field.invoke("values"));
+			}
+		}else if(isValidating(type)){
+			JBlock block = checks.nested(nested);
+			block.add(checks.result.invoke("enter").arg(key));
+			block.add(field.invoke(VALIDATE).arg(checks.result));
+			block.add(checks.result.invoke("exit"));
+		}
+		checks.finish();
+	}
+
+	/**
+	 * Validate each element that is not null.
+	 */
+	private static void validateNested(ValidationBlock checks, JVar nested, JClass elementType, JExpression values) {
+		JBlock block = checks.nested(nested);
+		block.add(checks.result.invoke("enter").arg(checks.key));
+		JForEach loop = block.forEach(elementType, VAR_PREFIX + "element", values);
+		loop.body()._if(loop.var().ne(JExpr._null()))._then().add(loop.var().invoke(VALIDATE).arg(checks.result));
+		block.add(checks.result.invoke("exit"));
+	}
+
+	/**
+	 * Compile the pattern once in a static field. The pattern is compiled when
+	 * the class is generated too, so that an invalid pattern fails the build.
+	 */
+	private static JFieldVar createPattern(JDefinedClass classType, JFieldVar key, String regex) {
+		try{
+			Pattern.compile(regex);
+		}catch(PatternSyntaxException e){
+			throw new IllegalArgumentException("Invalid pattern for the property: " + key.name() + " on class: " + classType.name(), e);
+		}
+		String name = PATTERN_PREFIX + key.name().substring(ObjectSchema.KEY_PREFIX.length() - 1);
+		JClass patternClass = classType.owner().ref(Pattern.class);
+		return classType.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, patternClass, name,
+				patternClass.staticInvoke("compile").arg(JExpr.lit(regex)));
+	}
+
+	/**
+	 * The constructor that reads an object from JSON checks the properties of
+	 * its class. The constructors of the super classes do not, their objects
+	 * are not read yet.
+	 * @param classType
+	 * @param validateProperties
+	 */
+	protected void addValidateOnRead(JDefinedClass classType, JMethod validateProperties) {
+		JCodeModel codeModel = classType.owner();
+		JMethod constructor = classType.getConstructor(new JType[] { codeModel.ref(JSONObjectAdapter.class) });
+		if(constructor == null){
+			throw new IllegalArgumentException("Failed to find the JSON constructor of class: " + classType.name());
+		}
+		constructor.javadoc().addThrows(IllegalArgumentException.class).add("When the object is not valid.");
+		JBlock block = constructor.body()._if(JExpr.invoke("getClass").eq(classType.dotclass()))._then();
+		JClass resultClass = codeModel.ref(ValidationResult.class);
+		JVar result = block.decl(resultClass, VAR_PREFIX + "result", JExpr._new(resultClass));
+		block.invoke(validateProperties).arg(result).arg(JExpr.FALSE);
+		block._if(result.invoke("isValid").not())._then()
+				._throw(JExpr._new(codeModel.ref(IllegalArgumentException.class)).arg(result.invoke("toString")));
+	}
+
+	private static JExpression literal(Number value) {
+		if(isIntegral(value)){
+			return JExpr.lit(value.longValue());
+		}
+		return JExpr.lit(value.doubleValue());
+	}
+
+	private static boolean isIntegral(Number value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+
+	private static boolean isNumber(JCodeModel codeModel, JType type) {
+		return codeModel.ref(Long.class).equals(type) || codeModel.ref(Integer.class).equals(type) || codeModel.ref(Double.class).equals(type);
+	}
+
+	private static boolean isCollection(JCodeModel codeModel, JType type) {
+		if(!(type instanceof JClass)){
+			return false;
+		}
+		JClass erasure = ((JClass) type).erasure();
+		return codeModel.ref(List.class).equals(erasure) || codeModel.ref(Set.class).equals(erasure);
+	}
+
+	private static boolean isMap(JCodeModel codeModel, JType type) {
+		return type instanceof JClass && codeModel.ref(Map.class).equals(((JClass) type).erasure());
+	}
+
+	/**
+	 * Is the given type a generated class or interface with validate()?
+	 */
+	static boolean isValidating(JType type) {
+		return type instanceof JDefinedClass && ClassType.ENUM != ((JDefinedClass) type).getClassType();
+	}
+
+	/**
+	 * The checks of a property are only made when it is not null, a required
+	 * property that is null is a violation.
+	 */
+	private static class ValidationBlock {
+		final JBlock body;
+		final JFieldRef field;
+		final JVar result;
+		final JFieldVar key;
+		final boolean required;
+		JConditional notNull;
+
+		ValidationBlock(JBlock body, JFieldRef field, JVar result, JFieldVar key, boolean required) {
+			this.body = body;
+			this.field = field;
+			this.result = result;
+			this.key = key;
+			this.required = required;
+		}
+
+		private JBlock notNull() {
+			if(notNull == null){
+				notNull = body._if(field.ne(JExpr._null()));
+			}
+			return notNull._then();
+		}
+
+		void check(JExpression violated, String message) {
+			notNull()._if(violated)._then().add(result.invoke("addViolation").arg(key).arg(JExpr.lit(message)));
+		}
+
+		JBlock nested(JVar nested) {
+			return notNull()._if(nested)._then();
+		}
+
+		void finish() {
+			if(!required){
+				return;
+			}
+			JBlock isNull = notNull == null ? body._if(field.eq(JExpr._null()))._then() : notNull._else();
+			isNull.add(result.invoke("addViolation").arg(key).arg(JExpr.lit("is required")));
+		}
+	}
+}
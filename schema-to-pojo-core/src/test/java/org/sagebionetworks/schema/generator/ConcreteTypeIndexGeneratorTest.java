@@ -0,0 +1,110 @@
+package org.sagebionetworks.schema.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+
+import com.sun.codemodel.JClassAlreadyExistsException;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFormatter;
+
+public class ConcreteTypeIndexGeneratorTest {
+
+	JCodeModel codeModel;
+	List<ObjectSchema> list;
+	Map<String, Integer> positions;
+
+	@BeforeEach
+	public void before() throws JClassAlreadyExistsException {
+		codeModel = new JCodeModel();
+		list = new ArrayList<ObjectSchema>();
+		positions = new HashMap<String, Integer>();
+		for (int i = 0; i < 34; i++) {
+			ObjectSchema schema = new ObjectSchemaImpl(TYPE.OBJECT);
+			schema.setId("org.example.Impl" + i);
+			positions.put(schema.getId(), list.size());
+			list.add(schema);
+		}
+		codeModel._package("org.example")._interface("Inter");
+	}
+
+	private static String declare(JDefinedClass clazz) {
+		StringWriter writer = new StringWriter();
+		clazz.declare(new JFormatter(writer));
+		return writer.toString();
+	}
+
+	@Test
+	public void testCreateIndex() {
+		JDefinedClass index = RegisterGenerator.createClassFromFullName(codeModel, "org.example.Index");
+		// call under test
+		ConcreteTypeIndexGenerator.createIndex(codeModel, list, index);
+		String value = declare(index);
+		assertTrue(value.indexOf("private final static java.lang.String[] CLASS_NAMES = new java.lang.String[] {\"org.example.Impl0\", ") > 0);
+		assertTrue(value.indexOf("private Index() {") > 0);
+		assertTrue(value.indexOf("public static int indexOf(java.lang.String className) {") > 0);
+		assertTrue(value.indexOf("case \"org.example.Impl33\":") > 0);
+		assertTrue(value.indexOf("return  33;") > 0);
+		assertTrue(value.indexOf("public static org.sagebionetworks.schema.adapter.JSONEntity newInstance(int index) {") > 0);
+		assertTrue(value.indexOf("return new org.example.Impl33();") > 0);
+		assertTrue(value.indexOf("public static boolean isImplementation(int[] implementations, int index) {") > 0);
+		assertTrue(value.indexOf("return ((index >= 0)&&((implementations[(index >>> 5)]&(1 <<index))!= 0));") > 0);
+		assertTrue(value.indexOf("public static java.util.Iterator<java.lang.String> iterator(int[] implementations) {") > 0);
+	}
+
+	@Test
+	public void testCreateFactory() {
+		JDefinedClass index = RegisterGenerator.createClassFromFullName(codeModel, "org.example.Index");
+		JDefinedClass factory = RegisterGenerator.createClassFromFullName(codeModel, "org.example.InterInstanceFactory");
+		// Implemented by the first, the second and the last.
+		List<ObjectSchema> implementations = Arrays.asList(list.get(0), list.get(1), list.get(33));
+		// call under test
+		ConcreteTypeIndexGenerator.createFactory(codeModel, implementations, positions, factory, index, "org.example.Inter");
+		String value = declare(factory);
+		// 0b11 in the first word and 0b10 in the second word.
+		assertTrue(value.indexOf("private final static int[] IMPLEMENTATIONS = new int[] { 3, 2 };") > 0);
+		assertTrue(value.indexOf("public org.example.Inter newInstance(java.lang.String className) {") > 0);
+		assertTrue(value.indexOf("int index = org.example.Index.indexOf(className);") > 0);
+		assertTrue(value.indexOf("if (!org.example.Index.isImplementation(IMPLEMENTATIONS, index)) {") > 0);
+		assertTrue(value.indexOf("return ((org.example.Inter) org.example.Index.newInstance(index));") > 0);
+		assertTrue(value.indexOf("return org.example.Index.iterator(IMPLEMENTATIONS);") > 0);
+		assertTrue(value.indexOf("return org.example.InterInstanceFactory.SingletonHolder.SINGLETON;") > 0);
+		assertTrue(value.indexOf("public java.lang.String getDefaultConcreteType() {") > 0);
+		assertFalse(value.indexOf("new org.example.Impl0()") > 0);
+	}
+
+	@Test
+	public void testCreateFactoryNotIndexed() {
+		JDefinedClass index = RegisterGenerator.createClassFromFullName(codeModel, "org.example.Index");
+		JDefinedClass factory = RegisterGenerator.createClassFromFullName(codeModel, "org.example.InterInstanceFactory");
+		ObjectSchema notIndexed = new ObjectSchemaImpl(TYPE.OBJECT);
+		notIndexed.setId("org.example.NotIndexed");
+		assertThrows(IllegalArgumentException.class, () -> {
+			ConcreteTypeIndexGenerator.createFactory(codeModel, Arrays.asList(notIndexed), positions, factory, index, "org.example.Inter");
+		});
+	}
+
+	@Test
+	public void testCreateImplementationsFieldEmpty() {
+		JDefinedClass factory = RegisterGenerator.createClassFromFullName(codeModel, "org.example.InterInstanceFactory");
+		ConcreteTypeIndexGenerator.createImplementationsField(codeModel, new ArrayList<ObjectSchema>(), positions, factory);
+		String value = declare(factory);
+		assertTrue(value.indexOf("IMPLEMENTATIONS = new int[] { 0, 0 };") > 0, value);
+		assertEquals(2, (positions.size() + ConcreteTypeIndexGenerator.BITS_PER_WORD - 1) / ConcreteTypeIndexGenerator.BITS_PER_WORD);
+	}
+}
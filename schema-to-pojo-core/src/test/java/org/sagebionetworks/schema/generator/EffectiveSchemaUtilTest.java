@@ -5,10 +5,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -293,4 +296,44 @@ public class EffectiveSchemaUtilTest {
 		assertEquals(expected, clone);
 	}
 	
+	@Test
+	public void testGenerateEffectiveSchemaWithMemo() throws JSONObjectAdapterException {
+		ObjectSchema first = new ObjectSchemaImpl(TYPE.OBJECT);
+		first.putProperty("composite", compositeSchema);
+		ObjectSchema second = new ObjectSchemaImpl(TYPE.OBJECT);
+		second.putProperty("composite", compositeSchema);
+		Map<String, ObjectSchema> memo = new HashMap<String, ObjectSchema>();
+		// call under test
+		ObjectSchema firstEffective = EffectiveSchemaUtil.generateEffectiveSchema(first, memo);
+		ObjectSchema secondEffective = EffectiveSchemaUtil.generateEffectiveSchema(second, memo);
+		// the effective composite is generated once
+		assertSame(firstEffective.getProperties().get("composite"), secondEffective.getProperties().get("composite"));
+		assertSame(memo.get(compositeSchema.getId()), firstEffective.getProperties().get("composite"));
+		checkEffectiveCompositeSchemaIsFlattened(memo.get(compositeSchema.getId()));
+	}
+
+	@Test
+	public void testGenerateEffectiveSchemaDoesNotModifySchema() throws JSONObjectAdapterException {
+		String before = compositeSchema.toJSONString(new JSONObjectAdapterImpl());
+		// call under test
+		EffectiveSchemaUtil.generateEffectiveSchema(compositeSchema);
+		assertEquals(before, compositeSchema.toJSONString(new JSONObjectAdapterImpl()));
+		assertEquals(1, compositeSchema.getProperties().size());
+		assertNotNull(compositeSchema.getExtends());
+		assertNotNull(compositeSchema.getImplements());
+	}
+
+	@Test
+	public void testGenerateEffectiveSchemaFiles() throws Exception {
+		// call under test
+		EffectiveSchemaUtil.generateEffectiveSchemaFiles(tempFolder, Arrays.asList(compositeSchema, childClassSchema, baseClassSchema));
+		for (ObjectSchema schema : Arrays.asList(compositeSchema, childClassSchema, baseClassSchema)) {
+			File file = EffectiveSchemaUtil.createFileForSchema(tempFolder, schema);
+			assertTrue(file.exists());
+			ObjectSchema expected = new ObjectSchemaImpl(new JSONObjectAdapterImpl(EffectiveSchemaUtil.generateJSONofEffectiveSchema(schema)));
+			ObjectSchema clone = new ObjectSchemaImpl(new JSONObjectAdapterImpl(FileUtils.readToString(file)));
+			assertEquals(expected, clone);
+		}
+	}
+	
 }
@@ -0,0 +1,99 @@
+package org.sagebionetworks.schema.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.generator.GenerationMetrics.Phase;
+
+public class GenerationMetricsTest {
+
+	@Test
+	public void testStartStop() throws InterruptedException {
+		GenerationMetrics metrics = new GenerationMetrics();
+		assertEquals(0, metrics.getNanos(Phase.PARSE));
+		metrics.start(Phase.PARSE);
+		Thread.sleep(2);
+		metrics.stop(Phase.PARSE);
+		long first = metrics.getNanos(Phase.PARSE);
+		assertTrue(first > 0);
+		metrics.start(Phase.PARSE);
+		metrics.stop(Phase.PARSE);
+		// The phase accumulates
+		assertTrue(metrics.getNanos(Phase.PARSE) >= first);
+		assertEquals(metrics.getNanos(Phase.PARSE), metrics.getTotalNanos());
+		assertEquals(0, metrics.getNanos(Phase.READ));
+	}
+
+	@Test
+	public void testNestedStart() {
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.start(Phase.CREATE_TYPES);
+		metrics.start(Phase.CREATE_TYPES);
+		metrics.stop(Phase.CREATE_TYPES);
+		// Still running
+		assertEquals(0, metrics.getNanos(Phase.CREATE_TYPES));
+		metrics.stop(Phase.CREATE_TYPES);
+		assertTrue(metrics.getNanos(Phase.CREATE_TYPES) > 0);
+	}
+
+	@Test
+	public void testStopWithoutStart() {
+		GenerationMetrics metrics = new GenerationMetrics();
+		assertThrows(IllegalStateException.class, () -> {
+			metrics.stop(Phase.READ);
+		});
+	}
+
+	@Test
+	public void testAllocatedBytes() {
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.start(Phase.PARSE);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			builder.append(i);
+		}
+		metrics.stop(Phase.PARSE);
+		long bytes = metrics.getAllocatedBytes(Phase.PARSE);
+		// -1 when the JVM cannot measure allocation
+		assertTrue(bytes == -1 || bytes > 0, "" + bytes);
+	}
+
+	@Test
+	public void testSummary() {
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.setSchemaCount(3);
+		metrics.setClassCount(2);
+		metrics.addFieldCount(5);
+		metrics.setFileCounts(1, 1);
+		String summary = metrics.getSummary();
+		assertTrue(summary.startsWith("Generated 2 classes with 5 fields from 3 schemas in "), summary);
+		assertTrue(summary.contains("(1 files written, 1 unchanged)"), summary);
+		for (Phase phase : Phase.values()) {
+			assertTrue(summary.contains(phase.name()), summary);
+		}
+	}
+
+	@Test
+	public void testPhaseEvent() throws Exception {
+		// Must work with and without Flight Recorder
+		Object event = GenerationPhaseEvent.begin(Phase.PARSE);
+		GenerationPhaseEvent.end(event, 100);
+		GenerationPhaseEvent.end(null, 100);
+		assumeTrue(GenerationPhaseEvent.isAvailable());
+		// The event type is registered with Flight Recorder
+		Class<?> recorderClass = Class.forName("jdk.jfr.FlightRecorder");
+		Object recorder = recorderClass.getMethod("getFlightRecorder").invoke(null);
+		Method getName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+		boolean found = false;
+		for (Object type : (List<?>) recorderClass.getMethod("getEventTypes").invoke(recorder)) {
+			found |= GenerationPhaseEvent.NAME.equals(getName.invoke(type));
+		}
+		assertTrue(found);
+	}
+}
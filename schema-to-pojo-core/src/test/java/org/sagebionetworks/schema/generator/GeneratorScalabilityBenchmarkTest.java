@@ -0,0 +1,193 @@
+package org.sagebionetworks.schema.generator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.generator.GenerationMetrics.Phase;
+import org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03;
+
+/**
+ * Measures how the generator scales with the size of the schema corpus. This
+ * is not run with the other tests. To run it:
+ *
+ * <pre>
+ * mvn test -Dbenchmark=true -Dtest=GeneratorScalabilityBenchmarkTest
+ * </pre>
+ *
+ * The corpus sizes can be changed with -Dbenchmark.sizes=100,1000 and the shape
+ * of the corpus with -Dbenchmark.properties, -Dbenchmark.depth,
+ * -Dbenchmark.interfaces, -Dbenchmark.fanIn and -Dbenchmark.recursive. The
+ * results are written to target/benchmark/scalability.csv and printed as a
+ * chart.
+ *
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class GeneratorScalabilityBenchmarkTest {
+
+	private static final String DEFAULT_SIZES = "100,500,1000,5000,10000,50000";
+	private static final int CHART_WIDTH = 60;
+
+	/**
+	 * The results of one corpus size.
+	 */
+	private static class Row {
+		int schemas;
+		GenerationMetrics metrics;
+		long peakHeapBytes;
+		long outputBytes;
+		int outputFiles;
+	}
+
+	@Test
+	public void testScalability() throws IOException, JSONObjectAdapterException, ClassNotFoundException {
+		List<Row> rows = new ArrayList<Row>();
+		for (String size : System.getProperty("benchmark.sizes", DEFAULT_SIZES).split(",")) {
+			rows.add(run(Integer.parseInt(size.trim())));
+		}
+		File resultDir = new File("target/benchmark");
+		resultDir.mkdirs();
+		File csv = new File(resultDir, "scalability.csv");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(csv), "UTF-8");
+		try {
+			writer.write(toCsv(rows));
+		} finally {
+			writer.close();
+		}
+		System.out.println(toChart(rows));
+		System.out.println("Results written to " + csv.getAbsolutePath());
+	}
+
+	private Row run(int schemaCount) throws IOException, JSONObjectAdapterException, ClassNotFoundException {
+		File sourceDir = FileUtils.createTempDirectory("corpus");
+		File outputDir = FileUtils.createTempDirectory("output");
+		try {
+			new SchemaCorpusGenerator()
+					.setSchemaCount(schemaCount)
+					.setAveragePropertyCount(Integer.getInteger("benchmark.properties", 8))
+					.setInheritanceDepth(Integer.getInteger("benchmark.depth", 2))
+					.setInterfaceFraction(Double.parseDouble(System.getProperty("benchmark.interfaces", "0.2")))
+					.setRefFanIn(Integer.getInteger("benchmark.fanIn", 4))
+					.setRecursiveFraction(Double.parseDouble(System.getProperty("benchmark.recursive", "0.05")))
+					.write(sourceDir);
+			System.gc();
+			resetPeakHeap();
+			Row row = new Row();
+			row.schemas = schemaCount;
+			row.metrics = SchemaToPojo.generatePojos(sourceDir, outputDir, "org.bench.Register", new HandlerFactoryImpl03(), new StringBuilder());
+			row.peakHeapBytes = getPeakHeap();
+			List<File> files = new ArrayList<File>();
+			collectFiles(outputDir, files);
+			for (File file : files) {
+				row.outputBytes += file.length();
+			}
+			row.outputFiles = files.size();
+			System.out.println(schemaCount + " schemas: " + row.metrics.getSummary());
+			return row;
+		} finally {
+			FileUtils.recursivelyDeleteDirectory(sourceDir);
+			FileUtils.recursivelyDeleteDirectory(outputDir);
+		}
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * The sum of the peak usage of each heap pool, an upper bound of the peak
+	 * heap.
+	 */
+	private static long getPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	private static void collectFiles(File dir, List<File> files) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.isDirectory()) {
+				collectFiles(child, files);
+			} else {
+				files.add(child);
+			}
+		}
+	}
+
+	private static String toCsv(List<Row> rows) {
+		StringBuilder builder = new StringBuilder("schemas,classes,fields,total_ms");
+		for (Phase phase : Phase.values()) {
+			builder.append(',').append(phase.name().toLowerCase()).append("_ms");
+		}
+		builder.append(",allocated_mb,peak_heap_mb,output_files,output_kb\n");
+		for (Row row : rows) {
+			GenerationMetrics metrics = row.metrics;
+			builder.append(row.schemas).append(',').append(metrics.getClassCount()).append(',').append(metrics.getFieldCount())
+					.append(',').append(metrics.getTotalNanos() / 1000000);
+			long allocated = 0;
+			for (Phase phase : Phase.values()) {
+				builder.append(',').append(metrics.getNanos(phase) / 1000000);
+				allocated += Math.max(0, metrics.getAllocatedBytes(phase));
+			}
+			builder.append(',').append(allocated / (1024 * 1024)).append(',').append(row.peakHeapBytes / (1024 * 1024)).append(',')
+					.append(row.outputFiles).append(',').append(row.outputBytes / 1024).append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * A bar for the total time and the peak heap of each size, with the time
+	 * per schema so that a change from linear growth stands out.
+	 */
+	private static String toChart(List<Row> rows) {
+		long maxNanos = 1;
+		long maxHeap = 1;
+		for (Row row : rows) {
+			maxNanos = Math.max(maxNanos, row.metrics.getTotalNanos());
+			maxHeap = Math.max(maxHeap, row.peakHeapBytes);
+		}
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%8s %10s %10s %10s  %s%n", "schemas", "total ms", "us/schema", "heap MB", "time"));
+		for (Row row : rows) {
+			long nanos = row.metrics.getTotalNanos();
+			builder.append(String.format("%8d %10d %10d %10d  %s%n", row.schemas, nanos / 1000000, nanos / 1000 / Math.max(1, row.schemas),
+					row.peakHeapBytes / (1024 * 1024), bar(nanos, maxNanos)));
+		}
+		builder.append(String.format("%n%8s %10s  %s%n", "schemas", "heap MB", "peak heap"));
+		for (Row row : rows) {
+			builder.append(String.format("%8d %10d  %s%n", row.schemas, row.peakHeapBytes / (1024 * 1024), bar(row.peakHeapBytes, maxHeap)));
+		}
+		return builder.toString();
+	}
+
+	private static String bar(long value, long max) {
+		int length = (int) Math.round((double) value * CHART_WIDTH / max);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			builder.append('#');
+		}
+		return builder.toString();
+	}
+}
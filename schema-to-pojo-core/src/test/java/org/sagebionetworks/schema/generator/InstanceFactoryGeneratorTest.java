@@ -2,6 +2,7 @@ package org.sagebionetworks.schema.generator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.sagebionetworks.schema.generator.InstanceFactoryGenerator.INSTANCE_FACTORY_SUFFIX;
 
 import java.util.ArrayList;
@@ -109,4 +110,51 @@ public class InstanceFactoryGeneratorTest {
 		expected = new HashSet<String>(Arrays.asList(threeImpl.getId()));
 		assertEquals(expected, ifg.getImplementationIdsForFactory(factoryClass));
 	}
+
+	@Test
+	public void testImplementedTwice(){
+		// Implements one directly and through three.
+		ObjectSchema twiceImpl = new ObjectSchemaImpl();
+		twiceImpl.setId("org.example.TwiceImpl");
+		twiceImpl.setType(TYPE.OBJECT);
+		twiceImpl.setImplements(new ObjectSchema[]{interfaceOne, interfaceThree});
+		all.add(twiceImpl);
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, all);
+		JDefinedClass factoryClass = ifg.getFactoryClass(interfaceOne.getId());
+		assertEquals(4, ifg.implMap.get(factoryClass).size());
+		// The generated switch must not have a duplicate case.
+		ifg.buildFactories();
+	}
+	
+	@Test
+	public void testConcreteTypeIndex(){
+		PojoGeneratorOptions options = new PojoGeneratorOptions();
+		options.setConcreteTypeIndex("org.example.Index");
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, all, options);
+		ifg.buildFactories();
+		JDefinedClass index = codeModel._getClass("org.example.Index");
+		assertNotNull(index);
+		assertNotNull(index.fields().get("CLASS_NAMES"));
+		JDefinedClass factoryClass = ifg.getFactoryClass(interfaceOne.getId());
+		assertNotNull(factoryClass.fields().get("IMPLEMENTATIONS"));
+		assertNull(factoryClass.fields().get("CLASS_NAMES"));
+	}
+	@Test
+	public void testGetInlineImplementationIds(){
+		PojoGeneratorOptions options = new PojoGeneratorOptions();
+		options.setInlineFactoryThreshold(2);
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, all, options);
+		// Three implementations
+		assertNull(ifg.getInlineImplementationIds(ifg.getFactoryClass(interfaceOne.getId())));
+		assertEquals(Arrays.asList(threeImpl.getId()), ifg.getInlineImplementationIds(ifg.getFactoryClass(interfaceThree.getId())));
+		options.setInlineFactoryThreshold(3);
+		assertEquals(Arrays.asList(bothImpl.getId(), oneImpl.getId(), threeImpl.getId()),
+				ifg.getInlineImplementationIds(ifg.getFactoryClass(interfaceOne.getId())));
+	}
+	
+	@Test
+	public void testGetInlineImplementationIdsDefault(){
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, all);
+		assertNull(ifg.getInlineImplementationIds(ifg.getFactoryClass(interfaceThree.getId())));
+	}
 }
@@ -4,12 +4,16 @@ package org.sagebionetworks.schema.generator;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -103,6 +107,20 @@ public class PojoGeneratorDriverTest {
 		assertNotNull(map.get(new String("child1")));
 		assertNotNull(map.get(new String("child2")));
 	}
+
+	@Test
+	public void testRegisterAllIdentifiedObjectSchemasKeyAndValue() {
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("root");
+		root.setType(TYPE.TUPLE_ARRAY_MAP);
+		ObjectSchema key = ObjectSchemaImpl.createNewWithId("key");
+		root.setKey(key);
+		ObjectSchema value = ObjectSchemaImpl.createNewWithId("value");
+		root.setValue(value);
+		Map<String, ObjectSchema> map = PojoGeneratorDriver.registerAllIdentifiedObjectSchemas(Collections.singletonList(root));
+		assertEquals(3, map.size());
+		assertSame(key, map.get("key"));
+		assertSame(value, map.get("value"));
+	}
 	
 	@Test
 	public void testReplaceRefrence() {
@@ -177,20 +195,130 @@ public class PojoGeneratorDriverTest {
 		// Create a third self
 		ObjectSchema self = ObjectSchemaImpl.createNewWithId(new String("self"));
 		self.setRef(new String(ObjectSchemaImpl.SELF_REFERENCE));
-		// Now add all three to the a map
-		HashMap<String, ObjectSchema> map = new HashMap<String, ObjectSchema>();
-		map.put("one", referenced);
-		map.put("two", referenceToOther);
-		map.put("three", self);
-		
-		Map<String, ObjectSchema> results = PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(registry,map, recursiveAnchors);
-		assertNotNull(results);
+		// Now add all three to the properties of a schema
+		ObjectSchema container = ObjectSchemaImpl.createNewWithId("container");
+		container.putProperty("one", referenced);
+		container.putProperty("two", referenceToOther);
+		container.putProperty("three", self);
+		Map<String, ObjectSchema> properties = container.getProperties();
+		
+		PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(registry, Collections.singletonList(container));
+		Map<String, ObjectSchema> results = container.getProperties();
+		// The references are replaced in place
+		assertSame(properties, results);
 		assertEquals(3, results.size());
 		assertEquals(referenced, results.get("one"));
 		assertEquals(referenced, results.get("two"));
 		assertEquals(self, results.get("three"));
 	}
 	
+	@Test
+	public void testFindAndReplaceAllReferencesSchemasNoReferences() {
+		ObjectSchema container = ObjectSchemaImpl.createNewWithId("container");
+		container.putProperty("one", new ObjectSchemaImpl(TYPE.STRING));
+		container.putAdditionalProperty("two", new ObjectSchemaImpl(TYPE.STRING));
+		ObjectSchema anInterface = ObjectSchemaImpl.createNewWithId("interface");
+		ObjectSchema[] implementsArray = new ObjectSchema[] { anInterface };
+		container.setImplements(implementsArray);
+		Map<String, ObjectSchema> properties = container.getProperties();
+		Map<String, ObjectSchema> additionalProperties = container.getAdditionalProperties();
+		
+		PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(new HashMap<String, ObjectSchema>(), Collections.singletonList(container));
+		assertSame(properties, container.getProperties());
+		assertSame(additionalProperties, container.getAdditionalProperties());
+		assertSame(implementsArray, container.getImplements());
+	}
+	
+	@Test
+	public void testFindAndReplaceAllReferencesSchemasSharedSubSchema() {
+		ObjectSchema referenced = ObjectSchemaImpl.createNewWithId("referenced");
+		ObjectSchema reference = new ObjectSchemaImpl();
+		reference.setRef("referenced");
+		// The same sub-schema is reachable from two roots
+		ObjectSchema shared = new ObjectSchemaImpl(TYPE.OBJECT);
+		shared.putProperty("ref", reference);
+		ObjectSchema rootOne = ObjectSchemaImpl.createNewWithId("rootOne");
+		rootOne.putProperty("shared", shared);
+		ObjectSchema rootTwo = ObjectSchemaImpl.createNewWithId("rootTwo");
+		rootTwo.putProperty("shared", shared);
+		List<ObjectSchema> list = Arrays.asList(referenced, rootOne, rootTwo);
+		
+		Map<String, ObjectSchema> register = PojoGeneratorDriver.registerAllIdentifiedObjectSchemas(list);
+		PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(register, list);
+		assertSame(referenced, shared.getProperties().get("ref"));
+	}
+	
+	@Test
+	public void testFindAndReplaceAllReferencesSchemasUnresolvedWithPath() {
+		ObjectSchema reference = new ObjectSchemaImpl();
+		reference.setRef("missing");
+		ObjectSchema list = new ObjectSchemaImpl(TYPE.ARRAY);
+		list.setItems(reference);
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("root");
+		root.putProperty("list", list);
+		
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(new HashMap<String, ObjectSchema>(), Collections.singletonList(root));
+		}).getMessage();
+		assertEquals("Cannot find the referenced schema: missing at: root#/properties/list/items", message);
+	}
+	
+	@Test
+	public void testFindAndReplaceAllReferencesSchemasFollowsReferenceChain() {
+		ObjectSchema target = ObjectSchemaImpl.createNewWithId("target");
+		ObjectSchema alias = ObjectSchemaImpl.createNewWithId("alias");
+		alias.setRef("target");
+		ObjectSchema reference = new ObjectSchemaImpl();
+		reference.setRef("alias");
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("root");
+		root.putProperty("prop", reference);
+		List<ObjectSchema> list = Arrays.asList(target, alias, root);
+		
+		Map<String, ObjectSchema> register = PojoGeneratorDriver.registerAllIdentifiedObjectSchemas(list);
+		List<ObjectSchema> results = PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(register, list);
+		assertSame(target, root.getProperties().get("prop"));
+		// the alias root is replaced with its target
+		assertSame(target, results.get(1));
+	}
+	
+	@Test
+	public void testFindAndReplaceAllReferencesSchemasCyclicReference() {
+		ObjectSchema one = ObjectSchemaImpl.createNewWithId("one");
+		one.setRef("two");
+		ObjectSchema two = ObjectSchemaImpl.createNewWithId("two");
+		two.setRef("one");
+		ObjectSchema reference = new ObjectSchemaImpl();
+		reference.setRef("one");
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("root");
+		root.putProperty("prop", reference);
+		List<ObjectSchema> list = Arrays.asList(root, one, two);
+		
+		Map<String, ObjectSchema> register = PojoGeneratorDriver.registerAllIdentifiedObjectSchemas(list);
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(register, list);
+		}).getMessage();
+		assertEquals("Found a cyclic $ref: one -> two -> one at: root#/properties/prop", message);
+	}
+	
+	@Test
+	public void testFindAndReplaceAllReferencesSchemasCyclicExtends() {
+		ObjectSchema one = ObjectSchemaImpl.createNewWithId("one");
+		ObjectSchema refToTwo = new ObjectSchemaImpl();
+		refToTwo.setRef("two");
+		one.setExtends(refToTwo);
+		ObjectSchema two = ObjectSchemaImpl.createNewWithId("two");
+		ObjectSchema refToOne = new ObjectSchemaImpl();
+		refToOne.setRef("one");
+		two.setImplements(new ObjectSchema[] { refToOne });
+		List<ObjectSchema> list = Arrays.asList(one, two);
+		
+		Map<String, ObjectSchema> register = PojoGeneratorDriver.registerAllIdentifiedObjectSchemas(list);
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(register, list);
+		}).getMessage();
+		assertEquals("Found a cycle in the type definitions: one -> two -> one", message);
+	}
+	
 	@Test
 	public void testFindAndReplaceAllReferencesSchemasFull(){
 		String referenceId = new String("rootOne");
@@ -409,6 +537,86 @@ public class PojoGeneratorDriverTest {
 		assertTrue(sibling.is$RecursiveRefInstance());
 	}
 
+	@Test
+	public void testFindAndReplaceAllReferencesSchemas_RecursiveWithExtends() throws JSONObjectAdapterException {
+		ObjectSchema inter = new ObjectSchemaImpl(TYPE.INTERFACE);
+		inter.setId("inter");
+		ObjectSchema refToInter = new ObjectSchemaImpl();
+		refToInter.setRef("inter");
+		ObjectSchema base = new ObjectSchemaImpl(TYPE.OBJECT);
+		base.setId("base");
+		base.setImplements(new ObjectSchema[] { refToInter });
+		ObjectSchema refToBase = new ObjectSchemaImpl();
+		refToBase.setRef("base");
+
+		ObjectSchema root = new ObjectSchemaImpl(TYPE.OBJECT);
+		root.setId("root");
+		root.set$recursiveAnchor(true);
+		root.setExtends(refToBase);
+		ObjectSchema child = new ObjectSchemaImpl(TYPE.ARRAY);
+		ObjectSchema items = new ObjectSchemaImpl();
+		items.set$recursiveRef("#");
+		child.setItems(items);
+		root.putProperty("children", child);
+
+		// The anchor is resolved before the class it extends.
+		List<ObjectSchema> list = new ArrayList<ObjectSchema>();
+		list.add(root);
+		list.add(base);
+		list.add(inter);
+		Map<String, ObjectSchema> register = PojoGeneratorDriver.registerAllIdentifiedObjectSchemas(list);
+		// call under test
+		list = PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(register, list);
+		ObjectSchema newRoot = list.get(0);
+		assertSame(base, newRoot.getExtends());
+		items = newRoot.getProperties().get("children").getItems();
+		assertTrue(items.is$RecursiveRefInstance());
+		// The copy must extend the resolved class and its resolved interface.
+		assertEquals("base", items.getExtends().getId());
+		assertNull(items.getExtends().getRef());
+		assertEquals("inter", items.getExtends().getImplements()[0].getId());
+		assertNull(items.getExtends().getImplements()[0].getRef());
+	}
+
+	@Test
+	public void testFindAndReplaceAllReferencesSchemas_RecursiveImplementsChain() throws JSONObjectAdapterException {
+		ObjectSchema base = new ObjectSchemaImpl(TYPE.INTERFACE);
+		base.setId("base");
+		ObjectSchema refToBase = new ObjectSchemaImpl();
+		refToBase.setRef("base");
+		ObjectSchema inter = new ObjectSchemaImpl(TYPE.INTERFACE);
+		inter.setId("inter");
+		inter.setImplements(new ObjectSchema[] { refToBase });
+		ObjectSchema refToInter = new ObjectSchemaImpl();
+		refToInter.setRef("inter");
+
+		ObjectSchema root = new ObjectSchemaImpl(TYPE.OBJECT);
+		root.setId("root");
+		root.set$recursiveAnchor(true);
+		root.setImplements(new ObjectSchema[] { refToInter });
+		ObjectSchema parent = new ObjectSchemaImpl();
+		parent.set$recursiveRef("#");
+		root.putProperty("parent", parent);
+
+		// The anchor is resolved before the interfaces it implements.
+		List<ObjectSchema> list = new ArrayList<ObjectSchema>();
+		list.add(root);
+		list.add(inter);
+		list.add(base);
+		Map<String, ObjectSchema> register = PojoGeneratorDriver.registerAllIdentifiedObjectSchemas(list);
+		// call under test
+		list = PojoGeneratorDriver.findAndReplaceAllReferencesSchemas(register, list);
+		ObjectSchema newRoot = list.get(0);
+		assertSame(inter, newRoot.getImplements()[0]);
+		parent = newRoot.getProperties().get("parent");
+		assertTrue(parent.is$RecursiveRefInstance());
+		// The copy must implement the resolved interface.
+		assertEquals("inter", parent.getImplements()[0].getId());
+		assertNull(parent.getImplements()[0].getRef());
+		assertEquals("base", parent.getImplements()[0].getImplements()[0].getId());
+		assertNull(parent.getImplements()[0].getImplements()[0].getRef());
+	}
+
 	@Test
 	public void testRecursivlyCreateAllTypesNumber() throws ClassNotFoundException{
 		ObjectSchema schema = new ObjectSchemaImpl();
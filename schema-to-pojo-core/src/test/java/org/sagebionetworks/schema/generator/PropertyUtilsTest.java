@@ -2,6 +2,9 @@ package org.sagebionetworks.schema.generator;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,7 +15,10 @@ import org.sagebionetworks.schema.TYPE;
 import com.sun.codemodel.JClassAlreadyExistsException;
 import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
 import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
 import com.sun.codemodel.JPackage;
 
@@ -77,4 +83,30 @@ class PropertyUtilsTest {
 		assertEquals(TYPE.STRING, type);
 	}
 
+	@Test
+	public void testAddDecodeLazy(){
+		jDefinedClass.method(JMod.PRIVATE, void.class, PropertyUtils.DECODE_LAZY_METHOD_NAME);
+		JMethod method = jDefinedClass.method(JMod.PUBLIC, void.class, "test");
+		// method under test
+		PropertyUtils.addDecodeLazy(jDefinedClass, method.body(), null);
+		PropertyUtils.addDecodeLazy(jDefinedClass, method.body(), JExpr.ref("other"));
+		String body = declare(method);
+		assertTrue(body.indexOf(" __decodeLazy();") > 0);
+		assertTrue(body.indexOf("other.__decodeLazy();") > 0);
+	}
+
+	@Test
+	public void testAddDecodeLazy_noLazyProperties(){
+		JMethod method = jDefinedClass.method(JMod.PUBLIC, void.class, "test");
+		// method under test
+		PropertyUtils.addDecodeLazy(jDefinedClass, method.body(), null);
+		assertEquals(0, method.body().getContents().size());
+	}
+
+	private static String declare(JMethod method){
+		StringWriter writer = new StringWriter();
+		method.declare(new JFormatter(writer));
+		return writer.toString();
+	}
+
 }
\ No newline at end of file
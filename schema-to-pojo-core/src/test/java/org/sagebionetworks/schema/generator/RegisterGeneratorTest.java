@@ -21,7 +21,7 @@ import com.sun.codemodel.JClassAlreadyExistsException;
 import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JDefinedClass;
 import com.sun.codemodel.JExpr;
-import com.sun.codemodel.JFieldRef;
+import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JFormatter;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
@@ -86,41 +86,19 @@ public class RegisterGeneratorTest {
 	}
 	
 	@Test
-	public void testCreateMapRef() throws JClassAlreadyExistsException{
+	public void testCreateClassNamesField() throws JClassAlreadyExistsException{
 		JCodeModel codeModel = new JCodeModel();
 		JPackage _package = codeModel._package("org.sample");
-		// Create the enum
-		JDefinedClass testClass = _package._class("Test");
-		JFieldRef mapRef = RegisterGenerator.createMapFieldRef(codeModel, testClass);
-		assertNotNull(mapRef);
-	}
-	
-	/**
-	 * Test
-	 * 
-	 * @throws JClassAlreadyExistsException
-	 */
-	@Test
-	public void testCreateConstructor() throws JClassAlreadyExistsException {
-		JCodeModel codeModel = new JCodeModel();
-		JPackage _package = codeModel._package("org.sample");
-		// Create the enum
 		JDefinedClass testClass = _package._class("Test");
-		JFieldRef mapRef = RegisterGenerator.createMapFieldRef(codeModel, testClass);
-		JMethod method = RegisterGenerator.createConstructor(codeModel, list, testClass, mapRef);
-		assertNotNull(method);
+		JFieldVar field = RegisterGenerator.createClassNamesField(codeModel, list, testClass);
+		assertNotNull(field);
 		StringWriter writer = new StringWriter();
 		JFormatter formatter = new JFormatter(writer);
-		method.declare(formatter);
-		String methodValue = writer.toString();
-//		System.out.println(methodValue);
-		assertTrue(methodValue.indexOf("public Test() {") >= 0);
-		assertTrue(methodValue.indexOf("this.map = new java.util.HashMap<java.lang.String, java.lang.Integer>();") > 0);
-		assertTrue(methodValue.indexOf("this.map.put(org.example.One.class.getName(), 0);") > 0);
-		assertTrue(methodValue.indexOf("this.map.put(org.example.Two.class.getName(), 1);") > 0);
+		testClass.declare(formatter);
+		String value = writer.toString();
+		assertTrue(value.indexOf("private final static java.lang.String[] CLASS_NAMES = new java.lang.String[] {\"org.example.One\", \"org.example.Two\"};") > 0);
 	}
 	
-	
 	/**
 	 * Test
 	 * 
@@ -132,8 +110,7 @@ public class RegisterGeneratorTest {
 		JPackage _package = codeModel._package("org.sample");
 		// Create the enum
 		JDefinedClass testClass = _package._class("Test");
-		JFieldRef mapRef = RegisterGenerator.createMapFieldRef(codeModel, testClass);
-		JMethod method = RegisterGenerator.createNewInstanceMethod(codeModel, list, testClass, mapRef, JSONEntity.class.getName());
+		JMethod method = RegisterGenerator.createNewInstanceMethod(codeModel, list, testClass, JSONEntity.class.getName());
 		assertNotNull(method);
 		StringWriter writer = new StringWriter();
 		JFormatter formatter = new JFormatter(writer);
@@ -141,15 +118,15 @@ public class RegisterGeneratorTest {
 		String methodValue = writer.toString();
 		System.out.println(methodValue);
 		assertTrue(methodValue.indexOf("public org.sagebionetworks.schema.adapter.JSONEntity newInstance(java.lang.String className) {") >= 0);
-		assertTrue(methodValue.indexOf("java.lang.Integer intObject = this.map.get(className);") > 0);
-		assertTrue(methodValue.indexOf("if (intObject == null) {") > 0);
+		assertTrue(methodValue.indexOf("if (className == null) {") > 0);
 		assertTrue(methodValue.indexOf("throw new java.lang.IllegalArgumentException((\"Cannot create new instance. Unknown class: \"+ className));") > 0);
-		assertTrue(methodValue.indexOf("int index = intObject.intValue();") > 0);
-		assertTrue(methodValue.indexOf("switch (index) {") > 0);
-		assertTrue(methodValue.indexOf("case  0 :") > 0);
+		assertTrue(methodValue.indexOf("switch (className) {") > 0);
+		assertTrue(methodValue.indexOf("case \"org.example.One\":") > 0);
 		assertTrue(methodValue.indexOf("return new org.example.One();") > 0);
+		assertTrue(methodValue.indexOf("case \"org.example.Two\":") > 0);
+		assertTrue(methodValue.indexOf("return new org.example.Two();") > 0);
 		assertTrue(methodValue.indexOf("default:") > 0);
-		assertTrue(methodValue.indexOf("throw new java.lang.IllegalStateException((((\"No match found for index: \"+ index)+\" for class name: \")+ className));") > 0);
+		assertFalse(methodValue.indexOf("java.lang.Integer") > 0);
 	}
 	
 	/**
@@ -163,8 +140,8 @@ public class RegisterGeneratorTest {
 		JPackage _package = codeModel._package("org.sample");
 		// Create the enum
 		JDefinedClass testClass = _package._class("Test");
-		JFieldRef mapRef = RegisterGenerator.createMapFieldRef(codeModel, testClass);
-		JMethod method = RegisterGenerator.createKeySetIterator(codeModel, testClass, mapRef);
+		JFieldVar classNames = RegisterGenerator.createClassNamesField(codeModel, list, testClass);
+		JMethod method = RegisterGenerator.createKeySetIterator(codeModel, testClass, classNames);
 		assertNotNull(method);
 		StringWriter writer = new StringWriter();
 		JFormatter formatter = new JFormatter(writer);
@@ -173,7 +150,7 @@ public class RegisterGeneratorTest {
 		System.out.println(methodValue);
 		assertTrue(methodValue.indexOf("Get the key set iterator.") >= 0);
 		assertTrue(methodValue.indexOf("public java.util.Iterator<java.lang.String> getKeySetIterator() {") > 0);
-		assertTrue(methodValue.indexOf("return this.map.keySet().iterator();") > 0);
+		assertTrue(methodValue.indexOf("return java.util.Arrays.asList(CLASS_NAMES).iterator();") > 0);
 	}
 
 	@Test
@@ -188,7 +165,8 @@ public class RegisterGeneratorTest {
 		String value = writer.toString();
 //		System.out.println(writer.toString());
 		assertTrue(value.indexOf("Note: This class was auto-generated, and should not be directly modified") > 0);
-		assertTrue(value.indexOf("private java.util.Map<java.lang.String, java.lang.Integer> map;") > 0);
+		assertTrue(value.indexOf("private final static java.lang.String[] CLASS_NAMES") > 0);
+		assertFalse(value.indexOf("java.util.Map") > 0);
 	}
 	
 	@Test
@@ -255,9 +233,10 @@ public class RegisterGeneratorTest {
 		def.declare(formatter);
 		String value = writer.toString();
 		System.out.println(writer.toString());
-		assertTrue(value.indexOf("private final static org.example.Register SINGLETON = new org.example.Register();") > 0);
+		assertTrue(value.indexOf("private static class SingletonHolder {") > 0);
+		assertTrue(value.indexOf("private final static org.example.Register SINGLETON = new org.example.Register();") > value.indexOf("private static class SingletonHolder {"));
 		assertTrue(value.indexOf("public static org.example.Register singleton() {") > 0);
-		assertTrue(value.indexOf("return SINGLETON;") > 0);
+		assertTrue(value.indexOf("return org.example.Register.SingletonHolder.SINGLETON;") > 0);
 	}
 
 
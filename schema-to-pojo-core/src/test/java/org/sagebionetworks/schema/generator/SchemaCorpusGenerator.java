@@ -0,0 +1,186 @@
+package org.sagebionetworks.schema.generator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a synthetic corpus of schema files with a configurable shape, used to
+ * measure how the generator scales.
+ * <p>
+ * The corpus is made of chains of interfaces, where each interface implements
+ * the previous interface of its chain, and of concrete types that implement the
+ * last interface of a chain. Concrete types have properties of each of the
+ * basic types, $ref properties to other concrete types and, for a fraction of
+ * them, a $recursiveAnchor with $recursiveRef properties. The same seed always
+ * produces the same corpus.
+ *
+ */
+public class SchemaCorpusGenerator {
+
+	public static final String PACKAGE_PREFIX = "org.bench.p";
+	private static final int PACKAGE_COUNT = 10;
+	private static final String[] PROPERTY_TYPES = new String[] {
+			"{\"type\":\"string\"}",
+			"{\"type\":\"integer\"}",
+			"{\"type\":\"number\"}",
+			"{\"type\":\"boolean\"}",
+			"{\"type\":\"string\",\"format\":\"date-time\"}",
+			"{\"type\":\"array\",\"items\":{\"type\":\"string\"}}" };
+
+	private int schemaCount = 100;
+	private int averagePropertyCount = 8;
+	private int inheritanceDepth = 2;
+	private double interfaceFraction = 0.2;
+	private int refFanIn = 4;
+	private double recursiveFraction = 0.05;
+	private long seed = 42;
+
+	/**
+	 * The total number of schema files, interfaces included.
+	 */
+	public SchemaCorpusGenerator setSchemaCount(int schemaCount) {
+		this.schemaCount = schemaCount;
+		return this;
+	}
+
+	/**
+	 * The average number of basic properties of each schema.
+	 */
+	public SchemaCorpusGenerator setAveragePropertyCount(int averagePropertyCount) {
+		this.averagePropertyCount = averagePropertyCount;
+		return this;
+	}
+
+	/**
+	 * The number of interfaces in each implements chain.
+	 */
+	public SchemaCorpusGenerator setInheritanceDepth(int inheritanceDepth) {
+		this.inheritanceDepth = inheritanceDepth;
+		return this;
+	}
+
+	/**
+	 * The fraction of the schemas that are interfaces.
+	 */
+	public SchemaCorpusGenerator setInterfaceFraction(double interfaceFraction) {
+		this.interfaceFraction = interfaceFraction;
+		return this;
+	}
+
+	/**
+	 * The number of $ref properties that point to each referenced type. Zero
+	 * for no $ref properties.
+	 */
+	public SchemaCorpusGenerator setRefFanIn(int refFanIn) {
+		this.refFanIn = refFanIn;
+		return this;
+	}
+
+	/**
+	 * The fraction of the concrete types that are a $recursiveAnchor.
+	 */
+	public SchemaCorpusGenerator setRecursiveFraction(double recursiveFraction) {
+		this.recursiveFraction = recursiveFraction;
+		return this;
+	}
+
+	public SchemaCorpusGenerator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Write the corpus to the given directory. Each schema is written to a
+	 * package directory under the root.
+	 *
+	 * @param root
+	 * @return The ids of the concrete types that were written.
+	 * @throws IOException
+	 */
+	public List<String> write(File root) throws IOException {
+		Random random = new Random(seed);
+		int interfaceCount = Math.min(schemaCount, (int) Math.round(schemaCount * interfaceFraction));
+		int depth = Math.max(1, inheritanceDepth);
+		// The last interface of each chain.
+		List<String> chainEnds = new ArrayList<String>();
+		for (int i = 0; i < interfaceCount; i++) {
+			String id = getId("Interface", i);
+			StringBuilder json = new StringBuilder();
+			json.append("{\"type\":\"interface\",\"properties\":{");
+			appendProperties(json, "i" + i + "p", random);
+			json.append("}");
+			if (i % depth != 0) {
+				json.append(",\"implements\":[{\"$ref\":\"").append(getId("Interface", i - 1)).append("\"}]");
+			}
+			if (i % depth == depth - 1 || i == interfaceCount - 1) {
+				chainEnds.add(id);
+			}
+			json.append("}");
+			writeSchema(root, id, json);
+		}
+		List<String> types = new ArrayList<String>();
+		int typeCount = schemaCount - interfaceCount;
+		for (int i = 0; i < typeCount; i++) {
+			String id = getId("Type", i);
+			StringBuilder json = new StringBuilder();
+			json.append("{\"type\":\"object\"");
+			boolean recursive = random.nextDouble() < recursiveFraction;
+			if (recursive) {
+				json.append(",\"$recursiveAnchor\":true");
+			}
+			json.append(",\"properties\":{");
+			appendProperties(json, "p", random);
+			if (refFanIn > 0 && i >= refFanIn) {
+				// Each earlier type is referenced by refFanIn types.
+				json.append(",\"ref\":{\"$ref\":\"").append(getId("Type", i / refFanIn - 1)).append("\"}");
+			}
+			if (recursive) {
+				json.append(",\"children\":{\"type\":\"array\",\"items\":{\"$recursiveRef\":\"#\"}}");
+				json.append(",\"parent\":{\"$recursiveRef\":\"#\"}");
+			}
+			json.append("}");
+			if (!chainEnds.isEmpty()) {
+				json.append(",\"implements\":[{\"$ref\":\"").append(chainEnds.get(i % chainEnds.size())).append("\"}]");
+			}
+			json.append("}");
+			writeSchema(root, id, json);
+			types.add(id);
+		}
+		return types;
+	}
+
+	private void appendProperties(StringBuilder json, String prefix, Random random) {
+		int count = averagePropertyCount <= 0 ? 0 : 1 + random.nextInt(averagePropertyCount * 2 - 1);
+		for (int j = 0; j < count; j++) {
+			if (j > 0) {
+				json.append(",");
+			}
+			json.append("\"").append(prefix).append(j).append("\":").append(PROPERTY_TYPES[random.nextInt(PROPERTY_TYPES.length)]);
+		}
+		if (count == 0) {
+			// Keep the JSON valid for the properties added after these.
+			json.append("\"").append(prefix).append("0\":").append(PROPERTY_TYPES[0]);
+		}
+	}
+
+	private static String getId(String prefix, int index) {
+		return PACKAGE_PREFIX + (index % PACKAGE_COUNT) + "." + prefix + index;
+	}
+
+	private static void writeSchema(File root, String id, StringBuilder json) throws IOException {
+		File file = new File(root, id.replace('.', File.separatorChar) + ".json");
+		file.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(json.toString());
+		} finally {
+			writer.close();
+		}
+	}
+}
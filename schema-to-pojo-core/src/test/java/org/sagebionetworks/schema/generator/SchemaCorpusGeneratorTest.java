@@ -0,0 +1,55 @@
+package org.sagebionetworks.schema.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03;
+
+/**
+ * Makes sure the corpus used by {@link GeneratorScalabilityBenchmarkTest} can
+ * be generated.
+ */
+public class SchemaCorpusGeneratorTest {
+
+	File sourceDir;
+	File outputDir;
+
+	@BeforeEach
+	public void before() throws IOException {
+		sourceDir = FileUtils.createTempDirectory("corpus");
+		outputDir = FileUtils.createTempDirectory("output");
+	}
+
+	@AfterEach
+	public void after() {
+		FileUtils.recursivelyDeleteDirectory(sourceDir);
+		FileUtils.recursivelyDeleteDirectory(outputDir);
+	}
+
+	@Test
+	public void testGenerateCorpus() throws IOException, JSONObjectAdapterException, ClassNotFoundException {
+		List<String> types = new SchemaCorpusGenerator()
+				.setSchemaCount(60)
+				.setInheritanceDepth(3)
+				.setInterfaceFraction(0.25)
+				.setRefFanIn(2)
+				.setRecursiveFraction(0.2)
+				.write(sourceDir);
+		assertEquals(45, types.size());
+		GenerationMetrics metrics = SchemaToPojo.generatePojos(sourceDir, outputDir, "org.bench.Register", new HandlerFactoryImpl03(),
+				new StringBuilder());
+		assertEquals(60, metrics.getSchemaCount());
+		for (String id : types) {
+			File file = new File(outputDir, id.replace('.', File.separatorChar) + ".java");
+			assertTrue(file.exists(), file.getAbsolutePath());
+		}
+	}
+}
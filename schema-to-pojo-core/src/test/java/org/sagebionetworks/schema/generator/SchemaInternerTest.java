@@ -0,0 +1,91 @@
+package org.sagebionetworks.schema.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.FORMAT;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+
+public class SchemaInternerTest {
+
+	private static ObjectSchema createDate() {
+		ObjectSchema date = new ObjectSchemaImpl(TYPE.STRING);
+		date.setFormat(FORMAT.DATE_TIME);
+		return date;
+	}
+
+	@Test
+	public void testIntern() {
+		ObjectSchema one = ObjectSchemaImpl.createNewWithId("org.sample.One");
+		one.putProperty("createdOn", createDate());
+		one.putProperty("modifiedOn", createDate());
+		ObjectSchema two = ObjectSchemaImpl.createNewWithId("org.sample.Two");
+		ObjectSchema list = new ObjectSchemaImpl(TYPE.ARRAY);
+		list.setItems(createDate());
+		two.putProperty("dates", list);
+
+		int saved = new SchemaInterner().intern(Arrays.asList(one, two));
+		assertEquals(2, saved);
+		ObjectSchema canonical = one.getProperties().get("createdOn");
+		assertSame(canonical, one.getProperties().get("modifiedOn"));
+		assertSame(canonical, list.getItems());
+	}
+
+	@Test
+	public void testInternNested() {
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("org.sample.Root");
+		for (String name : new String[] { "a", "b", "c" }) {
+			ObjectSchema list = new ObjectSchemaImpl(TYPE.ARRAY);
+			list.setItems(createDate());
+			root.putProperty(name, list);
+		}
+		// Two of the lists and their items are no longer used.
+		assertEquals(4, new SchemaInterner().intern(Collections.singletonList(root)));
+		assertSame(root.getProperties().get("a"), root.getProperties().get("b"));
+		assertSame(root.getProperties().get("a"), root.getProperties().get("c"));
+	}
+
+	@Test
+	public void testInternNamed() {
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("org.sample.Root");
+		ObjectSchema one = createDate();
+		one.setName("Named");
+		ObjectSchema two = createDate();
+		two.setName("Named");
+		root.putProperty("one", one);
+		root.putProperty("two", two);
+		// Named schemas are given an id by the generator so they are not shared.
+		assertEquals(0, new SchemaInterner().intern(Collections.singletonList(root)));
+		assertNotSame(root.getProperties().get("one"), root.getProperties().get("two"));
+	}
+
+	@Test
+	public void testInternRecursiveRef() {
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("org.sample.Root");
+		for (String name : new String[] { "one", "two" }) {
+			ObjectSchema list = new ObjectSchemaImpl(TYPE.ARRAY);
+			ObjectSchema ref = new ObjectSchemaImpl();
+			ref.set$recursiveRef(ObjectSchemaImpl.SELF_REFERENCE);
+			list.setItems(ref);
+			root.putProperty(name, list);
+		}
+		// What a $recursiveRef resolves to depends on where it is.
+		assertEquals(0, new SchemaInterner().intern(Collections.singletonList(root)));
+		assertNotSame(root.getProperties().get("one"), root.getProperties().get("two"));
+	}
+
+	@Test
+	public void testInternDifferent() {
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("org.sample.Root");
+		root.putProperty("one", createDate());
+		root.putProperty("two", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(0, new SchemaInterner().intern(Collections.singletonList(root)));
+	}
+}
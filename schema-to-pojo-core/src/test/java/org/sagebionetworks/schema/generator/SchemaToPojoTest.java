@@ -6,12 +6,15 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.util.Iterator;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.generator.GenerationMetrics.Phase;
 import org.sagebionetworks.schema.generator.handler.HandlerFactory;
 import org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03;
 
@@ -65,6 +68,58 @@ public class SchemaToPojoTest {
 		System.out.println(resultString);
 	}
 
+	@Test
+	public void loadAllFilesMetrics() throws IOException,
+			JSONObjectAdapterException, ClassNotFoundException {
+		File sampleFile = new File("src/test/resources");
+		HandlerFactory factory = new HandlerFactoryImpl03();
+		GenerationMetrics metrics = SchemaToPojo.generatePojos(sampleFile, outputDir,"org.sample.Register", factory, new StringBuilder());
+		assertNotNull(metrics);
+		assertTrue(metrics.getSchemaCount() > 0);
+		assertTrue(metrics.getClassCount() > 0);
+		assertTrue(metrics.getFieldCount() > 0);
+		assertTrue(metrics.getFilesWritten() > 0);
+		assertEquals(0, metrics.getFilesSkipped());
+		assertTrue(metrics.getNanos(Phase.PARSE) > 0);
+		assertTrue(metrics.getNanos(Phase.CREATE_TYPES) > 0);
+		assertTrue(metrics.getNanos(Phase.WRITE_SOURCES) > 0);
+		// Nothing changed so nothing is written the second time.
+		GenerationMetrics second = SchemaToPojo.generatePojos(sampleFile, outputDir,"org.sample.Register", factory, new StringBuilder());
+		assertEquals(0, second.getFilesWritten());
+		assertEquals(metrics.getFilesWritten(), second.getFilesSkipped());
+	}
+
+	@Test
+	public void loadAllFilesInterned() throws IOException,
+			JSONObjectAdapterException, ClassNotFoundException {
+		File sampleFile = new File("src/test/resources");
+		HandlerFactory factory = new HandlerFactoryImpl03();
+		SchemaToPojo.generatePojos(sampleFile, outputDir,"org.sample.Register", factory, new StringBuilder());
+		File internedDir = FileUtils.createTempDirectory("interned");
+		try {
+			PojoGeneratorOptions options = new PojoGeneratorOptions();
+			options.setInternSubSchemas(true);
+			StringBuilder log = new StringBuilder();
+			SchemaToPojo.generatePojos(sampleFile, internedDir,"org.sample.Register", factory, options, log);
+			assertTrue(log.toString().contains("Interned sub-schemas: "));
+			// Interning must not change the generated classes.
+			Iterator<File> it = FileUtils.getRecursiveIterator(outputDir, new FileFilter() {
+				@Override
+				public boolean accept(File pathname) {
+					return pathname.getName().endsWith(".java");
+				}
+			});
+			assertTrue(it.hasNext());
+			while (it.hasNext()) {
+				File file = it.next();
+				File interned = new File(internedDir, file.getAbsolutePath().substring(outputDir.getAbsolutePath().length()));
+				assertEquals(FileUtils.readToString(file), FileUtils.readToString(interned), file.getName());
+			}
+		} finally {
+			FileUtils.recursivelyDeleteDirectory(internedDir);
+		}
+	}
+
 	@Test
 	public void loadAllFiles() throws IOException,
 			JSONObjectAdapterException, ClassNotFoundException {
@@ -0,0 +1,97 @@
+package org.sagebionetworks.schema.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03;
+
+public class SchemaWatcherTest {
+
+	File sourceDir;
+	File outputDir;
+	SchemaWatcher watcher;
+
+	@BeforeEach
+	public void before() throws IOException {
+		sourceDir = FileUtils.createTempDirectory("source");
+		outputDir = FileUtils.createTempDirectory("output");
+		watcher = new SchemaWatcher(sourceDir, outputDir, "org.sample.Register", new HandlerFactoryImpl03());
+	}
+
+	@AfterEach
+	public void after() throws IOException {
+		watcher.close();
+		FileUtils.recursivelyDeleteDirectory(sourceDir);
+		FileUtils.recursivelyDeleteDirectory(outputDir);
+	}
+
+	private File writeSchema(String name, String json) throws IOException {
+		File file = new File(sourceDir, "org/sample/" + name + ".json");
+		file.getParentFile().mkdirs();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(json.getBytes("UTF-8"));
+		}
+		return file;
+	}
+
+	@Test
+	public void testGenerateOnlyReadsChangedFiles() throws Exception {
+		File one = writeSchema("One", "{\"properties\":{\"name\":{\"type\":\"string\"}}}");
+		writeSchema("Two", "{\"properties\":{\"count\":{\"type\":\"integer\"}}}");
+		StringBuilder log = new StringBuilder();
+		watcher.generate(log);
+		assertTrue(log.toString().contains("One.json"));
+		assertTrue(log.toString().contains("Two.json"));
+		File oneJava = new File(outputDir, "org/sample/One.java");
+		File twoJava = new File(outputDir, "org/sample/Two.java");
+		assertTrue(oneJava.exists());
+		assertTrue(twoJava.exists());
+
+		// change a single file
+		writeSchema("One", "{\"properties\":{\"name\":{\"type\":\"string\"},\"other\":{\"type\":\"string\"}}}");
+		one.setLastModified(one.lastModified() + 2000);
+		log = new StringBuilder();
+		watcher.generate(log);
+		assertTrue(log.toString().contains("Read " + one));
+		assertFalse(log.toString().contains("Two.json"));
+		assertTrue(log.toString().contains("Not overwriting " + twoJava));
+		assertTrue(FileUtils.readToString(oneJava).contains("other"));
+	}
+
+	@Test
+	public void testGenerateDeletesRemovedClasses() throws Exception {
+		writeSchema("One", "{\"properties\":{\"name\":{\"type\":\"string\"}}}");
+		File two = writeSchema("Two", "{\"properties\":{\"count\":{\"type\":\"integer\"}}}");
+		watcher.generate(new StringBuilder());
+		File twoJava = new File(outputDir, "org/sample/Two.java");
+		File twoEffective = new File(outputDir, "org/sample/Two-effective.json");
+		assertTrue(twoJava.exists());
+		assertTrue(twoEffective.exists());
+
+		assertTrue(two.delete());
+		StringBuilder log = new StringBuilder();
+		watcher.generate(log);
+		assertFalse(twoJava.exists());
+		assertFalse(twoEffective.exists());
+		assertTrue(new File(outputDir, "org/sample/One.java").exists());
+		assertTrue(log.toString().contains("Deleted " + twoJava));
+	}
+
+	@Test
+	public void testSourceMustBeDirectory() throws Exception {
+		File file = writeSchema("One", "{}");
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			new SchemaWatcher(file, outputDir, null, new HandlerFactoryImpl03());
+		}).getMessage();
+		assertEquals("schemaSource must be a directory: " + file, message);
+	}
+}
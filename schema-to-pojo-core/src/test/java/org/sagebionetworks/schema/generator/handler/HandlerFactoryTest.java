@@ -0,0 +1,107 @@
+package org.sagebionetworks.schema.generator.handler;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03;
+
+import com.sun.codemodel.JClassAlreadyExistsException;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+
+public class HandlerFactoryTest {
+
+	/**
+	 * A factory that does not provide the optional handlers.
+	 */
+	static class MinimalHandlerFactory implements HandlerFactory {
+
+		HandlerFactory delegate = new HandlerFactoryImpl03();
+
+		@Override
+		public TypeCreatorHandler getTypeCreatorHandler() {
+			return delegate.getTypeCreatorHandler();
+		}
+
+		@Override
+		public PropertyHandler getPropertyHandler() {
+			return delegate.getPropertyHandler();
+		}
+
+		@Override
+		public JSONMarshalingHandler getJSONMArshalingHandler() {
+			return delegate.getJSONMArshalingHandler();
+		}
+
+		@Override
+		public HashAndEqualsHandler getHashAndEqualsHandler() {
+			return delegate.getHashAndEqualsHandler();
+		}
+
+		@Override
+		public ToStringHandler getToStringHandler() {
+			return delegate.getToStringHandler();
+		}
+	}
+
+	HandlerFactory factory;
+	ObjectSchema schema;
+	JDefinedClass sampleClass;
+
+	@BeforeEach
+	public void before() throws JClassAlreadyExistsException {
+		factory = new MinimalHandlerFactory();
+		schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		sampleClass = new JCodeModel()._package("org.sample")._class("Sample");
+	}
+
+	@Test
+	public void testGetCopyHandlerDefault() {
+		CopyHandler handler = factory.getCopyHandler();
+		assertNotNull(handler);
+		handler.addCopy(schema, sampleClass);
+		// The default handler adds nothing.
+		assertFalse(sampleClass.methods().iterator().hasNext());
+	}
+
+	@Test
+	public void testGetFieldAccessHandlerDefault() {
+		FieldAccessHandler handler = factory.getFieldAccessHandler();
+		assertNotNull(handler);
+		handler.addFieldAccess(schema, sampleClass);
+		// The default handler adds nothing.
+		assertFalse(sampleClass.methods().iterator().hasNext());
+	}
+
+	@Test
+	public void testGetExternalizableHandlerDefault() {
+		ExternalizableHandler handler = factory.getExternalizableHandler();
+		assertNotNull(handler);
+		handler.addExternalizable(schema, sampleClass);
+		// The default handler adds nothing.
+		assertFalse(sampleClass.methods().iterator().hasNext());
+	}
+
+	@Test
+	public void testGetFingerprintHandlerDefault() {
+		FingerprintHandler handler = factory.getFingerprintHandler();
+		assertNotNull(handler);
+		handler.addFingerprint(schema, sampleClass);
+		// The default handler adds nothing.
+		assertFalse(sampleClass.methods().iterator().hasNext());
+	}
+
+	@Test
+	public void testGetValidationHandlerDefault() {
+		ValidationHandler handler = factory.getValidationHandler();
+		assertNotNull(handler);
+		handler.addValidation(schema, sampleClass);
+		// The default handler adds nothing.
+		assertFalse(sampleClass.methods().iterator().hasNext());
+	}
+}
@@ -0,0 +1,148 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDeclaration;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+
+public class CopyHandlerImpl03Test {
+
+	ObjectSchema schema;
+	JCodeModel codeModel;
+	JDefinedClass sampleClass;
+	JDefinedClass nestedClass;
+	JDefinedClass enumClass;
+
+	@BeforeEach
+	public void before() throws Exception {
+		schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		codeModel = new JCodeModel();
+		sampleClass = codeModel._class("Sample");
+		nestedClass = codeModel._class("Nested");
+		enumClass = codeModel._package("")._enum("Color");
+	}
+
+	private void addProperty(String name, TYPE type, JType javaType) {
+		schema.putProperty(name, new ObjectSchemaImpl(type));
+		sampleClass.field(JMod.PRIVATE, javaType, name);
+	}
+
+	@Test
+	public void testDisabled() {
+		// call under test
+		new CopyHandlerImpl03().addCopy(schema, sampleClass);
+		assertFalse(declare(sampleClass).indexOf("copy()") > 0);
+	}
+
+	@Test
+	public void testAddCopy() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class));
+		addProperty("color", TYPE.STRING, enumClass);
+		addProperty("created", TYPE.STRING, codeModel.ref(Date.class));
+		addProperty("nested", TYPE.OBJECT, nestedClass);
+		addProperty("count", TYPE.INTEGER, codeModel.LONG);
+		// call under test
+		new CopyHandlerImpl03(true, false).addCopy(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("public Sample copy() {") > 0);
+		assertTrue(value.indexOf("return new Sample(this);") > 0);
+		assertTrue(value.indexOf("public Sample(Sample other) {") > 0);
+		assertTrue(value.indexOf("super();") > 0);
+		assertTrue(value.indexOf("this.name = other.name;") > 0);
+		assertTrue(value.indexOf("this.color = other.color;") > 0);
+		assertTrue(value.indexOf("this.created = ((other.created == null)?null:new java.util.Date(other.created.getTime()));") > 0);
+		assertTrue(value.indexOf("this.nested = ((other.nested == null)?null:other.nested.copy());") > 0);
+		assertTrue(value.indexOf("this.count = other.count;") > 0);
+		assertFalse(value.indexOf("@java.lang.Override") > 0);
+	}
+
+	@Test
+	public void testAddCopyList() {
+		addProperty("names", TYPE.ARRAY, codeModel.ref(List.class).narrow(String.class));
+		addProperty("nested", TYPE.ARRAY, codeModel.ref(List.class).narrow(nestedClass));
+		// call under test
+		new CopyHandlerImpl03(true, false).addCopy(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("this.names = ((other.names == null)?null:new java.util.ArrayList<java.lang.String>(other.names));") > 0);
+		assertTrue(value.indexOf("java.util.List<Nested> __nested = new java.util.ArrayList<Nested>(other.nested.size());") > 0);
+		assertTrue(value.indexOf("for (Nested __value: other.nested) {") > 0);
+		assertTrue(value.indexOf("__nested.add(((__value == null)?null:__value.copy()));") > 0);
+		assertTrue(value.indexOf("this.nested = __nested;") > 0);
+	}
+
+	@Test
+	public void testAddCopyMap() {
+		addProperty("map", TYPE.MAP, codeModel.ref(Map.class).narrow(codeModel.ref(String.class), nestedClass));
+		// call under test
+		new CopyHandlerImpl03(true, false).addCopy(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("new java.util.LinkedHashMap<java.lang.String, Nested>(other.map.size());") > 0);
+		assertTrue(value.indexOf("__map.put(__entry.getKey(), ((__entry.getValue() == null)?null:__entry.getValue().copy()));") > 0);
+	}
+
+	@Test
+	public void testAddCopyExtends() throws Exception {
+		ObjectSchema childSchema = new ObjectSchemaImpl(TYPE.OBJECT);
+		childSchema.setExtends(schema);
+		JDefinedClass childClass = codeModel._class("Child");
+		childClass._extends(sampleClass);
+		// call under test
+		new CopyHandlerImpl03(true, false).addCopy(childSchema, childClass);
+		String value = declare(childClass);
+		assertTrue(value.indexOf("super(other);") > 0);
+		assertTrue(value.indexOf("@java.lang.Override") > 0);
+	}
+
+	@Test
+	public void testAddCopyInterface() throws Exception {
+		ObjectSchema interfaceSchema = new ObjectSchemaImpl(TYPE.INTERFACE);
+		JDefinedClass inter = codeModel._package("")._interface("Inter");
+		// call under test
+		new CopyHandlerImpl03(true, false).addCopy(interfaceSchema, inter);
+		String value = declare(inter);
+		assertTrue(value.indexOf("Inter copy();") > 0);
+		assertFalse(value.indexOf("Inter(Inter other)") > 0);
+	}
+
+	@Test
+	public void testAddCopyImmutable() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class));
+		// call under test
+		new CopyHandlerImpl03(true, true).addCopy(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("return this;") > 0);
+		assertFalse(value.indexOf("Sample(Sample other)") > 0);
+	}
+
+	@Test
+	public void testNeedsCopy() {
+		assertTrue(CopyHandlerImpl03.needsCopy(nestedClass));
+		assertTrue(CopyHandlerImpl03.needsCopy(codeModel.ref(Date.class)));
+		assertFalse(CopyHandlerImpl03.needsCopy(enumClass));
+		assertFalse(CopyHandlerImpl03.needsCopy(codeModel.ref(String.class)));
+		assertFalse(CopyHandlerImpl03.needsCopy(codeModel.ref(Object.class)));
+		assertFalse(CopyHandlerImpl03.needsCopy(codeModel.DOUBLE));
+	}
+
+	private static String declare(JDeclaration toDeclare) {
+		StringWriter writer = new StringWriter();
+		toDeclare.declare(new JFormatter(writer));
+		return writer.toString();
+	}
+}
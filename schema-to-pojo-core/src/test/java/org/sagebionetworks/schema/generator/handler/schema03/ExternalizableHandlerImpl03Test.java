@@ -0,0 +1,139 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDeclaration;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+
+public class ExternalizableHandlerImpl03Test {
+
+	ObjectSchema schema;
+	JCodeModel codeModel;
+	JDefinedClass sampleClass;
+	JDefinedClass nestedClass;
+	JDefinedClass enumClass;
+
+	@BeforeEach
+	public void before() throws Exception {
+		schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		codeModel = new JCodeModel();
+		sampleClass = codeModel._class("Sample");
+		nestedClass = codeModel._class("Nested");
+		enumClass = codeModel._package("")._enum("Color");
+	}
+
+	private void addProperty(String name, TYPE type, JType javaType) {
+		schema.putProperty(name, new ObjectSchemaImpl(type));
+		sampleClass.field(JMod.PRIVATE, javaType, name);
+	}
+
+	@Test
+	public void testDisabled() {
+		// call under test
+		new ExternalizableHandlerImpl03().addExternalizable(schema, sampleClass);
+		assertFalse(declare(sampleClass).indexOf("writeExternal") > 0);
+	}
+
+	@Test
+	public void testImmutable() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new ExternalizableHandlerImpl03(true, true);
+		});
+	}
+
+	@Test
+	public void testAddExternalizable() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class));
+		addProperty("count", TYPE.INTEGER, codeModel.ref(Long.class));
+		addProperty("color", TYPE.STRING, enumClass);
+		addProperty("created", TYPE.STRING, codeModel.ref(Date.class));
+		addProperty("nested", TYPE.OBJECT, nestedClass);
+		// call under test
+		new ExternalizableHandlerImpl03(true, false).addExternalizable(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("implements java.io.Externalizable") > 0);
+		assertTrue(value.indexOf("private final static long _SCHEMA_HASH = ") > 0);
+		assertTrue(value.indexOf("public void writeExternal(java.io.ObjectOutput out)") > 0);
+		assertTrue(value.indexOf("out.writeLong(_SCHEMA_HASH);") > 0);
+		assertTrue(value.indexOf("__nulls0 += 1L;") > 0);
+		assertTrue(value.indexOf("__nulls0 += 16L;") > 0);
+		assertTrue(value.indexOf("out.writeObject(this.name);") > 0);
+		assertTrue(value.indexOf("out.writeLong(this.count);") > 0);
+		assertTrue(value.indexOf("out.writeUTF(this.color.name());") > 0);
+		assertTrue(value.indexOf("out.writeLong(this.created.getTime());") > 0);
+		assertTrue(value.indexOf("if (this.nested.getClass() == Nested.class) {") > 0);
+		assertTrue(value.indexOf("this.nested.writeExternal(out);") > 0);
+		assertTrue(value.indexOf("public void readExternal(java.io.ObjectInput in)") > 0);
+		assertTrue(value.indexOf("throw new java.io.InvalidClassException(\"Sample\"") > 0);
+		assertTrue(value.indexOf("long __nulls0 = in.readLong();") > 0);
+		assertTrue(value.indexOf("this.name = ((java.lang.String) in.readObject());") > 0);
+		assertTrue(value.indexOf("this.count = in.readLong();") > 0);
+		assertTrue(value.indexOf("this.color = Color.valueOf(in.readUTF());") > 0);
+		assertTrue(value.indexOf("this.created = new java.util.Date(in.readLong());") > 0);
+		assertTrue(value.indexOf("__value0 = new Nested();") > 0);
+		assertTrue(value.indexOf("__value0 .readExternal(in);") > 0);
+		assertTrue(value.indexOf("__value0 = ((Nested) in.readObject());") > 0);
+		assertFalse(value.indexOf("super.writeExternal(out);") > 0);
+	}
+
+	@Test
+	public void testAddExternalizableCollections() {
+		addProperty("names", TYPE.ARRAY, codeModel.ref(List.class).narrow(String.class));
+		addProperty("map", TYPE.MAP, codeModel.ref(Map.class).narrow(codeModel.ref(String.class), nestedClass));
+		// call under test
+		new ExternalizableHandlerImpl03(true, false).addExternalizable(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("out.writeInt(this.names.size());") > 0);
+		assertTrue(value.indexOf("for (java.lang.String __element0 : this.names) {") > 0);
+		assertTrue(value.indexOf("java.util.List<java.lang.String> __value0 = new java.util.ArrayList<java.lang.String>(__size0);") > 0);
+		assertTrue(value.indexOf("for (java.util.Map.Entry<java.lang.String, Nested> __entry2 : this.map.entrySet()) {") > 0);
+		assertTrue(value.indexOf("new java.util.LinkedHashMap<java.lang.String, Nested>(__size2);") > 0);
+	}
+
+	@Test
+	public void testAddExternalizableExtends() throws Exception {
+		ObjectSchema childSchema = new ObjectSchemaImpl(TYPE.OBJECT);
+		childSchema.setExtends(schema);
+		JDefinedClass childClass = codeModel._class("Child");
+		childClass._extends(sampleClass);
+		// call under test
+		new ExternalizableHandlerImpl03(true, false).addExternalizable(childSchema, childClass);
+		String value = declare(childClass);
+		assertTrue(value.indexOf("super.writeExternal(out);") > 0);
+		assertTrue(value.indexOf("super.readExternal(in);") > 0);
+	}
+
+	@Test
+	public void testLayoutHash() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class));
+		long hash = ExternalizableHandlerImpl03.layoutHash(schema, sampleClass);
+		assertEquals(hash, ExternalizableHandlerImpl03.layoutHash(schema, sampleClass));
+		addProperty("count", TYPE.INTEGER, codeModel.ref(Long.class));
+		assertNotEquals(hash, ExternalizableHandlerImpl03.layoutHash(schema, sampleClass));
+	}
+
+	private static String declare(JDeclaration toDeclare) {
+		StringWriter writer = new StringWriter();
+		toDeclare.declare(new JFormatter(writer));
+		return writer.toString();
+	}
+}
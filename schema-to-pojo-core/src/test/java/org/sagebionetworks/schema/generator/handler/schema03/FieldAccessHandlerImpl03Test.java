@@ -0,0 +1,144 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.FORMAT;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDeclaration;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+
+public class FieldAccessHandlerImpl03Test {
+
+	ObjectSchema schema;
+	JCodeModel codeModel;
+	JDefinedClass sampleClass;
+
+	@BeforeEach
+	public void before() throws Exception {
+		schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		codeModel = new JCodeModel();
+		sampleClass = codeModel._class("Sample");
+	}
+
+	private void addProperty(JDefinedClass classType, ObjectSchema classSchema, String name, ObjectSchema propertySchema, JType javaType) {
+		classSchema.putProperty(name, propertySchema);
+		classType.field(JMod.PRIVATE, javaType, name);
+	}
+
+	@Test
+	public void testDisabled() {
+		// call under test
+		new FieldAccessHandlerImpl03().addFieldAccess(schema, sampleClass);
+		assertFalse(declare(sampleClass).indexOf("getFieldValue") > 0);
+	}
+
+	@Test
+	public void testAddFieldAccess() {
+		addProperty(sampleClass, schema, "name", new ObjectSchemaImpl(TYPE.STRING), codeModel.ref(String.class));
+		ObjectSchema created = new ObjectSchemaImpl(TYPE.STRING);
+		created.setFormat(FORMAT.DATE_TIME);
+		addProperty(sampleClass, schema, "created", created, codeModel.ref(java.util.Date.class));
+		addProperty(sampleClass, schema, "tags", new ObjectSchemaImpl(TYPE.ARRAY), codeModel.ref(List.class).narrow(String.class));
+		TypeCreatorHandlerImpl03.addKeyConstants(schema, sampleClass);
+		// call under test
+		new FieldAccessHandlerImpl03(true, false).addFieldAccess(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("implements org.sagebionetworks.schema.IndexedEntity") > 0);
+		assertTrue(value.indexOf("FIELD_DESCRIPTORS = org.sagebionetworks.schema.FieldDescriptor.list(null, "
+				+ "new org.sagebionetworks.schema.FieldDescriptor(0, _ALL_KEYS[ 0 ], org.sagebionetworks.schema.TYPE.STRING, null), "
+				+ "new org.sagebionetworks.schema.FieldDescriptor(1, _ALL_KEYS[ 1 ], org.sagebionetworks.schema.TYPE.STRING, org.sagebionetworks.schema.FORMAT.DATE_TIME)") > 0);
+		assertTrue(value.indexOf("return FIELD_DESCRIPTORS;") > 0);
+		assertTrue(value.indexOf("return getCreated();") > 0);
+		assertTrue(value.indexOf("setTags(((java.util.List<java.lang.String> ) value));") > 0);
+		assertTrue(value.indexOf("@java.lang.SuppressWarnings(\"unchecked\")") > 0);
+		assertTrue(value.indexOf("throw new java.lang.IndexOutOfBoundsException((\"No property with index: \"+ index));") > 0);
+	}
+
+	@Test
+	public void testAddFieldAccessExtends() throws Exception {
+		addProperty(sampleClass, schema, "name", new ObjectSchemaImpl(TYPE.STRING), codeModel.ref(String.class));
+		ObjectSchema childSchema = new ObjectSchemaImpl(TYPE.OBJECT);
+		childSchema.setExtends(schema);
+		JDefinedClass childClass = codeModel._class("Child");
+		childClass._extends(sampleClass);
+		addProperty(childClass, childSchema, "count", new ObjectSchemaImpl(TYPE.INTEGER), codeModel.ref(Long.class));
+		TypeCreatorHandlerImpl03.addKeyConstants(childSchema, childClass);
+		// call under test
+		new FieldAccessHandlerImpl03(true, false).addFieldAccess(childSchema, childClass);
+		String value = declare(childClass);
+		// The properties of the super class come first.
+		assertTrue(value.indexOf("org.sagebionetworks.schema.FieldDescriptor.list(Sample.FIELD_DESCRIPTORS, "
+				+ "new org.sagebionetworks.schema.FieldDescriptor(1, _ALL_KEYS[ 0 ], org.sagebionetworks.schema.TYPE.INTEGER, null))") > 0);
+		assertTrue(value.indexOf("case  1 :") > 0);
+		assertTrue(value.indexOf("return super.getFieldValue(index);") > 0);
+		assertTrue(value.indexOf("super.setFieldValue(index, value);") > 0);
+		assertFalse(value.indexOf("SuppressWarnings") > 0);
+	}
+
+	@Test
+	public void testAddFieldAccessKeyword() {
+		// The field of a keyword property has another name.
+		schema.putProperty("final", new ObjectSchemaImpl(TYPE.STRING));
+		sampleClass.field(JMod.PRIVATE, String.class, "_final");
+		TypeCreatorHandlerImpl03.addKeyConstants(schema, sampleClass);
+		// call under test
+		new FieldAccessHandlerImpl03(true, false).addFieldAccess(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("return get_final();") > 0);
+		assertTrue(value.indexOf("set_final(((java.lang.String) value));") > 0);
+	}
+
+	@Test
+	public void testAddFieldAccessImmutable() {
+		addProperty(sampleClass, schema, "name", new ObjectSchemaImpl(TYPE.STRING), codeModel.ref(String.class));
+		TypeCreatorHandlerImpl03.addKeyConstants(schema, sampleClass);
+		// call under test
+		new FieldAccessHandlerImpl03(true, true).addFieldAccess(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("return getName();") > 0);
+		assertTrue(value.indexOf("throw new java.lang.UnsupportedOperationException(\"Sample is immutable\");") > 0);
+	}
+
+	@Test
+	public void testAddFieldAccessInterface() throws Exception {
+		ObjectSchema interfaceSchema = new ObjectSchemaImpl(TYPE.INTERFACE);
+		JDefinedClass inter = codeModel._package("")._interface("Inter");
+		// call under test
+		new FieldAccessHandlerImpl03(true, false).addFieldAccess(interfaceSchema, inter);
+		String value = declare(inter);
+		assertTrue(value.indexOf("extends org.sagebionetworks.schema.IndexedEntity") > 0);
+		assertFalse(value.indexOf("getFieldValue") > 0);
+	}
+
+	@Test
+	public void testCountInheritedProperties() {
+		schema.putProperty("name", new ObjectSchemaImpl(TYPE.STRING));
+		ObjectSchema childSchema = new ObjectSchemaImpl(TYPE.OBJECT);
+		childSchema.setExtends(schema);
+		ObjectSchema grandChildSchema = new ObjectSchemaImpl(TYPE.OBJECT);
+		grandChildSchema.setExtends(childSchema);
+		childSchema.putProperty("count", new ObjectSchemaImpl(TYPE.INTEGER));
+		assertEquals(0, FieldAccessHandlerImpl03.countInheritedProperties(schema));
+		assertEquals(2, FieldAccessHandlerImpl03.countInheritedProperties(grandChildSchema));
+	}
+
+	private static String declare(JDeclaration toDeclare) {
+		StringWriter writer = new StringWriter();
+		toDeclare.declare(new JFormatter(writer));
+		return writer.toString();
+	}
+}
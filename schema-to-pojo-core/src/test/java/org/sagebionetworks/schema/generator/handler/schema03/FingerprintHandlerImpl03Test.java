@@ -0,0 +1,98 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.Fingerprint;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDeclaration;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+
+public class FingerprintHandlerImpl03Test {
+
+	ObjectSchema schema;
+	JCodeModel codeModel;
+	JDefinedClass sampleClass;
+
+	@BeforeEach
+	public void before() throws Exception {
+		schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		codeModel = new JCodeModel();
+		sampleClass = codeModel._class("Sample");
+	}
+
+	private void addProperty(String name, TYPE type, JType javaType) {
+		schema.putProperty(name, new ObjectSchemaImpl(type));
+		sampleClass.field(JMod.PRIVATE, javaType, name);
+	}
+
+	@Test
+	public void testDisabled() {
+		// call under test
+		new FingerprintHandlerImpl03().addFingerprint(schema, sampleClass);
+		assertFalse(declare(sampleClass).indexOf("fingerprint64") > 0);
+	}
+
+	@Test
+	public void testAddFingerprint() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class));
+		addProperty("count", TYPE.INTEGER, codeModel.ref(Long.class));
+		// call under test
+		new FingerprintHandlerImpl03(true).addFingerprint(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("implements org.sagebionetworks.schema.FingerprintEntity") > 0);
+		assertTrue(value.indexOf("public long fingerprint64() {") > 0);
+		assertTrue(value.indexOf("long __hash = org.sagebionetworks.schema.Fingerprint.mix(org.sagebionetworks.schema.Fingerprint.OFFSET_BASIS, "
+				+ Fingerprint.of("Sample") + "L);") > 0);
+		String count = "__hash = org.sagebionetworks.schema.Fingerprint.hash(org.sagebionetworks.schema.Fingerprint.mix(__hash, "
+				+ Fingerprint.of("count") + "L), this.count);";
+		String name = "__hash = org.sagebionetworks.schema.Fingerprint.hash(org.sagebionetworks.schema.Fingerprint.mix(__hash, "
+				+ Fingerprint.of("name") + "L), this.name);";
+		// The properties are hashed in the order of their names.
+		assertTrue(value.indexOf(count) > 0);
+		assertTrue(value.indexOf(name) > value.indexOf(count));
+		assertTrue(value.indexOf("if (this.name!= null) {") > 0);
+		assertTrue(value.indexOf("return __hash;") > 0);
+	}
+
+	@Test
+	public void testAddFingerprintExtends() throws Exception {
+		ObjectSchema childSchema = new ObjectSchemaImpl(TYPE.OBJECT);
+		childSchema.setExtends(schema);
+		JDefinedClass childClass = codeModel._class("Child");
+		childClass._extends(sampleClass);
+		// call under test
+		new FingerprintHandlerImpl03(true).addFingerprint(childSchema, childClass);
+		String value = declare(childClass);
+		assertTrue(value.indexOf("org.sagebionetworks.schema.Fingerprint.mix(super.fingerprint64(), ") > 0);
+		assertFalse(value.indexOf("FingerprintEntity") > 0);
+	}
+
+	@Test
+	public void testAddFingerprintInterface() throws Exception {
+		ObjectSchema interfaceSchema = new ObjectSchemaImpl(TYPE.INTERFACE);
+		JDefinedClass inter = codeModel._package("")._interface("Inter");
+		// call under test
+		new FingerprintHandlerImpl03(true).addFingerprint(interfaceSchema, inter);
+		String value = declare(inter);
+		assertTrue(value.indexOf("extends org.sagebionetworks.schema.FingerprintEntity") > 0);
+		assertFalse(value.indexOf("fingerprint64()") > 0);
+	}
+
+	private static String declare(JDeclaration toDeclare) {
+		StringWriter writer = new StringWriter();
+		toDeclare.declare(new JFormatter(writer));
+		return writer.toString();
+	}
+}
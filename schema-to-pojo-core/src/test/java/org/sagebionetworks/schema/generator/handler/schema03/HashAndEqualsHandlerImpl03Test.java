@@ -3,10 +3,14 @@ package org.sagebionetworks.schema.generator.handler.schema03;
 import static org.junit.Assert.*;
 
 import java.io.StringWriter;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sagebionetworks.schema.EnumValue;
+import org.sagebionetworks.schema.FORMAT;
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.ObjectSchemaImpl;
 import org.sagebionetworks.schema.TYPE;
@@ -72,6 +76,23 @@ public class HashAndEqualsHandlerImpl03Test {
 		assertTrue(methodString.indexOf("result = ((prime*result)+((propertyName == null)? 0 :propertyName.hashCode()));") > 0);
 	}
 	
+	@Test
+	public void testHashCodeImmutable(){
+		sampleClass.field(JMod.PRIVATE | JMod.FINAL, codeModel.ref(String.class), "propertyName");
+		ObjectSchema propertySchema = new ObjectSchemaImpl();
+		propertySchema.setType(TYPE.STRING);
+		schema.putProperty("propertyName", propertySchema);
+		HashAndEqualsHandlerImpl03 handler = new HashAndEqualsHandlerImpl03(true);
+		JMethod method = handler.addHashCode(schema, sampleClass);
+		assertNotNull(sampleClass.fields().get(HashAndEqualsHandlerImpl03.HASH_CODE_FIELD_NAME));
+		assertEquals(JMod.PRIVATE | JMod.TRANSIENT, sampleClass.fields().get(HashAndEqualsHandlerImpl03.HASH_CODE_FIELD_NAME).mods().getValue());
+		String methodString = declareToString(method);
+		// The cached value is returned when it has been computed
+		assertTrue(methodString.indexOf("if (__hashCode!= 0) {") > 0);
+		assertTrue(methodString.indexOf("return __hashCode;") > 0);
+		assertTrue(methodString.indexOf("__hashCode = result;") > 0);
+	}
+	
 	@Test
 	public void testHashCodeSuper() throws JClassAlreadyExistsException {
 		// For this case we want to use class that has the sample as a base class
@@ -253,11 +274,93 @@ public class HashAndEqualsHandlerImpl03Test {
 //		System.out.println(methodString);
 		// Make sure there is a call to super.
 		assertTrue(methodString.indexOf("if (!super.equals(obj)) {") > 0);
-		assertFalse(methodString.indexOf("if (obj == null) {") > 0);
+		// The null check is needed before the class check
+		assertTrue(methodString.indexOf("if (obj == null) {") > 0);
 		assertTrue(methodString.indexOf("ChildOfSample other = ((ChildOfSample) obj);") > 0);
 //		printClassToConsole(childClasss);
 	}
 	
+	@Test
+	public void testEqualsSuperAfterCheapFields() throws JClassAlreadyExistsException {
+		ObjectSchema childSchema = new ObjectSchemaImpl();
+		childSchema.setExtends(schema);
+		ObjectSchema arraySchema = new ObjectSchemaImpl(TYPE.ARRAY);
+		arraySchema.setItems(new ObjectSchemaImpl(TYPE.STRING));
+		childSchema.putProperty("list", arraySchema);
+		childSchema.putProperty("id", new ObjectSchemaImpl(TYPE.INTEGER));
+		JDefinedClass childClasss = codeModel._class("ChildOfSample");
+		childClasss._extends(sampleClass);
+		childClasss.field(JMod.PRIVATE, codeModel.ref(List.class).narrow(String.class), "list");
+		childClasss.field(JMod.PRIVATE, codeModel.ref(Long.class), "id");
+		HashAndEqualsHandlerImpl03 handler = new HashAndEqualsHandlerImpl03();
+		JMethod method = handler.addEquals(childSchema, childClasss);
+		String methodString = declareToString(method);
+		int id = methodString.indexOf("if (!id.equals(other.id)) {");
+		int superEquals = methodString.indexOf("if (!super.equals(obj)) {");
+		int list = methodString.indexOf("if (!list.equals(other.list)) {");
+		assertTrue(id > 0);
+		assertTrue(superEquals > id);
+		assertTrue(list > superEquals);
+	}
+	
+	@Test
+	public void testEqualsCostOrder(){
+		ObjectSchema arraySchema = new ObjectSchemaImpl(TYPE.ARRAY);
+		arraySchema.setItems(new ObjectSchemaImpl(TYPE.STRING));
+		schema.putProperty("list", arraySchema);
+		sampleClass.field(JMod.PRIVATE, codeModel.ref(List.class).narrow(String.class), "list");
+		schema.putProperty("object", schema);
+		sampleClass.field(JMod.PRIVATE, sampleClass, "object");
+		schema.putProperty("name", new ObjectSchemaImpl(TYPE.STRING));
+		sampleClass.field(JMod.PRIVATE, codeModel.ref(String.class), "name");
+		schema.putProperty("id", new ObjectSchemaImpl(TYPE.INTEGER));
+		sampleClass.field(JMod.PRIVATE, codeModel.ref(Long.class), "id");
+		ObjectSchema enumSchema = new ObjectSchemaImpl(TYPE.STRING);
+		enumSchema.setEnum(new EnumValue[] { new EnumValue("A") });
+		schema.putProperty("kind", enumSchema);
+		sampleClass.field(JMod.PRIVATE, sampleInterface, "kind");
+		HashAndEqualsHandlerImpl03 handler = new HashAndEqualsHandlerImpl03();
+		JMethod method = handler.addEquals(schema, sampleClass);
+		String methodString = declareToString(method);
+		// Enumerations are compared by identity
+		int kind = methodString.indexOf("if (kind!= other.kind) {");
+		int id = methodString.indexOf("if (!id.equals(other.id)) {");
+		int name = methodString.indexOf("if (!name.equals(other.name)) {");
+		int object = methodString.indexOf("if (!object.equals(other.object)) {");
+		int list = methodString.indexOf("if (!list.equals(other.list)) {");
+		assertTrue(kind > 0);
+		assertTrue(id > kind);
+		assertTrue(name > id);
+		assertTrue(object > name);
+		assertTrue(list > object);
+	}
+	
+	@Test
+	public void testEqualsImmutable(){
+		sampleClass.field(JMod.PRIVATE | JMod.FINAL, codeModel.ref(String.class), "propertyName");
+		schema.putProperty("propertyName", new ObjectSchemaImpl(TYPE.STRING));
+		HashAndEqualsHandlerImpl03 handler = new HashAndEqualsHandlerImpl03(true);
+		handler.addHashCode(schema, sampleClass);
+		JMethod method = handler.addEquals(schema, sampleClass);
+		String methodString = declareToString(method);
+		// The cached hash codes are compared first
+		int hash = methodString.indexOf("if (((__hashCode!= 0)&&(other.__hashCode!= 0))&&(__hashCode!= other.__hashCode)) {");
+		assertTrue(hash > 0);
+		assertTrue(methodString.indexOf("if (!propertyName.equals(other.propertyName)) {") > hash);
+	}
+	
+	@Test
+	public void testGetEqualsCost(){
+		ObjectSchema dateSchema = new ObjectSchemaImpl(TYPE.STRING);
+		dateSchema.setFormat(FORMAT.DATE_TIME);
+		assertEquals(0, HashAndEqualsHandlerImpl03.getEqualsCost(new ObjectSchemaImpl(TYPE.INTEGER), codeModel.LONG));
+		assertEquals(2, HashAndEqualsHandlerImpl03.getEqualsCost(new ObjectSchemaImpl(TYPE.INTEGER), codeModel.ref(Long.class)));
+		assertEquals(2, HashAndEqualsHandlerImpl03.getEqualsCost(dateSchema, codeModel.ref(Date.class)));
+		assertEquals(3, HashAndEqualsHandlerImpl03.getEqualsCost(new ObjectSchemaImpl(TYPE.STRING), codeModel.ref(String.class)));
+		assertEquals(4, HashAndEqualsHandlerImpl03.getEqualsCost(new ObjectSchemaImpl(TYPE.INTERFACE), sampleInterface));
+		assertEquals(5, HashAndEqualsHandlerImpl03.getEqualsCost(new ObjectSchemaImpl(TYPE.MAP), codeModel.ref(Map.class)));
+	}
+	
 	@Test
 	public void testEqualsImplements() throws JClassAlreadyExistsException {
 		// For this case we want to use class that has the sample as a base class
@@ -275,8 +378,8 @@ public class HashAndEqualsHandlerImpl03Test {
 		// Now get the string and check it.
 		String methodString = declareToString(method);
 //		System.out.println(methodString);
-		// Make sure there is a call to super.
-		assertTrue(methodString.indexOf("if (!fromInterface.equals(other.fromInterface))") > 0);
+		// A primitive is compared directly
+		assertTrue(methodString.indexOf("if (fromInterface!= other.fromInterface)") > 0);
 	}
 	
 	@Test
@@ -331,6 +434,18 @@ public class HashAndEqualsHandlerImpl03Test {
 		assertNotNull(method);		
 		String methodString = declareToString(method);
 //		System.out.println(methodString);
+		assertTrue(methodString.indexOf("if (java.lang.Double.doubleToLongBits(propertyName)!= java.lang.Double.doubleToLongBits(other.propertyName))") > 0);
+	}
+	
+	@Test
+	public void testEqualsBoxedDouble(){
+		sampleClass.field(JMod.PRIVATE, codeModel.ref(Double.class), "propertyName");
+		ObjectSchema propertySchema = new ObjectSchemaImpl();
+		propertySchema.setType(TYPE.NUMBER);
+		schema.putProperty("propertyName", propertySchema);
+		HashAndEqualsHandlerImpl03 handler = new HashAndEqualsHandlerImpl03();
+		JMethod method = handler.addEquals(schema, sampleClass);
+		String methodString = declareToString(method);
 		assertTrue(methodString.indexOf("if (!propertyName.equals(other.propertyName))") > 0);
 	}
 	
@@ -347,7 +462,7 @@ public class HashAndEqualsHandlerImpl03Test {
 		assertNotNull(method);		
 		String methodString = declareToString(method);
 //		System.out.println(methodString);
-		assertTrue(methodString.indexOf("if (!propertyName.equals(other.propertyName))") > 0);
+		assertTrue(methodString.indexOf("if (propertyName!= other.propertyName)") > 0);
 	}
 	
 	@Test
@@ -363,7 +478,7 @@ public class HashAndEqualsHandlerImpl03Test {
 		assertNotNull(method);		
 		String methodString = declareToString(method);
 //		System.out.println(methodString);
-		assertTrue(methodString.indexOf("if (!propertyName.equals(other.propertyName)) {") > 0);
+		assertTrue(methodString.indexOf("if (propertyName!= other.propertyName) {") > 0);
 	}
 	
 	/**
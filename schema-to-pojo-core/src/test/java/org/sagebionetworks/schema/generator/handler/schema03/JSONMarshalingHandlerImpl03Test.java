@@ -36,11 +36,13 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.sagebionetworks.schema.EnumValue;
 import org.sagebionetworks.schema.FORMAT;
+import org.sagebionetworks.schema.JavaKeyword;
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.ObjectSchemaImpl;
 import org.sagebionetworks.schema.TYPE;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
 import org.sagebionetworks.schema.generator.InstanceFactoryGenerator;
+import org.sagebionetworks.schema.generator.PojoGeneratorOptions;
 
 public class JSONMarshalingHandlerImpl03Test {
 
@@ -509,6 +511,87 @@ public class JSONMarshalingHandlerImpl03Test {
 		assertTrue(methodString.contains("propName.initializeFromJSONObject(__localAdapter);"));
 	}
 	
+	@Test
+	public void testCreateMethodInitializeFromJSONObjectInterfaceInline() throws JClassAlreadyExistsException, ClassNotFoundException {
+		ObjectSchema propertySchema = schema;
+		String propName = "propName";
+		schema.putProperty(propName, propertySchema);
+		sampleClass.field(JMod.PRIVATE, sampleInterface, propName);
+		addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03();
+		PojoGeneratorOptions options = new PojoGeneratorOptions();
+		options.setInlineFactoryThreshold(1);
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, Arrays.asList(schema, schemaInterface, schemaInterfaceImpl), options);
+		JMethod constructor = handler.createMethodInitializeFromJSONObject(schema, sampleClass, ifg);
+		String methodString = declareToString(constructor);
+		System.out.println(methodString);
+		assertTrue(methodString.contains("switch (__concreteType) {"));
+		assertTrue(methodString.contains("case \"org.sample.SampleImpl\":"));
+		assertTrue(methodString.contains("propName = new org.sample.SampleImpl();"));
+		assertTrue(methodString.contains("break;"));
+		assertTrue(methodString.contains("default:"));
+		// Unknown types still go through the factory
+		assertTrue(methodString.contains("propName = ((org.sample.SampleInterface) org.sample.SampleInterfaceInstanceFactory.singleton().newInstance(__concreteType));"));
+		assertTrue(methodString.contains("propName.initializeFromJSONObject(__localAdapter);"));
+	}
+	
+	@Test
+	public void testCreateMethodInitializeFromJSONObjectInterfaceAboveInlineThreshold() throws JClassAlreadyExistsException, ClassNotFoundException {
+		ObjectSchema propertySchema = schema;
+		String propName = "propName";
+		schema.putProperty(propName, propertySchema);
+		sampleClass.field(JMod.PRIVATE, sampleInterface, propName);
+		addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03();
+		ObjectSchema otherImpl = new ObjectSchemaImpl();
+		otherImpl.setType(TYPE.OBJECT);
+		otherImpl.setId("org.sample.OtherImpl");
+		otherImpl.setImplements(new ObjectSchema[]{schemaInterface});
+		PojoGeneratorOptions options = new PojoGeneratorOptions();
+		options.setInlineFactoryThreshold(1);
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, Arrays.asList(schema, schemaInterface, schemaInterfaceImpl, otherImpl), options);
+		JMethod constructor = handler.createMethodInitializeFromJSONObject(schema, sampleClass, ifg);
+		String methodString = declareToString(constructor);
+		assertFalse(methodString.contains("switch (__concreteType) {"));
+		assertTrue(methodString.contains("propName = ((org.sample.SampleInterface) org.sample.SampleInterfaceInstanceFactory.singleton().newInstance(__concreteType));"));
+	}
+	
+	@Test
+	public void testAddJSONMarshalingImmutable() throws JClassAlreadyExistsException, ClassNotFoundException {
+		String propName = "propName";
+		schema.putProperty(propName, schemaInterface);
+		new PropertyHandlerImpl03(true).createProperty(schemaInterface, sampleClass, propName, sampleInterface);
+		addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(true);
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, Arrays.asList(schema, schemaInterface, schemaInterfaceImpl));
+		handler.addJSONMarshaling(schema, sampleClass, ifg);
+		String classString = declareToString(sampleClass);
+		System.out.println(classString);
+		// The EntityFactory reads it with its constructor
+		assertTrue(classString.contains("implements org.sagebionetworks.schema.adapter.ImmutableJSONEntity"));
+		// The constructors go through the builder
+		assertTrue(classString.contains("this(new Sample.Builder());"));
+		assertTrue(classString.contains("this(new Sample.Builder(adapter));"));
+		assertTrue(classString.contains("throw new java.lang.UnsupportedOperationException(\"Sample is immutable, use Sample.Builder to read it from JSON\");"));
+		assertTrue(classString.contains("public org.sagebionetworks.schema.adapter.JSONObjectAdapter writeToJSONObject("));
+		// The builder reads the JSON and creates the implementations with their constructor
+		assertTrue(classString.contains("public Builder(org.sagebionetworks.schema.adapter.JSONObjectAdapter adapter)"));
+		assertTrue(classString.contains("initializeFromJSONObject(adapter);"));
+		assertTrue(classString.contains("case \"org.sample.SampleImpl\":"));
+		assertTrue(classString.contains("propName = new org.sample.SampleImpl(__localAdapter);"));
+		assertTrue(classString.contains("throw new java.lang.IllegalArgumentException((\"Cannot create new instance. Unknown class: \"+ __concreteType));"));
+		assertFalse(classString.contains("SampleInterfaceInstanceFactory"));
+	}
+	
+	@Test
+	public void testAddJSONMarshalingImmutableExtends() {
+		schema.setExtends(new ObjectSchemaImpl(TYPE.OBJECT));
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(true);
+		assertThrows(IllegalArgumentException.class, () -> {
+			handler.addJSONMarshaling(schema, sampleClass, null);
+		});
+	}
+	
 	@Test
 	public void testCreateMethodInitializeFromJSONObjectConcreteClass() throws JClassAlreadyExistsException, ClassNotFoundException {
 		// Set the property type to be the same as the object
@@ -529,6 +612,211 @@ public class JSONMarshalingHandlerImpl03Test {
 		assertTrue(methodString.indexOf("propName = new Sample(adapter.getJSONObject(_KEY_PROPNAME));") > 0);
 	}
 	
+	@Test
+	public void testCreateMethodInitializeFromJSONObjectFieldMask() throws JClassAlreadyExistsException, ClassNotFoundException {
+		ObjectSchema propertySchema = schema;
+		String propName = "propName";
+		schema.putProperty(propName, propertySchema);
+		sampleClass.field(JMod.PRIVATE, sampleClass, propName);
+		JFieldVar[] constants = addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, true);
+		InstanceFactoryGenerator ifg = new InstanceFactoryGenerator(codeModel, Arrays.asList(schema));
+		// call under test
+		JMethod method = handler.createMethodInitializeFromJSONObject(schema, sampleClass, ifg);
+		String methodString = declareToString(method);
+		assertTrue(methodString.indexOf("initializeFromJSONObject(org.sagebionetworks.schema.adapter.JSONObjectAdapter adapter, org.sagebionetworks.schema.adapter.FieldMask mask)") > 0);
+		assertTrue(methodString.indexOf("if ((mask == null)||mask.contains(_KEY_PROPNAME)) {") > 0);
+		// The nested object only reads the properties selected by the nested mask.
+		assertTrue(methodString.indexOf("propName = new Sample();") > 0);
+		assertTrue(methodString.indexOf("propName.initializeFromJSONObject(adapter.getJSONObject(_KEY_PROPNAME), ((mask == null)?null:mask.getNested(_KEY_PROPNAME)));") > 0);
+		// The masks are built with the key constants.
+		assertTrue((constants[0].mods().getValue() & JMod.PUBLIC) != 0);
+	}
+	
+	@Test
+	public void testCreateMethodInitializeFromJSONObjectFieldMaskExtends() throws ClassNotFoundException {
+		schema.setExtends(new ObjectSchemaImpl(TYPE.OBJECT));
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, true);
+		// call under test
+		JMethod method = handler.createMethodInitializeFromJSONObject(schema, sampleClass, null);
+		String methodString = declareToString(method);
+		assertTrue(methodString.indexOf("super.initializeFromJSONObject(adapter, mask);") > 0);
+	}
+	
+	@Test
+	public void testAddJSONMarshalingFieldMask() {
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, true);
+		// call under test
+		handler.addJSONMarshaling(schema, sampleClass, null);
+		String classString = declareToString(sampleClass);
+		assertTrue(classString.indexOf("org.sagebionetworks.schema.adapter.MaskableJSONEntity") > 0);
+		assertTrue(classString.indexOf("return initializeFromJSONObject(adapter, null);") > 0);
+		assertTrue(classString.indexOf("initializeFromJSONObject(adapter);") > 0);
+	}
+	
+	@Test
+	public void testFieldMaskImmutable() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new JSONMarshalingHandlerImpl03(true, true);
+		});
+	}
+	
+	@Test
+	public void testCreateMethodInitializeFromJSONObjectLazy() throws ClassNotFoundException {
+		String propName = "propName";
+		schema.putProperty(propName, schema);
+		JFieldVar field = sampleClass.field(JMod.PRIVATE, sampleClass, propName);
+		sampleClass.method(JMod.PUBLIC, sampleClass, "getPropName").body()._return(field);
+		addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, false, true);
+		// call under test
+		JMethod method = handler.createMethodInitializeFromJSONObject(schema, sampleClass, null);
+		String methodString = declareToString(method);
+		// The adapter is kept instead of reading the object.
+		assertTrue(methodString.indexOf("this.__propNameAdapter = adapter;") > 0);
+		assertTrue(methodString.indexOf("this.__propNameAdapter = null;") > 0);
+		assertFalse(methodString.indexOf("new Sample(") > 0);
+		String classString = declareToString(sampleClass);
+		assertTrue(classString.indexOf("private transient org.sagebionetworks.schema.adapter.JSONObjectAdapter __propNameAdapter;") > 0);
+		assertTrue(classString.indexOf("private void __decodePropName() {") > 0);
+		assertTrue(classString.indexOf("propName = new Sample(adapter.getJSONObject(_KEY_PROPNAME));") > 0);
+		assertTrue(classString.indexOf("throw new java.lang.IllegalStateException(e);") > 0);
+		assertTrue(classString.indexOf("private void __decodeLazy() {") > 0);
+		// The adapters are transient so the objects are read before serialization.
+		assertTrue(classString.indexOf("private void writeObject(java.io.ObjectOutputStream out)\n        throws java.io.IOException\n    {\n        __decodeLazy();\n        out.defaultWriteObject();") > 0);
+		// The getter reads the object first.
+		assertTrue(classString.indexOf("public Sample getPropName() {\n        __decodePropName();\n        return propName;") > 0);
+	}
+	
+	@Test
+	public void testCreateMethodInitializeFromJSONObjectLazyKeyword() throws ClassNotFoundException {
+		PropertyHandlerImpl03 propertyHandler = new PropertyHandlerImpl03();
+		for (String propName : new String[] { "enum", "null" }) {
+			schema.putProperty(propName, schema);
+			// The fields and accessors of keyword properties are named after the Java name.
+			propertyHandler.createProperty(schema, sampleClass, JavaKeyword.determineJavaName(propName), sampleClass);
+		}
+		addKeyConstant(sampleClass, "enum", "null");
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, false, true);
+		// call under test
+		handler.createMethodInitializeFromJSONObject(schema, sampleClass, null);
+		String classString = declareToString(sampleClass);
+		System.out.println(classString);
+		// The getters read the object first.
+		assertTrue(classString.indexOf("public Sample get_enum() {\n        __decodeEnum();\n        return _enum;") > 0);
+		assertTrue(classString.indexOf("public Sample get_null() {\n        __decodeNull();\n        return _null;") > 0);
+		// The setters drop the adapter.
+		assertTrue(classString.indexOf("public Sample set_enum(Sample _enum) {\n        this.___enumAdapter = null;") > 0);
+		assertTrue(classString.indexOf("public Sample set_null(Sample _null) {\n        this.___nullAdapter = null;") > 0);
+	}
+	
+	@Test
+	public void testCreateWriteToJSONObjectLazy() throws ClassNotFoundException {
+		String propName = "propName";
+		schema.putProperty(propName, schema);
+		sampleClass.field(JMod.PRIVATE, sampleClass, propName);
+		addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, false, true);
+		handler.createMethodInitializeFromJSONObject(schema, sampleClass, null);
+		// call under test
+		JMethod method = handler.createWriteToJSONObject(schema, sampleClass);
+		String methodString = declareToString(method);
+		// An object that was never read is written back unchanged.
+		assertTrue(methodString.indexOf("adapter.put(_KEY_PROPNAME, __propNameAdapter.getJSONObject(_KEY_PROPNAME));") > 0);
+		assertTrue(methodString.indexOf("propName.writeToJSONObject(adapter.createNew())") > 0);
+	}
+	
+	@Test
+	public void testLazyNestedImmutable() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new JSONMarshalingHandlerImpl03(true, false, true);
+		});
+	}
+	
+	@Test
+	public void testLazyNestedFieldMask() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new JSONMarshalingHandlerImpl03(false, true, true);
+		});
+	}
+	
+	@Test
+	public void testCreateMethodApplyPatch() throws ClassNotFoundException {
+		String propName = "propName";
+		schema.putProperty(propName, schema);
+		sampleClass.field(JMod.PRIVATE, sampleClass, propName);
+		addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, false, false, true);
+		// call under test
+		JMethod method = handler.createMethodApplyPatch(schema, sampleClass, null);
+		String methodString = declareToString(method);
+		assertTrue(methodString.indexOf("Apply a JSON merge patch (RFC 7386) to this object.") > 0);
+		assertTrue(methodString.indexOf("public org.sagebionetworks.schema.adapter.JSONObjectAdapter applyPatch(org.sagebionetworks.schema.adapter.JSONObjectAdapter adapter)") > 0);
+		// Only the properties in the patch are changed.
+		assertTrue(methodString.indexOf("if (adapter.has(_KEY_PROPNAME)) {") > 0);
+		// The patch is merged into a nested object.
+		assertTrue(methodString.indexOf("propName.applyPatch(adapter.getJSONObject(_KEY_PROPNAME));") > 0);
+		assertTrue(methodString.indexOf("propName = new Sample(adapter.getJSONObject(_KEY_PROPNAME));") > 0);
+		assertTrue(methodString.indexOf("propName = null;") > 0);
+	}
+	
+	@Test
+	public void testCreateMethodApplyPatchMap() throws ClassNotFoundException {
+		ObjectSchema propertySchema = new ObjectSchemaImpl(TYPE.MAP);
+		propertySchema.setValue(new ObjectSchemaImpl(TYPE.STRING));
+		String propName = "propName";
+		schema.putProperty(propName, propertySchema);
+		sampleClass.field(JMod.PRIVATE, codeModel.ref(Map.class).narrow(String.class, String.class), propName);
+		addKeyConstant(sampleClass, propName);
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, false, false, true);
+		// call under test
+		JMethod method = handler.createMethodApplyPatch(schema, sampleClass, null);
+		String methodString = declareToString(method);
+		// The entries that are not in the patch are kept.
+		assertTrue(methodString.indexOf("if (propName == null) {") > 0);
+		assertTrue(methodString.indexOf("propName.remove(__key);") > 0);
+	}
+	
+	@Test
+	public void testCreateMethodDiff() throws ClassNotFoundException {
+		schema.putProperty("name", new ObjectSchemaImpl(TYPE.STRING));
+		sampleClass.field(JMod.PRIVATE, String.class, "name");
+		schema.putProperty("nested", schema);
+		sampleClass.field(JMod.PRIVATE, sampleClass, "nested");
+		addKeyConstant(sampleClass, "name", "nested");
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, false, false, true);
+		// call under test
+		JMethod method = handler.createMethodDiff(schema, sampleClass);
+		String methodString = declareToString(method);
+		assertTrue(methodString.indexOf("public org.sagebionetworks.schema.adapter.JSONObjectAdapter diff(java.lang.Object obj, org.sagebionetworks.schema.adapter.JSONObjectAdapter patch)") > 0);
+		assertTrue(methodString.indexOf("if (this == obj) {") > 0);
+		// Identical references are not compared.
+		assertTrue(methodString.indexOf("if (this.name!= __other.name) {") > 0);
+		assertTrue(methodString.indexOf("patch.putNull(_KEY_NAME);") > 0);
+		assertTrue(methodString.indexOf("patch.put(_KEY_NAME, __written.getString(_KEY_NAME));") > 0);
+		// Nested objects write their own patch.
+		assertTrue(methodString.indexOf("this.nested.diff(__other.nested, patch.createNew());") > 0);
+		assertFalse(methodString.indexOf("super.diff") > 0);
+	}
+	
+	@Test
+	public void testAddJSONMarshalingMergePatch() {
+		JSONMarshalingHandlerImpl03 handler = new JSONMarshalingHandlerImpl03(false, false, false, true);
+		// call under test
+		handler.addJSONMarshaling(schema, sampleClass, null);
+		String classString = declareToString(sampleClass);
+		assertTrue(classString.indexOf("org.sagebionetworks.schema.adapter.JSONMergePatchEntity") > 0);
+		assertTrue(classString.indexOf(" applyPatch(") > 0);
+		assertTrue(classString.indexOf(" diff(") > 0);
+	}
+	
+	@Test
+	public void testMergePatchImmutable() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new JSONMarshalingHandlerImpl03(true, false, false, true);
+		});
+	}
+	
 	@Test
 	public void testCreateMethodInitializeFromJSONObjectArrayWithReg() throws JClassAlreadyExistsException, ClassNotFoundException {
 		// Set the property type to be the same as the object
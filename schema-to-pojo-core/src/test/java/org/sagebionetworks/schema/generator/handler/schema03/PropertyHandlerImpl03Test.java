@@ -4,6 +4,9 @@ import static org.junit.Assert.*;
 
 import java.io.StringWriter;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -311,4 +314,95 @@ public class PropertyHandlerImpl03Test {
 		 assertTrue(classString.indexOf("private java.lang.String concreteType = org.sample.Sample.class.getName();") > 0);
 	}
 	
+	@Test
+	public void testCreatePropertyImmutable(){
+		PropertyHandler handler = new PropertyHandlerImpl03(true);
+		schema.setRequired(true);
+		JFieldVar field = handler.createProperty(schema, sampleClass, "name", type);
+		handler.createProperty(schema, sampleClass, ObjectSchema.CONCRETE_TYPE, type);
+		assertEquals(JMod.PRIVATE | JMod.FINAL, field.mods().getValue());
+		StringWriter writer = new StringWriter();
+		JFormatter formatter = new JFormatter(writer);
+		sampleClass.declare(formatter);
+		String classString = writer.toString();
+		System.out.println(classString);
+		assertTrue(classString.indexOf("private final java.lang.String name;") > 0);
+		assertTrue(classString.indexOf("private final java.lang.String concreteType;") > 0);
+		assertTrue(classString.indexOf("private Sample(org.sample.Sample.Builder builder) {") > 0);
+		assertTrue(classString.indexOf("this.name = builder.name;") > 0);
+		assertTrue(classString.indexOf("public java.lang.String getName() {") > 0);
+		// The setters are on the builder
+		assertTrue(classString.indexOf("public org.sample.Sample setName(") < 0);
+		assertTrue(classString.indexOf("public static class Builder {") > 0);
+		assertTrue(classString.indexOf("private java.lang.String concreteType = org.sample.Sample.class.getName();") > 0);
+		assertTrue(classString.indexOf("public org.sample.Sample.Builder setName(java.lang.String name) {") > 0);
+		assertTrue(classString.indexOf("throw new java.lang.IllegalArgumentException(\"name is required and cannot be set to null\");") > 0);
+		assertTrue(classString.indexOf("public org.sample.Sample build() {") > 0);
+		assertTrue(classString.indexOf("return new org.sample.Sample(this);") > 0);
+	}
+	
+	@Test
+	public void testCreatePropertyImmutableList(){
+		PropertyHandler handler = new PropertyHandlerImpl03(true);
+		handler.createProperty(schema, sampleClass, "list", codeModel.ref(List.class).narrow(String.class));
+		handler.createProperty(schema, sampleClass, "map", codeModel.ref(Map.class).narrow(String.class, Long.class));
+		StringWriter writer = new StringWriter();
+		JFormatter formatter = new JFormatter(writer);
+		sampleClass.declare(formatter);
+		String classString = writer.toString();
+		assertTrue(classString.indexOf("this.list = ((builder.list == null)?null:java.util.Collections.unmodifiableList(new java.util.ArrayList<java.lang.String>(builder.list)));") > 0);
+		assertTrue(classString.indexOf("this.map = ((builder.map == null)?null:java.util.Collections.unmodifiableMap(new java.util.LinkedHashMap<java.lang.String, java.lang.Long>(builder.map)));") > 0);
+	}
+	
+	@Test
+	public void testCreatePropertyImmutableDate(){
+		PropertyHandler handler = new PropertyHandlerImpl03(true);
+		handler.createProperty(schema, sampleClass, "date", codeModel.ref(Date.class));
+		handler.createProperty(schema, sampleClass, "dates", codeModel.ref(List.class).narrow(Date.class));
+		handler.createProperty(schema, sampleClass, "dateMap", codeModel.ref(Map.class).narrow(String.class, Date.class));
+		StringWriter writer = new StringWriter();
+		JFormatter formatter = new JFormatter(writer);
+		sampleClass.declare(formatter);
+		String classString = writer.toString();
+		System.out.println(classString);
+		// The Dates from the builder are copied
+		assertTrue(classString.indexOf("this.date = ((builder.date == null)?null:new java.util.Date(builder.date.getTime()));") > 0);
+		assertTrue(classString.indexOf("java.util.ArrayList<java.util.Date> __dates = null;") > 0);
+		assertTrue(classString.indexOf("__dates = new java.util.ArrayList<java.util.Date>(builder.dates.size());") > 0);
+		assertTrue(classString.indexOf("for (java.util.Date __value: builder.dates) {") > 0);
+		assertTrue(classString.indexOf("__dates.add(((__value == null)?null:new java.util.Date(__value.getTime())));") > 0);
+		assertTrue(classString.indexOf("this.dates = ((__dates == null)?null:java.util.Collections.unmodifiableList(__dates));") > 0);
+		assertTrue(classString.indexOf("for (java.util.Map.Entry<java.lang.String, java.util.Date> __entry: builder.dateMap.entrySet()) {") > 0);
+		assertTrue(classString.indexOf("__dateMap.put(__entry.getKey(), ((__entry.getValue() == null)?null:new java.util.Date(__entry.getValue().getTime())));") > 0);
+		// The getters return copies
+		assertTrue(classString.indexOf("return ((date == null)?null:new java.util.Date(date.getTime()));") > 0);
+		assertTrue(classString.indexOf("for (java.util.Date __value: dates) {") > 0);
+		assertTrue(classString.indexOf("return ((__dates == null)?null:java.util.Collections.unmodifiableList(__dates));") > 0);
+		assertTrue(classString.indexOf("return ((__dateMap == null)?null:java.util.Collections.unmodifiableMap(__dateMap));") > 0);
+	}
+	
+	@Test
+	public void testCreatePropertyMutableDate(){
+		PropertyHandler handler = new PropertyHandlerImpl03();
+		handler.createProperty(schema, sampleClass, "date", codeModel.ref(Date.class));
+		StringWriter writer = new StringWriter();
+		JFormatter formatter = new JFormatter(writer);
+		sampleClass.declare(formatter);
+		String classString = writer.toString();
+		assertTrue(classString.indexOf("return date;") > 0);
+	}
+	
+	@Test
+	public void testCreatePropertyImmutableInterface(){
+		PropertyHandler handler = new PropertyHandlerImpl03(true);
+		handler.createProperty(schema, sampleInterfance, "name", type);
+		StringWriter writer = new StringWriter();
+		JFormatter formatter = new JFormatter(writer);
+		sampleInterfance.declare(formatter);
+		String classString = writer.toString();
+		assertTrue(classString.indexOf("public java.lang.String getName();") > 0);
+		assertTrue(classString.indexOf("setName") < 0);
+		assertTrue(classString.indexOf("Builder") < 0);
+	}
+	
 }
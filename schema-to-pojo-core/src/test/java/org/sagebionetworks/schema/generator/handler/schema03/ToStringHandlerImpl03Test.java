@@ -1,7 +1,9 @@
 package org.sagebionetworks.schema.generator.handler.schema03;
 
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.StringWriter;
@@ -326,6 +328,78 @@ public class ToStringHandlerImpl03Test {
 		assertTrue(methodString.indexOf("result.append(_enum);") > 0);
 	}
 
+	@Test
+	public void testNegativeBudget() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new ToStringHandlerImpl03(-1);
+		});
+	}
+
+	@Test
+	public void testAddToStringMethodWithBudget() throws Exception {
+		ObjectSchema prop = new ObjectSchemaImpl();
+		prop.setType(TYPE.ARRAY);
+		schema.putProperty("list", prop);
+		sampleClass.field(JMod.PRIVATE, sampleClass, "list");
+
+		ToStringHandlerImpl03 handler = new ToStringHandlerImpl03(200);
+		handler.addToStringMethod(schema, sampleClass);
+
+		String classString = declareToString(sampleClass);
+		assertTrue(classString.indexOf("implements org.sagebionetworks.schema.BoundedToString") > 0);
+		assertTrue(classString.indexOf("public void appendTo(org.sagebionetworks.schema.BoundedAppender out)") > 0);
+		assertTrue(classString.indexOf("public void appendTo(java.lang.Appendable out, int charBudget)") > 0);
+		assertTrue(classString.indexOf("public java.lang.String toString() {") > 0);
+		assertFalse(classString.indexOf("result.append(\"list=\");") > 0);
+	}
+
+	@Test
+	public void testAppendTo() throws Exception {
+		ObjectSchema prop = new ObjectSchemaImpl();
+		prop.setType(TYPE.OBJECT);
+		schema.putProperty("out", prop);
+		sampleClass.field(JMod.PRIVATE, sampleClass, "out");
+
+		ToStringHandlerImpl03 handler = new ToStringHandlerImpl03(200);
+		JMethod method = handler.addAppendTo(schema, sampleClass);
+
+		String methodString = declareToString(method);
+		assertTrue(methodString.indexOf("throws java.io.IOException") > 0);
+		assertTrue(methodString.indexOf("out.append(\"ImASampleClass\").append(\" [\");") > 0);
+		// The field is not hidden by the parameter.
+		assertTrue(methodString.indexOf("out.append(\"out=\").appendValue(this.out).append(\" \");") > 0);
+		assertTrue(methodString.indexOf("out.append(\"]\");") > 0);
+		assertFalse(methodString.indexOf("super.appendTo(out);") > 0);
+		String classString = declareToString(sampleClass);
+		assertTrue(classString.indexOf("appendTo(new org.sagebionetworks.schema.BoundedAppender(out, charBudget));") > 0);
+	}
+
+	@Test
+	public void testAppendToSuper() throws Exception {
+		ObjectSchema childSchema = new ObjectSchemaImpl();
+		childSchema.setExtends(schema);
+		JDefinedClass childClasss = codeModel._class("ChildOfSample");
+		childClasss._extends(sampleClass);
+
+		ToStringHandlerImpl03 handler = new ToStringHandlerImpl03(200);
+		JMethod method = handler.addAppendTo(childSchema, childClasss);
+
+		String methodString = declareToString(method);
+		assertTrue(methodString.indexOf("super.appendTo(out);") > 0);
+	}
+
+	@Test
+	public void testBoundedToString() throws Exception {
+		ToStringHandlerImpl03 handler = new ToStringHandlerImpl03(123);
+		JMethod method = handler.addBoundedToString(sampleClass);
+
+		String methodString = declareToString(method);
+		assertTrue(methodString.indexOf("appendTo(result, 123);") > 0);
+		assertTrue(methodString.indexOf("catch (java.io.IOException e)") > 0);
+		assertTrue(methodString.indexOf("throw new java.lang.IllegalStateException(e);") > 0);
+		assertTrue(methodString.indexOf("return result.toString();") > 0);
+	}
+
 	/**
 	 * Helper to declare a model object to string.
 	 * @param toDeclare
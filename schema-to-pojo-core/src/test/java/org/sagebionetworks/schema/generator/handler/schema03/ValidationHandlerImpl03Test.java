@@ -0,0 +1,182 @@
+package org.sagebionetworks.schema.generator.handler.schema03;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.ObjectSchema;
+import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.TYPE;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
+
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDeclaration;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+
+public class ValidationHandlerImpl03Test {
+
+	ObjectSchema schema;
+	JCodeModel codeModel;
+	JDefinedClass sampleClass;
+	JDefinedClass nestedClass;
+
+	@BeforeEach
+	public void before() throws Exception {
+		schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		codeModel = new JCodeModel();
+		sampleClass = codeModel._class("Sample");
+		nestedClass = codeModel._class("Nested");
+	}
+
+	private ObjectSchema addProperty(String name, TYPE type, JType javaType) {
+		ObjectSchema propSchema = new ObjectSchemaImpl(type);
+		schema.putProperty(name, propSchema);
+		sampleClass.field(JMod.PRIVATE, javaType, name);
+		return propSchema;
+	}
+
+	private String addValidation() {
+		TypeCreatorHandlerImpl03.addKeyConstants(schema, sampleClass);
+		new ValidationHandlerImpl03(true, false, false).addValidation(schema, sampleClass);
+		return declare(sampleClass);
+	}
+
+	@Test
+	public void testDisabled() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class)).setRequired(true);
+		TypeCreatorHandlerImpl03.addKeyConstants(schema, sampleClass);
+		// call under test
+		new ValidationHandlerImpl03().addValidation(schema, sampleClass);
+		assertFalse(declare(sampleClass).indexOf("validate") > 0);
+	}
+
+	@Test
+	public void testOnReadWithLazy() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new ValidationHandlerImpl03(true, true, true);
+		});
+	}
+
+	@Test
+	public void testString() {
+		ObjectSchema name = addProperty("name", TYPE.STRING, codeModel.ref(String.class));
+		name.setRequired(true);
+		name.setMinLength(2);
+		name.setMaxLength(10);
+		name.setPattern("^[a-z]+$");
+		// call under test
+		String value = addValidation();
+		assertTrue(value.indexOf("implements org.sagebionetworks.schema.ValidatingEntity") > 0);
+		assertTrue(value.indexOf("private final static java.util.regex.Pattern _PATTERN_NAME = java.util.regex.Pattern.compile(\"^[a-z]+$\");") > 0);
+		assertTrue(value.indexOf("protected void __validateProperties(org.sagebionetworks.schema.ValidationResult result, boolean nested) {") > 0);
+		assertTrue(value.indexOf("if (this.name.length()< 2) {") > 0);
+		assertTrue(value.indexOf("result.addViolation(_KEY_NAME, \"must have at least 2 characters\");") > 0);
+		assertTrue(value.indexOf("if (this.name.length()> 10) {") > 0);
+		assertTrue(value.indexOf("if (!_PATTERN_NAME.matcher(this.name).find()) {") > 0);
+		assertTrue(value.indexOf("} else {\n            result.addViolation(_KEY_NAME, \"is required\");") > 0);
+		assertTrue(value.indexOf("public org.sagebionetworks.schema.ValidationResult validate(org.sagebionetworks.schema.ValidationResult result) {") > 0);
+		assertTrue(value.indexOf("return validate(new org.sagebionetworks.schema.ValidationResult());") > 0);
+	}
+
+	@Test
+	public void testInvalidPattern() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class)).setPattern("[a-z");
+		assertThrows(IllegalArgumentException.class, () -> {
+			addValidation();
+		});
+	}
+
+	@Test
+	public void testNumber() {
+		ObjectSchema count = addProperty("count", TYPE.INTEGER, codeModel.ref(Long.class));
+		count.setMinimum(1L);
+		count.setExclusiveMaximum(100L);
+		count.setDivisibleBy(5L);
+		ObjectSchema ratio = addProperty("ratio", TYPE.NUMBER, codeModel.ref(Double.class));
+		ratio.setMaximum(1.5);
+		ratio.setDivisibleBy(0.5);
+		// call under test
+		String value = addValidation();
+		assertTrue(value.indexOf("if (this.count< 1L) {") > 0);
+		assertTrue(value.indexOf("if (this.count >= 100L) {") > 0);
+		assertTrue(value.indexOf("if ((this.count% 5L)!= 0) {") > 0);
+		assertTrue(value.indexOf("if (this.ratio > 1.5D) {") > 0);
+		assertTrue(value.indexOf("org.sagebionetworks.schema.util.CompareUtils.ABSOLUTE_ERROR") > 0);
+	}
+
+	@Test
+	public void testDivisibleByZero() {
+		addProperty("count", TYPE.INTEGER, codeModel.ref(Long.class)).setDivisibleBy(0L);
+		assertThrows(IllegalArgumentException.class, () -> {
+			addValidation();
+		});
+	}
+
+	@Test
+	public void testList() {
+		ObjectSchema list = addProperty("list", TYPE.ARRAY, codeModel.ref(List.class).narrow(nestedClass));
+		list.setMinItems(1L);
+		list.setMaxItems(3L);
+		list.setUniqueItems(true);
+		// call under test
+		String value = addValidation();
+		assertTrue(value.indexOf("if (this.list.size()< 1L) {") > 0);
+		assertTrue(value.indexOf("if (this.list.size()> 3L) {") > 0);
+		assertTrue(value.indexOf("if (new java.util.HashSet<Nested>(this.list).size()!= this.list.size()) {") > 0);
+		assertTrue(value.indexOf("result.enter(_KEY_LIST);") > 0);
+		assertTrue(value.indexOf("__element.validate(result);") > 0);
+	}
+
+	@Test
+	public void testNested() {
+		addProperty("nested", TYPE.OBJECT, nestedClass);
+		// call under test
+		String value = addValidation();
+		assertTrue(value.indexOf("if (nested) {") > 0);
+		assertTrue(value.indexOf("result.enter(_KEY_NESTED);") > 0);
+		assertTrue(value.indexOf("this.nested.validate(result);") > 0);
+		assertTrue(value.indexOf("result.exit();") > 0);
+	}
+
+	@Test
+	public void testExtends() throws Exception {
+		ObjectSchema childSchema = new ObjectSchemaImpl(TYPE.OBJECT);
+		childSchema.setExtends(schema);
+		JDefinedClass childClass = codeModel._class("Child");
+		childClass._extends(sampleClass);
+		TypeCreatorHandlerImpl03.addKeyConstants(childSchema, childClass);
+		// call under test
+		new ValidationHandlerImpl03(true, false, false).addValidation(childSchema, childClass);
+		String value = declare(childClass);
+		assertTrue(value.indexOf("super.__validateProperties(result, nested);") > 0);
+		assertFalse(value.indexOf("ValidatingEntity") > 0);
+		assertFalse(value.indexOf("validate(org.sagebionetworks.schema.ValidationResult result)") > 0);
+	}
+
+	@Test
+	public void testOnRead() {
+		addProperty("name", TYPE.STRING, codeModel.ref(String.class)).setRequired(true);
+		TypeCreatorHandlerImpl03.addKeyConstants(schema, sampleClass);
+		sampleClass.constructor(JMod.PUBLIC).param(JSONObjectAdapter.class, "adapter");
+		// call under test
+		new ValidationHandlerImpl03(false, true, false).addValidation(schema, sampleClass);
+		String value = declare(sampleClass);
+		assertTrue(value.indexOf("if (getClass() == Sample.class) {") > 0);
+		assertTrue(value.indexOf("__validateProperties(__result, false);") > 0);
+		assertTrue(value.indexOf("throw new java.lang.IllegalArgumentException(__result.toString());") > 0);
+	}
+
+	private static String declare(JDeclaration toDeclare) {
+		StringWriter writer = new StringWriter();
+		toDeclare.declare(new JFormatter(writer));
+		return writer.toString();
+	}
+}
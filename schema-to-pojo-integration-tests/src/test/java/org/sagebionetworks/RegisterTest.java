@@ -35,5 +35,21 @@ public class RegisterTest {
 			assertEquals(newInstance.getClass().getName(), schema.getId());
 		}
 	}
-	
+
+	@Test
+	public void testSingleton() {
+		Register reg = Register.singleton();
+		assertNotNull(reg);
+		assertSame(reg, Register.singleton());
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testNewInstanceUnknown() {
+		Register.singleton().newInstance("org.sagebionetworks.DoesNotExist");
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testNewInstanceNull() {
+		Register.singleton().newInstance(null);
+	}
 }
@@ -0,0 +1,180 @@
+package org.sagebionetworks.schema;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes values to an {@link Appendable} until a budget of characters is used.
+ * The text that does not fit is cut and followed by {@link #ELLIPSIS}, after
+ * which nothing else is written. Collections and maps are written like their
+ * toString() but the elements that do not fit are replaced with
+ * <code>... N more</code>. When an element is cut, its {@link #ELLIPSIS} is
+ * the only marker and the collection is still closed.
+ *
+ */
+public class BoundedAppender {
+
+	/**
+	 * Written after a value that was cut at the end of the budget.
+	 */
+	public static final String ELLIPSIS = "...";
+
+	private static final String SEPARATOR = ", ";
+
+	private final Appendable out;
+	private int remaining;
+	private boolean truncated = false;
+
+	/**
+	 * @param out
+	 *            Where the characters are written.
+	 * @param budget
+	 *            The maximum number of characters to write, not counting the
+	 *            truncation markers.
+	 */
+	public BoundedAppender(Appendable out, int budget) {
+		if (out == null) {
+			throw new IllegalArgumentException("The Appendable cannot be null");
+		}
+		if (budget < 0) {
+			throw new IllegalArgumentException("The budget cannot be negative");
+		}
+		this.out = out;
+		this.remaining = budget;
+	}
+
+	/**
+	 * The number of characters that can still be written.
+	 *
+	 * @return
+	 */
+	public int getRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * True once the budget was used and the output was cut.
+	 *
+	 * @return
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Write the given text, cutting it if it does not fit in the budget.
+	 *
+	 * @param text
+	 * @return
+	 * @throws IOException
+	 */
+	public BoundedAppender append(CharSequence text) throws IOException {
+		if (truncated) {
+			return this;
+		}
+		if (text == null) {
+			text = "null";
+		}
+		int length = text.length();
+		if (length <= remaining) {
+			out.append(text);
+			remaining -= length;
+		} else {
+			out.append(text, 0, remaining);
+			out.append(ELLIPSIS);
+			remaining = 0;
+			truncated = true;
+		}
+		return this;
+	}
+
+	/**
+	 * Write the string value of the given object. Objects that are
+	 * {@link BoundedToString} write themselves, collections and maps are
+	 * written one element at a time.
+	 *
+	 * @param value
+	 * @return
+	 * @throws IOException
+	 */
+	public BoundedAppender appendValue(Object value) throws IOException {
+		if (truncated) {
+			return this;
+		}
+		if (value instanceof BoundedToString) {
+			((BoundedToString) value).appendTo(this);
+		} else if (value instanceof Collection) {
+			appendCollection((Collection<?>) value);
+		} else if (value instanceof Map) {
+			appendMap((Map<?, ?>) value);
+		} else {
+			append(String.valueOf(value));
+		}
+		return this;
+	}
+
+	private void appendCollection(Collection<?> collection) throws IOException {
+		append("[");
+		if (truncated) {
+			return;
+		}
+		int index = 0;
+		for (Object element : collection) {
+			if (remaining <= (index > 0 ? SEPARATOR.length() : 0)) {
+				appendMore(index, collection.size() - index, "]");
+				return;
+			}
+			if (index > 0) {
+				append(SEPARATOR);
+			}
+			appendValue(element);
+			index++;
+			if (truncated) {
+				// The element was cut and already ends with the ellipsis.
+				out.append("]");
+				return;
+			}
+		}
+		append("]");
+	}
+
+	private void appendMap(Map<?, ?> map) throws IOException {
+		append("{");
+		if (truncated) {
+			return;
+		}
+		int index = 0;
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			if (remaining <= (index > 0 ? SEPARATOR.length() : 0)) {
+				appendMore(index, map.size() - index, "}");
+				return;
+			}
+			if (index > 0) {
+				append(SEPARATOR);
+			}
+			appendValue(entry.getKey());
+			append("=");
+			appendValue(entry.getValue());
+			index++;
+			if (truncated) {
+				// The entry was cut and already ends with the ellipsis.
+				out.append("}");
+				return;
+			}
+		}
+		append("}");
+	}
+
+	/**
+	 * Write the marker for the elements that did not fit, this is written even
+	 * when the budget is used.
+	 */
+	private void appendMore(int written, int more, String close) throws IOException {
+		if (written > 0) {
+			out.append(SEPARATOR);
+		}
+		out.append(ELLIPSIS).append(" ").append(String.valueOf(more)).append(" more").append(close);
+		truncated = true;
+	}
+}
@@ -0,0 +1,20 @@
+package org.sagebionetworks.schema;
+
+import java.io.IOException;
+
+/**
+ * Abstraction for a class that can write its toString() to a
+ * {@link BoundedAppender} without building intermediate strings.
+ *
+ */
+public interface BoundedToString {
+
+	/**
+	 * Write the string value of this object to the given appender. Writing
+	 * stops once the budget of the appender is used.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void appendTo(BoundedAppender out) throws IOException;
+}
@@ -0,0 +1,110 @@
+package org.sagebionetworks.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a property of a generated class for {@link IndexedEntity}: its
+ * index, its JSON name, its {@link TYPE} and its {@link FORMAT}.
+ *
+ */
+public class FieldDescriptor {
+
+	private final int index;
+	private final String name;
+	private final TYPE type;
+	private final FORMAT format;
+
+	/**
+	 * @param index
+	 *            The index used with {@link IndexedEntity#getFieldValue(int)}.
+	 * @param name
+	 *            The JSON name of the property.
+	 * @param type
+	 * @param format
+	 *            Null when the property has no format.
+	 */
+	public FieldDescriptor(int index, String name, TYPE type, FORMAT format) {
+		if (index < 0) {
+			throw new IllegalArgumentException("The index cannot be negative");
+		}
+		if (name == null) {
+			throw new IllegalArgumentException("The name cannot be null");
+		}
+		if (type == null) {
+			throw new IllegalArgumentException("The type cannot be null");
+		}
+		this.index = index;
+		this.name = name;
+		this.type = type;
+		this.format = format;
+	}
+
+	/**
+	 * Create the unmodifiable list of descriptors of a class: the descriptors
+	 * of the super class followed by the descriptors of the class itself.
+	 *
+	 * @param inherited
+	 *            The descriptors of the super class, null when there is none.
+	 * @param descriptors
+	 * @return
+	 */
+	public static List<FieldDescriptor> list(List<FieldDescriptor> inherited, FieldDescriptor... descriptors) {
+		List<FieldDescriptor> list = new ArrayList<FieldDescriptor>();
+		if (inherited != null) {
+			list.addAll(inherited);
+		}
+		for (FieldDescriptor descriptor : descriptors) {
+			if (descriptor.getIndex() != list.size()) {
+				throw new IllegalArgumentException("Expected index " + list.size() + " for: " + descriptor);
+			}
+			list.add(descriptor);
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public TYPE getType() {
+		return type;
+	}
+
+	public FORMAT getFormat() {
+		return format;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + index;
+		result = prime * result + name.hashCode();
+		result = prime * result + type.hashCode();
+		result = prime * result + ((format == null) ? 0 : format.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FieldDescriptor other = (FieldDescriptor) obj;
+		return index == other.index && name.equals(other.name) && type == other.type && format == other.format;
+	}
+
+	@Override
+	public String toString() {
+		return "FieldDescriptor [index=" + index + ", name=" + name + ", type=" + type + ", format=" + format + "]";
+	}
+}
@@ -0,0 +1,230 @@
+package org.sagebionetworks.schema;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A streaming 64-bit FNV-1a hash used by the generated fingerprint64()
+ * methods. Each method mixes a value into the given hash and returns the new
+ * hash, so nothing is allocated. Every value starts with a tag for its kind,
+ * strings are hashed by their characters, dates by their time, enums by their
+ * name and {@link FingerprintEntity}s by their own fingerprint. Lists are
+ * hashed in order, the elements of sets and the entries of maps are summed so
+ * that their order does not matter. The result only depends on the values, so
+ * it is the same in every JVM.
+ *
+ */
+public final class Fingerprint {
+
+	/**
+	 * The hash of nothing.
+	 */
+	public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long PRIME = 0x100000001b3L;
+
+	private static final int TAG_NULL = 0;
+	private static final int TAG_STRING = 1;
+	private static final int TAG_INTEGER = 2;
+	private static final int TAG_DOUBLE = 3;
+	private static final int TAG_BOOLEAN = 4;
+	private static final int TAG_DATE = 5;
+	private static final int TAG_ENUM = 6;
+	private static final int TAG_BYTES = 7;
+	private static final int TAG_LIST = 8;
+	private static final int TAG_SET = 9;
+	private static final int TAG_MAP = 10;
+	private static final int TAG_ENTITY = 11;
+
+	private Fingerprint() {
+	}
+
+	private static long mixByte(long hash, int value) {
+		return (hash ^ (value & 0xff)) * PRIME;
+	}
+
+	private static long mixLong(long hash, long value) {
+		for (int shift = 0; shift < 64; shift += 8) {
+			hash = mixByte(hash, (int) (value >>> shift));
+		}
+		return hash;
+	}
+
+	private static long mixChars(long hash, CharSequence value) {
+		int length = value.length();
+		hash = mixLong(hash, length);
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			hash = mixByte(mixByte(hash, c), c >>> 8);
+		}
+		return hash;
+	}
+
+	/**
+	 * Mix a raw long, such as the hash of a property name, into the hash.
+	 *
+	 * @param hash
+	 * @param value
+	 * @return
+	 */
+	public static long mix(long hash, long value) {
+		return mixLong(hash, value);
+	}
+
+	public static long hashNull(long hash) {
+		return mixByte(hash, TAG_NULL);
+	}
+
+	public static long hash(long hash, String value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixChars(mixByte(hash, TAG_STRING), value);
+	}
+
+	public static long hash(long hash, Long value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixLong(mixByte(hash, TAG_INTEGER), value.longValue());
+	}
+
+	public static long hash(long hash, Integer value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixLong(mixByte(hash, TAG_INTEGER), value.longValue());
+	}
+
+	public static long hash(long hash, Double value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixLong(mixByte(hash, TAG_DOUBLE), Double.doubleToLongBits(value.doubleValue()));
+	}
+
+	public static long hash(long hash, Boolean value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixByte(mixByte(hash, TAG_BOOLEAN), value.booleanValue() ? 1 : 0);
+	}
+
+	public static long hash(long hash, Date value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixLong(mixByte(hash, TAG_DATE), value.getTime());
+	}
+
+	public static long hash(long hash, Enum<?> value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixChars(mixByte(hash, TAG_ENUM), value.name());
+	}
+
+	public static long hash(long hash, byte[] value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		hash = mixLong(mixByte(hash, TAG_BYTES), value.length);
+		for (byte b : value) {
+			hash = mixByte(hash, b);
+		}
+		return hash;
+	}
+
+	public static long hash(long hash, FingerprintEntity value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		return mixLong(mixByte(hash, TAG_ENTITY), value.fingerprint64());
+	}
+
+	public static long hash(long hash, Collection<?> value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		if (value instanceof Set) {
+			long sum = 0;
+			for (Object element : value) {
+				sum += hash(OFFSET_BASIS, element);
+			}
+			return mixLong(mixLong(mixByte(hash, TAG_SET), value.size()), sum);
+		}
+		hash = mixLong(mixByte(hash, TAG_LIST), value.size());
+		if (value instanceof List) {
+			// Avoid the iterator for the common case.
+			List<?> list = (List<?>) value;
+			for (int i = 0; i < list.size(); i++) {
+				hash = hash(hash, list.get(i));
+			}
+			return hash;
+		}
+		for (Object element : value) {
+			hash = hash(hash, element);
+		}
+		return hash;
+	}
+
+	public static long hash(long hash, Map<?, ?> value) {
+		if (value == null) {
+			return hashNull(hash);
+		}
+		long sum = 0;
+		for (Map.Entry<?, ?> entry : value.entrySet()) {
+			sum += hash(hash(OFFSET_BASIS, entry.getKey()), entry.getValue());
+		}
+		return mixLong(mixLong(mixByte(hash, TAG_MAP), value.size()), sum);
+	}
+
+	/**
+	 * Mix a value whose type is only known at runtime into the hash.
+	 *
+	 * @param hash
+	 * @param value
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             When the value is not of one of the supported types.
+	 */
+	public static long hash(long hash, Object value) {
+		if (value == null) {
+			return hashNull(hash);
+		} else if (value instanceof String) {
+			return hash(hash, (String) value);
+		} else if (value instanceof Long || value instanceof Integer) {
+			return mixLong(mixByte(hash, TAG_INTEGER), ((Number) value).longValue());
+		} else if (value instanceof Double) {
+			return hash(hash, (Double) value);
+		} else if (value instanceof Boolean) {
+			return hash(hash, (Boolean) value);
+		} else if (value instanceof Date) {
+			return hash(hash, (Date) value);
+		} else if (value instanceof Enum) {
+			return hash(hash, (Enum<?>) value);
+		} else if (value instanceof byte[]) {
+			return hash(hash, (byte[]) value);
+		} else if (value instanceof FingerprintEntity) {
+			return hash(hash, (FingerprintEntity) value);
+		} else if (value instanceof Collection) {
+			return hash(hash, (Collection<?>) value);
+		} else if (value instanceof Map) {
+			return hash(hash, (Map<?, ?>) value);
+		}
+		throw new IllegalArgumentException("Cannot fingerprint a value of type " + value.getClass().getName());
+	}
+
+	/**
+	 * The hash of a string on its own, used for the class and property names
+	 * when the classes are generated.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static long of(String value) {
+		return hash(OFFSET_BASIS, value);
+	}
+}
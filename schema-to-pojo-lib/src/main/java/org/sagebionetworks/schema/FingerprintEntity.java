@@ -0,0 +1,19 @@
+package org.sagebionetworks.schema;
+
+/**
+ * Abstraction for a class that can compute a stable 64-bit fingerprint of its
+ * content without writing itself to JSON.
+ *
+ */
+public interface FingerprintEntity {
+
+	/**
+	 * A non-cryptographic hash of the class and of the values of all of the
+	 * properties that are not null, see {@link Fingerprint}. Equal objects
+	 * have the same fingerprint in every JVM and in every release that does
+	 * not change the properties that are set.
+	 *
+	 * @return
+	 */
+	public long fingerprint64();
+}
@@ -0,0 +1,45 @@
+package org.sagebionetworks.schema;
+
+import java.util.List;
+
+/**
+ * Gives access to the properties of a generated class by index, so that they
+ * can be processed generically without reflection or a JSON round trip.
+ *
+ */
+public interface IndexedEntity {
+
+	/**
+	 * The descriptors of all of the properties of this object, including the
+	 * inherited ones. The descriptor at each position has that index.
+	 *
+	 * @return
+	 */
+	public List<FieldDescriptor> getFieldDescriptors();
+
+	/**
+	 * Get the value of a property.
+	 *
+	 * @param index
+	 *            The index of the property's {@link FieldDescriptor}.
+	 * @return
+	 * @throws IndexOutOfBoundsException
+	 *             When there is no property with this index.
+	 */
+	public Object getFieldValue(int index);
+
+	/**
+	 * Set the value of a property.
+	 *
+	 * @param index
+	 *            The index of the property's {@link FieldDescriptor}.
+	 * @param value
+	 *            Must be of the property's type.
+	 * @throws IndexOutOfBoundsException
+	 *             When there is no property with this index.
+	 * @throws ClassCastException
+	 *             When the value is not of the property's type.
+	 */
+	public void setFieldValue(int index, Object value);
+
+}
@@ -0,0 +1,323 @@
+package org.sagebionetworks.schema;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the modifications of a schema so that values derived from it can be
+ * cached by each instance. This state is kept out of {@link ObjectSchemaImpl}
+ * where every field is part of the JSON representation of a schema.
+ * <p>
+ * The modifications of all schemas are also counted together, so a value
+ * derived from a schema and every schema it reaches can be checked with a
+ * single read.
+ *
+ */
+abstract class ModificationTrackingSchema {
+
+	private static final AtomicInteger GLOBAL_MODIFICATION_COUNT = new AtomicInteger();
+
+	private volatile int modificationCount;
+
+	/**
+	 * The cached fingerprint of the fields of this schema that are not
+	 * sub-schemas. See {@link ObjectSchemaImpl#getFingerprint(ObjectSchema)}.
+	 */
+	volatile CachedValue<Long> localFingerprintCache;
+
+	/**
+	 * The cached fingerprint of this schema and all of its sub-schemas. See
+	 * {@link ObjectSchemaImpl#getFingerprint(ObjectSchema)}.
+	 */
+	volatile CachedFingerprint fingerprintCache;
+
+	/**
+	 * The cached result of
+	 * {@link ObjectSchemaImpl#getCachedObjectFieldMap(ObjectSchema)}.
+	 */
+	volatile CachedValue<Map<String, ObjectSchema>> fieldMapCache;
+
+	/**
+	 * The last views returned by {@link #trackProperties(Map)} and
+	 * {@link #trackAdditionalProperties(Map)}, so callers get the same view
+	 * while the underlying map is the same.
+	 */
+	private volatile TrackedMap propertiesView;
+	private volatile TrackedMap additionalPropertiesView;
+
+	/**
+	 * Must be called each time this schema changes, after the change.
+	 */
+	void modified() {
+		modificationCount++;
+		GLOBAL_MODIFICATION_COUNT.incrementAndGet();
+	}
+
+	/**
+	 * @return The number of modifications of all schemas.
+	 */
+	static int getGlobalModificationCount() {
+		return GLOBAL_MODIFICATION_COUNT.get();
+	}
+
+	/**
+	 * Wrap the properties of this schema so changes made through the returned
+	 * map are counted as modifications of this schema.
+	 *
+	 * @param properties
+	 * @return
+	 */
+	Map<String, ObjectSchema> trackProperties(Map<String, ObjectSchema> properties) {
+		if (properties == null) {
+			return null;
+		}
+		TrackedMap view = propertiesView;
+		if (view == null || view.map != properties) {
+			view = new TrackedMap(properties, this);
+			propertiesView = view;
+		}
+		return view;
+	}
+
+	/**
+	 * Wrap the additional properties of this schema so changes made through
+	 * the returned map are counted as modifications of this schema.
+	 *
+	 * @param additionalProperties
+	 * @return
+	 */
+	Map<String, ObjectSchema> trackAdditionalProperties(Map<String, ObjectSchema> additionalProperties) {
+		if (additionalProperties == null) {
+			return null;
+		}
+		TrackedMap view = additionalPropertiesView;
+		if (view == null || view.map != additionalProperties) {
+			view = new TrackedMap(additionalProperties, this);
+			additionalPropertiesView = view;
+		}
+		return view;
+	}
+
+	/**
+	 * A value derived from one or more schemas. The value is valid until any
+	 * of those schemas is modified.
+	 */
+	static final class CachedValue<T> {
+
+		private final T value;
+		private final ModificationTrackingSchema[] sources;
+		private final int[] modificationStamps;
+
+		/**
+		 * @param value
+		 * @param sources
+		 *            The schemas the value was derived from.
+		 * @param modificationStamps
+		 *            The modification counts of the sources, read with
+		 *            {@link #stamp(ModificationTrackingSchema[])} before the
+		 *            value was derived.
+		 */
+		CachedValue(T value, ModificationTrackingSchema[] sources, int[] modificationStamps) {
+			this.value = value;
+			this.sources = sources;
+			this.modificationStamps = modificationStamps;
+		}
+
+		static int[] stamp(ModificationTrackingSchema[] sources) {
+			int[] stamps = new int[sources.length];
+			for (int i = 0; i < sources.length; i++) {
+				stamps[i] = sources[i].modificationCount;
+			}
+			return stamps;
+		}
+
+		boolean isValid() {
+			for (int i = 0; i < sources.length; i++) {
+				if (sources[i].modificationCount != modificationStamps[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		T getValue() {
+			return value;
+		}
+	}
+
+	/**
+	 * The fingerprint of a schema and all of the schemas it reaches. The value
+	 * is valid until any schema is modified.
+	 */
+	static final class CachedFingerprint {
+
+		private final long value;
+		private final boolean acyclic;
+		private final int globalModificationStamp;
+
+		/**
+		 * @param value
+		 * @param acyclic
+		 *            False if the schema reaches a cycle, so that the value
+		 *            depends on the schema the walk started from.
+		 * @param globalModificationStamp
+		 *            The result of {@link #getGlobalModificationCount()}, read
+		 *            before the value was derived.
+		 */
+		CachedFingerprint(long value, boolean acyclic, int globalModificationStamp) {
+			this.value = value;
+			this.acyclic = acyclic;
+			this.globalModificationStamp = globalModificationStamp;
+		}
+
+		/**
+		 * @param globalModificationStamp
+		 *            The result of {@link #getGlobalModificationCount()}.
+		 * @return True if no schema was modified between the two reads.
+		 */
+		boolean isValid(int globalModificationStamp) {
+			return this.globalModificationStamp == globalModificationStamp;
+		}
+
+		long getValue() {
+			return value;
+		}
+
+		boolean isAcyclic() {
+			return acyclic;
+		}
+	}
+
+	/**
+	 * A view of a map that counts each change as a modification of its schema.
+	 */
+	private static final class TrackedMap extends AbstractMap<String, ObjectSchema> {
+
+		private final Map<String, ObjectSchema> map;
+		private final ModificationTrackingSchema owner;
+
+		TrackedMap(Map<String, ObjectSchema> map, ModificationTrackingSchema owner) {
+			this.map = map;
+			this.owner = owner;
+		}
+
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return map.containsKey(key);
+		}
+
+		@Override
+		public ObjectSchema get(Object key) {
+			return map.get(key);
+		}
+
+		@Override
+		public ObjectSchema put(String key, ObjectSchema value) {
+			ObjectSchema previous = map.put(key, value);
+			owner.modified();
+			return previous;
+		}
+
+		@Override
+		public ObjectSchema remove(Object key) {
+			ObjectSchema previous = map.remove(key);
+			owner.modified();
+			return previous;
+		}
+
+		@Override
+		public void clear() {
+			map.clear();
+			owner.modified();
+		}
+
+		@Override
+		public Set<Map.Entry<String, ObjectSchema>> entrySet() {
+			return new AbstractSet<Map.Entry<String, ObjectSchema>>() {
+
+				@Override
+				public int size() {
+					return map.size();
+				}
+
+				@Override
+				public Iterator<Map.Entry<String, ObjectSchema>> iterator() {
+					final Iterator<Map.Entry<String, ObjectSchema>> it = map.entrySet().iterator();
+					return new Iterator<Map.Entry<String, ObjectSchema>>() {
+
+						@Override
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+
+						@Override
+						public Map.Entry<String, ObjectSchema> next() {
+							return new TrackedEntry(it.next(), owner);
+						}
+
+						@Override
+						public void remove() {
+							it.remove();
+							owner.modified();
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/**
+	 * An entry of a {@link TrackedMap}.
+	 */
+	private static final class TrackedEntry implements Map.Entry<String, ObjectSchema> {
+
+		private final Map.Entry<String, ObjectSchema> entry;
+		private final ModificationTrackingSchema owner;
+
+		TrackedEntry(Map.Entry<String, ObjectSchema> entry, ModificationTrackingSchema owner) {
+			this.entry = entry;
+			this.owner = owner;
+		}
+
+		@Override
+		public String getKey() {
+			return entry.getKey();
+		}
+
+		@Override
+		public ObjectSchema getValue() {
+			return entry.getValue();
+		}
+
+		@Override
+		public ObjectSchema setValue(ObjectSchema value) {
+			ObjectSchema previous = entry.setValue(value);
+			owner.modified();
+			return previous;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return entry.equals(obj);
+		}
+
+		@Override
+		public int hashCode() {
+			return entry.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return entry.toString();
+		}
+	}
+}
@@ -142,7 +142,8 @@ public interface ObjectSchema extends JSONEntity {
 	public void putProperty(String key, ObjectSchema property);
 
 	/**
-	 * Set the primary properties.
+	 * Set the primary properties. The map is copied, so later changes to the
+	 * given map do not change this schema.
 	 * @param properties
 	 */
 	public void setProperties(LinkedHashMap<String, ObjectSchema> properties);
@@ -176,7 +177,8 @@ public interface ObjectSchema extends JSONEntity {
 	public void putAdditionalProperty(String key, ObjectSchema property);
 
 	/**
-	 * Set the additional properties.
+	 * Set the additional properties. The map is copied, so later changes to
+	 * the given map do not change this schema.
 	 * @param additionalProperties
 	 */
 	public void setAdditionalProperties(LinkedHashMap<String, ObjectSchema> additionalProperties);
@@ -936,11 +938,26 @@ public interface ObjectSchema extends JSONEntity {
 
 	/**
 	 * An iterator that can be used to inspect all sub-schemas in this schema.
+	 * The key and value of a map are not included.
 	 * 
 	 * @return
+	 * @deprecated Use {@link #accept(ObjectSchemaVisitor)}, which covers every
+	 *             sub-schema and does not create a list for each schema.
 	 */
+	@Deprecated
 	public Iterator<ObjectSchema> getSubSchemaIterator();
 
+	/**
+	 * Walk this schema and all of its sub-schemas depth first. The sub-schemas
+	 * are visited in the order: properties, additionalProperties, items,
+	 * additionalItems, key, value, extends and implements. This schema is
+	 * visited with {@link ObjectSchemaVisitor.Edge#ROOT}.
+	 * 
+	 * @param visitor
+	 * @return False if the visitor terminated the traversal.
+	 */
+	public boolean accept(ObjectSchemaVisitor visitor);
+
 	/**
 	 * The fields that make up the final object are from a combination of the
 	 * properties of this schema plus the properties of any interface schema
@@ -978,6 +995,19 @@ public interface ObjectSchema extends JSONEntity {
 	String getDefaultConcreteType();
 
 	void setDefaultConcreteType(String defaultConcreteType);
+
+	/**
+	 * Create a deep copy of this schema and all of its sub-schemas. A
+	 * sub-schema that is referenced more than once is copied once, so the copy
+	 * has the same shape as the original, including any cycles. Sub-schemas
+	 * that are recursive instances (see {@link #is$RecursiveRefInstance()})
+	 * are the leaves of a recursive tree and are shared with the original, as
+	 * are the values that are not schemas (enumeration values, links and
+	 * defaults).
+	 * 
+	 * @return
+	 */
+	public ObjectSchema deepCopy();
 	
 
 }
@@ -1,6 +1,8 @@
 package org.sagebionetworks.schema;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -8,6 +10,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import org.sagebionetworks.schema.ObjectSchemaVisitor.Edge;
+import org.sagebionetworks.schema.ObjectSchemaVisitor.Result;
 import org.sagebionetworks.schema.adapter.JSONArrayAdapter;
 import org.sagebionetworks.schema.adapter.JSONEntity;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
@@ -30,7 +34,7 @@ import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
  * @author jmhill
  * 
  */
-public class ObjectSchemaImpl implements ObjectSchema {
+public class ObjectSchemaImpl extends ModificationTrackingSchema implements ObjectSchema {
 
 	
 	private static final String JSON_DEPENDENCIES = "dependencies";
@@ -557,6 +561,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 
 	public void set$recursiveRef(String $recursiveRef) {
 		this.$recursiveRef = $recursiveRef;
+		modified();
 	}
 
 	public Boolean get$recursiveAnchor() {
@@ -565,6 +570,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 
 	public void set$recursiveAnchor(Boolean $recursiveAnchor) {
 		this.$recursiveAnchor = $recursiveAnchor;
+		modified();
 	}
 
 	/**
@@ -577,6 +583,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	
 	public void setLinks(LinkDescription[] links){
 		this.links = links;
+		modified();
 	}
 
 	/**
@@ -594,6 +601,65 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	public ObjectSchemaImpl() {
 	}
 
+	/**
+	 * Create a shallow copy of the passed schema. The maps and arrays of the
+	 * copy are new instances but the sub-schemas they contain are shared with
+	 * the original.
+	 *
+	 * @param toCopy
+	 */
+	public ObjectSchemaImpl(ObjectSchemaImpl toCopy) {
+		if (toCopy == null)
+			throw new IllegalArgumentException("Schema to copy cannot be null");
+		this.name = toCopy.name;
+		this.type = toCopy.type;
+		if (toCopy.properties != null) {
+			this.properties = new LinkedHashMap<String, ObjectSchema>(toCopy.properties);
+		}
+		if (toCopy.additionalProperties != null) {
+			this.additionalProperties = new LinkedHashMap<String, ObjectSchema>(toCopy.additionalProperties);
+		}
+		this.items = toCopy.items;
+		this.additionalItems = toCopy.additionalItems;
+		this.key = toCopy.key;
+		this.value = toCopy.value;
+		this.required = toCopy.required;
+		this.dependencies = copyOf(toCopy.dependencies);
+		this.minimum = toCopy.minimum;
+		this.maximum = toCopy.maximum;
+		this.exclusiveMinimum = toCopy.exclusiveMinimum;
+		this.exclusiveMaximum = toCopy.exclusiveMaximum;
+		this.minItems = toCopy.minItems;
+		this.maxItems = toCopy.maxItems;
+		this.uniqueItems = toCopy.uniqueItems;
+		this._transient = toCopy._transient;
+		this.pattern = toCopy.pattern;
+		this.minLength = toCopy.minLength;
+		this.maxLength = toCopy.maxLength;
+		this._enum = copyOf(toCopy._enum);
+		this._default = toCopy._default;
+		this.title = toCopy.title;
+		this.description = toCopy.description;
+		this.format = toCopy.format;
+		this.divisibleBy = toCopy.divisibleBy;
+		this.disallow = toCopy.disallow;
+		this._extends = toCopy._extends;
+		this._implements = copyOf(toCopy._implements);
+		this.id = toCopy.id;
+		this.ref = toCopy.ref;
+		this.schema = toCopy.schema;
+		this.contentEncoding = toCopy.contentEncoding;
+		this.links = copyOf(toCopy.links);
+		this.$recursiveAnchor = toCopy.$recursiveAnchor;
+		this.$recursiveRef = toCopy.$recursiveRef;
+		this.is$RecursiveRefInstance = toCopy.is$RecursiveRefInstance;
+		this._defaultConcreteType = toCopy._defaultConcreteType;
+	}
+
+	private static <T> T[] copyOf(T[] array) {
+		return array == null ? null : Arrays.copyOf(array, array.length);
+	}
+
 	/**
 	 * Create a new ObjectSchema with using an ID.
 	 * 
@@ -614,6 +680,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 
 	public void setName(String name) {
 		this.name = name;
+		modified();
 	}
 
 	/**
@@ -628,6 +695,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setContentEncoding(ENCODING encoding) {
 		this.contentEncoding = encoding;
+		modified();
 	}
 
 	/**
@@ -670,6 +738,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setType(TYPE type) {
 		this.type = type;
+		modified();
 	}
 
 	/**
@@ -689,7 +758,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 * @return
 	 */
 	public Map<String, ObjectSchema> getProperties() {
-		return properties;
+		return trackProperties(properties);
 	}
 
 	/**
@@ -721,14 +790,17 @@ public class ObjectSchemaImpl implements ObjectSchema {
 			}
 		}
 		properties.put(key, property);
+		modified();
 	}
 
 	/**
-	 * Set the primary properties.
+	 * Set the primary properties. The map is copied, so later changes to the
+	 * given map do not change this schema.
 	 * @param properties
 	 */
 	public void setProperties(LinkedHashMap<String, ObjectSchema> properties) {
-		this.properties = properties;
+		this.properties = properties == null ? null : new LinkedHashMap<String, ObjectSchema>(properties);
+		modified();
 	}
 
 	/**
@@ -745,7 +817,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 * @return
 	 */
 	public Map<String, ObjectSchema> getAdditionalProperties() {
-		return additionalProperties;
+		return trackAdditionalProperties(additionalProperties);
 	}
 
 	/**
@@ -767,14 +839,17 @@ public class ObjectSchemaImpl implements ObjectSchema {
 			additionalProperties = new LinkedHashMap<String, ObjectSchema>();
 		}
 		additionalProperties.put(key, property);
+		modified();
 	}
 
 	/**
-	 * Set the additional properties.
+	 * Set the additional properties. The map is copied, so later changes to
+	 * the given map do not change this schema.
 	 * @param additionalProperties
 	 */
 	public void setAdditionalProperties(LinkedHashMap<String, ObjectSchema> additionalProperties) {
-		this.additionalProperties = additionalProperties;
+		this.additionalProperties = additionalProperties == null ? null : new LinkedHashMap<String, ObjectSchema>(additionalProperties);
+		modified();
 	}
 
 	/**
@@ -822,6 +897,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setItems(ObjectSchema items) {
 		this.items = items;
+		modified();
 	}
 
 	/**
@@ -852,6 +928,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setAdditionalItems(ObjectSchema additionalItems) {
 		this.additionalItems = additionalItems;
+		modified();
 	}
 
 	/**
@@ -876,6 +953,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setKey(ObjectSchema key) {
 		this.key = key;
+		modified();
 	}
 
 	/**
@@ -900,6 +978,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setValue(ObjectSchema value) {
 		this.value = value;
+		modified();
 	}
 	/**
 	 * 5.7. required
@@ -925,6 +1004,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setRequired(Boolean required) {
 		this.required = required;
+		modified();
 	}
 
 	/**
@@ -971,6 +1051,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setDependencies(String[] dependencies) {
 		this.dependencies = dependencies;
+		modified();
 	}
 
 	/**
@@ -997,6 +1078,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setMinimum(Number minimum) {
 		this.minimum = minimum;
+		modified();
 	}
 
 	/**
@@ -1023,6 +1105,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setMaximum(Number maximum) {
 		this.maximum = maximum;
+		modified();
 	}
 
 	/**
@@ -1053,6 +1136,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setExclusiveMinimum(Number exclusiveMinimum) {
 		this.exclusiveMinimum = exclusiveMinimum;
+		modified();
 	}
 
 	/**
@@ -1081,6 +1165,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setExclusiveMaximum(Number exclusiveMaximum) {
 		this.exclusiveMaximum = exclusiveMaximum;
+		modified();
 	}
 
 	/**
@@ -1107,6 +1192,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setMinItems(Long minItems) {
 		this.minItems = minItems;
+		modified();
 	}
 
 	/**
@@ -1131,6 +1217,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setMaxItems(Long maxItems) {
 		this.maxItems = maxItems;
+		modified();
 	}
 
 	/**
@@ -1167,6 +1254,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setUniqueItems(Boolean uniqueItems) {
 		this.uniqueItems = uniqueItems;
+		modified();
 	}
 
 	/**
@@ -1187,6 +1275,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setTransient(Boolean trans) {
 		this._transient = trans;
+		modified();
 	}
 
 	/**
@@ -1217,6 +1306,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setPattern(String pattern) {
 		this.pattern = pattern;
+		modified();
 	}
 
 	/**
@@ -1243,6 +1333,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setMinLength(Integer minLength) {
 		this.minLength = minLength;
+		modified();
 	}
 
 	/**
@@ -1269,6 +1360,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setMaxLength(Integer maxLength) {
 		this.maxLength = maxLength;
+		modified();
 	}
 
 	/**
@@ -1303,6 +1395,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setEnum(EnumValue[] _enum) {
 		this._enum = _enum;
+		modified();
 	}
 
 	/**
@@ -1329,6 +1422,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setDefault(Object _default) {
 		this._default = _default;
+		modified();
 	}
 
 	/**
@@ -1355,6 +1449,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setTitle(String title) {
 		this.title = title;
+		modified();
 	}
 
 	/**
@@ -1381,6 +1476,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setDescription(String description) {
 		this.description = description;
+		modified();
 	}
 
 	/**
@@ -1417,6 +1513,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setFormat(FORMAT format) {
 		this.format = format;
+		modified();
 	}
 
 	/**
@@ -1445,6 +1542,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setDivisibleBy(Number divisibleBy) {
 		this.divisibleBy = divisibleBy;
+		modified();
 	}
 
 	/**
@@ -1475,6 +1573,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setDisallow(TYPE disallow) {
 		this.disallow = disallow;
+		modified();
 	}
 
 	/**
@@ -1527,10 +1626,12 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setExtends(ObjectSchema _extends) {
 		this._extends = _extends;
+		modified();
 	}
 
 	public void setImplements(ObjectSchema[] impSchemas) {
 		this._implements = impSchemas;
+		modified();
 	}
 
 	public ObjectSchema[] getImplements() {
@@ -1573,6 +1674,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setId(String id) {
 		this.id = id;
+		modified();
 	}
 
 	/**
@@ -1607,6 +1709,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setRef(String $ref) {
 		this.ref = $ref;
+		modified();
 	}
 
 	/**
@@ -1649,53 +1752,261 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 */
 	public void setSchema(String $schema) {
 		this.schema = $schema;
+		modified();
+	}
+
+
+	/**
+	 * Used in place of the fingerprint of a schema that is part of a cycle.
+	 */
+	private static final long CYCLE_FINGERPRINT = 0x2545F4914F6CDD1DL;
+	private static final long FINGERPRINT_PRIME = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * A 64 bit structural fingerprint of the given schema and all of its
+	 * sub-schemas. The generator uses it to find equal sub-schemas without
+	 * comparing each pair.
+	 * <p>
+	 * Two equal schemas that do not reach a cycle have the same fingerprint, so
+	 * such schemas with different fingerprints are not equal. When a cycle is
+	 * reached the walk stops at the first schema it meets again, so the
+	 * fingerprint of a schema that reaches a cycle depends on the schema the
+	 * walk started from. It is still the same for each call with the same
+	 * schema.
+	 * <p>
+	 * The fingerprint of each schema that does not reach a cycle is stored on
+	 * the schema, so the fingerprint of a parent is combined from the stored
+	 * fingerprints of its sub-schemas. The stored values are dropped when any
+	 * schema is modified, including through the maps returned by
+	 * {@link #getProperties()} and {@link #getAdditionalProperties()}.
+	 * 
+	 * @param schema
+	 * @return
+	 */
+	public static long getFingerprint(ObjectSchema schema) {
+		if (schema instanceof ObjectSchemaImpl) {
+			return ((ObjectSchemaImpl) schema).getCachedFingerprint().getValue();
+		}
+		return fingerprintOf(schema, new FingerprintWalk(null));
+	}
+
+	/**
+	 * The same value as {@link #getFingerprint(ObjectSchema)}, reusing the
+	 * fingerprints of sub-schemas that were already computed. A caller that
+	 * visits the schemas children first gets each fingerprint by combining the
+	 * fingerprints of the children, without walking them again.
+	 * <p>
+	 * The map is only valid while none of its schemas is modified.
+	 * 
+	 * @param schema
+	 * @param known
+	 *            The fingerprints by schema instance. The fingerprint of each
+	 *            schema found by the walk that does not reach a cycle is added.
+	 * @return
+	 */
+	public static long getFingerprint(ObjectSchema schema, Map<ObjectSchema, Long> known) {
+		if (known == null) throw new IllegalArgumentException("Known fingerprints cannot be null");
+		return fingerprintOf(schema, new FingerprintWalk(known));
+	}
+
+	/**
+	 * The fingerprint of this schema, computed with this schema as the start
+	 * of the walk and cached until any schema is modified.
+	 * 
+	 * @return
+	 */
+	private CachedFingerprint getCachedFingerprint() {
+		FingerprintWalk walk = new FingerprintWalk(null);
+		CachedFingerprint cache = fingerprintCache;
+		if (cache != null && cache.isValid(walk.stamp)) {
+			return cache;
+		}
+		long value = fingerprintOf(this, walk);
+		cache = new CachedFingerprint(value, walk.cycles == 0, walk.stamp);
+		if (walk.untracked == 0) {
+			fingerprintCache = cache;
+		}
+		return cache;
+	}
+
+	/**
+	 * The state of a single fingerprint walk.
+	 */
+	private static final class FingerprintWalk {
+		/**
+		 * Read before the walk, so a change made during the walk invalidates
+		 * the fingerprints it stores.
+		 */
+		private final int stamp = getGlobalModificationCount();
+		/**
+		 * The schemas whose fingerprint is being computed, used to stop at a
+		 * cycle.
+		 */
+		private final IdentityHashMap<ObjectSchema, Boolean> path = new IdentityHashMap<ObjectSchema, Boolean>();
+		/**
+		 * The number of times the walk stopped at a cycle.
+		 */
+		private int cycles;
+		/**
+		 * The number of schemas found whose changes cannot be tracked.
+		 */
+		private int untracked;
+		/**
+		 * The fingerprints that were already computed by the caller, or null.
+		 */
+		private final Map<ObjectSchema, Long> known;
+
+		private FingerprintWalk(Map<ObjectSchema, Long> known) {
+			this.known = known;
+		}
+	}
+
+	/**
+	 * Combine the fields of the given schema with the fingerprints of its
+	 * sub-schemas. The result is stored on the schema when it does not depend
+	 * on where the walk started.
+	 * 
+	 * @param schema
+	 * @param walk
+	 * @return
+	 */
+	private static long fingerprintOf(ObjectSchema schema, FingerprintWalk walk) {
+		if (schema == null) {
+			return 0;
+		}
+		if (walk.known != null) {
+			Long computed = walk.known.get(schema);
+			if (computed != null) {
+				return computed;
+			}
+		}
+		if (!(schema instanceof ObjectSchemaImpl)) {
+			walk.untracked++;
+			return schema.hashCode();
+		}
+		ObjectSchemaImpl impl = (ObjectSchemaImpl) schema;
+		CachedFingerprint cache = impl.fingerprintCache;
+		if (cache != null && cache.isAcyclic() && cache.isValid(walk.stamp)) {
+			if (walk.known != null) {
+				walk.known.put(schema, cache.getValue());
+			}
+			return cache.getValue();
+		}
+		if (walk.path.put(schema, Boolean.TRUE) != null) {
+			walk.cycles++;
+			return CYCLE_FINGERPRINT;
+		}
+		int cycles = walk.cycles;
+		int untracked = walk.untracked;
+		long result = impl.getLocalFingerprint();
+		result = mix(result, fingerprintOf(impl._extends, walk));
+		if (impl._implements == null) {
+			result = mix(result, 0);
+		} else {
+			result = mix(result, impl._implements.length + 1);
+			for (ObjectSchema imp : impl._implements) {
+				result = mix(result, fingerprintOf(imp, walk));
+			}
+		}
+		result = mix(result, fingerprintOf(impl.additionalItems, walk));
+		result = mix(result, fingerprintOf(impl.additionalProperties, walk));
+		result = mix(result, fingerprintOf(impl.items, walk));
+		result = mix(result, fingerprintOf(impl.key, walk));
+		result = mix(result, fingerprintOf(impl.properties, walk));
+		result = mix(result, fingerprintOf(impl.value, walk));
+		walk.path.remove(schema);
+		// Without a cycle below it the fingerprint of the schema is the same
+		// wherever the walk started.
+		if (walk.cycles == cycles) {
+			if (walk.untracked == untracked) {
+				impl.fingerprintCache = new CachedFingerprint(result, true, walk.stamp);
+			}
+			if (walk.known != null) {
+				walk.known.put(schema, result);
+			}
+		}
+		return result;
 	}
 
+	/**
+	 * Map equality does not depend on the order of the entries so neither does
+	 * the fingerprint of a map.
+	 */
+	private static long fingerprintOf(Map<String, ObjectSchema> map, FingerprintWalk walk) {
+		if (map == null) {
+			return 0;
+		}
+		long result = 1;
+		for (Map.Entry<String, ObjectSchema> entry : map.entrySet()) {
+			result += mix(Objects.hashCode(entry.getKey()), fingerprintOf(entry.getValue(), walk));
+		}
+		return result;
+	}
+
+	/**
+	 * The fingerprint of the fields of this schema that are not sub-schemas,
+	 * cached until this schema is modified.
+	 * 
+	 * @return
+	 */
+	private long getLocalFingerprint() {
+		CachedValue<Long> cache = localFingerprintCache;
+		if (cache != null && cache.isValid()) {
+			return cache.getValue();
+		}
+		ModificationTrackingSchema[] sources = new ModificationTrackingSchema[] { this };
+		// Stamp first so a concurrent change invalidates the new value.
+		int[] stamps = CachedValue.stamp(sources);
+		long result = 1;
+		result = mix(result, Objects.hashCode($recursiveAnchor));
+		result = mix(result, Objects.hashCode($recursiveRef));
+		result = mix(result, Objects.hashCode(_default));
+		result = mix(result, Arrays.hashCode(_enum));
+		result = mix(result, Objects.hashCode(_transient));
+		result = mix(result, Objects.hashCode(contentEncoding));
+		result = mix(result, Arrays.hashCode(dependencies));
+		result = mix(result, Objects.hashCode(description));
+		result = mix(result, Objects.hashCode(disallow));
+		result = mix(result, Objects.hashCode(divisibleBy));
+		result = mix(result, Objects.hashCode(exclusiveMaximum));
+		result = mix(result, Objects.hashCode(exclusiveMinimum));
+		result = mix(result, Objects.hashCode(format));
+		result = mix(result, Objects.hashCode(id));
+		result = mix(result, is$RecursiveRefInstance ? 1231 : 1237);
+		result = mix(result, Arrays.hashCode(links));
+		result = mix(result, Objects.hashCode(maxItems));
+		result = mix(result, Objects.hashCode(maxLength));
+		result = mix(result, Objects.hashCode(maximum));
+		result = mix(result, Objects.hashCode(minItems));
+		result = mix(result, Objects.hashCode(minLength));
+		result = mix(result, Objects.hashCode(minimum));
+		result = mix(result, Objects.hashCode(name));
+		result = mix(result, Objects.hashCode(pattern));
+		result = mix(result, Objects.hashCode(ref));
+		result = mix(result, Objects.hashCode(required));
+		result = mix(result, Objects.hashCode(schema));
+		result = mix(result, Objects.hashCode(title));
+		result = mix(result, Objects.hashCode(type));
+		result = mix(result, Objects.hashCode(uniqueItems));
+		result = mix(result, Objects.hashCode(_defaultConcreteType));
+		localFingerprintCache = new CachedValue<Long>(result, sources, stamps);
+		return result;
+	}
 
+	private static long mix(long hash, long value) {
+		hash = (hash ^ value) * FINGERPRINT_PRIME;
+		return hash ^ (hash >>> 31);
+	}
+
+	/**
+	 * Derived from {@link #getFingerprint(ObjectSchema)}, so it is computed
+	 * once until a schema is modified and it does not recurse forever on a
+	 * cycle.
+	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + (($recursiveAnchor == null) ? 0 : $recursiveAnchor.hashCode());
-		result = prime * result + (($recursiveRef == null) ? 0 : $recursiveRef.hashCode());
-		result = prime * result + ((_default == null) ? 0 : _default.hashCode());
-		result = prime * result + Arrays.hashCode(_enum);
-		result = prime * result + ((_extends == null) ? 0 : _extends.hashCode());
-		result = prime * result + Arrays.hashCode(_implements);
-		result = prime * result + ((_transient == null) ? 0 : _transient.hashCode());
-		result = prime * result + ((additionalItems == null) ? 0 : additionalItems.hashCode());
-		result = prime * result + ((additionalProperties == null) ? 0 : additionalProperties.hashCode());
-		result = prime * result + ((contentEncoding == null) ? 0 : contentEncoding.hashCode());
-		result = prime * result + Arrays.hashCode(dependencies);
-		result = prime * result + ((description == null) ? 0 : description.hashCode());
-		result = prime * result + ((disallow == null) ? 0 : disallow.hashCode());
-		result = prime * result + ((divisibleBy == null) ? 0 : divisibleBy.hashCode());
-		result = prime * result + ((exclusiveMaximum == null) ? 0 : exclusiveMaximum.hashCode());
-		result = prime * result + ((exclusiveMinimum == null) ? 0 : exclusiveMinimum.hashCode());
-		result = prime * result + ((format == null) ? 0 : format.hashCode());
-		result = prime * result + ((id == null) ? 0 : id.hashCode());
-		result = prime * result + (is$RecursiveRefInstance ? 1231 : 1237);
-		result = prime * result + ((items == null) ? 0 : items.hashCode());
-		result = prime * result + ((key == null) ? 0 : key.hashCode());
-		result = prime * result + Arrays.hashCode(links);
-		result = prime * result + ((maxItems == null) ? 0 : maxItems.hashCode());
-		result = prime * result + ((maxLength == null) ? 0 : maxLength.hashCode());
-		result = prime * result + ((maximum == null) ? 0 : maximum.hashCode());
-		result = prime * result + ((minItems == null) ? 0 : minItems.hashCode());
-		result = prime * result + ((minLength == null) ? 0 : minLength.hashCode());
-		result = prime * result + ((minimum == null) ? 0 : minimum.hashCode());
-		result = prime * result + ((name == null) ? 0 : name.hashCode());
-		result = prime * result + ((pattern == null) ? 0 : pattern.hashCode());
-		result = prime * result + ((properties == null) ? 0 : properties.hashCode());
-		result = prime * result + ((ref == null) ? 0 : ref.hashCode());
-		result = prime * result + ((required == null) ? 0 : required.hashCode());
-		result = prime * result + ((schema == null) ? 0 : schema.hashCode());
-		result = prime * result + ((title == null) ? 0 : title.hashCode());
-		result = prime * result + ((type == null) ? 0 : type.hashCode());
-		result = prime * result + ((uniqueItems == null) ? 0 : uniqueItems.hashCode());
-		result = prime * result + ((value == null) ? 0 : value.hashCode());
-		result = prime * result + Objects.hashCode(_defaultConcreteType);
-		return result;
+		long fingerprint = getFingerprint(this);
+		return (int) (fingerprint ^ (fingerprint >>> 32));
 	}
 
 	@Override
@@ -1707,6 +2018,11 @@ public class ObjectSchemaImpl implements ObjectSchema {
 		if (getClass() != obj.getClass())
 			return false;
 		ObjectSchemaImpl other = (ObjectSchemaImpl) obj;
+		// Equal schemas that do not reach a cycle have the same fingerprint.
+		CachedFingerprint fingerprint = getCachedFingerprint();
+		CachedFingerprint otherFingerprint = other.getCachedFingerprint();
+		if (fingerprint.isAcyclic() && otherFingerprint.isAcyclic() && fingerprint.getValue() != otherFingerprint.getValue())
+			return false;
 		if ($recursiveAnchor == null) {
 			if (other.$recursiveAnchor != null)
 				return false;
@@ -2141,6 +2457,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	 * 
 	 * @return
 	 */
+	@Deprecated
 	public Iterator<ObjectSchema> getSubSchemaIterator() {
 		List<ObjectSchema> list = new LinkedList<ObjectSchema>();
 		// Add all of the properties
@@ -2170,6 +2487,61 @@ public class ObjectSchemaImpl implements ObjectSchema {
 		return list.iterator();
 	}
 
+	@Override
+	public boolean accept(ObjectSchemaVisitor visitor) {
+		if (visitor == null) throw new IllegalArgumentException("Visitor cannot be null");
+		return accept(this, visitor, Edge.ROOT, null, -1);
+	}
+
+	/**
+	 * Visit the given schema and its children.
+	 * 
+	 * @return False if the traversal was terminated.
+	 */
+	private static boolean accept(ObjectSchema schema, ObjectSchemaVisitor visitor, Edge edge, String propertyName, int index) {
+		Result result = visitor.preVisit(schema, edge, propertyName, index);
+		if (result == Result.TERMINATE) {
+			return false;
+		}
+		if (result == Result.SKIP_CHILDREN) {
+			return true;
+		}
+		if (schema.getProperties() != null) {
+			for (Map.Entry<String, ObjectSchema> entry : schema.getProperties().entrySet()) {
+				if (!accept(entry.getValue(), visitor, Edge.PROPERTY, entry.getKey(), -1)) {
+					return false;
+				}
+			}
+		}
+		if (schema.getAdditionalProperties() != null) {
+			for (Map.Entry<String, ObjectSchema> entry : schema.getAdditionalProperties().entrySet()) {
+				if (!accept(entry.getValue(), visitor, Edge.ADDITIONAL_PROPERTY, entry.getKey(), -1)) {
+					return false;
+				}
+			}
+		}
+		if (!acceptChild(schema.getItems(), visitor, Edge.ITEMS)
+				|| !acceptChild(schema.getAdditionalItems(), visitor, Edge.ADDITIONAL_ITEMS)
+				|| !acceptChild(schema.getKey(), visitor, Edge.KEY)
+				|| !acceptChild(schema.getValue(), visitor, Edge.VALUE)
+				|| !acceptChild(schema.getExtends(), visitor, Edge.EXTENDS)) {
+			return false;
+		}
+		ObjectSchema[] implementsArray = schema.getImplements();
+		if (implementsArray != null) {
+			for (int i = 0; i < implementsArray.length; i++) {
+				if (implementsArray[i] != null && !accept(implementsArray[i], visitor, Edge.IMPLEMENTS, null, i)) {
+					return false;
+				}
+			}
+		}
+		return visitor.postVisit(schema, edge, propertyName, index) != Result.TERMINATE;
+	}
+
+	private static boolean acceptChild(ObjectSchema child, ObjectSchemaVisitor visitor, Edge edge) {
+		return child == null || accept(child, visitor, edge, null, -1);
+	}
+
 	/**
 	 * The fields that make up the final object are from a combination of the
 	 * properties of this schema plus the properties of any interface schema
@@ -2195,6 +2567,56 @@ public class ObjectSchemaImpl implements ObjectSchema {
 		return map;
 	}
 
+	/**
+	 * The same fields as {@link ObjectSchema#getObjectFieldMap()}, cached until
+	 * the given schema or one of the interfaces it implements is modified. The
+	 * generator reads the field map of each class many times. The returned map
+	 * cannot be modified.
+	 * 
+	 * @param schema
+	 * @return
+	 */
+	public static Map<String, ObjectSchema> getCachedObjectFieldMap(ObjectSchema schema) {
+		if (schema instanceof ObjectSchemaImpl) {
+			ObjectSchemaImpl impl = (ObjectSchemaImpl) schema;
+			CachedValue<Map<String, ObjectSchema>> cache = impl.fieldMapCache;
+			if (cache != null && cache.isValid()) {
+				return cache.getValue();
+			}
+			List<ModificationTrackingSchema> sources = new LinkedList<ModificationTrackingSchema>();
+			if (addAllTrackedInterfaces(sources, impl)) {
+				ModificationTrackingSchema[] sourceArray = sources.toArray(new ModificationTrackingSchema[sources.size()]);
+				// Stamp the sources first so a concurrent change invalidates the new value.
+				int[] stamps = CachedValue.stamp(sourceArray);
+				Map<String, ObjectSchema> fieldMap = Collections.unmodifiableMap(impl.getObjectFieldMap());
+				impl.fieldMapCache = new CachedValue<Map<String, ObjectSchema>>(fieldMap, sourceArray, stamps);
+				return fieldMap;
+			}
+		}
+		// The changes of other implementations cannot be tracked.
+		return Collections.unmodifiableMap(schema.getObjectFieldMap());
+	}
+
+	/**
+	 * Add the given schema and all of the interfaces it implements.
+	 * 
+	 * @return False if any of them does not track its modifications.
+	 */
+	private static boolean addAllTrackedInterfaces(List<ModificationTrackingSchema> sources, ObjectSchema schema) {
+		if (!(schema instanceof ModificationTrackingSchema)) {
+			return false;
+		}
+		sources.add((ModificationTrackingSchema) schema);
+		if (schema.getImplements() != null) {
+			for (ObjectSchema implSchema : schema.getImplements()) {
+				if (!addAllTrackedInterfaces(sources, implSchema)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Recursively AddAllInterfaceProperties
 	 * 
@@ -2274,6 +2696,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	@Override
 	public JSONObjectAdapter initializeFromJSONObject(JSONObjectAdapter adapter)
 			throws JSONObjectAdapterException {
+		modified();
 		if (adapter.has(JSON_NAME)) {
 			this.name = adapter.getString(JSON_NAME);
 		}
@@ -2556,6 +2979,7 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	@Override
 	public void setIs$RecursiveRefInstance(boolean is$RecursiveRefInstance) {
 		this.is$RecursiveRefInstance = is$RecursiveRefInstance;
+		modified();
 	}
 	
 	@Override
@@ -2566,5 +2990,71 @@ public class ObjectSchemaImpl implements ObjectSchema {
 	@Override
 	public void setDefaultConcreteType(String defaultConcreteType) {
 		this._defaultConcreteType = defaultConcreteType;
+		modified();
+	}
+
+	@Override
+	public ObjectSchema deepCopy() {
+		IdentityHashMap<ObjectSchema, ObjectSchema> copies = new IdentityHashMap<ObjectSchema, ObjectSchema>();
+		ObjectSchemaImpl copy = new ObjectSchemaImpl(this);
+		copies.put(this, copy);
+		copyChildren(copy, copies);
+		return copy;
+	}
+
+	/**
+	 * Copy the given schema, reusing the copies that were already made.
+	 * 
+	 * @param toCopy
+	 * @param copies The copy of each schema copied so far.
+	 * @return
+	 */
+	private static ObjectSchema deepCopy(ObjectSchema toCopy, IdentityHashMap<ObjectSchema, ObjectSchema> copies) {
+		if (toCopy == null || toCopy.is$RecursiveRefInstance()) {
+			return toCopy;
+		}
+		ObjectSchema existing = copies.get(toCopy);
+		if (existing != null) {
+			return existing;
+		}
+		if (!(toCopy instanceof ObjectSchemaImpl)) {
+			existing = toCopy.deepCopy();
+			copies.put(toCopy, existing);
+			return existing;
+		}
+		ObjectSchemaImpl copy = new ObjectSchemaImpl((ObjectSchemaImpl) toCopy);
+		// Register the copy before copying the children so cycles end here.
+		copies.put(toCopy, copy);
+		copyChildren(copy, copies);
+		return copy;
+	}
+
+	/**
+	 * Replace the sub-schemas of a shallow copy with their deep copies.
+	 * 
+	 * @param copy
+	 * @param copies
+	 */
+	private static void copyChildren(ObjectSchemaImpl copy, IdentityHashMap<ObjectSchema, ObjectSchema> copies) {
+		deepCopyValues(copy.properties, copies);
+		deepCopyValues(copy.additionalProperties, copies);
+		copy.items = deepCopy(copy.items, copies);
+		copy.additionalItems = deepCopy(copy.additionalItems, copies);
+		copy.key = deepCopy(copy.key, copies);
+		copy.value = deepCopy(copy.value, copies);
+		copy._extends = deepCopy(copy._extends, copies);
+		if (copy._implements != null) {
+			for (int i = 0; i < copy._implements.length; i++) {
+				copy._implements[i] = deepCopy(copy._implements[i], copies);
+			}
+		}
+	}
+
+	private static void deepCopyValues(Map<String, ObjectSchema> map, IdentityHashMap<ObjectSchema, ObjectSchema> copies) {
+		if (map != null) {
+			for (Map.Entry<String, ObjectSchema> entry : map.entrySet()) {
+				entry.setValue(deepCopy(entry.getValue(), copies));
+			}
+		}
 	}
 }
@@ -0,0 +1,94 @@
+package org.sagebionetworks.schema;
+
+/**
+ * A visitor of the sub-schemas of an {@link ObjectSchema}. See
+ * {@link ObjectSchema#accept(ObjectSchemaVisitor)}.
+ * <p>
+ * The traversal does not keep track of the schemas it has already visited.
+ * When the same schema instance can be reached more than once, or when the
+ * schemas form a cycle, the visitor should return
+ * {@link Result#SKIP_CHILDREN} for the schemas it has already seen.
+ *
+ */
+public interface ObjectSchemaVisitor {
+
+	/**
+	 * The slot of the parent schema that holds a visited schema.
+	 */
+	public enum Edge {
+		/**
+		 * The schema that accepted the visitor.
+		 */
+		ROOT(null),
+		PROPERTY(ObjectSchemaImpl.JSON_PROPERTIES),
+		ADDITIONAL_PROPERTY(ObjectSchemaImpl.JSON_ADDITIONAL_PROPERTIES),
+		ITEMS(ObjectSchemaImpl.JSON_ITEMS),
+		ADDITIONAL_ITEMS(ObjectSchemaImpl.JSON_ADDITIONAL_ITEMS),
+		KEY(ObjectSchemaImpl.JSON_KEY),
+		VALUE(ObjectSchemaImpl.JSON_VALUE),
+		EXTENDS(ObjectSchemaImpl.JSON_EXTENDS),
+		IMPLEMENTS(ObjectSchemaImpl.JSON_IMPLEMENTS);
+
+		private final String jsonName;
+
+		Edge(String jsonName) {
+			this.jsonName = jsonName;
+		}
+
+		/**
+		 * The name of the JSON property of this slot, null for the root.
+		 *
+		 * @return
+		 */
+		public String getJsonName() {
+			return jsonName;
+		}
+	}
+
+	/**
+	 * Tells the traversal how to continue after a schema was visited.
+	 */
+	public enum Result {
+		/**
+		 * Continue with the children of the schema.
+		 */
+		CONTINUE,
+		/**
+		 * Do not visit the children of the schema. {@link #postVisit} will not be
+		 * called for this schema.
+		 */
+		SKIP_CHILDREN,
+		/**
+		 * Stop the traversal.
+		 */
+		TERMINATE
+	}
+
+	/**
+	 * Called for a schema before any of its children are visited.
+	 *
+	 * @param schema       The visited schema.
+	 * @param edge         The slot of the parent that holds the schema.
+	 * @param propertyName The name of the property for {@link Edge#PROPERTY} and
+	 *                     {@link Edge#ADDITIONAL_PROPERTY}, null otherwise.
+	 * @param index        The index in the array for {@link Edge#IMPLEMENTS}, -1
+	 *                     otherwise.
+	 * @return
+	 */
+	public Result preVisit(ObjectSchema schema, Edge edge, String propertyName, int index);
+
+	/**
+	 * Called for a schema after all of its children were visited. Only
+	 * {@link Result#TERMINATE} changes the traversal.
+	 *
+	 * @param schema       The visited schema.
+	 * @param edge         The slot of the parent that holds the schema.
+	 * @param propertyName The name of the property for {@link Edge#PROPERTY} and
+	 *                     {@link Edge#ADDITIONAL_PROPERTY}, null otherwise.
+	 * @param index        The index in the array for {@link Edge#IMPLEMENTS}, -1
+	 *                     otherwise.
+	 * @return
+	 */
+	public Result postVisit(ObjectSchema schema, Edge edge, String propertyName, int index);
+
+}
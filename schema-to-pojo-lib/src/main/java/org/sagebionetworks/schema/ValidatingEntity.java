@@ -0,0 +1,25 @@
+package org.sagebionetworks.schema;
+
+/**
+ * Abstraction for a class that can check the constraints of its schema, such
+ * as patterns, ranges and lengths, without reflection.
+ *
+ */
+public interface ValidatingEntity {
+
+	/**
+	 * Check the constraints of this object and of the objects it contains.
+	 *
+	 * @return A new result with all of the violations.
+	 */
+	public ValidationResult validate();
+
+	/**
+	 * Check the constraints of this object and of the objects it contains,
+	 * adding the violations to the given result.
+	 *
+	 * @param result
+	 * @return The given result.
+	 */
+	public ValidationResult validate(ValidationResult result);
+}
@@ -0,0 +1,84 @@
+package org.sagebionetworks.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the violations found by
+ * {@link ValidatingEntity#validate(ValidationResult)}. Each violation is the
+ * path of the property followed by a message, for example
+ * "owner.name must have at most 10 characters". A result can be cleared and
+ * reused, nothing is allocated while the values are valid.
+ *
+ */
+public class ValidationResult {
+
+	private final List<String> violations = new ArrayList<String>();
+	private final List<String> path = new ArrayList<String>();
+
+	/**
+	 * Start checking the value of the given property, the keys of the
+	 * following violations start with it.
+	 *
+	 * @param key
+	 */
+	public void enter(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("The key cannot be null");
+		}
+		path.add(key);
+	}
+
+	/**
+	 * Stop checking the value of the last property entered.
+	 */
+	public void exit() {
+		if (path.isEmpty()) {
+			throw new IllegalStateException("No property was entered");
+		}
+		path.remove(path.size() - 1);
+	}
+
+	/**
+	 * Add a violation of a property of the current object.
+	 *
+	 * @param key
+	 * @param message
+	 */
+	public void addViolation(String key, String message) {
+		StringBuilder builder = new StringBuilder();
+		for (String entered : path) {
+			builder.append(entered).append('.');
+		}
+		builder.append(key).append(' ').append(message);
+		violations.add(builder.toString());
+	}
+
+	/**
+	 * @return True when there are no violations.
+	 */
+	public boolean isValid() {
+		return violations.isEmpty();
+	}
+
+	/**
+	 * @return The violations in the order they were found.
+	 */
+	public List<String> getViolations() {
+		return Collections.unmodifiableList(violations);
+	}
+
+	/**
+	 * Remove all of the violations so that the result can be reused.
+	 */
+	public void clear() {
+		violations.clear();
+		path.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "ValidationResult " + violations;
+	}
+}
@@ -0,0 +1,77 @@
+package org.sagebionetworks.schema.adapter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Selects the properties to read from JSON with
+ * {@link MaskableJSONEntity#initializeFromJSONObject(JSONObjectAdapter, FieldMask)}.
+ * The properties are selected with the key constants of the generated classes,
+ * the properties that are not selected are not read. A nested mask selects the
+ * properties of an object property, without one the whole object is read.
+ *
+ */
+public class FieldMask {
+
+	private final Map<String, FieldMask> fields = new LinkedHashMap<String, FieldMask>();
+
+	/**
+	 * @param keys The properties to read.
+	 */
+	public FieldMask(String... keys) {
+		for (String key : keys) {
+			with(key);
+		}
+	}
+
+	/**
+	 * Select the whole value of the given property.
+	 *
+	 * @param key
+	 * @return this mask
+	 */
+	public FieldMask with(String key) {
+		return with(key, null);
+	}
+
+	/**
+	 * Select the given property, reading only the properties of its value that
+	 * are selected by the nested mask.
+	 *
+	 * @param key
+	 * @param nested Null to read the whole value.
+	 * @return this mask
+	 */
+	public FieldMask with(String key, FieldMask nested) {
+		if (key == null) {
+			throw new IllegalArgumentException("The key cannot be null");
+		}
+		fields.put(key, nested);
+		return this;
+	}
+
+	/**
+	 * Is the given property selected?
+	 *
+	 * @param key
+	 * @return
+	 */
+	public boolean contains(String key) {
+		return fields.containsKey(key);
+	}
+
+	/**
+	 * The mask for the value of the given property.
+	 *
+	 * @param key
+	 * @return Null when the whole value is selected.
+	 */
+	public FieldMask getNested(String key) {
+		return fields.get(key);
+	}
+
+	@Override
+	public String toString() {
+		return "FieldMask " + fields;
+	}
+}
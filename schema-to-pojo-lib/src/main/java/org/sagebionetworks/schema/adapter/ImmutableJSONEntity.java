@@ -0,0 +1,12 @@
+package org.sagebionetworks.schema.adapter;
+
+/**
+ * A JSONEntity that cannot change once it is created. Its
+ * {@link #initializeFromJSONObject(JSONObjectAdapter)} throws an
+ * UnsupportedOperationException, it is read from JSON by its public
+ * constructor that takes a JSONObjectAdapter instead.
+ *
+ */
+public interface ImmutableJSONEntity extends JSONEntity {
+
+}
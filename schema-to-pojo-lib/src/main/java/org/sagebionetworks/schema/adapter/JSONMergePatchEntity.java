@@ -0,0 +1,27 @@
+package org.sagebionetworks.schema.adapter;
+
+/**
+ * A JSONEntity that can compute and apply JSON merge patches (RFC 7386), so
+ * that only the properties that changed need to be sent.
+ *
+ */
+public interface JSONMergePatchEntity extends JSONEntity {
+
+	/**
+	 * Write the merge patch that changes this object into the other object.
+	 * Properties that are equal are not written, nested entities are compared
+	 * recursively and properties that are null in the other object are written
+	 * as null.
+	 * @param other An object of the same class.
+	 * @param patch The patch is written to this adapter.
+	 */
+	public JSONObjectAdapter diff(Object other, JSONObjectAdapter patch) throws JSONObjectAdapterException;
+
+	/**
+	 * Apply a merge patch to this object. Only the properties in the patch are
+	 * changed, a null value clears the property.
+	 * @param patch
+	 */
+	public JSONObjectAdapter applyPatch(JSONObjectAdapter patch) throws JSONObjectAdapterException;
+
+}
@@ -0,0 +1,18 @@
+package org.sagebionetworks.schema.adapter;
+
+/**
+ * A JSONEntity that can read only some of its properties from a
+ * JSONObjectAdapter.
+ *
+ */
+public interface MaskableJSONEntity extends JSONEntity {
+
+	/**
+	 * Initialize the properties of this object that are selected by the mask
+	 * from a JSONObjectAdapter. The other properties are not read.
+	 * @param toInitFrom
+	 * @param mask Null to read all of the properties.
+	 */
+	public JSONObjectAdapter initializeFromJSONObject(JSONObjectAdapter toInitFrom, FieldMask mask) throws JSONObjectAdapterException;
+
+}
@@ -0,0 +1,142 @@
+package org.sagebionetworks.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class BoundedAppenderTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullAppendable() {
+		new BoundedAppender(null, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeBudget() {
+		new BoundedAppender(new StringBuilder(), -1);
+	}
+
+	@Test
+	public void testAppendFits() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		BoundedAppender out = new BoundedAppender(builder, 10);
+		out.append("abc").append(null);
+		assertEquals("abcnull", builder.toString());
+		assertEquals(3, out.getRemaining());
+		assertFalse(out.isTruncated());
+	}
+
+	@Test
+	public void testAppendCut() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		BoundedAppender out = new BoundedAppender(builder, 5);
+		out.append("abc").append("defgh").append("ignored");
+		assertEquals("abcde...", builder.toString());
+		assertTrue(out.isTruncated());
+	}
+
+	@Test
+	public void testAppendValueSameAsToString() throws IOException {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("a", Arrays.asList(1L, 2L));
+		map.put("b", null);
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 100).appendValue(map);
+		assertEquals(map.toString(), builder.toString());
+	}
+
+	@Test
+	public void testAppendValueCollectionMore() throws IOException {
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			list.add(i);
+		}
+		StringBuilder builder = new StringBuilder();
+		BoundedAppender out = new BoundedAppender(builder, 7);
+		out.appendValue(list);
+		assertEquals("[0, 1, ... 98 more]", builder.toString());
+		assertTrue(out.isTruncated());
+	}
+
+	@Test
+	public void testAppendValueCollectionNoneWritten() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 1).appendValue(Arrays.asList("a", "b"));
+		assertEquals("[... 2 more]", builder.toString());
+	}
+
+	@Test
+	public void testAppendValueCollectionElementCut() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 7).appendValue(Arrays.asList("abc", "defgh", "i"));
+		// The ellipsis of the cut element is the only marker.
+		assertEquals("[abc, d...]", builder.toString());
+	}
+
+	@Test
+	public void testAppendValueCollectionLastElementCut() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 7).appendValue(Arrays.asList("abc", "defgh"));
+		assertEquals("[abc, d...]", builder.toString());
+	}
+
+	@Test
+	public void testAppendValueNestedCollectionCut() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 5).appendValue(Arrays.asList(Arrays.asList("abcdef"), "g"));
+		assertEquals("[[abc...]]", builder.toString());
+	}
+
+	@Test
+	public void testAppendValueMapMore() throws IOException {
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		map.put("a", "1");
+		map.put("b", "2");
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 4).appendValue(map);
+		assertEquals("{a=1, ... 1 more}", builder.toString());
+	}
+
+	@Test
+	public void testAppendValueMapEntryCut() throws IOException {
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		map.put("a", "1");
+		map.put("b", "234");
+		map.put("c", "5");
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 10).appendValue(map);
+		assertEquals("{a=1, b=23...}", builder.toString());
+	}
+
+	@Test
+	public void testAppendValueMapLastEntryCut() throws IOException {
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		map.put("a", "1");
+		map.put("b", "234");
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 10).appendValue(map);
+		assertEquals("{a=1, b=23...}", builder.toString());
+	}
+
+	@Test
+	public void testAppendValueBoundedToString() throws IOException {
+		BoundedToString value = new BoundedToString() {
+			@Override
+			public void appendTo(BoundedAppender out) throws IOException {
+				out.append("Nested [").appendValue(Arrays.asList("x")).append("]");
+			}
+		};
+		StringBuilder builder = new StringBuilder();
+		new BoundedAppender(builder, 100).appendValue(Arrays.asList(value));
+		assertEquals("[Nested [[x]]]", builder.toString());
+	}
+}
@@ -0,0 +1,56 @@
+package org.sagebionetworks.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FieldDescriptorTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeIndex() {
+		new FieldDescriptor(-1, "name", TYPE.STRING, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullName() {
+		new FieldDescriptor(0, null, TYPE.STRING, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullType() {
+		new FieldDescriptor(0, "name", null, null);
+	}
+
+	@Test
+	public void testEquals() {
+		FieldDescriptor descriptor = new FieldDescriptor(0, "created", TYPE.STRING, FORMAT.DATE_TIME);
+		assertEquals(descriptor, new FieldDescriptor(0, "created", TYPE.STRING, FORMAT.DATE_TIME));
+		assertEquals(descriptor.hashCode(), new FieldDescriptor(0, "created", TYPE.STRING, FORMAT.DATE_TIME).hashCode());
+		assertNotEquals(descriptor, new FieldDescriptor(0, "created", TYPE.STRING, null));
+		assertNotEquals(descriptor, new FieldDescriptor(1, "created", TYPE.STRING, FORMAT.DATE_TIME));
+	}
+
+	@Test
+	public void testList() {
+		FieldDescriptor first = new FieldDescriptor(0, "first", TYPE.STRING, null);
+		FieldDescriptor second = new FieldDescriptor(1, "second", TYPE.INTEGER, null);
+		List<FieldDescriptor> parent = FieldDescriptor.list(null, first);
+		// call under test
+		List<FieldDescriptor> list = FieldDescriptor.list(parent, second);
+		assertEquals(Arrays.asList(first, second), list);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testListWrongIndex() {
+		FieldDescriptor.list(null, new FieldDescriptor(1, "first", TYPE.STRING, null));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testListUnmodifiable() {
+		FieldDescriptor.list(null).add(new FieldDescriptor(0, "first", TYPE.STRING, null));
+	}
+}
@@ -0,0 +1,94 @@
+package org.sagebionetworks.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class FingerprintTest {
+
+	@Test
+	public void testStable() {
+		// FNV-1a of nothing, the value must never change between releases.
+		assertEquals(0xcbf29ce484222325L, Fingerprint.OFFSET_BASIS);
+		assertEquals(Fingerprint.of("abc"), Fingerprint.hash(Fingerprint.OFFSET_BASIS, "abc"));
+		assertEquals(Fingerprint.of("abc"), Fingerprint.of(new String("abc")));
+		assertNotEquals(Fingerprint.of("abc"), Fingerprint.of("abd"));
+	}
+
+	@Test
+	public void testTags() {
+		long start = Fingerprint.OFFSET_BASIS;
+		assertNotEquals(Fingerprint.hash(start, "1"), Fingerprint.hash(start, 1L));
+		assertNotEquals(Fingerprint.hash(start, 1L), Fingerprint.hash(start, 1.0));
+		assertNotEquals(Fingerprint.hash(start, new Date(1)), Fingerprint.hash(start, 1L));
+		assertNotEquals(Fingerprint.hash(start, (String) null), Fingerprint.hash(start, ""));
+		assertEquals(Fingerprint.hash(start, 1L), Fingerprint.hash(start, (Object) Long.valueOf(1)));
+		assertEquals(Fingerprint.hash(start, 1L), Fingerprint.hash(start, Integer.valueOf(1)));
+	}
+
+	@Test
+	public void testBytes() {
+		long start = Fingerprint.OFFSET_BASIS;
+		assertEquals(Fingerprint.hash(start, new byte[] { 1, 2 }), Fingerprint.hash(start, (Object) new byte[] { 1, 2 }));
+		assertNotEquals(Fingerprint.hash(start, new byte[] { 1, 2 }), Fingerprint.hash(start, new byte[] { 2, 1 }));
+	}
+
+	@Test
+	public void testList() {
+		long start = Fingerprint.OFFSET_BASIS;
+		List<String> list = new ArrayList<String>(Arrays.asList("a", null, "b"));
+		assertEquals(Fingerprint.hash(start, list), Fingerprint.hash(start, new ArrayList<String>(list)));
+		assertNotEquals(Fingerprint.hash(start, list), Fingerprint.hash(start, Arrays.asList("b", null, "a")));
+		// A list is not its concatenated content.
+		assertNotEquals(Fingerprint.hash(start, Arrays.asList("ab")), Fingerprint.hash(start, Arrays.asList("a", "b")));
+	}
+
+	@Test
+	public void testSetAndMapIgnoreOrder() {
+		long start = Fingerprint.OFFSET_BASIS;
+		assertEquals(Fingerprint.hash(start, new LinkedHashSet<String>(Arrays.asList("a", "b"))),
+				Fingerprint.hash(start, new LinkedHashSet<String>(Arrays.asList("b", "a"))));
+		Map<String, Long> one = new LinkedHashMap<String, Long>();
+		one.put("a", 1L);
+		one.put("b", 2L);
+		Map<String, Long> two = new LinkedHashMap<String, Long>();
+		two.put("b", 2L);
+		two.put("a", 1L);
+		assertEquals(Fingerprint.hash(start, one), Fingerprint.hash(start, two));
+		two.put("a", 2L);
+		assertNotEquals(Fingerprint.hash(start, one), Fingerprint.hash(start, two));
+	}
+
+	@Test
+	public void testEntity() {
+		FingerprintEntity entity = new FingerprintEntity() {
+			@Override
+			public long fingerprint64() {
+				return 123L;
+			}
+		};
+		long start = Fingerprint.OFFSET_BASIS;
+		assertEquals(Fingerprint.hash(start, entity), Fingerprint.hash(start, (Object) entity));
+		assertNotEquals(Fingerprint.hash(start, entity), Fingerprint.hash(start, 123L));
+	}
+
+	@Test
+	public void testEnum() {
+		assertEquals(Fingerprint.hash(Fingerprint.OFFSET_BASIS, TYPE.STRING), Fingerprint.hash(Fingerprint.OFFSET_BASIS, (Object) TYPE.STRING));
+		assertNotEquals(Fingerprint.hash(Fingerprint.OFFSET_BASIS, TYPE.STRING), Fingerprint.hash(Fingerprint.OFFSET_BASIS, TYPE.NUMBER));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownType() {
+		Fingerprint.hash(Fingerprint.OFFSET_BASIS, new Object());
+	}
+}
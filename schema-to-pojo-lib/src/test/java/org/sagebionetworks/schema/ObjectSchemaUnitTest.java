@@ -2,10 +2,18 @@ package org.sagebionetworks.schema;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -81,6 +89,100 @@ public class ObjectSchemaUnitTest {
 		// If all items were found the map should be empty
 		assertEquals("The iterator missed: "+expectedMap.size()+" sub-scheams", 0, expectedMap.size());
 	}
+
+	/**
+	 * Visitor that records each visit as a string.
+	 */
+	private static class RecordingVisitor implements ObjectSchemaVisitor {
+		List<String> visits = new ArrayList<String>();
+		String skip;
+		String terminate;
+
+		@Override
+		public Result preVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			visits.add("pre " + edge + " " + schema.getId() + (propertyName == null ? "" : " " + propertyName) + (index < 0 ? "" : " " + index));
+			if (schema.getId().equals(terminate)) {
+				return Result.TERMINATE;
+			}
+			return schema.getId().equals(skip) ? Result.SKIP_CHILDREN : Result.CONTINUE;
+		}
+
+		@Override
+		public Result postVisit(ObjectSchema schema, Edge edge, String propertyName, int index) {
+			visits.add("post " + schema.getId());
+			return Result.CONTINUE;
+		}
+	}
+
+	private ObjectSchema createSchemaWithEachChild() {
+		ObjectSchema root = ObjectSchemaImpl.createNewWithId("root");
+		ObjectSchema prop = ObjectSchemaImpl.createNewWithId("prop");
+		prop.setItems(ObjectSchemaImpl.createNewWithId("propItems"));
+		root.putProperty("p", prop);
+		root.putAdditionalProperty("ap", ObjectSchemaImpl.createNewWithId("additionalProp"));
+		root.setItems(ObjectSchemaImpl.createNewWithId("items"));
+		root.setAdditionalItems(ObjectSchemaImpl.createNewWithId("additionalItems"));
+		root.setKey(ObjectSchemaImpl.createNewWithId("key"));
+		root.setValue(ObjectSchemaImpl.createNewWithId("value"));
+		root.setExtends(ObjectSchemaImpl.createNewWithId("extends"));
+		root.setImplements(new ObjectSchema[] { ObjectSchemaImpl.createNewWithId("impl0"), ObjectSchemaImpl.createNewWithId("impl1") });
+		return root;
+	}
+
+	@Test
+	public void testAccept() {
+		RecordingVisitor visitor = new RecordingVisitor();
+		assertTrue(createSchemaWithEachChild().accept(visitor));
+		assertEquals(Arrays.asList(
+				"pre ROOT root",
+				"pre PROPERTY prop p",
+				"pre ITEMS propItems",
+				"post propItems",
+				"post prop",
+				"pre ADDITIONAL_PROPERTY additionalProp ap",
+				"post additionalProp",
+				"pre ITEMS items",
+				"post items",
+				"pre ADDITIONAL_ITEMS additionalItems",
+				"post additionalItems",
+				"pre KEY key",
+				"post key",
+				"pre VALUE value",
+				"post value",
+				"pre EXTENDS extends",
+				"post extends",
+				"pre IMPLEMENTS impl0 0",
+				"post impl0",
+				"pre IMPLEMENTS impl1 1",
+				"post impl1",
+				"post root"), visitor.visits);
+	}
+
+	@Test
+	public void testAcceptSkipChildren() {
+		RecordingVisitor visitor = new RecordingVisitor();
+		visitor.skip = "prop";
+		assertTrue(createSchemaWithEachChild().accept(visitor));
+		assertFalse(visitor.visits.contains("pre ITEMS propItems"));
+		// post is not called for a skipped schema
+		assertFalse(visitor.visits.contains("post prop"));
+		assertEquals("post root", visitor.visits.get(visitor.visits.size() - 1));
+	}
+
+	@Test
+	public void testAcceptTerminate() {
+		RecordingVisitor visitor = new RecordingVisitor();
+		visitor.terminate = "key";
+		assertFalse(createSchemaWithEachChild().accept(visitor));
+		assertEquals("pre KEY key", visitor.visits.get(visitor.visits.size() - 1));
+	}
+
+	@Test
+	public void testEdgeJsonName() {
+		assertNull(ObjectSchemaVisitor.Edge.ROOT.getJsonName());
+		assertEquals(ObjectSchemaImpl.JSON_PROPERTIES, ObjectSchemaVisitor.Edge.PROPERTY.getJsonName());
+		assertEquals(ObjectSchemaImpl.JSON_KEY, ObjectSchemaVisitor.Edge.KEY.getJsonName());
+	}
 	
 	@Test
 	public void testGetObjectFieldMap(){
@@ -150,6 +252,300 @@ public class ObjectSchemaUnitTest {
 		
 	}
 
+	@Test
+	public void testGetObjectFieldMapNewMap(){
+		ObjectSchema schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		schema.putProperty("one", new ObjectSchemaImpl(TYPE.STRING));
+		Map<String, ObjectSchema> fieldMap = schema.getObjectFieldMap();
+		assertNotSame(fieldMap, schema.getObjectFieldMap());
+		// Each caller gets its own map that it can change
+		fieldMap.put("two", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(1, schema.getObjectFieldMap().size());
+	}
+
+	@Test
+	public void testGetCachedObjectFieldMap(){
+		ObjectSchema schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		schema.putProperty("one", new ObjectSchemaImpl(TYPE.STRING));
+		Map<String, ObjectSchema> fieldMap = ObjectSchemaImpl.getCachedObjectFieldMap(schema);
+		assertEquals(schema.getObjectFieldMap(), fieldMap);
+		// The same map should be returned until the schema changes
+		assertSame(fieldMap, ObjectSchemaImpl.getCachedObjectFieldMap(schema));
+		try {
+			fieldMap.put("two", new ObjectSchemaImpl(TYPE.STRING));
+			fail("The field map should not be modifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		schema.putProperty("two", new ObjectSchemaImpl(TYPE.STRING));
+		Map<String, ObjectSchema> updated = ObjectSchemaImpl.getCachedObjectFieldMap(schema);
+		assertNotSame(fieldMap, updated);
+		assertEquals(2, updated.size());
+		assertTrue(updated.containsKey("two"));
+
+		LinkedHashMap<String, ObjectSchema> props = new LinkedHashMap<String, ObjectSchema>();
+		props.put("three", new ObjectSchemaImpl(TYPE.STRING));
+		schema.setProperties(props);
+		assertEquals(1, ObjectSchemaImpl.getCachedObjectFieldMap(schema).size());
+		assertTrue(ObjectSchemaImpl.getCachedObjectFieldMap(schema).containsKey("three"));
+	}
+
+	@Test
+	public void testGetCachedObjectFieldMapChangedThroughGetProperties(){
+		ObjectSchema schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		schema.putProperty("one", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(1, ObjectSchemaImpl.getCachedObjectFieldMap(schema).size());
+		schema.getProperties().put("two", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(2, ObjectSchemaImpl.getCachedObjectFieldMap(schema).size());
+		Iterator<String> it = schema.getProperties().keySet().iterator();
+		it.next();
+		it.remove();
+		assertEquals(Arrays.asList("two"), new ArrayList<String>(ObjectSchemaImpl.getCachedObjectFieldMap(schema).keySet()));
+		ObjectSchema replacement = new ObjectSchemaImpl(TYPE.INTEGER);
+		schema.getProperties().entrySet().iterator().next().setValue(replacement);
+		assertSame(replacement, ObjectSchemaImpl.getCachedObjectFieldMap(schema).get("two"));
+		schema.getProperties().clear();
+		assertTrue(ObjectSchemaImpl.getCachedObjectFieldMap(schema).isEmpty());
+	}
+
+	@Test
+	public void testGetCachedObjectFieldMapChangedThroughSetProperties(){
+		ObjectSchema schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		LinkedHashMap<String, ObjectSchema> props = new LinkedHashMap<String, ObjectSchema>();
+		props.put("one", new ObjectSchemaImpl(TYPE.STRING));
+		schema.setProperties(props);
+		assertEquals(1, ObjectSchemaImpl.getCachedObjectFieldMap(schema).size());
+		// The schema keeps a copy, so changing the map that was set changes neither the schema nor the cache.
+		props.put("two", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(1, schema.getProperties().size());
+		assertEquals(1, ObjectSchemaImpl.getCachedObjectFieldMap(schema).size());
+		assertEquals(schema.getObjectFieldMap(), ObjectSchemaImpl.getCachedObjectFieldMap(schema));
+	}
+
+	@Test
+	public void testSetAdditionalPropertiesCopy(){
+		ObjectSchema schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		LinkedHashMap<String, ObjectSchema> props = new LinkedHashMap<String, ObjectSchema>();
+		props.put("one", new ObjectSchemaImpl(TYPE.STRING));
+		schema.setAdditionalProperties(props);
+		long fingerprint = ObjectSchemaImpl.getFingerprint(schema);
+		props.put("two", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(1, schema.getAdditionalProperties().size());
+		assertEquals(fingerprint, ObjectSchemaImpl.getFingerprint(schema));
+	}
+
+	@Test
+	public void testGetCachedObjectFieldMapInterfaceChange(){
+		ObjectSchema baseInterface = new ObjectSchemaImpl(TYPE.INTERFACE);
+		baseInterface.putProperty("fromBase", new ObjectSchemaImpl(TYPE.STRING));
+		ObjectSchema impl = new ObjectSchemaImpl(TYPE.OBJECT);
+		impl.putProperty("fromImpl", new ObjectSchemaImpl(TYPE.STRING));
+		impl.setImplements(new ObjectSchema[]{baseInterface});
+		assertEquals(2, ObjectSchemaImpl.getCachedObjectFieldMap(impl).size());
+		// A change to the interface must be seen by the implementation
+		baseInterface.putProperty("addedToBase", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(3, ObjectSchemaImpl.getCachedObjectFieldMap(impl).size());
+		assertTrue(ObjectSchemaImpl.getCachedObjectFieldMap(impl).containsKey("addedToBase"));
+		baseInterface.getProperties().remove("fromBase");
+		assertEquals(2, ObjectSchemaImpl.getCachedObjectFieldMap(impl).size());
+	}
+
+	private ObjectSchema createSchemaForFingerprint() {
+		ObjectSchema schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		schema.setId("org.sample.Fingerprint");
+		schema.putProperty("one", new ObjectSchemaImpl(TYPE.STRING));
+		ObjectSchema list = new ObjectSchemaImpl(TYPE.ARRAY);
+		list.setItems(new ObjectSchemaImpl(TYPE.INTEGER));
+		schema.putProperty("two", list);
+		return schema;
+	}
+
+	@Test
+	public void testGetFingerprint() {
+		ObjectSchema one = createSchemaForFingerprint();
+		ObjectSchema two = createSchemaForFingerprint();
+		assertEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+		assertEquals(one.hashCode(), two.hashCode());
+		assertEquals(one, two);
+		// A change to a sub-schema must change the fingerprint of the parent.
+		two.getProperties().get("two").getItems().setType(TYPE.NUMBER);
+		assertNotEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+		assertFalse(one.equals(two));
+		two.getProperties().get("two").getItems().setType(TYPE.INTEGER);
+		assertEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+		assertEquals(one, two);
+	}
+
+	@Test
+	public void testGetFingerprintPropertyOrder() {
+		ObjectSchema one = new ObjectSchemaImpl(TYPE.OBJECT);
+		one.putProperty("a", new ObjectSchemaImpl(TYPE.STRING));
+		one.putProperty("b", new ObjectSchemaImpl(TYPE.BOOLEAN));
+		ObjectSchema two = new ObjectSchemaImpl(TYPE.OBJECT);
+		two.putProperty("b", new ObjectSchemaImpl(TYPE.BOOLEAN));
+		two.putProperty("a", new ObjectSchemaImpl(TYPE.STRING));
+		// Map equality ignores the order of the entries.
+		assertEquals(one, two);
+		assertEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+	}
+
+	@Test
+	public void testGetFingerprintEmptyPropertiesAndNull() {
+		ObjectSchemaImpl one = new ObjectSchemaImpl(TYPE.OBJECT);
+		ObjectSchemaImpl two = new ObjectSchemaImpl(TYPE.OBJECT);
+		two.setProperties(new LinkedHashMap<String, ObjectSchema>());
+		assertFalse(one.equals(two));
+		assertNotEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+	}
+
+	@Test
+	public void testGetFingerprintCycle() {
+		ObjectSchema node = new ObjectSchemaImpl(TYPE.OBJECT);
+		node.setId("org.sample.Node");
+		ObjectSchema children = new ObjectSchemaImpl(TYPE.ARRAY);
+		children.setItems(node);
+		node.putProperty("children", children);
+		// Must not recurse forever
+		long fingerprint = ObjectSchemaImpl.getFingerprint(node);
+		assertEquals(fingerprint, ObjectSchemaImpl.getFingerprint(node));
+		assertEquals(node, node);
+		// Starting from the other schema of the cycle does not change the fingerprint of the first
+		ObjectSchemaImpl.getFingerprint(children);
+		assertEquals(fingerprint, ObjectSchemaImpl.getFingerprint(node));
+	}
+
+	@Test
+	public void testGetFingerprintStoredOnSubSchemas() {
+		ObjectSchemaImpl schema = (ObjectSchemaImpl) createSchemaForFingerprint();
+		ObjectSchemaImpl list = (ObjectSchemaImpl) schema.getProperties().get("two");
+		long fingerprint = ObjectSchemaImpl.getFingerprint(schema);
+		// The walk of the parent stores the fingerprint of each sub-schema.
+		assertNotNull(list.fingerprintCache);
+		assertEquals(ObjectSchemaImpl.getFingerprint(list), list.fingerprintCache.getValue());
+		// A second call reuses the stored value.
+		ModificationTrackingSchema.CachedFingerprint stored = schema.fingerprintCache;
+		assertEquals(fingerprint, ObjectSchemaImpl.getFingerprint(schema));
+		assertSame(stored, schema.fingerprintCache);
+		// Any change drops the stored values.
+		list.getItems().setType(TYPE.NUMBER);
+		assertFalse(list.fingerprintCache.isValid(ModificationTrackingSchema.getGlobalModificationCount()));
+		assertNotEquals(fingerprint, ObjectSchemaImpl.getFingerprint(schema));
+	}
+
+	@Test
+	public void testGetFingerprintCycleNotStoredOnSubSchemas() {
+		ObjectSchemaImpl node = new ObjectSchemaImpl(TYPE.OBJECT);
+		ObjectSchemaImpl children = new ObjectSchemaImpl(TYPE.ARRAY);
+		children.setItems(node);
+		node.putProperty("children", children);
+		ObjectSchemaImpl name = new ObjectSchemaImpl(TYPE.STRING);
+		node.putProperty("name", name);
+		ObjectSchemaImpl.getFingerprint(node);
+		assertFalse(node.fingerprintCache.isAcyclic());
+		// The fingerprint of children depends on where the walk started.
+		assertNull(children.fingerprintCache);
+		assertTrue(name.fingerprintCache.isAcyclic());
+	}
+
+	@Test
+	public void testGetFingerprintKnown() {
+		ObjectSchema schema = createSchemaForFingerprint();
+		ObjectSchema list = schema.getProperties().get("two");
+		Map<ObjectSchema, Long> known = new IdentityHashMap<ObjectSchema, Long>();
+		long fingerprint = ObjectSchemaImpl.getFingerprint(schema, known);
+		assertEquals(ObjectSchemaImpl.getFingerprint(schema), fingerprint);
+		// Each schema found by the walk is added.
+		assertEquals(4, known.size());
+		assertEquals(Long.valueOf(fingerprint), known.get(schema));
+		assertEquals(Long.valueOf(ObjectSchemaImpl.getFingerprint(list)), known.get(list));
+		// The known fingerprints of the children are used as they are.
+		ObjectSchema equal = createSchemaForFingerprint();
+		known.put(equal.getProperties().get("two"), 1L);
+		assertNotEquals(fingerprint, ObjectSchemaImpl.getFingerprint(equal, known));
+	}
+
+	@Test
+	public void testGetFingerprintKnownCycle() {
+		ObjectSchema node = new ObjectSchemaImpl(TYPE.OBJECT);
+		ObjectSchema children = new ObjectSchemaImpl(TYPE.ARRAY);
+		children.setItems(node);
+		node.putProperty("children", children);
+		ObjectSchema name = new ObjectSchemaImpl(TYPE.STRING);
+		node.putProperty("name", name);
+		Map<ObjectSchema, Long> known = new IdentityHashMap<ObjectSchema, Long>();
+		assertEquals(ObjectSchemaImpl.getFingerprint(node), ObjectSchemaImpl.getFingerprint(node, known));
+		// Only the schema that does not reach the cycle is added.
+		assertEquals(1, known.size());
+		assertTrue(known.containsKey(name));
+	}
+
+	@Test
+	public void testEqualsFingerprintMismatch() {
+		ObjectSchemaImpl one = (ObjectSchemaImpl) createSchemaForFingerprint();
+		ObjectSchemaImpl two = (ObjectSchemaImpl) createSchemaForFingerprint();
+		assertEquals(one, two);
+		// equals() compares the fingerprints before the fields.
+		one.fingerprintCache = new ModificationTrackingSchema.CachedFingerprint(1L, true, ModificationTrackingSchema.getGlobalModificationCount());
+		assertFalse(one.equals(two));
+	}
+
+	@Test
+	public void testHashCodeCycle() {
+		ObjectSchema node = new ObjectSchemaImpl(TYPE.OBJECT);
+		ObjectSchema children = new ObjectSchemaImpl(TYPE.ARRAY);
+		children.setItems(node);
+		node.putProperty("children", children);
+		// Must not recurse forever
+		assertEquals(node.hashCode(), node.hashCode());
+	}
+
+	@Test
+	public void testGetFingerprintChangedThroughGetProperties() {
+		ObjectSchema one = createSchemaForFingerprint();
+		ObjectSchema two = createSchemaForFingerprint();
+		assertEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+		two.getProperties().put("three", new ObjectSchemaImpl(TYPE.BOOLEAN));
+		assertNotEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+		assertFalse(one.equals(two));
+		one.getProperties().put("three", new ObjectSchemaImpl(TYPE.BOOLEAN));
+		assertEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+		assertEquals(one, two);
+		assertEquals(one.hashCode(), two.hashCode());
+		two.getProperties().remove("three");
+		assertNotEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+		one.getProperties().keySet().remove("three");
+		assertEquals(ObjectSchemaImpl.getFingerprint(one), ObjectSchemaImpl.getFingerprint(two));
+	}
+
+	@Test
+	public void testGetFingerprintConcurrent() throws Exception {
+		final ObjectSchema node = new ObjectSchemaImpl(TYPE.OBJECT);
+		node.setId("org.sample.Node");
+		ObjectSchema children = new ObjectSchemaImpl(TYPE.ARRAY);
+		children.setItems(node);
+		node.putProperty("children", children);
+		node.putProperty("name", new ObjectSchemaImpl(TYPE.STRING));
+		final ObjectSchema copy = node.deepCopy();
+		final long expected = ObjectSchemaImpl.getFingerprint(copy);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Long>> results = new ArrayList<Future<Long>>();
+			for (int i = 0; i < 200; i++) {
+				results.add(executor.submit(new Callable<Long>() {
+					@Override
+					public Long call() {
+						return ObjectSchemaImpl.getFingerprint(node);
+					}
+				}));
+			}
+			for (Future<Long> result : results) {
+				assertEquals(expected, result.get().longValue());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Test
 	public void testGetPackageName(){
 		ObjectSchema schema = new ObjectSchemaImpl();
@@ -186,7 +582,101 @@ public class ObjectSchemaUnitTest {
 			index++;
 		}
 	}
-	
 
-	
+	@Test
+	public void testCopyConstructor(){
+		ObjectSchemaImpl schema = new ObjectSchemaImpl(TYPE.OBJECT);
+		schema.setName("SampleClass");
+		schema.setId("org.sample.SampleClass");
+		schema.setRequired(true);
+		schema.setEnum(new EnumValue[] { new EnumValue("a") });
+		ObjectSchema property = new ObjectSchemaImpl(TYPE.STRING);
+		schema.putProperty("name", property);
+		ObjectSchema anInterface = new ObjectSchemaImpl(TYPE.INTERFACE);
+		schema.setImplements(new ObjectSchema[] { anInterface });
+		// call under test
+		ObjectSchemaImpl copy = new ObjectSchemaImpl(schema);
+		assertEquals(schema, copy);
+		// containers are copied but the sub-schemas are shared
+		assertNotSame(schema.getProperties(), copy.getProperties());
+		assertSame(property, copy.getProperties().get("name"));
+		assertNotSame(schema.getImplements(), copy.getImplements());
+		assertSame(anInterface, copy.getImplements()[0]);
+		assertNotSame(schema.getEnum(), copy.getEnum());
+		copy.putProperty("other", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(1, schema.getProperties().size());
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testCopyConstructorNull(){
+		new ObjectSchemaImpl((ObjectSchemaImpl) null);
+	}
+
+	@Test
+	public void testDeepCopy(){
+		ObjectSchema root = new ObjectSchemaImpl(TYPE.OBJECT);
+		root.setId("root");
+		ObjectSchema shared = new ObjectSchemaImpl(TYPE.OBJECT);
+		shared.setId("shared");
+		shared.putProperty("name", new ObjectSchemaImpl(TYPE.STRING));
+		root.putProperty("one", shared);
+		ObjectSchema list = new ObjectSchemaImpl(TYPE.ARRAY);
+		list.setItems(shared);
+		root.putProperty("list", list);
+		ObjectSchema map = new ObjectSchemaImpl(TYPE.MAP);
+		map.setKey(new ObjectSchemaImpl(TYPE.STRING));
+		map.setValue(shared);
+		root.putProperty("map", map);
+		// call under test
+		ObjectSchema copy = root.deepCopy();
+		assertEquals(root, copy);
+		assertNotSame(root, copy);
+		ObjectSchema sharedCopy = copy.getProperties().get("one");
+		assertNotSame(shared, sharedCopy);
+		assertNotSame(shared.getProperties().get("name"), sharedCopy.getProperties().get("name"));
+		// the shared schema is copied once
+		assertSame(sharedCopy, copy.getProperties().get("list").getItems());
+		assertSame(sharedCopy, copy.getProperties().get("map").getValue());
+		assertNotSame(map.getKey(), copy.getProperties().get("map").getKey());
+		// changing the copy does not change the original
+		sharedCopy.putProperty("other", new ObjectSchemaImpl(TYPE.STRING));
+		assertEquals(1, shared.getProperties().size());
+	}
+
+	@Test
+	public void testDeepCopyWithCycle(){
+		ObjectSchema root = new ObjectSchemaImpl(TYPE.OBJECT);
+		root.setId("root");
+		ObjectSchema child = new ObjectSchemaImpl(TYPE.OBJECT);
+		child.setId("child");
+		root.putProperty("child", child);
+		child.putProperty("parent", root);
+		ObjectSchema anInterface = new ObjectSchemaImpl(TYPE.INTERFACE);
+		root.setImplements(new ObjectSchema[] { anInterface });
+		child.setImplements(new ObjectSchema[] { anInterface });
+		// call under test
+		ObjectSchema copy = root.deepCopy();
+		ObjectSchema childCopy = copy.getProperties().get("child");
+		assertNotSame(child, childCopy);
+		assertSame(copy, childCopy.getProperties().get("parent"));
+		assertNotSame(anInterface, copy.getImplements()[0]);
+		assertSame(copy.getImplements()[0], childCopy.getImplements()[0]);
+	}
+
+	@Test
+	public void testDeepCopySharesRecursiveInstances(){
+		ObjectSchema root = new ObjectSchemaImpl(TYPE.OBJECT);
+		root.setId("root");
+		ObjectSchema recursiveInstance = new ObjectSchemaImpl(TYPE.OBJECT);
+		recursiveInstance.setId("root");
+		recursiveInstance.setIs$RecursiveRefInstance(true);
+		root.putProperty("child", recursiveInstance);
+		// call under test
+		ObjectSchema copy = root.deepCopy();
+		assertSame(recursiveInstance, copy.getProperties().get("child"));
+		// a recursive instance can itself be copied
+		ObjectSchema instanceCopy = recursiveInstance.deepCopy();
+		assertNotSame(recursiveInstance, instanceCopy);
+		assertTrue(instanceCopy.is$RecursiveRefInstance());
+	}
 }
@@ -0,0 +1,60 @@
+package org.sagebionetworks.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ValidationResultTest {
+
+	@Test
+	public void testValid() {
+		ValidationResult result = new ValidationResult();
+		assertTrue(result.isValid());
+		assertTrue(result.getViolations().isEmpty());
+	}
+
+	@Test
+	public void testAddViolation() {
+		ValidationResult result = new ValidationResult();
+		result.addViolation("name", "is required");
+		result.enter("owner");
+		result.enter("address");
+		result.addViolation("city", "must have at most 10 characters");
+		result.exit();
+		result.addViolation("age", "must be at least 0");
+		result.exit();
+		assertFalse(result.isValid());
+		assertEquals(Arrays.asList("name is required", "owner.address.city must have at most 10 characters", "owner.age must be at least 0"),
+				result.getViolations());
+	}
+
+	@Test
+	public void testClear() {
+		ValidationResult result = new ValidationResult();
+		result.enter("owner");
+		result.addViolation("name", "is required");
+		result.clear();
+		assertTrue(result.isValid());
+		result.addViolation("name", "is required");
+		assertEquals(Arrays.asList("name is required"), result.getViolations());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testExitWithoutEnter() {
+		new ValidationResult().exit();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEnterNull() {
+		new ValidationResult().enter(null);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testViolationsUnmodifiable() {
+		new ValidationResult().getViolations().add("name is required");
+	}
+}
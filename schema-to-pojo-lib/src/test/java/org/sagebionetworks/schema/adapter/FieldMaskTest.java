@@ -0,0 +1,35 @@
+package org.sagebionetworks.schema.adapter;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FieldMaskTest {
+
+	@Test
+	public void testContains() {
+		FieldMask mask = new FieldMask("id", "name");
+		assertTrue(mask.contains("id"));
+		assertTrue(mask.contains("name"));
+		assertFalse(mask.contains("modifiedOn"));
+		assertNull(mask.getNested("id"));
+	}
+
+	@Test
+	public void testNested() {
+		FieldMask nested = new FieldMask("id");
+		FieldMask mask = new FieldMask().with("owner", nested).with("name");
+		assertTrue(mask.contains("owner"));
+		assertTrue(mask.contains("name"));
+		assertSame(nested, mask.getNested("owner"));
+		assertNull(mask.getNested("missing"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullKey() {
+		new FieldMask((String) null);
+	}
+}
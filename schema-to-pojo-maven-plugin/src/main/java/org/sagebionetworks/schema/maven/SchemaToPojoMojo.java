@@ -11,6 +11,8 @@ import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
+import org.sagebionetworks.schema.generator.GenerationMetrics;
+import org.sagebionetworks.schema.generator.PojoGeneratorOptions;
 import org.sagebionetworks.schema.generator.SchemaToPojo;
 import org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03;
 
@@ -33,14 +35,14 @@ public class SchemaToPojoMojo extends AbstractMojo {
      *            default-value="${project.build.directory}/generated-sources"
      * @since 0.1.0
      */
-    private File outputDirectory;
+    protected File outputDirectory;
     
     /** 
      * @parameter expression="${schema-to-pojo.sourceDirectory}"
      * @required
      * @since 0.1.0
      */
-    private File sourceDirectory;
+    protected File sourceDirectory;
 
     /**
      * Package name used for generated Java classes (for types where a fully
@@ -57,7 +59,126 @@ public class SchemaToPojoMojo extends AbstractMojo {
     * @parameter expression="${schema-to-pojo.createRegister}"
     * @since 0.1.13
     */
-    private String createRegister;
+    protected String createRegister;
+    
+    /**
+     * When true, structurally identical anonymous sub-schemas share a single
+     * instance while the classes are generated, which reduces the memory used
+     * for large schema sets. The generated classes are the same.
+     * @parameter expression="${schema-to-pojo.internSubSchemas}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean internSubSchemas;
+    
+    /**
+     * This is an optional parameter. When set, a class with this fully qualified
+     * name will index all of the concrete classes that implement an interface,
+     * and each interface factory will be a small view over this index.
+     * @parameter expression="${schema-to-pojo.concreteTypeIndex}"
+     * @since 0.6.5
+     */
+    protected String concreteTypeIndex;
+    
+    /**
+     * When an interface has at most this many implementations, the generated
+     * code creates its concrete classes with a switch on the concrete type
+     * instead of calling the factory of the interface. Zero to always use the
+     * factories.
+     * @parameter expression="${schema-to-pojo.inlineFactoryThreshold}" default-value="0"
+     * @since 0.6.5
+     */
+    protected int inlineFactoryThreshold;
+    
+    /**
+     * When true, the generated classes are immutable. Their fields are final,
+     * they have no setters and a nested Builder is used to create them and to
+     * read them from JSON.
+     * @parameter expression="${schema-to-pojo.immutable}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean immutable;
+    
+    /**
+     * When greater than zero, the generated classes get an appendTo(Appendable, int)
+     * and their toString() writes at most this many characters. Zero for the plain
+     * toString().
+     * @parameter expression="${schema-to-pojo.toStringBudget}" default-value="0"
+     * @since 0.6.5
+     */
+    protected int toStringBudget;
+    
+    /**
+     * When true, the generated classes get a copy constructor and a copy() that
+     * deep copies the fields without a JSON round trip.
+     * @parameter expression="${schema-to-pojo.generateCopy}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean generateCopy;
+    
+    /**
+     * When true, the generated classes can read only the properties selected by a
+     * FieldMask and their key constants are public. Not supported with immutable.
+     * @parameter expression="${schema-to-pojo.fieldMask}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean fieldMask;
+    
+    /**
+     * When true, the object, array and map properties are read from JSON the first
+     * time they are used and the unused ones are written back unchanged. Not
+     * supported with immutable or fieldMask.
+     * @parameter expression="${schema-to-pojo.lazyNested}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean lazyNested;
+    
+    /**
+     * When true, the generated classes can write the JSON merge patch between two
+     * objects with diff() and apply one with applyPatch(). Not supported with immutable.
+     * @parameter expression="${schema-to-pojo.mergePatch}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean mergePatch;
+    
+    /**
+     * When true, the generated classes get static field descriptors and
+     * getFieldValue(int)/setFieldValue(int, Object) to access their properties by index.
+     * @parameter expression="${schema-to-pojo.fieldAccess}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean fieldAccess;
+    
+    /**
+     * When true, the generated classes are Externalizable with generated
+     * writeExternal() and readExternal(). Not supported with immutable.
+     * @parameter expression="${schema-to-pojo.externalizable}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean externalizable;
+    
+    /**
+     * When true, the generated classes get a fingerprint64() with a stable hash of
+     * their content, for cache keys and de-duplication.
+     * @parameter expression="${schema-to-pojo.fingerprint}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean fingerprint;
+    
+    /**
+     * When true, the generated classes get a validate() that checks the pattern, range,
+     * length and size constraints of their schemas.
+     * @parameter expression="${schema-to-pojo.validation}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean validation;
+    
+    /**
+     * When true, the generated classes are validated when they are read from JSON with
+     * their constructor. Implies validation, not supported with lazyNested.
+     * @parameter expression="${schema-to-pojo.validateOnRead}" default-value="false"
+     * @since 0.6.5
+     */
+    protected boolean validateOnRead;
     
     
     /**
@@ -67,23 +188,49 @@ public class SchemaToPojoMojo extends AbstractMojo {
      * @required
      * @readonly
      */
-    private MavenProject project;
+    protected MavenProject project;
 
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		try {
 			// Add all of the auto-generated classes to the project
 			 project.addCompileSourceRoot(outputDirectory.getPath());
+			 PojoGeneratorOptions options = createOptions();
 			 // Hard code the factory for now
-			 HandlerFactoryImpl03 factory = new HandlerFactoryImpl03();
+			 HandlerFactoryImpl03 factory = new HandlerFactoryImpl03(options);
 			 // Generate the classes from their schemas.
 			StringBuilder tmplog = new StringBuilder();
-			SchemaToPojo.generatePojos(sourceDirectory, outputDirectory,createRegister, factory, tmplog);
+			GenerationMetrics metrics = SchemaToPojo.generatePojos(sourceDirectory, outputDirectory,createRegister, factory, options, tmplog);
 			if (tmplog.length() > 0) {
 				getLog().info(tmplog.toString());
 			}
+			getLog().info(metrics.getSummary());
 		} catch (Exception e) {
 			throw new MojoFailureException("Failed to execute mojo: "+e.getMessage(), e);
 		} 
 	}
 
+	/**
+	 * Create the generator options from the parameters of this mojo.
+	 * 
+	 * @return
+	 */
+	protected PojoGeneratorOptions createOptions() {
+		PojoGeneratorOptions options = new PojoGeneratorOptions();
+		options.setInternSubSchemas(internSubSchemas);
+		options.setConcreteTypeIndex(concreteTypeIndex);
+		options.setInlineFactoryThreshold(inlineFactoryThreshold);
+		options.setImmutable(immutable);
+		options.setToStringBudget(toStringBudget);
+		options.setGenerateCopy(generateCopy);
+		options.setFieldMask(fieldMask);
+		options.setLazyNested(lazyNested);
+		options.setMergePatch(mergePatch);
+		options.setFieldAccess(fieldAccess);
+		options.setExternalizable(externalizable);
+		options.setFingerprint(fingerprint);
+		options.setValidation(validation);
+		options.setValidateOnRead(validateOnRead);
+		return options;
+	}
+
 }
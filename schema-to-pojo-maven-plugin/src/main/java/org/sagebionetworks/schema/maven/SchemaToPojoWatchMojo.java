@@ -0,0 +1,48 @@
+package org.sagebionetworks.schema.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.sagebionetworks.schema.generator.PojoGeneratorOptions;
+import org.sagebionetworks.schema.generator.SchemaToPojo;
+import org.sagebionetworks.schema.generator.SchemaWatcher;
+import org.sagebionetworks.schema.generator.handler.schema03.HandlerFactoryImpl03;
+
+/**
+ * Generates the classes and then keeps running, regenerating the classes each
+ * time a schema file in the source directory changes. Stop it with Ctrl-C.
+ * 
+ * @goal watch
+ * @requiresDependencyResolution compile
+ * @see <a
+ *      href="http://maven.apache.org/developers/mojo-api-specification.html">Mojo
+ *      API Specification</a>
+ */
+public class SchemaToPojoWatchMojo extends SchemaToPojoMojo {
+
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		try {
+			project.addCompileSourceRoot(outputDirectory.getPath());
+			PojoGeneratorOptions options = createOptions();
+			HandlerFactoryImpl03 factory = new HandlerFactoryImpl03(options);
+			getLog().info("Watching " + sourceDirectory + " for changes");
+			SchemaToPojo.watch(sourceDirectory, outputDirectory, createRegister, factory, options, new SchemaWatcher.Listener() {
+
+				@Override
+				public void onGenerated(StringBuilder log, long elapsedMS) {
+					if (log.length() > 0) {
+						getLog().info(log.toString());
+					}
+					getLog().info("Generated classes in " + elapsedMS + " ms");
+				}
+
+				@Override
+				public void onError(Exception e) {
+					getLog().error("Failed to generate classes: " + e.getMessage(), e);
+				}
+			});
+		} catch (Exception e) {
+			throw new MojoFailureException("Failed to execute mojo: " + e.getMessage(), e);
+		}
+	}
+
+}
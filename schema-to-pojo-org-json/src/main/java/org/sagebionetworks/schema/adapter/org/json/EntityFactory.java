@@ -1,13 +1,17 @@
 package org.sagebionetworks.schema.adapter.org.json;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 
 import org.json.JSONObject;
 import org.sagebionetworks.schema.ObjectSchema;
 import org.sagebionetworks.schema.ObjectSchemaImpl;
+import org.sagebionetworks.schema.adapter.FieldMask;
+import org.sagebionetworks.schema.adapter.ImmutableJSONEntity;
 import org.sagebionetworks.schema.adapter.JSONEntity;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.adapter.MaskableJSONEntity;
 
 /**
  * Helper for generating JSONEntity using adapters.
@@ -69,6 +73,23 @@ public class EntityFactory {
 		return createEntityFromAdapter(clazz, adapter); 
 	}
 	
+	/**
+	 * Create an entity from a JSON String, reading only the properties selected by the mask.
+	 * @param <T>
+	 * @param jsonString
+	 * @param clazz
+	 * @param mask
+	 * @return
+	 * @throws JSONObjectAdapterException
+	 */
+	public static <T extends MaskableJSONEntity> T createEntityFromJSONString(String jsonString, Class<? extends T> clazz, FieldMask mask) throws JSONObjectAdapterException{
+		if(jsonString == null) throw new IllegalArgumentException("JSON string cannot be null");
+		if(clazz == null) throw new IllegalArgumentException("JSONEntity class cannot be null");
+		if(mask == null) throw new IllegalArgumentException("FieldMask cannot be null");
+		JSONObjectAdapter adapter = new JSONObjectAdapterImpl(jsonString);
+		return createEntityFromAdapter(clazz, adapter, mask);
+	}
+	
 	
 	/**
 	 * Create an entity from a JSON String.
@@ -94,25 +115,60 @@ public class EntityFactory {
 	 * @return
 	 * @throws JSONObjectAdapterException
 	 */
-	@SuppressWarnings("unchecked")
 	private static <T extends JSONEntity> T createEntityFromAdapter(Class<? extends T> clazz, JSONObjectAdapter adapter) throws JSONObjectAdapterException {
 		// Now create a new instance of the class
 		try {
-			T newInstance = null;
-			if(clazz.isInterface()){
-				String concreteType = extractConcreteType(adapter, clazz);
-				// Use the concrete type to instantiate the object.
-				newInstance = (T) Class.forName(concreteType).newInstance();
-			}else{
-				newInstance = clazz.newInstance();
+			Class<? extends T> entityClass = getEntityClass(clazz, adapter);
+			if(ImmutableJSONEntity.class.isAssignableFrom(entityClass)){
+				// Immutable entities can only be read with their constructor.
+				return entityClass.getConstructor(JSONObjectAdapter.class).newInstance(adapter);
 			}
+			T newInstance = entityClass.newInstance();
 			newInstance.initializeFromJSONObject(adapter);
 			return newInstance;
+		} catch (InvocationTargetException e) {
+			// Thrown by the constructor of an immutable entity.
+			throw new JSONObjectAdapterException(e.getCause());
 		} catch (Exception e) {
 			throw new JSONObjectAdapterException(e);
 		}
 	}
 	
+	/**
+	 * Given an adapter, class and mask, create an instance of the entity with the selected properties.
+	 * @param <T>
+	 * @param clazz
+	 * @param adapter
+	 * @param mask
+	 * @return
+	 * @throws JSONObjectAdapterException
+	 */
+	private static <T extends MaskableJSONEntity> T createEntityFromAdapter(Class<? extends T> clazz, JSONObjectAdapter adapter, FieldMask mask) throws JSONObjectAdapterException {
+		try {
+			T newInstance = getEntityClass(clazz, adapter).newInstance();
+			newInstance.initializeFromJSONObject(adapter, mask);
+			return newInstance;
+		} catch (Exception e) {
+			throw new JSONObjectAdapterException(e);
+		}
+	}
+	
+	/**
+	 * The class to instantiate, the concrete type for an interface.
+	 * @param clazz
+	 * @param adapter
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends JSONEntity> Class<? extends T> getEntityClass(Class<? extends T> clazz, JSONObjectAdapter adapter) throws JSONObjectAdapterException, ClassNotFoundException {
+		if(clazz.isInterface()){
+			String concreteType = extractConcreteType(adapter, clazz);
+			// Use the concrete type to instantiate the object.
+			return (Class<? extends T>) Class.forName(concreteType);
+		}
+		return clazz;
+	}
+	
 	private static <T extends JSONEntity> String extractConcreteType(JSONObjectAdapter adapter, Class<? extends T> clazz) throws JSONObjectAdapterException {
 		if (!adapter.isNull(ObjectSchema.CONCRETE_TYPE)) {
 			return adapter.getString(ObjectSchema.CONCRETE_TYPE);
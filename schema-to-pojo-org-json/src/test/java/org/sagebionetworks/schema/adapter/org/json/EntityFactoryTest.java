@@ -2,12 +2,20 @@ package org.sagebionetworks.schema.adapter.org.json;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
+import org.sagebionetworks.schema.adapter.FieldMask;
+import org.sagebionetworks.schema.adapter.ImmutableJSONEntity;
+import org.sagebionetworks.schema.adapter.JSONEntity;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapter;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.adapter.MaskableJSONEntity;
 
 
 public class EntityFactoryTest {
@@ -66,6 +74,129 @@ public class EntityFactoryTest {
 		assertEquals(stub, clone);
 	}
 	
+	/**
+	 * An entity that can only be read with its constructor.
+	 */
+	public static class ImmutableStub implements ImmutableJSONEntity {
+		
+		private final String value;
+		
+		public ImmutableStub(JSONObjectAdapter adapter) throws JSONObjectAdapterException {
+			value = adapter.getString("value");
+		}
+
+		@Override
+		public JSONObjectAdapter initializeFromJSONObject(JSONObjectAdapter toInitFrom) throws JSONObjectAdapterException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public JSONObjectAdapter writeToJSONObject(JSONObjectAdapter writeTo) throws JSONObjectAdapterException {
+			return writeTo.put("value", value);
+		}
+	}
+	
+	@Test
+	public void testCreateEntityFromJSONStringConstructor() throws JSONObjectAdapterException{
+		ImmutableStub stub = EntityFactory.createEntityFromJSONString("{\"value\":\"read by the constructor\"}", ImmutableStub.class);
+		assertEquals("read by the constructor", stub.value);
+		assertEquals("{\"value\":\"read by the constructor\"}", EntityFactory.createJSONStringForEntity(stub));
+	}
+	
+	@Test
+	public void testCreateEntityFromJSONStringConstructorFailure() throws JSONObjectAdapterException{
+		JSONObjectAdapterException e = assertThrows(JSONObjectAdapterException.class, () -> {
+			EntityFactory.createEntityFromJSONString("{}", ImmutableStub.class);
+		});
+		// The cause is not hidden by the reflection
+		assertTrue(e.getCause() instanceof JSONObjectAdapterException);
+	}
+	
+	/**
+	 * A mutable entity that also has a constructor that takes an adapter.
+	 */
+	public static class MutableStubWithConstructor implements JSONEntity {
+		
+		private String value;
+		private boolean readByConstructor;
+		
+		public MutableStubWithConstructor() {
+		}
+		
+		public MutableStubWithConstructor(JSONObjectAdapter adapter) throws JSONObjectAdapterException {
+			readByConstructor = true;
+			value = adapter.getString("value");
+		}
+
+		@Override
+		public JSONObjectAdapter initializeFromJSONObject(JSONObjectAdapter toInitFrom) throws JSONObjectAdapterException {
+			value = toInitFrom.getString("value");
+			return toInitFrom;
+		}
+
+		@Override
+		public JSONObjectAdapter writeToJSONObject(JSONObjectAdapter writeTo) throws JSONObjectAdapterException {
+			return writeTo.put("value", value);
+		}
+	}
+	
+	@Test
+	public void testCreateEntityFromJSONStringMutableWithConstructor() throws JSONObjectAdapterException{
+		MutableStubWithConstructor stub = EntityFactory.createEntityFromJSONString("{\"value\":\"read by initialize\"}", MutableStubWithConstructor.class);
+		assertEquals("read by initialize", stub.value);
+		assertFalse(stub.readByConstructor);
+	}
+	
+	@Test
+	public void testCreateEntityFromJSONStringMutableWithConstructorFailure() throws JSONObjectAdapterException{
+		JSONObjectAdapterException e = assertThrows(JSONObjectAdapterException.class, () -> {
+			EntityFactory.createEntityFromJSONString("{}", MutableStubWithConstructor.class);
+		});
+		// The exception of initializeFromJSONObject is wrapped as before
+		assertTrue(e.getCause() instanceof JSONObjectAdapterException);
+	}
+	
+	public static class MaskableStub implements MaskableJSONEntity {
+		
+		private String first;
+		private String second;
+		
+		@Override
+		public JSONObjectAdapter initializeFromJSONObject(JSONObjectAdapter toInitFrom) throws JSONObjectAdapterException {
+			return initializeFromJSONObject(toInitFrom, null);
+		}
+		
+		@Override
+		public JSONObjectAdapter initializeFromJSONObject(JSONObjectAdapter toInitFrom, FieldMask mask) throws JSONObjectAdapterException {
+			if (mask == null || mask.contains("first")) {
+				first = toInitFrom.getString("first");
+			}
+			if (mask == null || mask.contains("second")) {
+				second = toInitFrom.getString("second");
+			}
+			return toInitFrom;
+		}
+
+		@Override
+		public JSONObjectAdapter writeToJSONObject(JSONObjectAdapter writeTo) throws JSONObjectAdapterException {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	@Test
+	public void testCreateEntityFromJSONStringFieldMask() throws JSONObjectAdapterException{
+		MaskableStub stub = EntityFactory.createEntityFromJSONString("{\"first\":\"1\",\"second\":\"2\"}", MaskableStub.class, new FieldMask("second"));
+		assertNull(stub.first);
+		assertEquals("2", stub.second);
+	}
+	
+	@Test
+	public void testCreateEntityFromJSONStringFieldMaskNull() throws JSONObjectAdapterException{
+		assertThrows(IllegalArgumentException.class, () -> {
+			EntityFactory.createEntityFromJSONString("{}", MaskableStub.class, null);
+		});
+	}
+	
 	@Test
 	public void testJSONObjectRoundTrip() throws JSONObjectAdapterException{
 		SimpleEntityStub stub = new SimpleEntityStub();